@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("application")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.pong"
@@ -14,6 +15,8 @@ dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
     implementation("mysql:mysql-connector-java:8.0.33")
+    // In-memory database standing in for MySQL in the persistence benchmarks
+    jmh("com.h2database:h2:2.2.224")
 }
 
 application {
@@ -34,4 +37,14 @@ sourceSets {
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+// JMH benchmarks live in src/jmh/java; run with `./gradlew jmh`.
+// Results are written as JSON (including the GC profiler's allocation rate) so runs can be compared across commits.
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    profilers.add("gc")
+    jvmArgsAppend.add("-Djava.awt.headless=true")
+}
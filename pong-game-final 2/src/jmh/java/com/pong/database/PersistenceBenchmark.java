@@ -0,0 +1,97 @@
+package com.pong.database;
+import com.pong.model.Score;
+import com.pong.model.User;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks ScoreManager and UserManager against an in-memory H2 database in MySQL mode.
+ * This isolates our own JDBC overhead (connection handling, statement preparation, mapping)
+ * from network latency to the real MySQL server.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dpong.db.url=jdbc:h2:mem:pongdb;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "-Dpong.db.user=sa",
+        "-Dpong.db.password="
+})
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+    private static final int HISTORY_USER_ID = 1;
+    private static final int WRITER_USER_ID = 2;
+
+    private final ScoreManager scoreManager = new ScoreManager();
+    private final UserManager userManager = new UserManager();
+    private Score score;
+
+    @Setup
+    public void setUp() throws SQLException {
+        try (Connection conn = DatabaseUtils.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS users (" +
+                    "user_id INT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(255) NOT NULL, " +
+                    "email VARCHAR(255) NOT NULL UNIQUE, password VARCHAR(255) NOT NULL, " +
+                    "firstName VARCHAR(255), lastName VARCHAR(255))");
+            stmt.execute("CREATE TABLE IF NOT EXISTS scores (" +
+                    "score_id INT AUTO_INCREMENT PRIMARY KEY, user_id INT, score INT NOT NULL, " +
+                    "date_played TIMESTAMP DEFAULT CURRENT_TIMESTAMP, opponent_score INT, score_points INT, " +
+                    "FOREIGN KEY (user_id) REFERENCES users(user_id))");
+        }
+
+        userManager.createUser(new User.Builder()
+                .setUsername("history").setPassword("secret").setEmail("history@example.com").build());
+        userManager.createUser(new User.Builder()
+                .setUsername("writer").setPassword("secret").setEmail("writer@example.com").build());
+
+        // A typical statistics screen shows a few dozen past matches
+        for (int i = 0; i < 50; i++) {
+            scoreManager.addScore(new Score.Builder()
+                    .setUserId(HISTORY_USER_ID).setScore(11).setOpponentScore(i % 11)
+                    .setDatePlayed(new Timestamp(System.currentTimeMillis())).build());
+        }
+
+        score = new Score.Builder()
+                .setUserId(WRITER_USER_ID).setScore(11).setOpponentScore(9)
+                .setDatePlayed(new Timestamp(System.currentTimeMillis())).build();
+    }
+
+    @Benchmark
+    public void addScore() {
+        scoreManager.addScore(score);
+    }
+
+    /**
+     * Both players' scores of a match in one batch, as the score writer stores them.
+     */
+    @Benchmark
+    public void addScoresOfMatch() {
+        scoreManager.addScores(List.of(score, score));
+    }
+
+    @Benchmark
+    public List<Score> getUserScores() {
+        return scoreManager.getUserScores(HISTORY_USER_ID);
+    }
+
+    @Benchmark
+    public User authenticateUser() {
+        return userManager.authenticateUser("history", "secret");
+    }
+}
@@ -0,0 +1,108 @@
+package com.pong.physics;
+import com.pong.model.BallStore;
+import com.pong.model.GameModel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the per-tick physics hot path.
+ * The ball is cycled through a fixed set of positions so both the "free flight"
+ * and the "paddle contact" branches of the collision code are exercised.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PhysicsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean sweptCollision;
+
+    private GameModel model;
+    private PhysicsEngine engine;
+
+    // Ball start states: mid-court, against each paddle, against each wall
+    private final double[] startX = {390, 32, 748, 200, 600};
+    private final double[] startY = {290, 300, 300, 2, 578};
+    private final double[] startXSpeed = {5, -6, 6, 4, -4};
+    private final double[] startYSpeed = {3, 2, -2, -5, 5};
+    private int index;
+
+    @Setup
+    public void setUp() {
+        model = new GameModel(800, 600, 10, 100, 20, 11);
+        engine = new PhysicsEngine.Builder(model)
+                .setSweptCollision(sweptCollision)
+                .setSeed(42)
+                .build();
+    }
+
+    private void placeBall() {
+        int i = index++ % startX.length;
+        model.ballX = startX[i];
+        model.ballY = startY[i];
+        model.ballXSpeed = startXSpeed[i];
+        model.ballYSpeed = startYSpeed[i];
+        model.paddle1Y = 250;
+        model.paddle2Y = 250;
+    }
+
+    @Benchmark
+    public int handleCollisions() {
+        placeBall();
+        engine.updateBallPosition();
+        return engine.handleCollisions();
+    }
+
+    @Benchmark
+    public int step() {
+        placeBall();
+        return engine.step(PaddleInput.PADDLE1_UP | PaddleInput.PADDLE2_DOWN);
+    }
+
+    @Benchmark
+    public double calculateBounce() {
+        placeBall();
+        engine.calculateBounce(model.paddle1Y, 8, true);
+        return model.ballYSpeed;
+    }
+
+    @Benchmark
+    public int stepMultiball(MultiballState state) {
+        return state.engine.step(PaddleInput.PADDLE1_UP | PaddleInput.PADDLE2_DOWN);
+    }
+
+    /**
+     * Chaos-mode match with hundreds of balls in the structure-of-arrays store.
+     */
+    @State(Scope.Thread)
+    public static class MultiballState {
+        @Param({"100", "500"})
+        public int ballCount;
+
+        PhysicsEngine engine;
+
+        @Setup
+        public void setUp() {
+            // Effectively unlimited score so the match never ends mid-measurement
+            GameModel model = new GameModel(800, 600, 10, 100, 20, Integer.MAX_VALUE);
+            model.extraBalls = new BallStore(ballCount - 1);
+            engine = new PhysicsEngine.Builder(model)
+                    .setTickRate(120)
+                    .setSeed(42)
+                    .build();
+        }
+    }
+}
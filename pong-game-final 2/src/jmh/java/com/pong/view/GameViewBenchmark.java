@@ -0,0 +1,69 @@
+package com.pong.view;
+import com.pong.model.GameModel;
+import com.pong.model.Settings;
+import com.pong.model.User;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of one game frame by painting GameView into an offscreen image.
+ * Runs headless, so it measures Java2D software rendering - the worst case for our kiosks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameViewBenchmark {
+
+    // Whether the ball is drawn in its deformed (just hit) state
+    @Param({"0", "5"})
+    public int deformationFrames;
+
+    private GameView view;
+    private GameModel model;
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() {
+        User playerOne = new User.Builder().setId(1).setUsername("left").build();
+        User playerTwo = new User.Builder().setId(2).setUsername("right").build();
+        view = new GameView(playerOne, playerTwo, new Settings());
+        view.setSize(view.getPreferredSize());
+
+        model = new GameModel(800, 600, 10, 100, 20, 11);
+        model.ballXSpeed = 6;
+        model.ballYSpeed = 3;
+        model.player1Score = 7;
+        model.player2Score = 10;
+        model.deformationFrames = deformationFrames;
+        view.updateGameState(model);
+        view.getSnapshots().publish(model, System.nanoTime());
+
+        image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Benchmark
+    public BufferedImage paintComponent() {
+        Graphics2D g = image.createGraphics();
+        try {
+            view.paintComponent(g);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+}
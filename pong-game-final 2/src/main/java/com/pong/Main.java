@@ -1,13 +1,84 @@
 package com.pong;
+import com.pong.controller.NetworkController;
+import com.pong.controller.ReplayController;
+import com.pong.controller.SpectatorController;
+import com.pong.database.DatabaseUtils;
+import com.pong.model.Settings;
+import com.pong.model.User;
+import com.pong.net.GameClient;
+import com.pong.net.GameServer;
+import com.pong.net.LossyLink;
+import com.pong.net.MatchConnection;
+import com.pong.net.RollbackPeer;
+import com.pong.net.SpectatorClient;
+import com.pong.replay.Replay;
+import com.pong.replay.ReplayArchive;
+import com.pong.replay.ReplayPlayer;
+import com.pong.replay.ReplayVerifier;
+import com.pong.simulation.HeadlessSimulator;
+import com.pong.view.GameView;
 import com.pong.view.WelcomeScreen;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.file.Path;
+import java.util.Arrays;
 import javax.swing.*;
 
 /**
  * This class allows users to launch the application.
+ * Pass {@code --simulate} to run the headless match simulator instead of the game window,
+ * {@code --replay} followed by replay files to check that they play back to their recorded result,
+ * {@code --verify} followed by replay files or directories to check a whole corpus in parallel
+ * (see {@link ReplayVerifier}), or {@code --watch} followed by a replay file to play it back in a window.
+ * {@code --server} hosts network matches (see {@link GameServer}) and {@code --connect host:port}
+ * joins one; add {@code --delay ms}, {@code --jitter ms} and {@code --loss fraction} to route the
+ * connection through a {@link LossyLink} that makes it behave like a distant one.
+ * {@code --spectate host:port} watches the match a server streams to spectators.
+ * {@code --host port} waits for one opponent to play directly, with rollback netcode instead of
+ * a server (see {@link RollbackPeer}), and {@code --join host:port} plays against it; the link
+ * options work for joining too.
  */
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--simulate")) {
+            HeadlessSimulator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--replay")) {
+            ReplayPlayer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--verify")) {
+            ReplayVerifier.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            GameServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--connect")) {
+            connect(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--host")) {
+            host(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--join")) {
+            join(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--spectate")) {
+            spectate(args[1]);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--watch")) {
+            watch(Path.of(args[1]));
+            return;
+        }
 
+        // Connect to the database while the player types their name, not when they log in
+        DatabaseUtils.warmUp();
         JFrame frame = new JFrame("Pong Game");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.add(new WelcomeScreen(frame));
@@ -16,4 +87,157 @@ public class Main {
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
     }
-}
\ No newline at end of file
+
+    /**
+     * Opens a window that plays a replay file back, with the settings it was recorded with.
+     */
+    private static void watch(Path file) throws Exception {
+        Replay replay = Replay.read(file);
+        ReplayArchive archive = ReplayArchive.open(file);
+        Settings settings = replay.getSettings();
+        settings.setFullscreen(false);
+
+        SwingUtilities.invokeLater(() -> {
+            GameView view = new GameView(player(replay.getPlayer1()), player(replay.getPlayer2()), settings);
+            ReplayController controller = new ReplayController(view, archive);
+            JFrame frame = new JFrame("Pong Replay - " + replay.getPlayer1() + " vs " + replay.getPlayer2());
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.add(view);
+            frame.addKeyListener(controller);
+            frame.pack();
+            frame.setResizable(false);
+            frame.setLocationRelativeTo(null);
+            frame.setVisible(true);
+            frame.requestFocus();
+        });
+    }
+
+    /**
+     * Joins a network match and opens its window.
+     *
+     * @param args host:port, then optionally --name, --delay, --jitter and --loss
+     */
+    private static void connect(String[] args) throws Exception {
+        int colon = args[0].lastIndexOf(':');
+        SocketAddress server = new InetSocketAddress(args[0].substring(0, colon),
+                Integer.parseInt(args[0].substring(colon + 1)));
+        String name = System.getProperty("user.name");
+        int delay = 0;
+        int jitter = 0;
+        double loss = 0;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--name" -> name = value;
+                case "--delay" -> delay = Integer.parseInt(value);
+                case "--jitter" -> jitter = Integer.parseInt(value);
+                case "--loss" -> loss = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (delay > 0 || jitter > 0 || loss > 0) {
+            LossyLink link = new LossyLink(server, delay, jitter, loss, System.nanoTime());
+            link.start();
+            server = link.getAddress();
+        }
+        play(GameClient.connect(server, name, 5000));
+    }
+
+    /**
+     * Waits for an opponent to join and plays them directly, with rollback netcode.
+     *
+     * @param args port, then optionally --window and --score-limit
+     */
+    private static void host(String[] args) throws Exception {
+        RollbackPeer.Builder builder = new RollbackPeer.Builder().setPort(Integer.parseInt(args[0]));
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--window" -> builder.setWindow(Integer.parseInt(value));
+                case "--score-limit" -> builder.setScoreLimit(Integer.parseInt(value));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        play(builder.host());
+    }
+
+    /**
+     * Joins a player hosting with {@code --host}.
+     *
+     * @param args host:port, then optionally --delay, --jitter and --loss
+     */
+    private static void join(String[] args) throws Exception {
+        int colon = args[0].lastIndexOf(':');
+        SocketAddress host = new InetSocketAddress(args[0].substring(0, colon),
+                Integer.parseInt(args[0].substring(colon + 1)));
+        int delay = 0;
+        int jitter = 0;
+        double loss = 0;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--delay" -> delay = Integer.parseInt(value);
+                case "--jitter" -> jitter = Integer.parseInt(value);
+                case "--loss" -> loss = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (delay > 0 || jitter > 0 || loss > 0) {
+            LossyLink link = new LossyLink(host, delay, jitter, loss, System.nanoTime());
+            link.start();
+            host = link.getAddress();
+        }
+        play(RollbackPeer.join(host, 5000));
+    }
+
+    /**
+     * Opens the window of a network match.
+     */
+    private static void play(MatchConnection client) {
+        Settings settings = new Settings();
+        settings.setTickRate(client.getTickRate());
+        SwingUtilities.invokeLater(() -> {
+            GameView view = new GameView(player("Left"), player("Right"), settings);
+            JFrame frame = new JFrame("Pong");
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.add(view);
+            frame.addKeyListener(new NetworkController(view, frame, client));
+            frame.pack();
+            frame.setResizable(false);
+            frame.setLocationRelativeTo(null);
+            frame.setVisible(true);
+            frame.requestFocus();
+        });
+    }
+
+    /**
+     * Opens a window that shows a match streamed by a server's spectator port.
+     *
+     * @param address host:port of the spectator port
+     */
+    private static void spectate(String address) throws Exception {
+        int colon = address.lastIndexOf(':');
+        SpectatorClient client = SpectatorClient.connect(new InetSocketAddress(address.substring(0, colon),
+                Integer.parseInt(address.substring(colon + 1))), 5000);
+
+        Settings settings = new Settings();
+        settings.setTickRate(client.getTickRate());
+        SwingUtilities.invokeLater(() -> {
+            GameView view = new GameView(player("Left"), player("Right"), settings);
+            JFrame frame = new JFrame("Pong");
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.add(view);
+            new SpectatorController(view, frame, client);
+            frame.pack();
+            frame.setResizable(false);
+            frame.setLocationRelativeTo(null);
+            frame.setVisible(true);
+        });
+    }
+
+    private static User player(String username) {
+        User user = new User();
+        user.setUsername(username);
+        return user;
+    }
+}
@@ -0,0 +1,254 @@
+package com.pong.audio;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * AudioMixer plays sound effects on its own thread. Sounds are decoded once into 16-bit stereo
+ * PCM at the mixer's sample rate, and the mixer thread sums the active voices into a small
+ * {@link SourceDataLine} buffer, so overlapping hits mix instead of cutting each other off.
+ *
+ * The game loop only calls {@link #trigger}, which puts the sound id on a lock-free ring and
+ * returns immediately. Blocking writes to the audio device happen on the mixer thread alone,
+ * so audio can never stall a physics tick.
+ *
+ * While suspended (game paused) the line is stopped and the mixer thread parks, so an idle
+ * game does not keep mixing silence.
+ */
+public class AudioMixer implements Runnable {
+
+    private static final float SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    // Frames mixed per pass (about 5 ms); the line buffers two of these
+    private static final int PERIOD_FRAMES = 256;
+    private static final int MAX_VOICES = 8;
+    private static final int QUEUE_CAPACITY = 64;
+
+    private final AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+    private final List<short[]> sounds = new ArrayList<>();
+    private final TriggerQueue triggers = new TriggerQueue(QUEUE_CAPACITY);
+
+    // Voice pool, owned by the mixer thread: which sound each voice plays and how far it got
+    private final short[][] voiceSound = new short[MAX_VOICES][];
+    private final int[] voicePosition = new int[MAX_VOICES];
+
+    // Mixing buffers, allocated once
+    private final int[] mixBuffer = new int[PERIOD_FRAMES * CHANNELS];
+    private final byte[] outputBuffer = new byte[PERIOD_FRAMES * CHANNELS * 2];
+
+    private volatile boolean running = false;
+    private volatile boolean suspended = false;
+    private SourceDataLine line;
+    private Thread thread;
+
+    /**
+     * Decodes a sound resource into the mixer's format. Must be called before {@link #start}.
+     *
+     * @param resourceName Classpath location of the sound file (e.g. a WAV file)
+     * @return Id to pass to {@link #trigger}, or -1 if the sound could not be loaded
+     */
+    public int load(String resourceName) {
+        if (thread != null) {
+            throw new IllegalStateException("Sounds must be loaded before the mixer starts");
+        }
+        try {
+            InputStream audioSrc = getClass().getResourceAsStream(resourceName);
+            if (audioSrc == null) {
+                throw new IOException("Audio file not found: " + resourceName);
+            }
+            // Buffer the input stream for efficiency
+            InputStream bufferedIn = new BufferedInputStream(audioSrc);
+            AudioInputStream audioIn = AudioSystem.getAudioInputStream(bufferedIn);
+            sounds.add(decode(audioIn));
+            return sounds.size() - 1;
+        } catch (UnsupportedAudioFileException | IOException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Opens the audio line and starts the mixer thread. If no audio device is available the
+     * mixer stays silent and triggers are ignored.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        try {
+            line = AudioSystem.getSourceDataLine(format);
+            line.open(format, outputBuffer.length * 2);
+            line.start();
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "audio-mixer");
+        thread.setDaemon(true);
+        // Late buffers are audible, so the mixer should win against the render thread
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stops the mixer thread and releases the audio line.
+     */
+    public synchronized void close() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (line != null) {
+            line.stop();
+            line.close();
+            line = null;
+        }
+    }
+
+    /**
+     * Suspends or resumes playback. Sounds that were playing continue where they stopped.
+     * Safe to call from any thread.
+     *
+     * @param suspended True to stop the line and park the mixer thread until resumed
+     */
+    public synchronized void setSuspended(boolean suspended) {
+        this.suspended = suspended;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Queues a sound to start playing. Never blocks; intended to be called from a single
+     * thread (the game loop). If too many triggers are pending the sound is dropped.
+     *
+     * @param soundId Id returned by {@link #load}
+     */
+    public void trigger(int soundId) {
+        if (running && soundId >= 0) {
+            triggers.offer(soundId);
+        }
+    }
+
+    @Override
+    public void run() {
+        // close() clears the field, so keep a reference for the rest of the thread's life
+        SourceDataLine output = line;
+        while (running) {
+            if (suspended) {
+                output.stop();
+                while (suspended && running) {
+                    LockSupport.park(this);
+                }
+                output.start();
+                continue;
+            }
+            startTriggeredVoices();
+            mixPeriod();
+            // Blocks until the line has room, which paces the loop to the sample rate
+            output.write(outputBuffer, 0, outputBuffer.length);
+        }
+    }
+
+    private void startTriggeredVoices() {
+        for (int soundId = triggers.poll(); soundId >= 0; soundId = triggers.poll()) {
+            // Use a free voice, or steal the one that has played longest
+            int voice = 0;
+            for (int i = 0; i < MAX_VOICES; i++) {
+                if (voiceSound[i] == null) {
+                    voice = i;
+                    break;
+                }
+                if (voicePosition[i] > voicePosition[voice]) {
+                    voice = i;
+                }
+            }
+            voiceSound[voice] = sounds.get(soundId);
+            voicePosition[voice] = 0;
+        }
+    }
+
+    /**
+     * Sums every active voice into the output buffer as little-endian 16-bit samples.
+     */
+    private void mixPeriod() {
+        Arrays.fill(mixBuffer, 0);
+        for (int i = 0; i < MAX_VOICES; i++) {
+            short[] samples = voiceSound[i];
+            if (samples == null) {
+                continue;
+            }
+            int position = voicePosition[i];
+            int count = Math.min(mixBuffer.length, samples.length - position);
+            for (int j = 0; j < count; j++) {
+                mixBuffer[j] += samples[position + j];
+            }
+            voicePosition[i] = position + count;
+            if (voicePosition[i] >= samples.length) {
+                voiceSound[i] = null;
+            }
+        }
+
+        for (int j = 0; j < mixBuffer.length; j++) {
+            // Clip rather than wrap when several loud voices overlap
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mixBuffer[j]));
+            outputBuffer[2 * j] = (byte) sample;
+            outputBuffer[2 * j + 1] = (byte) (sample >> 8);
+        }
+    }
+
+    /**
+     * Reads a whole stream and converts it to interleaved stereo samples at the mixer's rate.
+     */
+    private short[] decode(AudioInputStream audioIn) throws IOException {
+        AudioFormat source = audioIn.getFormat();
+        int channels = source.getChannels();
+        AudioFormat pcm = new AudioFormat(source.getSampleRate(), 16, channels, true, false);
+        AudioInputStream pcmIn = AudioSystem.getAudioInputStream(pcm, audioIn);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        pcmIn.transferTo(bytes);
+        byte[] data = bytes.toByteArray();
+        int sourceFrames = data.length / (2 * channels);
+
+        // Resample linearly and map mono or multichannel input onto two channels
+        double step = source.getSampleRate() / SAMPLE_RATE;
+        int frames = (int) (sourceFrames / step);
+        short[] samples = new short[frames * CHANNELS];
+        for (int frame = 0; frame < frames; frame++) {
+            double position = frame * step;
+            int index = (int) position;
+            double fraction = position - index;
+            int next = Math.min(index + 1, sourceFrames - 1);
+            for (int channel = 0; channel < CHANNELS; channel++) {
+                int sourceChannel = Math.min(channel, channels - 1);
+                double a = sampleAt(data, index, sourceChannel, channels);
+                double b = sampleAt(data, next, sourceChannel, channels);
+                samples[frame * CHANNELS + channel] = (short) Math.round(a + (b - a) * fraction);
+            }
+        }
+        return samples;
+    }
+
+    private static short sampleAt(byte[] data, int frame, int channel, int channels) {
+        int offset = 2 * (frame * channels + channel);
+        return (short) ((data[offset] & 0xFF) | (data[offset + 1] << 8));
+    }
+}
@@ -0,0 +1,57 @@
+package com.pong.audio;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TriggerQueue is a bounded, lock-free single-producer/single-consumer ring of sound ids.
+ * The game loop thread offers triggers and the mixer thread polls them. Neither side ever
+ * blocks or allocates: when the ring is full the trigger is dropped.
+ */
+class TriggerQueue {
+
+    private final int[] slots;
+    private final int mask;
+    // Next slot to read; written only by the consumer
+    private final AtomicLong head = new AtomicLong();
+    // Next slot to write; written only by the producer
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two
+     */
+    TriggerQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new int[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds a trigger. Must only be called from the producer thread.
+     *
+     * @return False if the ring was full and the trigger was dropped
+     */
+    boolean offer(int soundId) {
+        long t = tail.get();
+        if (t - head.get() >= slots.length) {
+            return false;
+        }
+        slots[(int) t & mask] = soundId;
+        // Publish the slot before the new tail becomes visible to the consumer
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Removes the oldest trigger. Must only be called from the consumer thread.
+     *
+     * @return The sound id, or -1 if the ring is empty
+     */
+    int poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return -1;
+        }
+        int soundId = slots[(int) h & mask];
+        head.lazySet(h + 1);
+        return soundId;
+    }
+}
@@ -1,14 +1,25 @@
 package com.pong.controller;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.event.WindowListener;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.swing.JFrame;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
+import com.pong.audio.AudioMixer;
+import com.pong.model.BallStore;
 import com.pong.model.GameModel;
 import com.pong.model.Settings;
 import com.pong.model.User;
+import com.pong.physics.PaddleInput;
 import com.pong.physics.PhysicsEngine;
+import com.pong.replay.Replay;
+import com.pong.replay.ReplayRecorder;
+import com.pong.simulation.PaddleBot;
+import com.pong.simulation.PredictiveBot;
 import com.pong.view.GameView;
 import com.pong.view.ScoreStatistics;
 
@@ -16,8 +27,10 @@ import com.pong.view.ScoreStatistics;
 /**
  * GameController handles the game loop, user input, and communication between the model and view.
  * It processes key events, updates game states, and manages game flow (start, pause, end).
+ * While the game is paused or the window is minimised, the loop and the audio mixer are
+ * suspended and no thread of the game uses CPU.
  */
-public class GameController implements ActionListener, KeyListener {
+public class GameController implements KeyListener {
     // MVC Components
     private final GameModel model;
     private final GameView view;
@@ -26,14 +39,35 @@ public class GameController implements ActionListener, KeyListener {
     private User player1;
     private User player2;
     private final PhysicsEngine physicsEngine;
-
-    // Paddle movement flags (user input tracking)
-    private boolean paddle1Up = false, paddle1Down = false;
-    private boolean paddle2Up = false, paddle2Down = false;
-
-    // Timer controlling the game loop execution
-    private final Timer timer; // Triggers actionPerformed at fixed intervals
-    private boolean isGamePaused = false;
+    // Plays sound effects on its own thread; null when sound is disabled
+    private final AudioMixer audioMixer;
+    // Records every tick's input, so the match can be replayed for disputes and bug reports
+    private final ReplayRecorder replayRecorder;
+    // Directory replays are saved to; can be overridden with a system property
+    private static final Path REPLAY_DIRECTORY = Path.of(System.getProperty("pong.replay.dir", "replays"));
+
+    // Paddle movement flags (written on the EDT, read on the game loop thread)
+    private volatile boolean paddle1Up = false, paddle1Down = false;
+    private volatile boolean paddle2Up = false, paddle2Down = false;
+    // Arrival time of the oldest paddle key change not yet applied by a tick; 0 if none
+    private final AtomicLong pendingInputTime = new AtomicLong();
+    private final InputLatencyStatistics inputLatency;
+
+    // Computer opponent for paddle 2, or null when a second player uses the arrow keys
+    private PaddleBot computerBot;
+
+    // Fixed-timestep loop running the simulation on its own thread
+    private final GameLoop gameLoop;
+    private volatile boolean isGamePaused = false;
+    private volatile boolean isRestartRequested = false;
+
+    // Pauses the game when the window is minimised
+    private final WindowListener minimiseListener = new WindowAdapter() {
+        @Override
+        public void windowIconified(WindowEvent e) {
+            setPaused(true);
+        }
+    };
 
     public GameController(GameView view, JFrame frame, User player1, User player2, Settings settings) {
         this.view = view;
@@ -58,103 +92,136 @@ public class GameController implements ActionListener, KeyListener {
                 maxScore
         );
 
-        // Physics parameters
-        int initialSpeed = 5;
-        int maxDeformationFrames = 5;
+        // Multiball mode: the first ball stays in the model's scalar fields, the rest go in a ball store
+        if (settings.getBallCount() > 1) {
+            model.extraBalls = new BallStore(settings.getBallCount() - 1);
+        }
 
-        // Initialize the physics engine with the model and parameters
-        this.physicsEngine = new PhysicsEngine(model, initialSpeed, maxDeformationFrames, settings.isEnableSound());
+        // Initialize the physics engine; its per-tick constants are scaled to the tick rate
+        int tickRate = settings.getTickRate();
+        this.audioMixer = settings.isEnableSound() ? new AudioMixer() : null;
+        // The seed is recorded, so the replay serves in the same directions
+        long seed = System.nanoTime();
+        this.physicsEngine = new PhysicsEngine.Builder(model)
+                .setTickRate(tickRate)
+                .setAudioMixer(audioMixer)
+                .setSweptCollision(settings.isSweptCollision())
+                .setSeed(seed)
+                .build();
+        this.replayRecorder = new ReplayRecorder(seed, settings, model, player1.getUsername(), player2.getUsername());
+        if (audioMixer != null) {
+            audioMixer.start();
+        }
 
-        // Start the game loop timer (approximately 60 frames per second)
-        timer = new Timer(16, this);
-        timer.start();
+        if (settings.isComputerOpponent()) {
+            computerBot = new PredictiveBot(false, settings.getAiDifficulty(), System.nanoTime());
+        }
+
+        // The view records when frames are presented; the controller when ticks apply input
+        inputLatency = view.getInputLatency();
+        inputLatency.register();
+
+        // Hand the model to the view, then start the simulation thread
+        view.updateGameState(model);
+        TickScheduler scheduler = settings.isPreciseTiming() ? new HybridScheduler() : new ParkingScheduler();
+        GameLoop.LatePolicy latePolicy = settings.isDropLateTicks() ? GameLoop.LatePolicy.DROP
+                : GameLoop.LatePolicy.CATCH_UP;
+        gameLoop = new GameLoop(tickRate, this::tick, view::requestFrame, scheduler, latePolicy);
+        // Tick jitter can be watched over JMX while the game runs
+        gameLoop.getStatistics().register();
+        gameLoop.start();
+        frame.addWindowListener(minimiseListener);
     }
 
     /**
-     * Main game loop executed every timer tick.
+     * Pauses or resumes the game. A paused game parks the game loop and the audio mixer
+     * instead of ticking idly; the view keeps showing the last frame. Called on the EDT.
      *
-     * @param e ActionEvent from the timer
+     * @param paused True to pause
      */
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (!isGamePaused) {
-            // Update paddle positions based on current key presses
-            updatePaddlePositions();
-
-            // Update ball position using physics calculations
-            physicsEngine.updateBallPosition();
-
-            // Handle collisions and check for scoring
-            int scorer = physicsEngine.handleCollisions();
-
-            // Update scores and reset the ball if a player scored
-            if (scorer == 1) {
-                model.player1Score++;
-                physicsEngine.resetBall();
-            } else if (scorer == 2) {
-                model.player2Score++;
-                physicsEngine.resetBall();
+    private void setPaused(boolean paused) {
+        isGamePaused = paused;
+        // Keys pressed during a pause take effect at no particular tick, so they are not measured
+        pendingInputTime.set(0);
+        gameLoop.setSuspended(paused);
+        if (audioMixer != null) {
+            audioMixer.setSuspended(paused);
+        }
+    }
+
+    /**
+     * Advances the game by one fixed step. Runs on the game loop thread.
+     */
+    private void tick() {
+        // Everything this tick did to the model, for the replay
+        int recordedInput = PaddleInput.NONE;
+        if (isRestartRequested) {
+            isRestartRequested = false;
+            restartGame();
+            recordedInput |= Replay.RESTART;
+        }
+
+        long inputTime = 0;
+        // Read once, so the tick and its recording agree
+        boolean paused = isGamePaused;
+        if (!paused) {
+            inputTime = pendingInputTime.getAndSet(0);
+            if (inputTime != 0) {
+                inputLatency.inputApplied(inputTime, System.nanoTime());
             }
+            // Move paddles and ball, resolve collisions and update the score
+            int input = currentInput();
+            physicsEngine.step(input);
+            recordedInput |= input;
+        } else {
+            recordedInput |= Replay.PAUSED;
+        }
+        replayRecorder.record(recordedInput);
 
-            // Decrease deformation frames for the ball (visual effect)
-            physicsEngine.decreaseDeformationFrames();
+        // Hand the renderer a consistent copy of this tick instead of the live model
+        view.getSnapshots().publish(model, gameLoop.getTickTime(), inputTime);
 
+        if (!paused) {
             // *** Corrected: Check if a player has reached the maxScore in the model ***
             if (model.player1Score >= model.getMaxScore() || model.player2Score >= model.getMaxScore()) {
-                endGame();
+                // Stop simulating and let the EDT switch screens
+                gameLoop.stop();
+                SwingUtilities.invokeLater(() -> {
+                    endGame();
+                    view.updateGameState(model);
+                });
             }
         }
-
-        // Update the view to reflect the new game state
-        view.updateGameState(model);
     }
 
     /**
-     * Updates the positions of paddles based on current key presses.
-     * Uses the coordinate system where (0,0) is at the top-left corner.
-     * Increasing y moves down, decreasing y moves up.
+     * Collects the paddle movement flags into a {@link PaddleInput} bit set.
      */
-    private void updatePaddlePositions() {
-
-        int paddleSpeed = 8;
-
-        model.paddle1Speed = 0;
-        model.paddle2Speed = 0;
-
-        // Player 1 paddle movement
-        if (paddle1Up) {
-            // Move paddle up by decreasing y-coordinate
-            model.paddle1Y -= paddleSpeed;
-            model.paddle1Speed = -paddleSpeed;
-            // Ensure paddle doesn't move off the top of the screen
-            if (model.paddle1Y < 0) model.paddle1Y = 0;
-        }
-        if (paddle1Down) {
-            // Move paddle down by increasing y-coordinate
-            model.paddle1Y += paddleSpeed;
-            model.paddle1Speed = paddleSpeed;
-            // Ensure paddle doesn't move off the bottom of the screen
-            if (model.paddle1Y + model.paddleHeight > model.height) model.paddle1Y = model.height - model.paddleHeight;
-        }
-
-        // Player 2 paddle movement
-        if (paddle2Up) {
-            model.paddle2Y -= paddleSpeed;
-            model.paddle2Speed = -paddleSpeed;
-            if (model.paddle2Y < 0) model.paddle2Y = 0;
-        }
-        if (paddle2Down) {
-            model.paddle2Y += paddleSpeed;
-            model.paddle2Speed = paddleSpeed;
-            if (model.paddle2Y + model.paddleHeight > model.height) model.paddle2Y = model.height - model.paddleHeight;
+    private int currentInput() {
+        int input = PaddleInput.NONE;
+        if (paddle1Up) input |= PaddleInput.PADDLE1_UP;
+        if (paddle1Down) input |= PaddleInput.PADDLE1_DOWN;
+        if (computerBot != null) {
+            // The computer replaces the arrow keys
+            return input | computerBot.nextInput(model);
         }
+        if (paddle2Up) input |= PaddleInput.PADDLE2_UP;
+        if (paddle2Down) input |= PaddleInput.PADDLE2_DOWN;
+        return input;
     }
 
     /**
      * Ends the game, displays the winner, and returns to the welcome screen.
      */
     private void endGame() {
-        timer.stop();
+        gameLoop.stop();
+        gameLoop.getStatistics().unregister();
+        inputLatency.unregister();
+        saveReplay();
+        frame.removeWindowListener(minimiseListener);
+        if (audioMixer != null) {
+            audioMixer.close();
+        }
 
         String winner = (model.player1Score >= model.getMaxScore()) ? this.player1.getUsername() : this.player2
                 .getUsername();
@@ -172,13 +239,38 @@ public class GameController implements ActionListener, KeyListener {
         frame.requestFocus();
     }
 
+    /**
+     * Writes the match replay. The game loop has stopped, so the recording is complete.
+     */
+    private void saveReplay() {
+        try {
+            replayRecorder.save(REPLAY_DIRECTORY);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     private void restartGame() {
-        // Reset all game variables
-        model.paddle1Y = model.height / 2 - model.paddleHeight / 2;
-        model.paddle2Y = model.height / 2 - model.paddleHeight / 2;
-        model.player1Score = 0;
-        model.player2Score = 0;
-        physicsEngine.resetBall();
+        // Reset all game variables; shared with replays so a restart plays back identically
+        physicsEngine.resetMatch();
+        if (computerBot != null) {
+            // Start over with a fresh prediction
+            computerBot = new PredictiveBot(false, settings.getAiDifficulty(), System.nanoTime());
+        }
+    }
+
+    /**
+     * Timestamps a change of the paddle movement flags, for the input latency statistics.
+     * Called after the flag is set, so the tick that takes the stamp also sees the change.
+     *
+     * @param arrival Time the key event reached the controller
+     * @param changed False for key repeats, which change nothing
+     */
+    private void inputArrived(long arrival, boolean changed) {
+        if (changed && !isGamePaused) {
+            // Keep the oldest change that no tick has applied yet
+            pendingInputTime.compareAndSet(0, arrival);
+        }
     }
 
     /**
@@ -188,25 +280,39 @@ public class GameController implements ActionListener, KeyListener {
      */
     @Override
     public void keyPressed(KeyEvent e) {
+        long arrival = System.nanoTime();
+        boolean changed;
 
         if (e.getKeyCode() == KeyEvent.VK_W) {
+            changed = !paddle1Up;
             paddle1Up = true;
+            inputArrived(arrival, changed);
         }
         if (e.getKeyCode() == KeyEvent.VK_S) {
+            changed = !paddle1Down;
             paddle1Down = true;
+            inputArrived(arrival, changed);
         }
 
+        // The arrow keys do nothing while the computer plays paddle 2
         if (e.getKeyCode() == KeyEvent.VK_UP) {
+            changed = !paddle2Up && computerBot == null;
             paddle2Up = true;
+            inputArrived(arrival, changed);
         }
         if (e.getKeyCode() == KeyEvent.VK_DOWN) {
+            changed = !paddle2Down && computerBot == null;
             paddle2Down = true;
+            inputArrived(arrival, changed);
         }
         if (e.getKeyCode() == KeyEvent.VK_R) {
-            restartGame();
+            // Restart on the game loop thread so the model is only mutated there
+            isRestartRequested = true;
+            // A paused loop is parked; have it apply the restart and show the result
+            gameLoop.requestUpdate();
         }
         if (e.getKeyCode() == KeyEvent.VK_P) {
-            isGamePaused = !isGamePaused;
+            setPaused(!isGamePaused);
     }
     }
     /**
@@ -217,19 +323,29 @@ public class GameController implements ActionListener, KeyListener {
      */
     @Override
     public void keyReleased(KeyEvent e) {
+        long arrival = System.nanoTime();
+        boolean changed;
 
         if (e.getKeyCode() == KeyEvent.VK_W) {
+            changed = paddle1Up;
             paddle1Up = false;
+            inputArrived(arrival, changed);
         }
         if (e.getKeyCode() == KeyEvent.VK_S) {
+            changed = paddle1Down;
             paddle1Down = false;
+            inputArrived(arrival, changed);
         }
 
         if (e.getKeyCode() == KeyEvent.VK_UP) {
+            changed = paddle2Up && computerBot == null;
             paddle2Up = false;
+            inputArrived(arrival, changed);
         }
         if (e.getKeyCode() == KeyEvent.VK_DOWN) {
+            changed = paddle2Down && computerBot == null;
             paddle2Down = false;
+            inputArrived(arrival, changed);
         }
     }
 
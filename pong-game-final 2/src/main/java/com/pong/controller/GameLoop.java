@@ -0,0 +1,214 @@
+package com.pong.controller;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GameLoop runs the simulation on its own thread with fixed-timestep ticks on a schedule of
+ * System.nanoTime() deadlines, one tick length apart. Each tick advances the game by exactly
+ * 1/tickRate seconds, independent of how often (or how slowly) the view is repainted, so the
+ * ball speed never depends on the frame rate. How the thread waits for a deadline is up to a
+ * {@link TickScheduler}; what happens to ticks that are already late is up to a {@link LatePolicy}.
+ * How late each tick starts is recorded in {@link TickStatistics}.
+ *
+ * While suspended (game paused or window minimised) the thread parks without a timeout and
+ * uses no CPU. It only wakes for {@link #requestUpdate}, which runs a single tick and render
+ * pass so changes made during the pause (a restart) are shown, and for {@link #setSuspended}.
+ */
+public class GameLoop implements Runnable {
+
+    /**
+     * What to do with ticks whose deadline passed while the loop was busy or descheduled.
+     */
+    public enum LatePolicy {
+        // Run them back to back, so the game keeps pace with real time
+        CATCH_UP,
+        // Skip them, so the game runs slower for a moment but never jumps ahead
+        DROP
+    }
+
+    // Largest amount of late time caught up in one pass,
+    // so a long stall (GC, debugger) cannot cause an endless burst of catch-up ticks
+    private static final long MAX_FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final long tickNanos;
+    private final Runnable tick;
+    private final Runnable render;
+    private final TickScheduler scheduler;
+    private final LatePolicy latePolicy;
+    private final TickStatistics statistics = new TickStatistics();
+
+    private volatile boolean running = false;
+    private volatile boolean suspended = false;
+    private volatile boolean updateRequested = false;
+    private Thread thread;
+    // Nominal end time of the tick being run, advanced by exactly one tick length per tick
+    private long tickTime;
+
+    /**
+     * @param tickRate Number of simulation ticks per second (e.g. 60, 120 or 240)
+     * @param tick     Advances the simulation by one fixed step; called on the loop thread
+     * @param render   Requests a new frame; called on the loop thread after each batch of ticks
+     */
+    public GameLoop(int tickRate, Runnable tick, Runnable render) {
+        this(tickRate, tick, render, new HybridScheduler(), LatePolicy.CATCH_UP);
+    }
+
+    /**
+     * @param tickRate   Number of simulation ticks per second (e.g. 60, 120 or 240)
+     * @param tick       Advances the simulation by one fixed step; called on the loop thread
+     * @param render     Requests a new frame; called on the loop thread after each batch of ticks
+     * @param scheduler  Waits for each tick deadline
+     * @param latePolicy Handles ticks that are already late
+     */
+    public GameLoop(int tickRate, Runnable tick, Runnable render, TickScheduler scheduler, LatePolicy latePolicy) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive: " + tickRate);
+        }
+        this.tickNanos = TimeUnit.SECONDS.toNanos(1) / tickRate;
+        this.tick = tick;
+        this.render = render;
+        this.scheduler = scheduler;
+        this.latePolicy = latePolicy;
+    }
+
+    /**
+     * Starts the simulation thread. Has no effect if the loop is already running.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the loop. Safe to call from any thread, including from inside a tick.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Suspends or resumes ticking. Time spent suspended is not simulated afterwards.
+     * Safe to call from any thread.
+     *
+     * @param suspended True to park the loop until resumed
+     */
+    public void setSuspended(boolean suspended) {
+        this.suspended = suspended;
+        wake();
+    }
+
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    /**
+     * Asks a suspended loop for one tick and render pass, e.g. after a restart during a pause.
+     * The tick must not advance the simulation while it is suspended. Ignored while ticking,
+     * since the next regular pass picks the change up anyway.
+     */
+    public void requestUpdate() {
+        updateRequested = true;
+        wake();
+    }
+
+    private synchronized void wake() {
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return The System.nanoTime() at which the current tick is nominally complete. Ticks run in
+     * bursts, so this is evenly spaced where the real time of the calls is not. Only meaningful
+     * on the loop thread, from inside a tick.
+     */
+    public long getTickTime() {
+        return tickTime;
+    }
+
+    /**
+     * @return Timing statistics of this loop, updated on every pass
+     */
+    public TickStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return Length of one tick in nanoseconds
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    @Override
+    public void run() {
+        long deadline = System.nanoTime() + tickNanos;
+
+        while (running) {
+            if (suspended) {
+                if (updateRequested) {
+                    updateRequested = false;
+                    tickTime = System.nanoTime();
+                    tick.run();
+                }
+                // Lets the view show the final position before the thread goes idle
+                render.run();
+                // No timeout: only setSuspended, requestUpdate or stop wake the thread
+                LockSupport.park(this);
+
+                // Resume without catching up on the time spent parked
+                deadline = System.nanoTime() + tickNanos;
+                continue;
+            }
+            updateRequested = false;
+
+            scheduler.awaitDeadline(deadline);
+            long now = System.nanoTime();
+            if (now - deadline < 0) {
+                // Woken early by stop or setSuspended
+                continue;
+            }
+
+            long lateTicks = (now - deadline) / tickNanos;
+            long jitter = now - deadline;
+            int caughtUp = 0;
+            int dropped = 0;
+            if (latePolicy == LatePolicy.CATCH_UP) {
+                // Run the missed ticks back to back, but forget a long stall (GC, debugger)
+                // instead of bursting through it
+                long maxLateTicks = MAX_FRAME_NANOS / tickNanos;
+                if (lateTicks > maxLateTicks) {
+                    dropped = (int) (lateTicks - maxLateTicks);
+                    deadline += dropped * tickNanos;
+                    lateTicks = maxLateTicks;
+                }
+                caughtUp = (int) lateTicks;
+            } else {
+                // Skip the missed ticks: the game slows down instead of jumping ahead
+                dropped = (int) lateTicks;
+                deadline += lateTicks * tickNanos;
+            }
+            statistics.record(jitter, caughtUp, dropped);
+
+            for (long i = 0; i <= lateTicks && running; i++) {
+                tickTime = deadline;
+                tick.run();
+                deadline += tickNanos;
+            }
+
+            render.run();
+        }
+    }
+}
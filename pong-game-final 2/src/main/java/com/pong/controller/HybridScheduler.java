@@ -0,0 +1,46 @@
+package com.pong.controller;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HybridScheduler parks until shortly before the deadline and then spins on
+ * {@link System#nanoTime()} for the rest of the wait. Parking avoids burning a core for most
+ * of the tick, and the spin absorbs the operating system's wake-up latency, so ticks start
+ * within a few microseconds of their deadline.
+ */
+public class HybridScheduler implements TickScheduler {
+
+    // Long enough to cover park overshoot on common desktop systems
+    public static final long DEFAULT_SPIN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long spinNanos;
+
+    public HybridScheduler() {
+        this(DEFAULT_SPIN_NANOS);
+    }
+
+    /**
+     * @param spinNanos How long before the deadline to stop parking and start spinning
+     */
+    public HybridScheduler(long spinNanos) {
+        if (spinNanos < 0) {
+            throw new IllegalArgumentException("Spin time must not be negative: " + spinNanos);
+        }
+        this.spinNanos = spinNanos;
+    }
+
+    @Override
+    public void awaitDeadline(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining > spinNanos) {
+            LockSupport.parkNanos(this, remaining - spinNanos);
+            if (deadline - System.nanoTime() > spinNanos) {
+                // Woken early; let the caller check why before waiting again
+                return;
+            }
+        }
+        while (deadline - System.nanoTime() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+}
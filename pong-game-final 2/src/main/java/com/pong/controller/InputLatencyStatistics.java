@@ -0,0 +1,143 @@
+package com.pong.controller;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InputLatencyStatistics measures how long a paddle key press or release takes to have an
+ * effect, in two stages measured from the moment the key event reached the controller:
+ * <ul>
+ *     <li>input to tick: until the tick that applies it to the model starts</li>
+ *     <li>input to frame: until the first frame that draws a snapshot including it has been
+ *     presented (after BufferStrategy.show() in active rendering, or at the end of the paint
+ *     in Swing painting). Scan-out and display latency come on top of this.</li>
+ * </ul>
+ * The difference between the two is the time spent in snapshot handoff, frame pacing and drawing.
+ *
+ * The first histogram is written by the game loop thread, the second by whichever thread
+ * presents frames; both are readable from any thread, e.g. over JMX once {@link #register}
+ * has been called.
+ */
+public class InputLatencyStatistics implements InputLatencyStatisticsMXBean {
+
+    public static final String OBJECT_NAME = "com.pong:type=InputLatency";
+
+    // 50 us buckets up to 250 ms
+    private static final long BUCKET_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long RANGE_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final LatencyHistogram inputToTick = new LatencyHistogram(BUCKET_NANOS, RANGE_NANOS);
+    private final LatencyHistogram inputToFrame = new LatencyHistogram(BUCKET_NANOS, RANGE_NANOS);
+    private volatile boolean tickResetRequested = false;
+    private volatile boolean frameResetRequested = false;
+
+    // Arrival time of the last input already counted as presented; owned by the presenting thread
+    private long presentedInputTime = 0;
+
+    /**
+     * Records that a tick is applying an input. Must only be called from the game loop thread.
+     *
+     * @param inputTime Arrival time of the input in System.nanoTime() terms
+     * @param now       Current time
+     */
+    public void inputApplied(long inputTime, long now) {
+        if (tickResetRequested) {
+            tickResetRequested = false;
+            inputToTick.clear();
+        }
+        inputToTick.record(now - inputTime);
+    }
+
+    /**
+     * Records a presented frame. Only the first frame showing a given input is counted.
+     * Must only be called from the thread that presents frames.
+     *
+     * @param inputTime Input stamp of the snapshot the frame was drawn from; 0 if none
+     * @param now       Time the frame was presented
+     */
+    public void framePresented(long inputTime, long now) {
+        if (frameResetRequested) {
+            frameResetRequested = false;
+            inputToFrame.clear();
+        }
+        if (inputTime == 0 || inputTime == presentedInputTime) {
+            return;
+        }
+        presentedInputTime = inputTime;
+        inputToFrame.record(now - inputTime);
+    }
+
+    @Override
+    public long getInputToTickCount() {
+        return inputToTick.getCount();
+    }
+
+    @Override
+    public double getInputToTickMeanMicros() {
+        return inputToTick.getMeanMicros();
+    }
+
+    @Override
+    public double getInputToTickP50Micros() {
+        return inputToTick.getPercentileMicros(50);
+    }
+
+    @Override
+    public double getInputToTickP99Micros() {
+        return inputToTick.getPercentileMicros(99);
+    }
+
+    @Override
+    public double getInputToTickMaxMicros() {
+        return inputToTick.getMaxMicros();
+    }
+
+    @Override
+    public long getInputToFrameCount() {
+        return inputToFrame.getCount();
+    }
+
+    @Override
+    public double getInputToFrameMeanMicros() {
+        return inputToFrame.getMeanMicros();
+    }
+
+    @Override
+    public double getInputToFrameP50Micros() {
+        return inputToFrame.getPercentileMicros(50);
+    }
+
+    @Override
+    public double getInputToFrameP99Micros() {
+        return inputToFrame.getPercentileMicros(99);
+    }
+
+    @Override
+    public double getInputToFrameMaxMicros() {
+        return inputToFrame.getMaxMicros();
+    }
+
+    @Override
+    public void reset() {
+        tickResetRequested = true;
+        frameResetRequested = true;
+    }
+
+    /**
+     * Publishes these statistics on the platform MBean server under {@link #OBJECT_NAME},
+     * replacing those of an earlier game.
+     */
+    public void register() {
+        ManagementSupport.register(this, OBJECT_NAME);
+    }
+
+    /**
+     * Removes these statistics from the platform MBean server, if they are still registered.
+     */
+    public void unregister() {
+        ManagementSupport.unregister(OBJECT_NAME);
+    }
+
+    @Override
+    public String toString() {
+        return "input to tick: " + inputToTick + "; input to frame: " + inputToFrame;
+    }
+}
@@ -0,0 +1,33 @@
+package com.pong.controller;
+
+/**
+ * Management interface of {@link InputLatencyStatistics}, readable with JConsole or any JMX
+ * client while a game is running.
+ */
+public interface InputLatencyStatisticsMXBean {
+
+    long getInputToTickCount();
+
+    double getInputToTickMeanMicros();
+
+    double getInputToTickP50Micros();
+
+    double getInputToTickP99Micros();
+
+    double getInputToTickMaxMicros();
+
+    long getInputToFrameCount();
+
+    double getInputToFrameMeanMicros();
+
+    double getInputToFrameP50Micros();
+
+    double getInputToFrameP99Micros();
+
+    double getInputToFrameMaxMicros();
+
+    /**
+     * Clears all counters; each histogram is cleared by its writer at its next sample.
+     */
+    void reset();
+}
@@ -0,0 +1,104 @@
+package com.pong.controller;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram counts durations in fixed-width buckets, so recording is a single array
+ * increment and percentiles can be read at any time. Durations beyond the last bucket are
+ * counted in an overflow bucket and only bounded by the maximum.
+ *
+ * Written by a single thread; readable from any thread.
+ */
+public class LatencyHistogram {
+
+    private final long bucketNanos;
+    private final AtomicLongArray buckets;
+    private volatile long count;
+    private volatile long totalNanos;
+    private volatile long maxNanos;
+
+    /**
+     * @param bucketNanos Width of one bucket, which is the resolution of the percentiles
+     * @param rangeNanos  Longest duration with its own bucket
+     */
+    public LatencyHistogram(long bucketNanos, long rangeNanos) {
+        if (bucketNanos <= 0 || rangeNanos < bucketNanos) {
+            throw new IllegalArgumentException("Invalid histogram range: " + bucketNanos + " / " + rangeNanos);
+        }
+        this.bucketNanos = bucketNanos;
+        // One extra bucket for overflow
+        this.buckets = new AtomicLongArray((int) (rangeNanos / bucketNanos) + 1);
+    }
+
+    /**
+     * Records one duration. Must only be called from the writing thread.
+     *
+     * @param nanos Duration; negative values count as 0
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        int bucket = (int) Math.min(buckets.length() - 1, nanos / bucketNanos);
+        buckets.lazySet(bucket, buckets.get(bucket) + 1);
+        // Single writer, so plain read-modify-write of the volatile fields is safe
+        count = count + 1;
+        totalNanos = totalNanos + nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    /**
+     * Clears all counts. Must only be called from the writing thread.
+     */
+    public void clear() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.lazySet(i, 0);
+        }
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMicros() {
+        long recorded = count;
+        return recorded == 0 ? 0 : totalNanos / 1000.0 / recorded;
+    }
+
+    public double getMaxMicros() {
+        return maxNanos / 1000.0;
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return Duration at the percentile, rounded up to the bucket width (at most the maximum)
+     */
+    public double getPercentileMicros(double percentile) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.max(0, Math.min(100, percentile)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < buckets.length() - 1; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                // The bucket's upper edge, but never beyond what was actually recorded
+                return Math.min((i + 1) * bucketNanos / 1000.0, getMaxMicros());
+            }
+        }
+        // In the overflow bucket: the maximum is the best bound available
+        return getMaxMicros();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d samples, mean %.1f us, p50 %.0f us, p99 %.0f us, max %.1f us", getCount(),
+                getMeanMicros(), getPercentileMicros(50), getPercentileMicros(99), getMaxMicros());
+    }
+}
@@ -0,0 +1,52 @@
+package com.pong.controller;
+import java.lang.management.ManagementFactory;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registers the game's runtime statistics on the platform MBean server, where JConsole or
+ * any other JMX client can read them.
+ */
+public final class ManagementSupport {
+
+    private ManagementSupport() {
+    }
+
+    /**
+     * Registers an MXBean, replacing any earlier one of the same name (e.g. from a previous game).
+     */
+    public static void register(Object bean, String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            try {
+                server.registerMBean(bean, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(bean, name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Removes an MXBean, if it is still registered.
+     */
+    public static void unregister(String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (InstanceNotFoundException e) {
+            // Already replaced or removed
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.pong.controller;
+import com.pong.model.GameModel;
+import com.pong.net.MatchConnection;
+import com.pong.physics.PaddleInput;
+import com.pong.view.GameView;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+/**
+ * NetworkController plays one side of a network match, hosted by a {@link com.pong.net.GameServer}
+ * or played directly against a {@link com.pong.net.RollbackPeer}. The game loop hands the held
+ * keys to the {@link MatchConnection} once per tick and shows the state it returns; the own
+ * paddle is predicted locally, so the keys respond without waiting for the network.
+ *
+ * Either W/S or the arrow keys move the own paddle, whichever side it is on.
+ */
+public class NetworkController implements KeyListener {
+
+    private final GameView view;
+    private final JFrame frame;
+    private final MatchConnection client;
+    private final GameModel model;
+    private final GameLoop gameLoop;
+
+    // Written on the EDT, read on the game loop thread
+    private volatile boolean upPressed = false;
+    private volatile boolean downPressed = false;
+    // Owned by the game loop thread
+    private boolean wasWaiting = true;
+
+    public NetworkController(GameView view, JFrame frame, MatchConnection client) {
+        this.view = view;
+        this.frame = frame;
+        this.client = client;
+        this.model = client.getModel();
+
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                gameLoop.stop();
+                client.close();
+            }
+        });
+        updateTitle(true);
+
+        view.updateGameState(model);
+        gameLoop = new GameLoop(client.getTickRate(), this::tick, view::requestFrame);
+        gameLoop.start();
+    }
+
+    /**
+     * Sends this tick's input and shows the result. Runs on the game loop thread.
+     */
+    private void tick() {
+        int input = PaddleInput.NONE;
+        if (upPressed) input |= PaddleInput.PADDLE1_UP;
+        if (downPressed) input |= PaddleInput.PADDLE1_DOWN;
+        client.tick(input);
+        view.getSnapshots().publish(model, gameLoop.getTickTime());
+
+        boolean waiting = client.isWaiting();
+        if (waiting != wasWaiting) {
+            wasWaiting = waiting;
+            SwingUtilities.invokeLater(() -> updateTitle(waiting));
+        }
+        if (client.isGameOver()) {
+            gameLoop.stop();
+            SwingUtilities.invokeLater(this::endGame);
+        }
+    }
+
+    private void updateTitle(boolean waiting) {
+        String side = client.getSide() == 1 ? "left" : "right";
+        frame.setTitle("Pong - playing " + side + (waiting ? " - waiting for an opponent" : ""));
+    }
+
+    /**
+     * Shows the result and closes the window. Called on the EDT.
+     */
+    private void endGame() {
+        client.close();
+        int own = client.getSide() == 1 ? model.player1Score : model.player2Score;
+        int opponent = client.getSide() == 1 ? model.player2Score : model.player1Score;
+        JOptionPane.showMessageDialog(frame, (own > opponent ? "You won " : "You lost ") + own + " - " + opponent,
+                "Game Over", JOptionPane.INFORMATION_MESSAGE);
+        frame.dispose();
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_W, KeyEvent.VK_UP -> upPressed = true;
+            case KeyEvent.VK_S, KeyEvent.VK_DOWN -> downPressed = true;
+            default -> {
+                // Other keys are not used
+            }
+        }
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_W, KeyEvent.VK_UP -> upPressed = false;
+            case KeyEvent.VK_S, KeyEvent.VK_DOWN -> downPressed = false;
+            default -> {
+                // Other keys are not used
+            }
+        }
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {
+        // Not used but required by KeyListener interface
+    }
+}
@@ -0,0 +1,18 @@
+package com.pong.controller;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ParkingScheduler sleeps for the whole wait with {@link LockSupport#parkNanos}. It uses the
+ * least CPU, but every tick starts as late as the operating system's timer slack makes it:
+ * tens of microseconds on Linux, up to a millisecond or more elsewhere.
+ */
+public class ParkingScheduler implements TickScheduler {
+
+    @Override
+    public void awaitDeadline(long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+}
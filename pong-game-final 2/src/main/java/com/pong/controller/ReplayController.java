@@ -0,0 +1,110 @@
+package com.pong.controller;
+import com.pong.model.GameModel;
+import com.pong.replay.ReplayArchive;
+import com.pong.replay.ReplayCursor;
+import com.pong.view.GameView;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+
+/**
+ * ReplayController plays a recorded match back in a {@link GameView}, reading it from a
+ * {@link ReplayArchive} instead of simulating it. The game loop moves a {@link ReplayCursor}
+ * once per tick and publishes the result like a live game does.
+ *
+ * Keys: P pauses, holding the right arrow fast-forwards and the left arrow rewinds at
+ * {@link #FAST_SPEED}x, Home goes back to the start and End to the final tick.
+ */
+public class ReplayController implements KeyListener {
+
+    // Ticks moved per tick while fast-forwarding or rewinding
+    public static final int FAST_SPEED = 16;
+
+    private final GameView view;
+    private final GameModel model;
+    private final ReplayCursor cursor;
+    private final GameLoop gameLoop;
+
+    // Written on the EDT, read on the game loop thread
+    private volatile boolean isPaused = false;
+    private volatile boolean isFastForward = false;
+    private volatile boolean isRewind = false;
+    // Tick to jump to, or -1
+    private volatile int seekTarget = -1;
+
+    /**
+     * @param view    View to show the replay in; created with the replay's settings
+     * @param archive Replay to play
+     */
+    public ReplayController(GameView view, ReplayArchive archive) {
+        this.view = view;
+        this.model = archive.createModel();
+        this.cursor = new ReplayCursor(archive, model);
+
+        view.updateGameState(model);
+        gameLoop = new GameLoop(archive.getTickRate(), this::tick, view::requestFrame);
+        gameLoop.start();
+    }
+
+    /**
+     * Moves the replay by one tick's worth of playback. Runs on the game loop thread.
+     */
+    private void tick() {
+        int target = seekTarget;
+        if (target >= 0) {
+            seekTarget = -1;
+            cursor.seek(target);
+        } else if (isRewind) {
+            cursor.skip(-FAST_SPEED);
+        } else if (isFastForward) {
+            cursor.skip(FAST_SPEED);
+        } else if (!isPaused) {
+            cursor.step();
+        }
+        view.getSnapshots().publish(model, gameLoop.getTickTime());
+
+        // Nothing moves at the end or while paused, so let the loop park until a key is pressed
+        if (isIdle()) {
+            gameLoop.setSuspended(true);
+            // Recheck after parking is announced so a key pressed meanwhile is not lost
+            if (!isIdle()) {
+                gameLoop.setSuspended(false);
+            }
+        }
+    }
+
+    private boolean isIdle() {
+        return (isPaused || cursor.isAtEnd()) && !isRewind && !isFastForward && seekTarget < 0;
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_P -> isPaused = !isPaused;
+            case KeyEvent.VK_RIGHT -> isFastForward = true;
+            case KeyEvent.VK_LEFT -> isRewind = true;
+            case KeyEvent.VK_HOME -> seekTarget = 0;
+            case KeyEvent.VK_END -> seekTarget = Integer.MAX_VALUE;
+            default -> {
+                return;
+            }
+        }
+        gameLoop.setSuspended(false);
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_RIGHT -> isFastForward = false;
+            case KeyEvent.VK_LEFT -> isRewind = false;
+            default -> {
+                return;
+            }
+        }
+        gameLoop.setSuspended(false);
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) {
+        // Not used but required by KeyListener interface
+    }
+}
@@ -0,0 +1,78 @@
+package com.pong.controller;
+import com.pong.model.GameModel;
+import com.pong.net.SpectatorClient;
+import com.pong.view.GameView;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+/**
+ * SpectatorController shows a match streamed by a {@link com.pong.net.SpectatorBroadcaster}.
+ * The game loop polls the {@link SpectatorClient} once per tick and shows the newest state;
+ * there is no input.
+ */
+public class SpectatorController {
+
+    private final JFrame frame;
+    private final SpectatorClient client;
+    private final GameModel model;
+    private final GameView view;
+    private final GameLoop gameLoop;
+
+    // Owned by the game loop thread
+    private boolean wasWaiting = true;
+
+    public SpectatorController(GameView view, JFrame frame, SpectatorClient client) {
+        this.view = view;
+        this.frame = frame;
+        this.client = client;
+        this.model = client.getModel();
+
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                gameLoop.stop();
+                client.close();
+            }
+        });
+        updateTitle(true);
+
+        view.updateGameState(model);
+        gameLoop = new GameLoop(client.getTickRate(), this::tick, view::requestFrame);
+        gameLoop.start();
+    }
+
+    /**
+     * Applies whatever the broadcaster sent. Runs on the game loop thread.
+     */
+    private void tick() {
+        client.poll();
+        view.getSnapshots().publish(model, gameLoop.getTickTime());
+
+        boolean waiting = client.isWaiting();
+        if (waiting != wasWaiting) {
+            wasWaiting = waiting;
+            SwingUtilities.invokeLater(() -> updateTitle(waiting));
+        }
+        if (!client.isConnected()) {
+            gameLoop.stop();
+            SwingUtilities.invokeLater(this::endBroadcast);
+        }
+    }
+
+    private void updateTitle(boolean waiting) {
+        frame.setTitle("Pong - spectating" + (waiting ? " - waiting for players" : ""));
+    }
+
+    /**
+     * Tells the spectator the stream has ended and closes the window. Called on the EDT.
+     */
+    private void endBroadcast() {
+        client.close();
+        JOptionPane.showMessageDialog(frame, "The broadcast has ended at " + model.player1Score + " - "
+                + model.player2Score, "Broadcast Over", JOptionPane.INFORMATION_MESSAGE);
+        frame.dispose();
+    }
+}
@@ -0,0 +1,16 @@
+package com.pong.controller;
+
+/**
+ * TickScheduler decides how the game loop thread waits for the next tick deadline.
+ * Implementations trade timing precision for CPU use.
+ */
+public interface TickScheduler {
+
+    /**
+     * Waits until {@link System#nanoTime()} reaches the deadline. May return early if the
+     * thread is unparked (e.g. to stop or suspend the loop), so callers recheck the time.
+     *
+     * @param deadline Time to wait for, in System.nanoTime() terms
+     */
+    void awaitDeadline(long deadline);
+}
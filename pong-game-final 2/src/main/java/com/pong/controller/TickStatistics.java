@@ -0,0 +1,114 @@
+package com.pong.controller;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TickStatistics records how late each pass of the game loop starts relative to its tick
+ * deadline (the tick jitter), and how many ticks were run back to back to catch up or dropped.
+ * Jitter goes into a histogram of 10 us buckets, so percentiles cost nothing to record.
+ *
+ * Written by the game loop thread only; readable from any thread, e.g. over JMX once
+ * {@link #register} has been called.
+ */
+public class TickStatistics implements TickStatisticsMXBean {
+
+    public static final String OBJECT_NAME = "com.pong:type=TickStatistics";
+
+    // 10 us buckets up to 5 ms
+    private final LatencyHistogram jitter = new LatencyHistogram(TimeUnit.MICROSECONDS.toNanos(10),
+            TimeUnit.MILLISECONDS.toNanos(5));
+    private volatile long caughtUpTicks;
+    private volatile long droppedTicks;
+    private volatile boolean resetRequested = false;
+
+    /**
+     * Records one pass of the loop. Must only be called from the game loop thread.
+     *
+     * @param jitterNanos   How long after its deadline the pass started
+     * @param caughtUpTicks Ticks run in the pass beyond the one that was due
+     * @param droppedTicks  Ticks skipped in the pass because they were too late
+     */
+    void record(long jitterNanos, int caughtUpTicks, int droppedTicks) {
+        if (resetRequested) {
+            resetRequested = false;
+            jitter.clear();
+            this.caughtUpTicks = 0;
+            this.droppedTicks = 0;
+        }
+        jitter.record(jitterNanos);
+        // Single writer, so plain read-modify-write of the volatile fields is safe
+        if (caughtUpTicks > 0) {
+            this.caughtUpTicks = this.caughtUpTicks + caughtUpTicks;
+        }
+        if (droppedTicks > 0) {
+            this.droppedTicks = this.droppedTicks + droppedTicks;
+        }
+    }
+
+    @Override
+    public long getPassCount() {
+        return jitter.getCount();
+    }
+
+    @Override
+    public long getCaughtUpTicks() {
+        return caughtUpTicks;
+    }
+
+    @Override
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    @Override
+    public double getMeanJitterMicros() {
+        return jitter.getMeanMicros();
+    }
+
+    @Override
+    public double getMaxJitterMicros() {
+        return jitter.getMaxMicros();
+    }
+
+    @Override
+    public double getP50JitterMicros() {
+        return jitter.getPercentileMicros(50);
+    }
+
+    @Override
+    public double getP99JitterMicros() {
+        return jitter.getPercentileMicros(99);
+    }
+
+    @Override
+    public double getJitterPercentileMicros(double percentile) {
+        return jitter.getPercentileMicros(percentile);
+    }
+
+    @Override
+    public void reset() {
+        resetRequested = true;
+    }
+
+    /**
+     * Publishes these statistics on the platform MBean server under {@link #OBJECT_NAME},
+     * replacing those of an earlier game.
+     */
+    public void register() {
+        ManagementSupport.register(this, OBJECT_NAME);
+    }
+
+    /**
+     * Removes these statistics from the platform MBean server, if they are still registered.
+     */
+    public void unregister() {
+        ManagementSupport.unregister(OBJECT_NAME);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d passes, jitter mean %.1f us, p50 %.0f us, p99 %.0f us, max %.1f us, "
+                        + "%d ticks caught up, %d dropped", getPassCount(), getMeanJitterMicros(),
+                getP50JitterMicros(), getP99JitterMicros(), getMaxJitterMicros(), getCaughtUpTicks(),
+                getDroppedTicks());
+    }
+}
@@ -0,0 +1,33 @@
+package com.pong.controller;
+
+/**
+ * Management interface of {@link TickStatistics}, readable with JConsole or any JMX client
+ * while a game is running.
+ */
+public interface TickStatisticsMXBean {
+
+    long getPassCount();
+
+    long getCaughtUpTicks();
+
+    long getDroppedTicks();
+
+    double getMeanJitterMicros();
+
+    double getMaxJitterMicros();
+
+    double getP50JitterMicros();
+
+    double getP99JitterMicros();
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return Jitter at the percentile, rounded up to the histogram resolution
+     */
+    double getJitterPercentileMicros(double percentile);
+
+    /**
+     * Clears all counters; takes effect at the loop's next pass.
+     */
+    void reset();
+}
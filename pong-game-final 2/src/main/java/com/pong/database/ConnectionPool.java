@@ -0,0 +1,511 @@
+package com.pong.database;
+import com.pong.controller.LatencyHistogram;
+import com.pong.controller.ManagementSupport;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ConnectionPool keeps a bounded set of open JDBC connections and lends them out, so a query
+ * no longer pays for a TCP connection and login to the database server. Closing a connection
+ * taken from the pool returns it instead: any open transaction is rolled back and auto-commit
+ * switched back on, so the next borrower finds it as {@link DriverManager} would have opened it.
+ *
+ * When every connection is lent out, a borrower waits up to the maximum wait and then fails
+ * with an {@link SQLTimeoutException}. A connection that has been idle for a while is checked
+ * with {@link Connection#isValid} before it is lent again, and one that fails a query with a
+ * connection error (SQL state class 08) is closed rather than returned. Each connection also
+ * caches the statements prepared on it (see {@link PooledConnection}).
+ *
+ * A connection held longer than the leak threshold is reported once on standard error with
+ * the stack of the code that borrowed it. Metrics are available as getters, through
+ * {@link #toString()} and over JMX once {@link #register} has been called.
+ *
+ * Thread-safe.
+ */
+public class ConnectionPool implements ConnectionPoolMXBean, Runnable {
+
+    public static final String OBJECT_NAME = "com.pong:type=ConnectionPool";
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long maxWaitNanos;
+    private final long validationIntervalNanos;
+    private final int validationTimeoutSeconds;
+    private final long leakThresholdNanos;
+    private final int statementCacheSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    // Guarded by lock. Idle connections are taken from the front, so the busiest stay warm.
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> active = new HashSet<>();
+    // Open connections plus those being opened
+    private int total = 0;
+    private int waiting = 0;
+    private boolean closed = false;
+    // 50 us buckets up to 1 s; written under the lock, so by one thread at a time
+    private final LatencyHistogram waitTime = new LatencyHistogram(TimeUnit.MICROSECONDS.toNanos(50),
+            TimeUnit.SECONDS.toNanos(1));
+    private volatile long timeouts;
+    private volatile long created;
+    private volatile long discarded;
+    private volatile long leaks;
+    // Updated by whichever thread holds a connection
+    final LongAdder statementCacheHits = new LongAdder();
+    final LongAdder statementCacheMisses = new LongAdder();
+
+    private Thread thread;
+
+    private ConnectionPool(Builder builder) {
+        this.url = builder.url;
+        this.user = builder.user;
+        this.password = builder.password;
+        this.maxSize = builder.maxSize;
+        this.minIdle = Math.min(builder.minIdle, builder.maxSize);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(builder.maxWaitMillis);
+        this.validationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(builder.validationIntervalMillis);
+        this.validationTimeoutSeconds = builder.validationTimeoutSeconds;
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(builder.leakThresholdMillis);
+        this.statementCacheSize = builder.statementCacheSize;
+        if (leakThresholdNanos > 0) {
+            thread = new Thread(this, "connection-pool");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Lends a connection, opening a new one if none is idle and the pool is not full, or
+     * otherwise waiting for one to be returned. Close it to return it.
+     *
+     * @throws SQLTimeoutException If no connection became free within the maximum wait
+     * @throws SQLException        If a new connection could not be opened, or the pool is closed
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + maxWaitNanos;
+        while (true) {
+            PooledConnection pooled = null;
+            lock.lock();
+            try {
+                while (pooled == null) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                    pooled = idle.pollFirst();
+                    if (pooled != null || total < maxSize) {
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts = timeouts + 1;
+                        throw new SQLTimeoutException("No database connection became free within "
+                                + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms; all " + total + " are in use");
+                    }
+                    waiting++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    } finally {
+                        waiting--;
+                    }
+                }
+                if (pooled == null) {
+                    // Reserve the slot, then connect without holding the lock
+                    total++;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (pooled == null) {
+                pooled = open();
+            } else if (System.nanoTime() - pooled.getReturnedAt() > validationIntervalNanos
+                    && !pooled.isValid(validationTimeoutSeconds)) {
+                discard(pooled);
+                continue;
+            }
+
+            Connection connection = pooled.lend(leakThresholdNanos > 0);
+            lock.lock();
+            try {
+                active.add(pooled);
+                waitTime.record(System.nanoTime() - start);
+            } finally {
+                lock.unlock();
+            }
+            return connection;
+        }
+    }
+
+    /**
+     * Opens connections until the minimum number are idle, so the first queries do not wait
+     * for them. Meant to be called once at startup, off the event dispatch thread.
+     *
+     * @throws SQLException If a connection could not be opened
+     */
+    public void warmUp() throws SQLException {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || idle.size() >= minIdle || total >= maxSize) {
+                    return;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+            PooledConnection pooled = open();
+            lock.lock();
+            try {
+                if (!closed) {
+                    idle.addLast(pooled);
+                    available.signal();
+                    continue;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Closed while connecting
+            discard(pooled);
+            return;
+        }
+    }
+
+    /**
+     * Opens a physical connection for a slot already reserved in {@link #total}.
+     */
+    private PooledConnection open() throws SQLException {
+        try {
+            Connection connection = DriverManager.getConnection(url, user, password);
+            created = created + 1;
+            return new PooledConnection(this, connection, statementCacheSize);
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                total--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Takes back a lent connection; called when the borrower closes it.
+     */
+    void release(PooledConnection pooled) {
+        // Reset outside the lock; a rollback is a round trip to the server
+        boolean reusable = !pooled.isBroken() && pooled.reset();
+        lock.lock();
+        try {
+            active.remove(pooled);
+            if (reusable && !closed) {
+                idle.addFirst(pooled);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(pooled);
+    }
+
+    private void discard(PooledConnection pooled) {
+        pooled.closePhysical();
+        lock.lock();
+        try {
+            total--;
+            if (!closed) {
+                discarded = discarded + 1;
+            }
+            // A slot is free to open a new connection in
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reports connections held past the leak threshold, each once.
+     */
+    @Override
+    public void run() {
+        long interval = Math.max(TimeUnit.SECONDS.toMillis(1), TimeUnit.NANOSECONDS.toMillis(leakThresholdNanos) / 4);
+        while (true) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            List<PooledConnection> leaked = new ArrayList<>();
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                long now = System.nanoTime();
+                for (PooledConnection pooled : active) {
+                    if (!pooled.isLeakReported() && now - pooled.getBorrowedAt() > leakThresholdNanos) {
+                        pooled.setLeakReported();
+                        leaked.add(pooled);
+                    }
+                }
+                leaks = leaks + leaked.size();
+            } finally {
+                lock.unlock();
+            }
+            for (PooledConnection pooled : leaked) {
+                System.err.println("Database connection held for "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pooled.getBorrowedAt())
+                        + " ms without being closed; it was borrowed here:");
+                pooled.getBorrowTrace().printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Closes the idle connections and stops lending. Connections still lent out are closed
+     * when they are returned.
+     */
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            total -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pooled : toClose) {
+            pooled.closePhysical();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Publishes the pool's metrics on the platform MBean server under {@link #OBJECT_NAME}.
+     */
+    public void register() {
+        ManagementSupport.register(this, OBJECT_NAME);
+    }
+
+    public void unregister() {
+        ManagementSupport.unregister(OBJECT_NAME);
+    }
+
+    @Override
+    public int getActiveConnections() {
+        lock.lock();
+        try {
+            return active.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getIdleConnections() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return maxSize;
+    }
+
+    @Override
+    public int getWaitingThreads() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return waitTime.getCount();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeouts;
+    }
+
+    @Override
+    public long getCreatedConnections() {
+        return created;
+    }
+
+    @Override
+    public long getDiscardedConnections() {
+        return discarded;
+    }
+
+    @Override
+    public long getLeakCount() {
+        return leaks;
+    }
+
+    @Override
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    @Override
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    @Override
+    public double getMeanWaitMicros() {
+        return waitTime.getMeanMicros();
+    }
+
+    @Override
+    public double getP99WaitMicros() {
+        return waitTime.getPercentileMicros(99);
+    }
+
+    @Override
+    public double getMaxWaitMicros() {
+        return waitTime.getMaxMicros();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d active, %d idle of %d, %d waiting; %d borrows, wait mean %.1f us, p99 %.0f us, "
+                        + "max %.1f us, %d timeouts; %d opened, %d discarded, %d leaked; statement cache %d hits, %d misses",
+                getActiveConnections(), getIdleConnections(), maxSize, getWaitingThreads(), getBorrowCount(),
+                getMeanWaitMicros(), getP99WaitMicros(), getMaxWaitMicros(), timeouts, created, discarded, leaks,
+                getStatementCacheHits(), getStatementCacheMisses());
+    }
+
+    /**
+     * Builder for a pool; the defaults suit the game's own database, which sees a few
+     * queries per login and per match.
+     */
+    public static class Builder {
+        private String url;
+        private String user;
+        private String password;
+        private int maxSize = 8;
+        private int minIdle = 2;
+        private long maxWaitMillis = 5000;
+        private long validationIntervalMillis = 1000;
+        private int validationTimeoutSeconds = 2;
+        private long leakThresholdMillis = 30000;
+        private int statementCacheSize = 32;
+
+        public Builder setUrl(String url) {
+            this.url = url;
+            return this;
+        }
+
+        public Builder setUser(String user) {
+            this.user = user;
+            return this;
+        }
+
+        public Builder setPassword(String password) {
+            this.password = password;
+            return this;
+        }
+
+        /**
+         * @param maxSize Most connections open at once
+         */
+        public Builder setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * @param minIdle Connections {@link #warmUp} opens ahead of use
+         */
+        public Builder setMinIdle(int minIdle) {
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        /**
+         * @param maxWaitMillis How long a borrower waits for a free connection before failing
+         */
+        public Builder setMaxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+            return this;
+        }
+
+        /**
+         * @param validationIntervalMillis Idle time after which a connection is checked before it is lent
+         */
+        public Builder setValidationIntervalMillis(long validationIntervalMillis) {
+            this.validationIntervalMillis = validationIntervalMillis;
+            return this;
+        }
+
+        public Builder setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            return this;
+        }
+
+        /**
+         * @param leakThresholdMillis How long a connection may be held before it is reported, or 0
+         *                            to turn leak detection off; it records a stack trace per borrow
+         */
+        public Builder setLeakThresholdMillis(long leakThresholdMillis) {
+            this.leakThresholdMillis = leakThresholdMillis;
+            return this;
+        }
+
+        /**
+         * @param statementCacheSize Prepared statements kept open per connection, or 0 for none
+         */
+        public Builder setStatementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        public ConnectionPool build() {
+            if (url == null) {
+                throw new IllegalStateException("Database URL is required");
+            }
+            if (maxSize < 1 || minIdle < 0 || maxWaitMillis < 0 || leakThresholdMillis < 0 || statementCacheSize < 0) {
+                throw new IllegalArgumentException("Invalid connection pool settings");
+            }
+            return new ConnectionPool(this);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.pong.database;
+
+/**
+ * Management interface of {@link ConnectionPool}, readable with JConsole or any JMX client
+ * while the game is running.
+ */
+public interface ConnectionPoolMXBean {
+
+    /**
+     * @return Connections currently lent out
+     */
+    int getActiveConnections();
+
+    /**
+     * @return Open connections waiting in the pool
+     */
+    int getIdleConnections();
+
+    int getMaxConnections();
+
+    /**
+     * @return Threads blocked waiting for a connection
+     */
+    int getWaitingThreads();
+
+    long getBorrowCount();
+
+    /**
+     * @return Borrows that gave up after the maximum wait
+     */
+    long getTimeoutCount();
+
+    /**
+     * @return Connections opened since the pool started, including replacements of broken ones
+     */
+    long getCreatedConnections();
+
+    /**
+     * @return Connections found broken on validation or after a connection error
+     */
+    long getDiscardedConnections();
+
+    /**
+     * @return Connections held longer than the leak threshold
+     */
+    long getLeakCount();
+
+    long getStatementCacheHits();
+
+    long getStatementCacheMisses();
+
+    double getMeanWaitMicros();
+
+    double getP99WaitMicros();
+
+    double getMaxWaitMicros();
+}
@@ -1,30 +1,94 @@
 package com.pong.database;
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseUtils {
 
 
-    private static final String URL = "jdbc:mysql://localhost:3306/pongdb";
-    private static final String USER = "pong-user";
-    private static final String PASSWORD = "pingpong24";
+    // Connection details can be overridden with system properties, e.g. to point benchmarks at a local database.
+    // rewriteBatchedStatements makes the driver send a batch of inserts as one multi-row statement.
+    private static final String URL = System.getProperty("pong.db.url",
+            "jdbc:mysql://localhost:3306/pongdb?rewriteBatchedStatements=true");
+    private static final String USER = System.getProperty("pong.db.user", "pong-user");
+    private static final String PASSWORD = System.getProperty("pong.db.password", "pingpong24");
+    // So can the pool's size and limits
+    private static final int POOL_SIZE = Integer.getInteger("pong.db.pool.size", 8);
+    private static final int POOL_MIN_IDLE = Integer.getInteger("pong.db.pool.min-idle", 2);
+    private static final long POOL_MAX_WAIT_MILLIS = Long.getLong("pong.db.pool.max-wait", 5000);
+    private static final long POOL_LEAK_THRESHOLD_MILLIS = Long.getLong("pong.db.pool.leak-threshold", 30000);
+    private static final Path SCORE_JOURNAL = Path.of(System.getProperty("pong.score.journal", "scores.journal"));
 
+    private static ConnectionPool pool;
+    private static ScoreWriter scoreWriter;
+
+    /**
+     * Borrows a connection from the shared pool; closing it returns it to the pool.
+     */
     public static Connection getConnection() throws SQLException {
         try {
+            return getPool().getConnection();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new SQLException("Error connecting to the database.", e);
+        }
+    }
 
-            Class.forName("com.mysql.cj.jdbc.Driver");
+    /**
+     * @return The shared pool, created on first use
+     */
+    public static synchronized ConnectionPool getPool() throws SQLException {
+        if (pool == null) {
+            try {
 
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
 
-            return DriverManager.getConnection(URL, USER, PASSWORD);
-        } catch (ClassNotFoundException e) {
+                e.printStackTrace();
+                throw new SQLException("MySQL JDBC Driver not found.", e);
+            }
+            pool = new ConnectionPool.Builder()
+                    .setUrl(URL)
+                    .setUser(USER)
+                    .setPassword(PASSWORD)
+                    .setMaxSize(POOL_SIZE)
+                    .setMinIdle(POOL_MIN_IDLE)
+                    .setMaxWaitMillis(POOL_MAX_WAIT_MILLIS)
+                    .setLeakThresholdMillis(POOL_LEAK_THRESHOLD_MILLIS)
+                    .build();
+            pool.register();
+        }
+        return pool;
+    }
 
-            e.printStackTrace();
-            throw new SQLException("MySQL JDBC Driver not found.", e);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new SQLException("Error connecting to the database.", e);
+    /**
+     * @return The shared writer that stores scores in the background, started on first use
+     */
+    public static synchronized ScoreWriter getScoreWriter() {
+        if (scoreWriter == null) {
+            scoreWriter = new ScoreWriter.Builder().setJournal(SCORE_JOURNAL).build();
+            scoreWriter.start();
+            scoreWriter.register();
         }
+        return scoreWriter;
+    }
+
+    /**
+     * Opens the pool's first connections on a background thread, so that the first login
+     * does not wait for them, and starts the score writer so it catches up on scores a
+     * previous run could not store. Failures are only reported; queries will try again.
+     */
+    public static void warmUp() {
+        Thread thread = new Thread(() -> {
+            getScoreWriter();
+            try {
+                getPool().warmUp();
+            } catch (SQLException e) {
+                System.err.println("Could not open database connections ahead of use: " + e.getMessage());
+            }
+        }, "connection-pool-warm-up");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     public static void closeConnection(Connection connection) {
@@ -36,4 +100,4 @@ public class DatabaseUtils {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,452 @@
+package com.pong.database;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One physical connection of a {@link ConnectionPool}. Each time it is lent out, the borrower
+ * gets a fresh {@link Proxy} of {@link Connection} that forwards to it until closed; closing
+ * the proxy returns the connection to the pool, and the proxy refuses any further use. Every
+ * statement the borrower creates is lent through a proxy too and tracked, so one left open is
+ * closed when the connection is returned. Result sets and the connection's metadata are
+ * proxied as well, so that their statement and connection are the borrower's proxies. No
+ * proxy unwraps to, or otherwise hands out, a physical connection or statement, which would
+ * let a borrower keep using them after giving them back.
+ *
+ * {@code prepareStatement(sql)} is answered from a cache of statements kept open on the
+ * connection, least recently used first out, so a query run again does not prepare its
+ * statement again. Closing a cached statement only clears its parameters and batch and closes
+ * its open result set, so the next borrower sees none of them. A statement that is still in
+ * use when the same SQL is prepared again is joined by an uncached one.
+ *
+ * Used by one borrower at a time, so only the lending and returning are synchronised, by the pool.
+ */
+class PooledConnection {
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final int statementCacheSize;
+    // Least recently used first; evicted statements are closed once no longer in use
+    private final Map<String, CachedStatement> statements;
+    // Statements the borrower has not closed yet, cached or not
+    private final List<CachedStatement> inUse = new ArrayList<>();
+
+    private volatile long borrowedAt;
+    private volatile Throwable borrowTrace;
+    private volatile boolean leakReported;
+    private long returnedAt;
+    // Set when a call fails with a connection error; the connection is then closed on return
+    private volatile boolean broken = false;
+
+    PooledConnection(ConnectionPool pool, Connection connection, int statementCacheSize) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statementCacheSize = statementCacheSize;
+        this.returnedAt = System.nanoTime();
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= PooledConnection.this.statementCacheSize) {
+                    return false;
+                }
+                CachedStatement evicted = eldest.getValue();
+                evicted.cached = false;
+                if (evicted.lease == null) {
+                    evicted.closeQuietly();
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param traceBorrower True to record the borrower's stack for leak reports
+     * @return A new proxy for the borrower
+     */
+    Connection lend(boolean traceBorrower) {
+        borrowedAt = System.nanoTime();
+        borrowTrace = traceBorrower ? new Throwable("Connection borrowed") : null;
+        leakReported = false;
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Lease());
+    }
+
+    /**
+     * Makes the connection ready for its next borrower: releases statements the last one left
+     * open, rolls back an unfinished transaction and turns auto-commit back on.
+     *
+     * @return False if that failed, in which case the connection should be closed
+     */
+    boolean reset() {
+        for (CachedStatement statement : new ArrayList<>(inUse)) {
+            statement.lease.closed = true;
+            statement.release();
+        }
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            connection.clearWarnings();
+            returnedAt = System.nanoTime();
+            return !broken;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    boolean isValid(int timeoutSeconds) {
+        try {
+            return connection.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        for (CachedStatement statement : statements.values()) {
+            statement.closeQuietly();
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Broken connections often fail to close; they are dropped either way
+        }
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    long getReturnedAt() {
+        return returnedAt;
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Throwable getBorrowTrace() {
+        return borrowTrace;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void setLeakReported() {
+        leakReported = true;
+    }
+
+    /**
+     * Calls a method of the physical connection or a statement, noting connection errors.
+     */
+    private Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                checkBroken((SQLException) e.getCause());
+            }
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Answers {@code unwrap} on a proxy with the proxy itself, for any interface it implements.
+     */
+    private static Object unwrap(Object proxy, Class<?> iface) throws SQLException {
+        if (!iface.isInstance(proxy)) {
+            throw new SQLException("Not a wrapper for " + iface.getName());
+        }
+        return proxy;
+    }
+
+    private void checkBroken(SQLException e) {
+        // SQL state class 08 is a connection exception
+        if (e instanceof SQLNonTransientConnectionException || e.getSQLState() != null && e.getSQLState().startsWith("08")) {
+            broken = true;
+        }
+    }
+
+    /**
+     * Wraps a result set or metadata in a proxy whose statement and connection are the
+     * borrower's proxies; anything else is returned as is.
+     *
+     * @param statementProxy The statement the result belongs to, or null if none
+     */
+    private Object wrap(Object result, Connection connectionProxy, Object statementProxy) {
+        Class<?> type;
+        if (result instanceof ResultSet) {
+            type = ResultSet.class;
+        } else if (result instanceof DatabaseMetaData) {
+            type = DatabaseMetaData.class;
+        } else {
+            return result;
+        }
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new ResultLease(result, connectionProxy, statementProxy));
+    }
+
+    private PreparedStatement prepare(String sql, Connection proxy) throws SQLException {
+        CachedStatement statement = statements.get(sql);
+        if (statement == null || statement.lease != null) {
+            pool.statementCacheMisses.increment();
+            PreparedStatement prepared;
+            try {
+                prepared = connection.prepareStatement(sql);
+            } catch (SQLException e) {
+                checkBroken(e);
+                throw e;
+            }
+            CachedStatement fresh = new CachedStatement(prepared);
+            if (statement == null && statementCacheSize > 0) {
+                fresh.cached = true;
+                statements.put(sql, fresh);
+            }
+            statement = fresh;
+        } else {
+            pool.statementCacheHits.increment();
+        }
+        return (PreparedStatement) lend(statement, PreparedStatement.class, proxy);
+    }
+
+    /**
+     * Creates a statement the cache does not keep, with {@code createStatement},
+     * {@code prepareCall} or a {@code prepareStatement} with options; closing it closes it.
+     */
+    private Object createUncached(Method method, Object[] args, Connection proxy) throws Throwable {
+        Statement created = (Statement) forward(connection, method, args);
+        return lend(new CachedStatement(created), method.getReturnType(), proxy);
+    }
+
+    private Object lend(CachedStatement statement, Class<?> type, Connection proxy) {
+        statement.lease = new StatementLease(statement, proxy);
+        inUse.add(statement);
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, statement.lease);
+    }
+
+    /**
+     * The borrower's view of the connection, valid until closed.
+     */
+    private class Lease implements InvocationHandler {
+        private boolean closed = false;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + connection + (closed ? " (closed)" : "");
+                }
+                case "unwrap" -> {
+                    return unwrap(proxy, (Class<?>) args[0]);
+                }
+                case "isWrapperFor" -> {
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                }
+                default -> {
+                    // Handled below
+                }
+            }
+            if (closed) {
+                if (method.getName().equals("isValid")) {
+                    return false;
+                }
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            switch (method.getName()) {
+                case "prepareStatement", "prepareCall", "createStatement" -> {
+                    if (method.getName().equals("prepareStatement") && args.length == 1) {
+                        return prepare((String) args[0], (Connection) proxy);
+                    }
+                    return createUncached(method, args, (Connection) proxy);
+                }
+                case "getMetaData" -> {
+                    return wrap(forward(connection, method, args), (Connection) proxy, null);
+                }
+                default -> {
+                    return forward(connection, method, args);
+                }
+            }
+        }
+    }
+
+    /**
+     * A statement lent to a borrower, kept open on the connection if it is cached.
+     */
+    private class CachedStatement {
+        private final Statement statement;
+        // Whether it is still in the cache, and the borrower currently using it
+        private boolean cached = false;
+        private StatementLease lease;
+
+        CachedStatement(Statement statement) {
+            this.statement = statement;
+        }
+
+        /**
+         * Makes the statement available again, or closes it if it is not cached.
+         */
+        void release() {
+            lease = null;
+            inUse.remove(this);
+            if (!cached) {
+                closeQuietly();
+                return;
+            }
+            try {
+                ResultSet results = statement.getResultSet();
+                if (results != null) {
+                    results.close();
+                }
+                // Only prepared statements are cached
+                ((PreparedStatement) statement).clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                cached = false;
+                statements.values().remove(this);
+                closeQuietly();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Closed along with the connection anyway
+            }
+        }
+    }
+
+    /**
+     * The borrower's view of a prepared statement, valid until closed.
+     */
+    private class StatementLease implements InvocationHandler {
+        private final CachedStatement statement;
+        private final Connection connectionProxy;
+        private boolean closed = false;
+
+        StatementLease(CachedStatement statement, Connection connectionProxy) {
+            this.statement = statement;
+            this.connectionProxy = connectionProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        statement.release();
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed;
+                }
+                case "getConnection" -> {
+                    return connectionProxy;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return statement.statement.toString();
+                }
+                case "unwrap" -> {
+                    return unwrap(proxy, (Class<?>) args[0]);
+                }
+                case "isWrapperFor" -> {
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                }
+                default -> {
+                    // Handled below
+                }
+            }
+            if (closed) {
+                throw new SQLException("Statement has been closed");
+            }
+            return wrap(forward(statement.statement, method, args), connectionProxy, proxy);
+        }
+    }
+
+    /**
+     * The borrower's view of a result set or of the connection's metadata, forwarded as is
+     * except for the objects it belongs to.
+     */
+    private class ResultLease implements InvocationHandler {
+        private final Object target;
+        private final Connection connectionProxy;
+        private final Object statementProxy;
+
+        ResultLease(Object target, Connection connectionProxy, Object statementProxy) {
+            this.target = target;
+            this.connectionProxy = connectionProxy;
+            this.statementProxy = statementProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection" -> {
+                    return connectionProxy;
+                }
+                case "getStatement" -> {
+                    return statementProxy;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return target.toString();
+                }
+                case "unwrap" -> {
+                    return unwrap(proxy, (Class<?>) args[0]);
+                }
+                case "isWrapperFor" -> {
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                }
+                default -> {
+                    // Metadata queries answer with result sets, which belong to no statement of the borrower's
+                    return wrap(forward(target, method, args), connectionProxy,
+                            target instanceof ResultSet ? statementProxy : null);
+                }
+            }
+        }
+    }
+}
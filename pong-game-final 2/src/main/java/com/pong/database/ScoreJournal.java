@@ -0,0 +1,208 @@
+package com.pong.database;
+import com.pong.model.Score;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * ScoreJournal is the local append-only log behind {@link ScoreWriter}. Every score is
+ * appended here before it is queued for the database, and a checkpoint file next to the
+ * journal records how far the database has caught up. After a crash or while the database is
+ * down, the scores past the checkpoint are still on disk and are written on the next start.
+ *
+ * Positions are byte counts over the journal's whole life, so they only grow. Once every
+ * score is in the database and the file has grown large, it is replaced by an empty one
+ * whose header carries on from the last position.
+ *
+ * <pre>
+ * header  int magic, long position of the first record
+ * record  int user id, score, score points, opponent score; long date played (epoch ms, or
+ *         Long.MIN_VALUE for none); int nanos of the date; int CRC-32 of the preceding bytes
+ * </pre>
+ *
+ * A record cut short by a crash fails its CRC and is dropped, with anything after it.
+ * Appends are synchronised; the rest is meant for the writer thread.
+ */
+class ScoreJournal {
+
+    static final int RECORD_SIZE = 4 * 4 + 8 + 4 + 4;
+    private static final int MAGIC = 0x50534A31;
+    private static final int HEADER_SIZE = 4 + 8;
+    // Replace the journal with an empty one once it is fully written and this large
+    private static final long ROTATE_BYTES = 1 << 20;
+
+    private final Path path;
+    private final Path checkpointPath;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    // Replaced only by the writer thread, which is also the only one to force it
+    private volatile FileChannel channel;
+    // Position of the file's first record
+    private long start;
+    private volatile long end;
+    private volatile long committed;
+
+    private ScoreJournal(Path path) {
+        this.path = path;
+        this.checkpointPath = path.resolveSibling(path.getFileName() + ".checkpoint");
+    }
+
+    /**
+     * Opens the journal, creating it if needed, and drops any torn record at its end.
+     */
+    static ScoreJournal open(Path path) throws IOException {
+        ScoreJournal journal = new ScoreJournal(path);
+        journal.recover();
+        return journal;
+    }
+
+    private void recover() throws IOException {
+        long checkpoint = 0;
+        if (Files.exists(checkpointPath)) {
+            checkpoint = ByteBuffer.wrap(Files.readAllBytes(checkpointPath)).getLong();
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.read(header, 0) < HEADER_SIZE) {
+            // New journal, or one whose creation was cut short; carry on from the checkpoint if there is one
+            channel.truncate(0);
+            header.clear();
+            header.putInt(MAGIC).putLong(checkpoint).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        } else if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a score journal: " + path);
+        }
+        start = header.getLong(4);
+
+        // Keep every record up to the first one that does not check out
+        long offset = HEADER_SIZE;
+        while (offset + RECORD_SIZE <= channel.size()) {
+            record.clear();
+            channel.read(record, offset);
+            crc.reset();
+            crc.update(record.array(), 0, RECORD_SIZE - 4);
+            if ((int) crc.getValue() != record.getInt(RECORD_SIZE - 4)) {
+                break;
+            }
+            offset += RECORD_SIZE;
+        }
+        if (offset < channel.size()) {
+            System.err.println("Dropping " + (channel.size() - offset) + " torn bytes at the end of " + path);
+            channel.truncate(offset);
+        }
+        channel.position(offset);
+        end = start + offset - HEADER_SIZE;
+        // A journal is only replaced once fully written, so a checkpoint before its start means all of it is pending
+        committed = Math.max(start, Math.min(checkpoint, end));
+    }
+
+    /**
+     * Appends a score. It survives a crash of the process at once; {@link #force} makes it
+     * survive a crash of the machine too.
+     *
+     * @return Position just past the score
+     */
+    synchronized long append(Score score) throws IOException {
+        record.clear();
+        record.putInt(score.getUserId());
+        record.putInt(score.getScore());
+        record.putInt(score.getScorePoints());
+        record.putInt(score.getOpponentScore());
+        Timestamp date = score.getDatePlayed();
+        record.putLong(date != null ? date.getTime() : Long.MIN_VALUE);
+        record.putInt(date != null ? date.getNanos() : 0);
+        crc.reset();
+        crc.update(record.array(), 0, RECORD_SIZE - 4);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        end += RECORD_SIZE;
+        return end;
+    }
+
+    /**
+     * Reads the scores from a position on, up to a number of them.
+     *
+     * @param ends Receives the position just past each score
+     */
+    synchronized void read(long from, int maxScores, List<Score> scores, List<Long> ends) throws IOException {
+        ByteBuffer in = ByteBuffer.allocate(RECORD_SIZE);
+        for (long position = Math.max(from, start); position < end && scores.size() < maxScores; position += RECORD_SIZE) {
+            in.clear();
+            channel.read(in, HEADER_SIZE + position - start);
+            in.flip();
+            Score.Builder builder = new Score.Builder()
+                    .setUserId(in.getInt())
+                    .setScore(in.getInt())
+                    .setScorePoints(in.getInt())
+                    .setOpponentScore(in.getInt());
+            long millis = in.getLong();
+            int nanos = in.getInt();
+            if (millis != Long.MIN_VALUE) {
+                Timestamp date = new Timestamp(millis);
+                date.setNanos(nanos);
+                builder.setDatePlayed(date);
+            }
+            scores.add(builder.build());
+            ends.add(position + RECORD_SIZE);
+        }
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Records that every score up to a position is in the database.
+     */
+    void commit(long position) throws IOException {
+        Path temporary = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.allocate(8).putLong(0, position));
+            out.force(true);
+        }
+        Files.move(temporary, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = position;
+        rotateIfDone();
+    }
+
+    private synchronized void rotateIfDone() throws IOException {
+        if (committed < end || channel.size() < ROTATE_BYTES) {
+            return;
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC).putLong(4, end));
+            out.force(true);
+        }
+        channel.close();
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(HEADER_SIZE);
+        start = end;
+    }
+
+    long getEnd() {
+        return end;
+    }
+
+    long getCommitted() {
+        return committed;
+    }
+
+    synchronized void close() throws IOException {
+        channel.close();
+    }
+}
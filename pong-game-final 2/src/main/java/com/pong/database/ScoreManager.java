@@ -9,6 +9,18 @@ import java.util.ArrayList;
 
 public class ScoreManager {
 
+    /**
+     * Thrown by {@link #addScores} when the database ran the batch and refused it, as opposed
+     * to failing before the statement could run, for instance to connect. Whether the scores
+     * themselves are at fault depends on the cause: a connection lost while the batch ran fails
+     * this way too.
+     */
+    public static class ScoresRefusedException extends RuntimeException {
+        public ScoresRefusedException(String message, SQLException cause) {
+            super(message, cause);
+        }
+    }
+
     public void addScore(Score score) {
         String sql = "INSERT INTO scores (user_id, score, score_points, date_played, opponent_score) VALUES (?, ?, ?, ?, ?)";
 
@@ -41,6 +53,49 @@ public class ScoreManager {
         }
     }
 
+    /**
+     * Inserts several scores as one JDBC batch in a single transaction, so they cost one round
+     * trip instead of one each. Either all of them are stored or none.
+     *
+     * @throws ScoresRefusedException If executing or committing the batch fails
+     * @throws RuntimeException If anything before that fails, such as getting a connection
+     */
+    public void addScores(List<Score> scores) {
+        String sql = "INSERT INTO scores (user_id, score, score_points, date_played, opponent_score) VALUES (?, ?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseUtils.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            conn.setAutoCommit(false);
+
+            for (Score score : scores) {
+                stmt.setInt(1, score.getUserId());
+                stmt.setInt(2, score.getScore());
+                stmt.setInt(3, score.getScorePoints());
+                stmt.setTimestamp(4, score.getDatePlayed());
+                stmt.setInt(5, score.getOpponentScore());
+                stmt.addBatch();
+            }
+
+            try {
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                System.err.println("Database refused " + scores.size() + " scores: " + e.getMessage());
+                throw new ScoresRefusedException("Database error occurred during score insertion", e);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Error adding " + scores.size() + " scores: " + e.getMessage());
+            throw new RuntimeException("Database error occurred during score insertion", e);
+        }
+    }
+
     public List<Score> getUserScores(int userId) {
         List<Score> scores = new ArrayList<>();
         String sql = "SELECT score_id, user_id, score, score_points, date_played, opponent_score FROM scores WHERE user_id = ?";
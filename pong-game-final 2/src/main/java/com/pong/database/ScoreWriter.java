@@ -0,0 +1,499 @@
+package com.pong.database;
+import com.pong.controller.LatencyHistogram;
+import com.pong.controller.ManagementSupport;
+import com.pong.model.Score;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScoreWriter stores match scores in the background, so the end of a match does not wait
+ * for the database. {@link #submit} appends the score to a local {@link ScoreJournal} and
+ * puts it in a bounded queue; a writer thread takes what has gathered, waiting a little for
+ * scores that come together such as both players' of a match, and inserts them as one JDBC
+ * batch in one transaction (see {@link ScoreManager#addScores}).
+ *
+ * Nothing is lost if the database is down: a batch that fails before its statement runs,
+ * for instance because no connection can be had, or that fails with a connection error (SQL
+ * state class 08) or a transient one, is tried again with growing pauses, and scores the
+ * queue has no room for meanwhile are read back from the journal. A batch the database runs
+ * and refuses for any other reason, such as a constraint violation, is split in halves until
+ * the scores at fault are found. Those are set aside in a dead letter file next to the journal,
+ * named like it with {@code .dead} appended, and the rest are written. The dead letter file
+ * has one line per score: user id, score, score points, date played and opponent score,
+ * then the error, separated by tabs.
+ * Nor if the process dies: the next writer to open the journal writes whatever it holds
+ * past the last committed batch. A score is safe from a crash of the process as soon as
+ * {@code submit} returns, and from a crash of the machine once its batch is being written.
+ * A batch cut short by a crash can be written twice.
+ *
+ * Thread-safe.
+ */
+public class ScoreWriter implements ScoreWriterMXBean, Runnable {
+
+    public static final String OBJECT_NAME = "com.pong:type=ScoreWriter";
+
+    private static final long MAX_RETRY_PAUSE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * A queued score and where it ends in the journal, or -1 if it could not be journaled.
+     */
+    private static class Entry {
+        private final Score score;
+        private final long position;
+        private final long submittedAt;
+
+        Entry(Score score, long position, long submittedAt) {
+            this.score = score;
+            this.position = position;
+            this.submittedAt = submittedAt;
+        }
+    }
+
+    private final ScoreManager scoreManager;
+    // Null if the journal could not be opened; scores are then only kept in memory
+    private final ScoreJournal journal;
+    // Null without a journal; dead letters are then only logged
+    private final Path deadLetters;
+    private final BlockingQueue<Entry> queue;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+
+    // Journal position up to which every score is in the database or dead-lettered; only grows
+    private volatile long written;
+    // Set when scores are in the journal but not the queue
+    private volatile boolean backlog;
+    private volatile boolean closing = false;
+    private Thread thread;
+
+    // 1 ms buckets up to 10 s; written by the writer thread only
+    private final LatencyHistogram flushLatency = new LatencyHistogram(TimeUnit.MILLISECONDS.toNanos(1),
+            TimeUnit.SECONDS.toNanos(10));
+    private volatile long writtenScores;
+    private volatile long batches;
+    private volatile long failedBatches;
+    private volatile long overflows;
+    private volatile long deadLettered;
+
+    private ScoreWriter(Builder builder) {
+        this.scoreManager = builder.scoreManager;
+        this.queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+        this.maxBatchSize = builder.maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(builder.lingerMillis);
+        ScoreJournal opened = null;
+        if (builder.journal != null) {
+            try {
+                opened = ScoreJournal.open(builder.journal);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        this.journal = opened;
+        this.deadLetters = builder.journal != null
+                ? builder.journal.resolveSibling(builder.journal.getFileName() + ".dead") : null;
+        if (journal != null) {
+            written = journal.getCommitted();
+            // Scores left over from an earlier run
+            backlog = journal.getEnd() > written;
+        }
+    }
+
+    /**
+     * Starts the writer thread, which first writes any scores left in the journal.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this, "score-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Journals a score and queues it for the database. Never waits for the database.
+     */
+    public synchronized void submit(Score score) {
+        if (closing) {
+            throw new IllegalStateException("Score writer is closed");
+        }
+        long position = -1;
+        if (journal != null) {
+            try {
+                position = journal.append(score);
+            } catch (IOException e) {
+                // Still worth writing to the database, just not safe from a crash
+                e.printStackTrace();
+            }
+        }
+        if (queue.offer(new Entry(score, position, System.nanoTime()))) {
+            return;
+        }
+        overflows = overflows + 1;
+        if (position >= 0) {
+            // The writer reads it back from the journal
+            backlog = true;
+        } else {
+            System.err.println("Score queue is full and the score is not journaled; dropped " + score);
+        }
+    }
+
+    @Override
+    public void run() {
+        List<Score> scores = new ArrayList<>();
+        List<Long> ends = new ArrayList<>();
+        List<Long> submittedAt = new ArrayList<>();
+        while (true) {
+            scores.clear();
+            ends.clear();
+            submittedAt.clear();
+            try {
+                if (!takeBatch(scores, ends, submittedAt)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            if (scores.isEmpty()) {
+                continue;
+            }
+            if (!writeBatch(scores, ends, submittedAt)) {
+                // Closed before the database came back; the journal keeps the scores for next time
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gathers the next batch, from the journal when there is a backlog, otherwise from the queue.
+     *
+     * @return False once closing and everything is written
+     */
+    private boolean takeBatch(List<Score> scores, List<Long> ends, List<Long> submittedAt)
+            throws InterruptedException, IOException {
+        if (backlog) {
+            // Cleared first, so a score that overflows while reading sets it again
+            backlog = false;
+            journal.read(written, maxBatchSize, scores, ends);
+            long now = System.nanoTime();
+            for (int i = 0; i < scores.size(); i++) {
+                submittedAt.add(now);
+            }
+            if (!ends.isEmpty() && ends.get(ends.size() - 1) < journal.getEnd()) {
+                // More than one batch behind
+                backlog = true;
+            }
+            if (!scores.isEmpty()) {
+                journal.force();
+            }
+            return true;
+        }
+
+        Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return !closing || backlog;
+        }
+        long deadline = first.submittedAt + lingerNanos;
+        add(first, scores, ends, submittedAt);
+        while (scores.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            Entry next = closing || remaining <= 0 ? queue.poll() : queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            add(next, scores, ends, submittedAt);
+        }
+        if (backlog) {
+            // A score overflowed meanwhile; journaled ones after it must wait for the backlog to keep their order
+            for (int i = scores.size() - 1; i >= 0; i--) {
+                if (ends.get(i) >= 0) {
+                    scores.remove(i);
+                    ends.remove(i);
+                    submittedAt.remove(i);
+                }
+            }
+        }
+        if (journal != null && !scores.isEmpty()) {
+            journal.force();
+        }
+        return true;
+    }
+
+    private void add(Entry entry, List<Score> scores, List<Long> ends, List<Long> submittedAt) {
+        // Already written when the writer read it from the journal
+        if (entry.position >= 0 && entry.position <= written) {
+            return;
+        }
+        scores.add(entry.score);
+        ends.add(entry.position);
+        submittedAt.add(entry.submittedAt);
+    }
+
+    /**
+     * Inserts the batch, trying it again with growing pauses until it succeeds or the writer is
+     * closed. Only a batch the database ran and refused for other than a connection or transient
+     * error is split in halves, written in turn the same way; a single score refused like that
+     * is dead-lettered. The checkpoint moves past each part as it is done.
+     *
+     * @return False if closed or interrupted before the batch could be written
+     */
+    private boolean writeBatch(List<Score> scores, List<Long> ends, List<Long> submittedAt) {
+        long pause = 500;
+        while (true) {
+            RuntimeException failure;
+            try {
+                scoreManager.addScores(scores);
+                long now = System.nanoTime();
+                for (long time : submittedAt) {
+                    flushLatency.record(now - time);
+                }
+                writtenScores = writtenScores + scores.size();
+                batches = batches + 1;
+                checkpoint(ends);
+                return true;
+            } catch (RuntimeException e) {
+                failure = e;
+                failedBatches = failedBatches + 1;
+            }
+            if (closing || Thread.currentThread().isInterrupted()) {
+                // Possibly failed because of it, such as while waiting for a pooled connection
+                return false;
+            }
+            if (failure instanceof ScoreManager.ScoresRefusedException && !isRetryable(failure)) {
+                if (scores.size() == 1) {
+                    deadLetter(scores.get(0), failure);
+                    checkpoint(ends);
+                    return true;
+                }
+                int half = scores.size() / 2;
+                return writeBatch(scores.subList(0, half), ends.subList(0, half), submittedAt.subList(0, half))
+                        && writeBatch(scores.subList(half, scores.size()), ends.subList(half, ends.size()),
+                        submittedAt.subList(half, submittedAt.size()));
+            }
+            try {
+                Thread.sleep(pause);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            pause = Math.min(pause * 2, MAX_RETRY_PAUSE_MILLIS);
+        }
+    }
+
+    /**
+     * @return True if a refused batch is the connection's or the database's fault rather than
+     * the scores': anywhere among its causes, an SQL state of class 08 (connection exception), a
+     * transient exception or a connection that will not come back by itself
+     */
+    private static boolean isRetryable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientException || cause instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the checkpoint past the journaled scores of a part of a batch that is done with.
+     */
+    private void checkpoint(List<Long> ends) {
+        long last = -1;
+        for (long end : ends) {
+            last = Math.max(last, end);
+        }
+        if (last > written) {
+            written = last;
+            if (journal != null) {
+                try {
+                    journal.commit(last);
+                } catch (IOException e) {
+                    // Only the checkpoint is behind; the scores may be written again after a restart
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets aside a score the database refused, so the scores after it can be written.
+     */
+    private void deadLetter(Score score, RuntimeException failure) {
+        deadLettered = deadLettered + 1;
+        Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+        System.err.println("Score refused by the database, set aside: " + score + ": " + cause);
+        if (deadLetters == null) {
+            return;
+        }
+        String line = score.getUserId() + "\t" + score.getScore() + "\t" + score.getScorePoints() + "\t"
+                + score.getDatePlayed() + "\t" + score.getOpponentScore() + "\t"
+                + String.valueOf(cause).replaceAll("\\s+", " ") + "\n";
+        try (FileChannel out = FileChannel.open(deadLetters, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            out.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+            // On disk before the checkpoint moves past the score
+            out.force(false);
+        } catch (IOException e) {
+            // The score is still in the log above
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops taking scores and waits for the queued ones to be written. Whatever is not
+     * written in time stays in the journal for the next start.
+     */
+    public void close(long timeoutMillis) {
+        Thread writer;
+        synchronized (this) {
+            closing = true;
+            writer = thread;
+        }
+        if (writer != null) {
+            try {
+                writer.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer.interrupt();
+        }
+    }
+
+    /**
+     * Publishes the writer's metrics on the platform MBean server under {@link #OBJECT_NAME}.
+     */
+    public void register() {
+        ManagementSupport.register(this, OBJECT_NAME);
+    }
+
+    public void unregister() {
+        ManagementSupport.unregister(OBJECT_NAME);
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public long getPendingScores() {
+        return journal != null ? (journal.getEnd() - written) / ScoreJournal.RECORD_SIZE : queue.size();
+    }
+
+    @Override
+    public long getWrittenScores() {
+        return writtenScores;
+    }
+
+    @Override
+    public long getBatches() {
+        return batches;
+    }
+
+    @Override
+    public long getFailedBatches() {
+        return failedBatches;
+    }
+
+    @Override
+    public long getOverflows() {
+        return overflows;
+    }
+
+    @Override
+    public long getDeadLettered() {
+        return deadLettered;
+    }
+
+    @Override
+    public double getMeanFlushLatencyMillis() {
+        return flushLatency.getMeanMicros() / 1000;
+    }
+
+    @Override
+    public double getP99FlushLatencyMillis() {
+        return flushLatency.getPercentileMicros(99) / 1000;
+    }
+
+    @Override
+    public double getMaxFlushLatencyMillis() {
+        return flushLatency.getMaxMicros() / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d queued, %d pending; %d scores in %d batches, %d failed, %d overflowed, "
+                        + "%d dead-lettered; flush latency mean %.1f ms, p99 %.0f ms, max %.1f ms", getQueueDepth(),
+                getPendingScores(), writtenScores, batches, failedBatches, overflows, deadLettered,
+                getMeanFlushLatencyMillis(),
+                getP99FlushLatencyMillis(), getMaxFlushLatencyMillis());
+    }
+
+    /**
+     * Builder for a writer; the defaults suit one cabinet, which ends a match every few minutes.
+     */
+    public static class Builder {
+        private ScoreManager scoreManager = new ScoreManager();
+        private Path journal;
+        private int queueCapacity = 1024;
+        private int maxBatchSize = 100;
+        private long lingerMillis = 50;
+
+        public Builder setScoreManager(ScoreManager scoreManager) {
+            this.scoreManager = scoreManager;
+            return this;
+        }
+
+        /**
+         * @param journal File to journal scores in, or null to keep them in memory only
+         */
+        public Builder setJournal(Path journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        public Builder setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * @param lingerMillis How long the writer waits after a score for more to join its batch
+         */
+        public Builder setLingerMillis(long lingerMillis) {
+            this.lingerMillis = lingerMillis;
+            return this;
+        }
+
+        public ScoreWriter build() {
+            if (queueCapacity < 1 || maxBatchSize < 1 || lingerMillis < 0) {
+                throw new IllegalArgumentException("Invalid score writer settings");
+            }
+            return new ScoreWriter(this);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.pong.database;
+
+/**
+ * Management interface of {@link ScoreWriter}, readable with JConsole or any JMX client
+ * while the game is running.
+ */
+public interface ScoreWriterMXBean {
+
+    /**
+     * @return Scores queued in memory for the writer
+     */
+    int getQueueDepth();
+
+    /**
+     * @return Scores in the journal that are not in the database yet, queued or not
+     */
+    long getPendingScores();
+
+    long getWrittenScores();
+
+    long getBatches();
+
+    /**
+     * @return Batches that failed, and were tried again or split
+     */
+    long getFailedBatches();
+
+    /**
+     * @return Scores that did not fit in the queue; they are read back from the journal
+     */
+    long getOverflows();
+
+    /**
+     * @return Scores the database refused, set aside in the dead letter file
+     */
+    long getDeadLettered();
+
+    /**
+     * @return Mean time from submitting a score to its batch being committed
+     */
+    double getMeanFlushLatencyMillis();
+
+    double getP99FlushLatencyMillis();
+
+    double getMaxFlushLatencyMillis();
+}
@@ -0,0 +1,55 @@
+package com.pong.model;
+
+/**
+ * BallStore holds the state of many balls as parallel primitive arrays (structure of arrays).
+ * Ball i is described by x[i], y[i], xSpeed[i], ySpeed[i] and deformationFrames[i].
+ * Keeping each property contiguous lets the physics loop stream through memory without
+ * allocating or chasing pointers, which is what makes hundreds of balls per tick cheap.
+ */
+public class BallStore {
+    public final double[] x;
+    public final double[] y;
+    public final double[] xSpeed;
+    public final double[] ySpeed;
+    public final int[] deformationFrames;
+
+    // Number of balls currently in play (the first 'count' slots are live)
+    public int count;
+
+    /**
+     * @param capacity Maximum number of balls the store can hold
+     */
+    public BallStore(int capacity) {
+        x = new double[capacity];
+        y = new double[capacity];
+        xSpeed = new double[capacity];
+        ySpeed = new double[capacity];
+        deformationFrames = new int[capacity];
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Adds a ball in the next free slot.
+     *
+     * @return Index of the new ball
+     */
+    public int add(double ballX, double ballY, double ballXSpeed, double ballYSpeed) {
+        if (count == capacity()) {
+            throw new IllegalStateException("Ball store is full (" + capacity() + " balls)");
+        }
+        int i = count++;
+        x[i] = ballX;
+        y[i] = ballY;
+        xSpeed[i] = ballXSpeed;
+        ySpeed[i] = ballYSpeed;
+        deformationFrames[i] = 0;
+        return i;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+}
@@ -0,0 +1,57 @@
+package com.pong.model;
+
+/**
+ * Difficulty levels for the computer opponent, chosen in the settings screen and stored with
+ * the rest of the settings.
+ */
+public enum Difficulty {
+    EASY("Easy", 0.35, 70, false),
+    MEDIUM("Medium", 0.6, 35, false),
+    HARD("Hard", 1.0, 12, true);
+
+    private final String label;
+    private final double reactionFraction;
+    private final double maxAimError;
+    private final boolean isRecentring;
+
+    /**
+     * @param label            Name shown in the settings screen
+     * @param reactionFraction Fraction of the field width from its own paddle at which the bot starts moving
+     * @param maxAimError      Largest distance in pixels by which the bot misjudges the crossing point
+     * @param isRecentring     True if the bot returns to the centre while the ball moves away
+     */
+    Difficulty(String label, double reactionFraction, double maxAimError, boolean isRecentring) {
+        this.label = label;
+        this.reactionFraction = reactionFraction;
+        this.maxAimError = maxAimError;
+        this.isRecentring = isRecentring;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public double getReactionFraction() {
+        return reactionFraction;
+    }
+
+    public double getMaxAimError() {
+        return maxAimError;
+    }
+
+    public boolean isRecentring() {
+        return isRecentring;
+    }
+
+    /**
+     * @return The difficulty with the given label, or MEDIUM if there is none
+     */
+    public static Difficulty fromLabel(String label) {
+        for (Difficulty difficulty : values()) {
+            if (difficulty.label.equalsIgnoreCase(label)) {
+                return difficulty;
+            }
+        }
+        return MEDIUM;
+    }
+}
@@ -31,12 +31,18 @@ public class GameModel {
     public int player2Score;
 
     // Ball state
-    public int ballX;
-    public int ballY;
+    public double ballX;
+    public double ballY;
     public double ballXSpeed;
     public double ballYSpeed;
     public int deformationFrames;
 
+    // State of the match random source (used for serve directions)
+    public long randomState;
+
+    // Additional balls in multiball mode; null in a classic single-ball game
+    public BallStore extraBalls;
+
     // *** Added: Max score to determine when the game ends ***
     private final int maxScore;
 
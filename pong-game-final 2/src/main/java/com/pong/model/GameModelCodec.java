@@ -0,0 +1,231 @@
+package com.pong.model;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * GameModelCodec captures the full state of a {@link GameModel} in a flat binary layout and
+ * restores it, for save and resume, network snapshots and desync checks. It reads and writes
+ * the public fields directly, without reflection and without allocating, into a buffer the
+ * caller owns. The buffer's byte order is used as is: a direct buffer in
+ * {@link ByteOrder#nativeOrder()} is filled with plain stores.
+ *
+ * <pre>
+ * short  version ({@link #VERSION})
+ * int    width, height, paddle width, paddle height, ball size, max score
+ * int    paddle 1 x, y, speed, player 1 score; paddle 2 x, y, speed, player 2 score
+ * double ball x, y, x speed, y speed
+ * int    deformation frames
+ * long   random state
+ * int    extra ball capacity, or -1 without extra balls; int extra ball count
+ *        per live extra ball: double x, y, x speed, y speed; int deformation frames
+ * </pre>
+ *
+ * The score history is not part of the state: it is a record of earlier games, not of this one.
+ */
+public final class GameModelCodec {
+
+    public static final short VERSION = 1;
+
+    // Everything up to the extra balls
+    private static final int FIXED_SIZE = 2 + 6 * 4 + 8 * 4 + 4 * 8 + 4 + 8 + 2 * 4;
+    private static final int BALL_SIZE = 4 * 8 + 4;
+
+    // Multipliers of the state hash (from xxHash64)
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+
+    private GameModelCodec() {
+    }
+
+    /**
+     * @return Bytes {@link #write} needs for the model's current state
+     */
+    public static int encodedSize(GameModel model) {
+        return FIXED_SIZE + (model.extraBalls != null ? model.extraBalls.count * BALL_SIZE : 0);
+    }
+
+    /**
+     * @return Bytes {@link #write} needs for any state of the model, with every extra ball slot in play
+     */
+    public static int maxEncodedSize(GameModel model) {
+        return FIXED_SIZE + (model.extraBalls != null ? model.extraBalls.capacity() * BALL_SIZE : 0);
+    }
+
+    /**
+     * Writes the model's state at the buffer's position and advances it.
+     *
+     * @throws java.nio.BufferOverflowException If fewer than {@link #encodedSize} bytes remain
+     */
+    public static void write(ByteBuffer out, GameModel model) {
+        out.putShort(VERSION);
+        out.putInt(model.width);
+        out.putInt(model.height);
+        out.putInt(model.paddleWidth);
+        out.putInt(model.paddleHeight);
+        out.putInt(model.ballSize);
+        out.putInt(model.getMaxScore());
+
+        out.putInt(model.paddle1X);
+        out.putInt(model.paddle1Y);
+        out.putInt(model.paddle1Speed);
+        out.putInt(model.player1Score);
+        out.putInt(model.paddle2X);
+        out.putInt(model.paddle2Y);
+        out.putInt(model.paddle2Speed);
+        out.putInt(model.player2Score);
+        out.putDouble(model.ballX);
+        out.putDouble(model.ballY);
+        out.putDouble(model.ballXSpeed);
+        out.putDouble(model.ballYSpeed);
+        out.putInt(model.deformationFrames);
+        out.putLong(model.randomState);
+
+        BallStore balls = model.extraBalls;
+        if (balls == null) {
+            out.putInt(-1);
+            out.putInt(0);
+            return;
+        }
+        out.putInt(balls.capacity());
+        out.putInt(balls.count);
+        for (int i = 0; i < balls.count; i++) {
+            out.putDouble(balls.x[i]);
+            out.putDouble(balls.y[i]);
+            out.putDouble(balls.xSpeed[i]);
+            out.putDouble(balls.ySpeed[i]);
+            out.putInt(balls.deformationFrames[i]);
+        }
+    }
+
+    /**
+     * Reads a state written by {@link #write} into a model with the same dimensions, and
+     * advances the buffer past it. Allocates only if the model has no extra ball store of
+     * the recorded capacity.
+     *
+     * @throws IllegalArgumentException If the state is from another version, was written in
+     *                                  the other byte order, or is for a model of other dimensions
+     */
+    public static void read(ByteBuffer in, GameModel model) {
+        checkVersion(in, in.getShort());
+        int width = in.getInt();
+        int height = in.getInt();
+        int paddleWidth = in.getInt();
+        int paddleHeight = in.getInt();
+        int ballSize = in.getInt();
+        int maxScore = in.getInt();
+        if (width != model.width || height != model.height || paddleWidth != model.paddleWidth
+                || paddleHeight != model.paddleHeight || ballSize != model.ballSize || maxScore != model.getMaxScore()) {
+            throw new IllegalArgumentException("State is for a " + width + "x" + height + " game with paddles "
+                    + paddleWidth + "x" + paddleHeight + ", ball " + ballSize + " and max score " + maxScore);
+        }
+        readState(in, model);
+    }
+
+    /**
+     * Reads a state written by {@link #write} into a new model of the recorded dimensions.
+     *
+     * @throws IllegalArgumentException If the state is from another version or was written in the other byte order
+     */
+    public static GameModel read(ByteBuffer in) {
+        checkVersion(in, in.getShort(in.position()));
+        int offset = in.position() + 2;
+        GameModel model = new GameModel(in.getInt(offset), in.getInt(offset + 4), in.getInt(offset + 8),
+                in.getInt(offset + 12), in.getInt(offset + 16), in.getInt(offset + 20));
+        read(in, model);
+        return model;
+    }
+
+    private static void checkVersion(ByteBuffer in, short version) {
+        if (version == VERSION) {
+            return;
+        }
+        if (Short.reverseBytes(version) == VERSION) {
+            throw new IllegalArgumentException("State was written in the other byte order than " + in.order());
+        }
+        throw new IllegalArgumentException("Unsupported state version: " + version);
+    }
+
+    private static void readState(ByteBuffer in, GameModel model) {
+        model.paddle1X = in.getInt();
+        model.paddle1Y = in.getInt();
+        model.paddle1Speed = in.getInt();
+        model.player1Score = in.getInt();
+        model.paddle2X = in.getInt();
+        model.paddle2Y = in.getInt();
+        model.paddle2Speed = in.getInt();
+        model.player2Score = in.getInt();
+        model.ballX = in.getDouble();
+        model.ballY = in.getDouble();
+        model.ballXSpeed = in.getDouble();
+        model.ballYSpeed = in.getDouble();
+        model.deformationFrames = in.getInt();
+        model.randomState = in.getLong();
+
+        int capacity = in.getInt();
+        int count = in.getInt();
+        if (capacity < 0) {
+            model.extraBalls = null;
+            return;
+        }
+        if (count > capacity) {
+            throw new IllegalArgumentException(count + " extra balls in a store for " + capacity);
+        }
+        if (model.extraBalls == null || model.extraBalls.capacity() != capacity) {
+            model.extraBalls = new BallStore(capacity);
+        }
+        BallStore balls = model.extraBalls;
+        balls.count = count;
+        for (int i = 0; i < count; i++) {
+            balls.x[i] = in.getDouble();
+            balls.y[i] = in.getDouble();
+            balls.xSpeed[i] = in.getDouble();
+            balls.ySpeed[i] = in.getDouble();
+            balls.deformationFrames[i] = in.getInt();
+        }
+    }
+
+    /**
+     * Hashes the model's state: the fields {@link #write} captures after the dimensions. Two
+     * models hash the same if their states are bit for bit equal, whatever the platform, so
+     * peers can compare hashes to find a desync. Costs two multiplies and a rotate per field.
+     */
+    public static long hash(GameModel model) {
+        long h = PRIME3;
+        h = round(h, model.paddle1X);
+        h = round(h, model.paddle1Y);
+        h = round(h, model.paddle1Speed);
+        h = round(h, model.player1Score);
+        h = round(h, model.paddle2X);
+        h = round(h, model.paddle2Y);
+        h = round(h, model.paddle2Speed);
+        h = round(h, model.player2Score);
+        h = round(h, Double.doubleToRawLongBits(model.ballX));
+        h = round(h, Double.doubleToRawLongBits(model.ballY));
+        h = round(h, Double.doubleToRawLongBits(model.ballXSpeed));
+        h = round(h, Double.doubleToRawLongBits(model.ballYSpeed));
+        h = round(h, model.deformationFrames);
+        h = round(h, model.randomState);
+        BallStore balls = model.extraBalls;
+        if (balls != null) {
+            h = round(h, balls.count);
+            for (int i = 0; i < balls.count; i++) {
+                h = round(h, Double.doubleToRawLongBits(balls.x[i]));
+                h = round(h, Double.doubleToRawLongBits(balls.y[i]));
+                h = round(h, Double.doubleToRawLongBits(balls.xSpeed[i]));
+                h = round(h, Double.doubleToRawLongBits(balls.ySpeed[i]));
+                h = round(h, balls.deformationFrames[i]);
+            }
+        }
+        // Avalanche, so nearby states give unrelated hashes
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        return h ^ (h >>> 32);
+    }
+
+    private static long round(long h, long value) {
+        return Long.rotateLeft(h ^ value * PRIME2, 31) * PRIME1;
+    }
+}
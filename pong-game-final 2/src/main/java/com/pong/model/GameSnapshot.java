@@ -0,0 +1,134 @@
+package com.pong.model;
+
+/**
+ * GameSnapshot is a copy of everything needed to draw one frame, taken at the end of a tick.
+ * Besides the latest positions it keeps the positions of the tick before, so a renderer can
+ * interpolate between the two at any display refresh rate. Snapshots are pooled by
+ * {@link SnapshotBuffer} and reused; their arrays are only allocated on the first capture.
+ */
+public class GameSnapshot {
+    // Number of the tick this snapshot was taken after; 0 if it holds no state yet
+    public long tick;
+    // Nominal time of that tick in System.nanoTime() terms
+    public long tickTime;
+    // Arrival time of the latest key input applied up to this tick, in System.nanoTime() terms; 0 if none
+    public long inputTime;
+
+    // Fixed geometry
+    public int width;
+    public int height;
+    public int paddleWidth;
+    public int paddleHeight;
+    public int ballSize;
+    public int paddle1X;
+    public int paddle2X;
+
+    // Positions after the previous tick and after this one
+    public int previousPaddle1Y, paddle1Y;
+    public int previousPaddle2Y, paddle2Y;
+    public double previousBallX, ballX;
+    public double previousBallY, ballY;
+
+    // Values that are shown as they are
+    public double ballXSpeed;
+    public double ballYSpeed;
+    public int deformationFrames;
+    public int player1Score;
+    public int player2Score;
+
+    // Extra balls in multiball mode, laid out like BallStore; extraBallCount is 0 in a classic game
+    public int extraBallCount;
+    public double[] previousExtraX = new double[0], extraX = new double[0];
+    public double[] previousExtraY = new double[0], extraY = new double[0];
+    public double[] extraXSpeed = new double[0];
+    public double[] extraYSpeed = new double[0];
+    public int[] extraDeformationFrames = new int[0];
+
+    /**
+     * Copies the model's current state.
+     *
+     * @param model    Game state after the tick
+     * @param previous Snapshot of the tick before, or null to start without motion
+     * @param tick     Number of the tick
+     * @param tickTime Nominal time of the tick
+     */
+    public void capture(GameModel model, GameSnapshot previous, long tick, long tickTime) {
+        this.tick = tick;
+        this.tickTime = tickTime;
+
+        width = model.width;
+        height = model.height;
+        paddleWidth = model.paddleWidth;
+        paddleHeight = model.paddleHeight;
+        ballSize = model.ballSize;
+        paddle1X = model.paddle1X;
+        paddle2X = model.paddle2X;
+
+        paddle1Y = model.paddle1Y;
+        paddle2Y = model.paddle2Y;
+        ballX = model.ballX;
+        ballY = model.ballY;
+        ballXSpeed = model.ballXSpeed;
+        ballYSpeed = model.ballYSpeed;
+        deformationFrames = model.deformationFrames;
+        player1Score = model.player1Score;
+        player2Score = model.player2Score;
+
+        BallStore extraBalls = model.extraBalls;
+        extraBallCount = extraBalls == null ? 0 : extraBalls.count;
+        if (extraBallCount > extraX.length) {
+            int capacity = extraBalls.capacity();
+            previousExtraX = new double[capacity];
+            extraX = new double[capacity];
+            previousExtraY = new double[capacity];
+            extraY = new double[capacity];
+            extraXSpeed = new double[capacity];
+            extraYSpeed = new double[capacity];
+            extraDeformationFrames = new int[capacity];
+        }
+        if (extraBallCount > 0) {
+            System.arraycopy(extraBalls.x, 0, extraX, 0, extraBallCount);
+            System.arraycopy(extraBalls.y, 0, extraY, 0, extraBallCount);
+            System.arraycopy(extraBalls.xSpeed, 0, extraXSpeed, 0, extraBallCount);
+            System.arraycopy(extraBalls.ySpeed, 0, extraYSpeed, 0, extraBallCount);
+            System.arraycopy(extraBalls.deformationFrames, 0, extraDeformationFrames, 0, extraBallCount);
+        }
+
+        if (previous == null || previous.tick == 0 || previous.extraBallCount != extraBallCount) {
+            // Nothing to interpolate from: start at rest
+            previousPaddle1Y = paddle1Y;
+            previousPaddle2Y = paddle2Y;
+            previousBallX = ballX;
+            previousBallY = ballY;
+            System.arraycopy(extraX, 0, previousExtraX, 0, extraBallCount);
+            System.arraycopy(extraY, 0, previousExtraY, 0, extraBallCount);
+        } else {
+            previousPaddle1Y = previous.paddle1Y;
+            previousPaddle2Y = previous.paddle2Y;
+            previousBallX = previous.ballX;
+            previousBallY = previous.ballY;
+            System.arraycopy(previous.extraX, 0, previousExtraX, 0, extraBallCount);
+            System.arraycopy(previous.extraY, 0, previousExtraY, 0, extraBallCount);
+        }
+    }
+
+    /**
+     * @param now       Current time in System.nanoTime() terms
+     * @param tickNanos Length of one tick
+     * @return How far the display is from the previous tick (0) to this one (1)
+     */
+    public double interpolationFactor(long now, long tickNanos) {
+        double alpha = (double) (now - tickTime) / tickNanos;
+        return Math.max(0, Math.min(1, alpha));
+    }
+
+    /**
+     * Interpolates one coordinate, except across a jump such as a new serve, which is shown at once.
+     */
+    public double interpolate(double previous, double current, double alpha) {
+        if (Math.abs(current - previous) > width / 4.0) {
+            return current;
+        }
+        return previous + (current - previous) * alpha;
+    }
+}
@@ -2,11 +2,22 @@ package com.pong.model;
 import java.awt.Color;
 
 public class Settings{
+    // Incremented by every setter, so caches derived from the settings can tell they are stale
+    private volatile int version = 0;
     private Color ballColor = Color.WHITE;
     private Color paddle1Color = Color.WHITE;
     private Color paddle2Color = Color.WHITE;
     private int scoreLimit = 11;
     private boolean enableSound = true;
+    private int tickRate = 60;
+    private boolean sweptCollision = false;
+    private int ballCount = 1;
+    private boolean activeRendering = false;
+    private boolean fullscreen = false;
+    private boolean preciseTiming = true;
+    private boolean dropLateTicks = false;
+    private boolean computerOpponent = false;
+    private Difficulty aiDifficulty = Difficulty.MEDIUM;
 
 
     public Color getBallColor() {
@@ -15,6 +26,7 @@ public class Settings{
 
     public void setBallColor(Color ballColor) {
         this.ballColor = ballColor;
+        version++;
     }
 
     public Color getPaddle1Color() {
@@ -23,6 +35,7 @@ public class Settings{
 
     public void setPaddle1Color(Color paddle1Color) {
         this.paddle1Color = paddle1Color;
+        version++;
     }
 
     public Color getPaddle2Color() {
@@ -31,6 +44,7 @@ public class Settings{
 
     public void setPaddle2Color(Color paddle2Color) {
         this.paddle2Color = paddle2Color;
+        version++;
     }
 
     public int getScoreLimit() {
@@ -39,6 +53,7 @@ public class Settings{
 
     public void setScoreLimit(int scoreLimit) {
         this.scoreLimit = scoreLimit;
+        version++;
     }
 
     public boolean isEnableSound() {
@@ -47,5 +62,94 @@ public class Settings{
 
     public void setEnableSound(boolean enableSound) {
         this.enableSound = enableSound;
+        version++;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public void setTickRate(int tickRate) {
+        this.tickRate = tickRate;
+        version++;
+    }
+
+    public boolean isSweptCollision() {
+        return sweptCollision;
+    }
+
+    public void setSweptCollision(boolean sweptCollision) {
+        this.sweptCollision = sweptCollision;
+        version++;
+    }
+
+    public int getBallCount() {
+        return ballCount;
+    }
+
+    public void setBallCount(int ballCount) {
+        this.ballCount = ballCount;
+        version++;
+    }
+
+    public boolean isComputerOpponent() {
+        return computerOpponent;
+    }
+
+    public void setComputerOpponent(boolean computerOpponent) {
+        this.computerOpponent = computerOpponent;
+        version++;
+    }
+
+    public Difficulty getAiDifficulty() {
+        return aiDifficulty;
+    }
+
+    public void setAiDifficulty(Difficulty aiDifficulty) {
+        this.aiDifficulty = aiDifficulty;
+        version++;
+    }
+
+    public boolean isActiveRendering() {
+        return activeRendering;
+    }
+
+    public void setActiveRendering(boolean activeRendering) {
+        this.activeRendering = activeRendering;
+        version++;
+    }
+
+    public boolean isFullscreen() {
+        return fullscreen;
+    }
+
+    public void setFullscreen(boolean fullscreen) {
+        this.fullscreen = fullscreen;
+        version++;
+    }
+
+    public boolean isPreciseTiming() {
+        return preciseTiming;
+    }
+
+    public void setPreciseTiming(boolean preciseTiming) {
+        this.preciseTiming = preciseTiming;
+        version++;
+    }
+
+    public boolean isDropLateTicks() {
+        return dropLateTicks;
+    }
+
+    public void setDropLateTicks(boolean dropLateTicks) {
+        this.dropLateTicks = dropLateTicks;
+        version++;
+    }
+
+    /**
+     * @return A number that changes whenever any setting changes
+     */
+    public int getVersion() {
+        return version;
     }
 }
\ No newline at end of file
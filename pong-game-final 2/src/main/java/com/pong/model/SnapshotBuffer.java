@@ -0,0 +1,76 @@
+package com.pong.model;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SnapshotBuffer hands game snapshots from the simulation thread to the rendering thread
+ * without locks, using three pooled snapshots (triple buffering). The producer always owns a
+ * back slot to write, the consumer always owns a front slot to read, and the two exchange
+ * slots through an atomically swapped middle slot. Neither side ever waits for the other,
+ * and the reader never sees a half-written snapshot.
+ *
+ * There must be a single producer thread and a single consumer thread.
+ */
+public class SnapshotBuffer {
+
+    // Set in the middle index when it holds a snapshot the consumer has not taken yet
+    private static final int FRESH = 4;
+    private static final int INDEX_MASK = 3;
+
+    private final GameSnapshot[] slots = {new GameSnapshot(), new GameSnapshot(), new GameSnapshot()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+
+    // Owned by the producer
+    private int back = 0;
+    private GameSnapshot lastPublished;
+    private long tick = 0;
+    private long inputTime = 0;
+
+    // Owned by the consumer
+    private int front = 2;
+
+    /**
+     * Captures the model into the back slot and makes it the latest snapshot.
+     * Must only be called from the producer thread.
+     *
+     * @param model    Game state at the end of a tick
+     * @param tickTime Nominal time of the tick in System.nanoTime() terms
+     */
+    public void publish(GameModel model, long tickTime) {
+        publish(model, tickTime, 0);
+    }
+
+    /**
+     * Captures the model into the back slot and makes it the latest snapshot, stamped with the
+     * arrival time of the input it reflects. The stamp stays on later snapshots until a newer
+     * input replaces it, so a reader that skips snapshots still sees it.
+     * Must only be called from the producer thread.
+     *
+     * @param model     Game state at the end of a tick
+     * @param tickTime  Nominal time of the tick in System.nanoTime() terms
+     * @param inputTime Arrival time of the input first applied in this tick, or 0 if there was none
+     */
+    public void publish(GameModel model, long tickTime, long inputTime) {
+        GameSnapshot snapshot = slots[back];
+        // The last published slot is only ever read while it sits in the middle or front
+        snapshot.capture(model, lastPublished, ++tick, tickTime);
+        if (inputTime != 0) {
+            this.inputTime = inputTime;
+        }
+        snapshot.inputTime = this.inputTime;
+        lastPublished = snapshot;
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Returns the latest published snapshot. It stays valid and unchanged until the next call.
+     * Must only be called from the consumer thread.
+     *
+     * @return The snapshot; its {@code tick} is 0 if nothing has been published yet
+     */
+    public GameSnapshot acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return slots[front];
+    }
+}
@@ -0,0 +1,284 @@
+package com.pong.net;
+import com.pong.model.GameModel;
+import com.pong.physics.PaddleInput;
+import com.pong.physics.PhysicsEngine;
+import java.io.IOException;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GameClient plays one side of a match run by a {@link GameServer}. Every tick it sends the
+ * local paddle input and applies the newest state the server sent back.
+ *
+ * The server's state is always a round trip behind the player's keys, so the client predicts
+ * its own paddle: each input is applied to the local model as soon as it is sent, with the
+ * same {@link PhysicsEngine#movePaddles} the server uses, and kept in a history by sequence
+ * number. When a state arrives, the client takes the server's paddle position, which includes
+ * every input up to the sequence the server acknowledges, and re-applies the inputs sent since
+ * (reconciliation). The paddle answers the keys at once and still ends up exactly where the
+ * server has it. The ball and the opponent's paddle are shown as the server last sent them.
+ *
+ * Not thread-safe: {@link #tick} and {@link #close} are meant to be called from one loop.
+ */
+public class GameClient implements MatchConnection {
+
+    // Inputs kept for reconciliation; a power of two, and far more than a round trip's worth
+    private static final int HISTORY = 256;
+    private static final long HELLO_INTERVAL_MILLIS = 200;
+    // BYE is not acknowledged, so it is sent a few times in case some are lost
+    private static final int BYE_REPEATS = 3;
+
+    private final DatagramChannel channel;
+    private final GameModel model;
+    private final PhysicsEngine engine;
+    private final int side;
+    private final int tickRate;
+
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET);
+    private final byte[] history = new byte[HISTORY];
+    private int sequence = 0;
+    private int acknowledgedSequence = 0;
+    // Newest server tick applied; older states that arrive late are ignored
+    private int serverTick = -1;
+    private int flags = NetProtocol.WAITING;
+
+    private GameClient(DatagramChannel channel, ByteBuffer welcome) {
+        this.channel = channel;
+        this.side = welcome.get();
+        this.tickRate = welcome.getShort();
+        int width = welcome.getShort();
+        int height = welcome.getShort();
+        int paddleWidth = welcome.getShort();
+        int paddleHeight = welcome.getShort();
+        int ballSize = welcome.getShort();
+        int scoreLimit = welcome.getShort();
+        this.model = new GameModel(width, height, paddleWidth, paddleHeight, ballSize, scoreLimit);
+        // Only used to move the own paddle, with the server's paddle speed for this tick rate
+        this.engine = new PhysicsEngine.Builder(model).setTickRate(tickRate).build();
+    }
+
+    /**
+     * Joins a server, repeating the hello until it answers.
+     *
+     * @param server        Address of the server, or of a {@link LossyLink} in front of it
+     * @param name          Player name shown in the server log
+     * @param timeoutMillis How long to keep trying
+     * @throws IOException If the server is full, does not answer in time or cannot be reached
+     */
+    public static GameClient connect(SocketAddress server, String name, long timeoutMillis) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.connect(server);
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer hello = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+            hello.put(NetProtocol.HELLO);
+            hello.putShort((short) NetProtocol.VERSION);
+            hello.put((byte) Math.min(nameBytes.length, NetProtocol.MAX_NAME_BYTES));
+            hello.put(nameBytes, 0, Math.min(nameBytes.length, NetProtocol.MAX_NAME_BYTES));
+            hello.flip();
+
+            ByteBuffer in = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            try (Selector selector = Selector.open()) {
+                channel.register(selector, SelectionKey.OP_READ);
+                while (System.currentTimeMillis() < deadline) {
+                    channel.write(hello.rewind());
+                    selector.select(HELLO_INTERVAL_MILLIS);
+                    selector.selectedKeys().clear();
+                    in.clear();
+                    try {
+                        if (channel.read(in) <= 0) {
+                            continue;
+                        }
+                    } catch (PortUnreachableException e) {
+                        // Nothing listening yet; keep trying until the deadline
+                        continue;
+                    }
+                    in.flip();
+                    byte type = in.get();
+                    if (type == NetProtocol.FULL) {
+                        throw new IOException("Server is full: " + server);
+                    }
+                    if (type == NetProtocol.WELCOME) {
+                        // Closing the selector leaves the channel to the plain non-blocking reads of tick()
+                        return new GameClient(channel, in);
+                    }
+                }
+            }
+            throw new IOException("No answer from " + server);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Plays one tick: sends the input, applies the newest server state and predicts the own
+     * paddle from it.
+     *
+     * @param input Up and down keys of the own paddle, as {@link PaddleInput#PADDLE1_UP} and
+     *              {@link PaddleInput#PADDLE1_DOWN} whichever side it is on
+     */
+    @Override
+    public void tick(int input) {
+        input &= PaddleInput.PADDLE1_UP | PaddleInput.PADDLE1_DOWN;
+        sequence++;
+        history[sequence & (HISTORY - 1)] = (byte) input;
+        sendInputs();
+
+        if (receiveStates()) {
+            // The state includes inputs up to the acknowledged one; re-apply everything sent since
+            int from = Math.max(acknowledgedSequence + 1, sequence - HISTORY + 1);
+            for (int s = from; s <= sequence; s++) {
+                predict(history[s & (HISTORY - 1)]);
+            }
+        } else {
+            predict(input);
+        }
+    }
+
+    private void sendInputs() {
+        int count = Math.min(sequence, NetProtocol.REDUNDANT_INPUTS);
+        sendBuffer.clear();
+        sendBuffer.put(NetProtocol.INPUT);
+        sendBuffer.putInt(sequence);
+        sendBuffer.put((byte) count);
+        for (int s = sequence - count + 1; s <= sequence; s++) {
+            sendBuffer.put(history[s & (HISTORY - 1)]);
+        }
+        sendBuffer.flip();
+        try {
+            channel.write(sendBuffer);
+        } catch (IOException e) {
+            // Treated like a lost packet; the next ones repeat this input
+        }
+    }
+
+    /**
+     * Applies every state received since the last tick that is newer than the one shown.
+     *
+     * @return True if the model now holds a new server state
+     */
+    private boolean receiveStates() {
+        boolean received = false;
+        while (true) {
+            receiveBuffer.clear();
+            try {
+                if (channel.read(receiveBuffer) <= 0) {
+                    return received;
+                }
+            } catch (IOException e) {
+                // E.g. the server went away for a moment; states resume when it answers again
+                return received;
+            }
+            receiveBuffer.flip();
+            if (receiveBuffer.remaining() < NetProtocol.STATE_PACKET_LENGTH || receiveBuffer.get() != NetProtocol.STATE) {
+                continue;
+            }
+            int stateFlags = receiveBuffer.get();
+            int tick = receiveBuffer.getInt();
+            int acknowledged = receiveBuffer.getInt();
+            if (tick <= serverTick) {
+                // Reordered on the way; a newer state has been applied already
+                continue;
+            }
+            serverTick = tick;
+            flags = stateFlags;
+            acknowledgedSequence = acknowledged;
+            NetProtocol.getState(receiveBuffer, model);
+            received = true;
+        }
+    }
+
+    /**
+     * Moves the own paddle by one input; the opponent's paddle keeps the server's position and speed.
+     */
+    private void predict(int input) {
+        if (side == 1) {
+            int opponentSpeed = model.paddle2Speed;
+            engine.movePaddles(input);
+            model.paddle2Speed = opponentSpeed;
+        } else {
+            int opponentSpeed = model.paddle1Speed;
+            engine.movePaddles(input << 2);
+            model.paddle1Speed = opponentSpeed;
+        }
+    }
+
+    /**
+     * Tells the server the player is leaving and closes the socket.
+     */
+    @Override
+    public void close() {
+        sendBuffer.clear();
+        sendBuffer.put(NetProtocol.BYE);
+        sendBuffer.flip();
+        try {
+            for (int i = 0; i < BYE_REPEATS; i++) {
+                channel.write(sendBuffer.rewind());
+            }
+        } catch (IOException e) {
+            // The server drops silent players anyway
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return Model holding the latest server state, with the own paddle predicted ahead of it
+     */
+    @Override
+    public GameModel getModel() {
+        return model;
+    }
+
+    /**
+     * @return 1 for the left paddle, 2 for the right
+     */
+    @Override
+    public int getSide() {
+        return side;
+    }
+
+    @Override
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * @return Inputs sent but not yet reflected in a server state; about a round trip in ticks
+     */
+    public int getUnacknowledgedInputs() {
+        return sequence - acknowledgedSequence;
+    }
+
+    /**
+     * @return Server tick of the state last applied, or -1 before the first one
+     */
+    public int getServerTick() {
+        return serverTick;
+    }
+
+    /**
+     * @return True while the server waits for an opponent
+     */
+    @Override
+    public boolean isWaiting() {
+        return (flags & NetProtocol.WAITING) != 0;
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return (flags & NetProtocol.GAME_OVER) != 0;
+    }
+}
@@ -0,0 +1,475 @@
+package com.pong.net;
+import com.pong.model.GameModel;
+import com.pong.physics.PhysicsEngine;
+import com.pong.simulation.MatchSimulator;
+import com.pong.simulation.PaddleBot;
+import com.pong.simulation.TrackingBot;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameServer hosts many matches headlessly and owns their outcome: clients send only their
+ * paddle input, the server steps each match's {@link PhysicsEngine} and sends both players
+ * the resulting state after each tick. Clients draw that state and predict their own paddle
+ * in the meantime (see {@link GameClient}).
+ *
+ * Matches are spread over a fixed set of {@link MatchWorker}s, one per core by default. Each
+ * worker is a single game loop thread that ticks all of its matches in one pass, so a match
+ * costs a few microseconds per tick rather than a thread. New matches go to the worker with
+ * the fewest. Where the platform supports {@code SO_REUSEPORT} every worker has its own
+ * socket on the server's port and the kernel spreads the datagrams over them; otherwise the
+ * workers share one socket.
+ *
+ * Players are paired in the order they say hello: a new player takes the free side of a
+ * waiting match, or opens a new match. Until both sides are there the paddles move but the
+ * ball waits. A player who leaves or goes silent frees the side and the match starts over;
+ * a match nobody is in is dropped. A side is only reserved for a well-formed hello, and is
+ * freed again if the player cannot be seated or the hello never reaches the match.
+ *
+ * With a spectator port, one match at a time is featured and streamed to spectators by a
+ * {@link SpectatorBroadcaster}: the first match created, and after it is dropped the next one.
+ */
+public class GameServer {
+
+    // A player not heard from for this long is dropped
+    static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+    // A side reserved for a player whose hello has not reached the match this long after is freed
+    static final long JOIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Builder settings;
+    private final DatagramChannel[] channels;
+    private final MatchWorker[] workers;
+    private final Map<SocketAddress, Match> matchesByPlayer = new ConcurrentHashMap<>();
+    // Null without a spectator port
+    private final SpectatorBroadcaster broadcaster;
+    // Match streamed to spectators, if any; written under the lock
+    private volatile Match featuredMatch;
+
+    // Matches with a free side, oldest first; guarded by this
+    private final Deque<Match> openMatches = new ArrayDeque<>();
+    // Matches with at least one player or bot; guarded by this
+    private int matchCount = 0;
+    // Matches created so far, numbering each for its seed; guarded by this
+    private long matchesCreated = 0;
+
+    private GameServer(Builder builder) throws IOException {
+        this.settings = builder;
+        int workerCount = builder.workers;
+        channels = openChannels(builder.port, workerCount);
+        workers = new MatchWorker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new MatchWorker(this, i, channels[i % channels.length], builder.tickRate);
+        }
+        if (builder.spectatorPort >= 0) {
+            GameModel playfield = new GameModel(builder.width, builder.height, builder.paddleWidth,
+                    builder.paddleHeight, builder.ballSize, builder.scoreLimit);
+            broadcaster = new SpectatorBroadcaster(builder.spectatorPort, playfield, builder.tickRate);
+        } else {
+            broadcaster = null;
+        }
+    }
+
+    /**
+     * Opens one socket per worker on the same port if the platform can spread datagrams over
+     * them, or else a single socket.
+     */
+    private static DatagramChannel[] openChannels(int port, int workers) throws IOException {
+        DatagramChannel first = DatagramChannel.open();
+        boolean reusePort = workers > 1 && first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        if (reusePort) {
+            first.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        first.configureBlocking(false);
+        first.bind(new InetSocketAddress(port));
+        if (!reusePort) {
+            return new DatagramChannel[]{first};
+        }
+
+        // Bind the rest to the port the first one got, which matters when asked for port 0
+        int boundPort = ((InetSocketAddress) first.getLocalAddress()).getPort();
+        DatagramChannel[] channels = new DatagramChannel[workers];
+        channels[0] = first;
+        for (int i = 1; i < workers; i++) {
+            channels[i] = DatagramChannel.open();
+            channels[i].setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            channels[i].configureBlocking(false);
+            channels[i].bind(new InetSocketAddress(boundPort));
+        }
+        return channels;
+    }
+
+    /**
+     * Starts the workers and the bot matches, if any.
+     */
+    public void start() {
+        if (broadcaster != null) {
+            broadcaster.start();
+        }
+        for (MatchWorker worker : workers) {
+            worker.start();
+        }
+        synchronized (this) {
+            for (int i = 0; i < settings.botMatches; i++) {
+                createMatch((isLeftPaddle, seed) -> new TrackingBot(isLeftPaddle, 0, seed));
+            }
+        }
+    }
+
+    /**
+     * Stops every match, disconnects the spectators and closes the sockets.
+     */
+    public void stop() {
+        for (MatchWorker worker : workers) {
+            worker.stop();
+        }
+        if (broadcaster != null) {
+            broadcaster.close();
+        }
+        for (DatagramChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @return Port the server listens on; useful when it was built with port 0
+     */
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) channels[0].getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException("Server socket is closed", e);
+        }
+    }
+
+    /**
+     * @return The broadcaster spectators connect to, or null if the server was built without a spectator port
+     */
+    public SpectatorBroadcaster getBroadcaster() {
+        return broadcaster;
+    }
+
+    /**
+     * @return Statistics of each worker, in worker order
+     */
+    public List<WorkerStatistics> getWorkerStatistics() {
+        List<WorkerStatistics> statistics = new ArrayList<>(workers.length);
+        for (MatchWorker worker : workers) {
+            statistics.add(worker.getStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * @return Matches being played or waiting for a player, including bot matches
+     */
+    public synchronized int getMatchCount() {
+        return matchCount;
+    }
+
+    /**
+     * @return The match a player was placed in, or null if the address is not a player's
+     */
+    Match findMatch(SocketAddress player) {
+        return matchesByPlayer.get(player);
+    }
+
+    /**
+     * Streams a match's state after a tick if it is the featured match. Called by the match's worker.
+     */
+    void broadcast(Match match, GameModel model, int tick, int flags) {
+        if (match == featuredMatch) {
+            broadcaster.publish(model, tick, flags);
+        }
+    }
+
+    /**
+     * Reserves a side for a new player: the free side of the oldest waiting match, or a side
+     * of a new match on the least loaded worker.
+     *
+     * @return The player's match, or null if the server already hosts as many matches as allowed
+     */
+    synchronized Match place(SocketAddress player) {
+        // Hellos are repeated until answered, so a player may already be placed
+        Match match = matchesByPlayer.get(player);
+        if (match != null) {
+            return match;
+        }
+
+        match = openMatches.peekFirst();
+        if (match == null) {
+            if (matchCount >= settings.maxMatches) {
+                return null;
+            }
+            match = createMatch(null);
+            openMatches.addLast(match);
+        }
+        match.reservedSides++;
+        if (match.reservedSides == 2) {
+            openMatches.remove(match);
+        }
+        matchesByPlayer.put(player, match);
+        match.pendingJoins.put(player, System.nanoTime());
+        match.isAwaitingJoin = true;
+        return match;
+    }
+
+    /**
+     * Hands a placed player's side over to the match. Called by the match's worker when the
+     * player's hello reaches it.
+     *
+     * @return False if the player holds no reservation in the match, e.g. because it expired
+     */
+    synchronized boolean claimReservation(Match match, SocketAddress player) {
+        boolean claimed = match.pendingJoins.remove(player) != null;
+        match.isAwaitingJoin = !match.pendingJoins.isEmpty();
+        return claimed;
+    }
+
+    /**
+     * Frees the sides of players placed in a match whose hello has not reached it within
+     * {@link #JOIN_TIMEOUT_NANOS}. Called by the match's worker now and then.
+     *
+     * @return True if nobody is left in the match, so it is dropped
+     */
+    synchronized boolean expireReservations(Match match) {
+        long now = System.nanoTime();
+        List<SocketAddress> expired = new ArrayList<>(2);
+        for (Map.Entry<SocketAddress, Long> entry : match.pendingJoins.entrySet()) {
+            if (now - entry.getValue() > JOIN_TIMEOUT_NANOS) {
+                expired.add(entry.getKey());
+            }
+        }
+        boolean dropped = false;
+        for (SocketAddress player : expired) {
+            dropped |= release(match, player);
+        }
+        return dropped;
+    }
+
+    /**
+     * Frees a player's side. Called by the match's worker when the player leaves or times out,
+     * or could not be seated.
+     *
+     * @return True if nobody is left in the match, so it is dropped
+     */
+    synchronized boolean release(Match match, SocketAddress player) {
+        if (!matchesByPlayer.remove(player, match)) {
+            // The side was freed already
+            return false;
+        }
+        match.pendingJoins.remove(player);
+        match.isAwaitingJoin = !match.pendingJoins.isEmpty();
+        match.reservedSides--;
+        if (match.reservedSides > 0) {
+            if (!openMatches.contains(match)) {
+                // A player is waiting in it, so it is the next to fill
+                openMatches.addFirst(match);
+            }
+            return false;
+        }
+        openMatches.remove(match);
+        if (featuredMatch == match) {
+            featuredMatch = null;
+        }
+        matchCount--;
+        match.getWorker().assignedMatches--;
+        return true;
+    }
+
+    /**
+     * Creates a match on the worker with the fewest. Called with the lock held.
+     *
+     * @param botFactory Creates a bot for each side, or null for a match between network players
+     */
+    private Match createMatch(PaddleBot.Factory botFactory) {
+        MatchWorker worker = workers[0];
+        for (MatchWorker candidate : workers) {
+            if (candidate.assignedMatches < worker.assignedMatches) {
+                worker = candidate;
+            }
+        }
+        MatchWorker owner = worker;
+        Match match = new Match(owner, settings, MatchSimulator.matchSeed(settings.seed, matchesCreated++), botFactory);
+        owner.assignedMatches++;
+        matchCount++;
+        if (broadcaster != null && featuredMatch == null) {
+            featuredMatch = match;
+        }
+        // Joins the worker's batch before the player's hello, which is posted after it
+        owner.post(() -> owner.add(match));
+        return match;
+    }
+
+    /**
+     * Runs a server until the process is stopped, printing each worker's load every few seconds.
+     *
+     * <pre>
+     * --port P               UDP port to listen on (default 7777)
+     * --tick-rate HZ         simulation tick rate (default 60)
+     * --score-limit K        points needed to win (default 11)
+     * --swept true|false     use swept collision detection (default false)
+     * --workers N            worker threads (default: one per core)
+     * --max-matches N        matches hosted at most (default 10000)
+     * --bots N               bot-versus-bot matches to host, for load testing (default 0)
+     * --spectator-port P     TCP port to stream the featured match to spectators on (default: none)
+     * --report S             seconds between load reports, 0 for none (default 5)
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Builder builder = new Builder();
+        int reportSeconds = 5;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port" -> builder.setPort(Integer.parseInt(value));
+                case "--tick-rate" -> builder.setTickRate(Integer.parseInt(value));
+                case "--score-limit" -> builder.setScoreLimit(Integer.parseInt(value));
+                case "--swept" -> builder.setSweptCollision(Boolean.parseBoolean(value));
+                case "--workers" -> builder.setWorkers(Integer.parseInt(value));
+                case "--max-matches" -> builder.setMaxMatches(Integer.parseInt(value));
+                case "--bots" -> builder.setBotMatches(Integer.parseInt(value));
+                case "--spectator-port" -> builder.setSpectatorPort(Integer.parseInt(value));
+                case "--report" -> reportSeconds = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        GameServer server = builder.build();
+        server.start();
+        System.out.println("Pong server listening on UDP port " + server.getPort() + " with "
+                + builder.workers + " workers");
+        if (server.getBroadcaster() != null) {
+            System.out.println("Spectators can connect to TCP port " + server.getBroadcaster().getPort());
+        }
+        if (reportSeconds <= 0) {
+            // The worker threads are daemons; keep the process alive for them
+            Thread.currentThread().join();
+        }
+        // Runs until the process is stopped
+        while (true) {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(reportSeconds));
+            System.out.println(server.getMatchCount() + " matches");
+            for (WorkerStatistics statistics : server.getWorkerStatistics()) {
+                System.out.println("  " + statistics);
+            }
+            if (server.getBroadcaster() != null) {
+                System.out.println("  " + server.getBroadcaster());
+            }
+        }
+    }
+
+    /**
+     * Builder for a server; match defaults match a local game in the default window.
+     */
+    public static class Builder {
+        // Read by the matches the server creates
+        int port = 7777;
+        int tickRate = PhysicsEngine.BASE_TICK_RATE;
+        int scoreLimit = 11;
+        boolean sweptCollision = false;
+        long seed = System.nanoTime();
+        int width = 800;
+        int height = 600;
+        int paddleWidth = 10;
+        int paddleHeight = 100;
+        int ballSize = 20;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int maxMatches = 10_000;
+        int botMatches = 0;
+        int spectatorPort = -1;
+
+        /**
+         * @param port UDP port, or 0 for any free port
+         */
+        public Builder setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder setTickRate(int tickRate) {
+            this.tickRate = tickRate;
+            return this;
+        }
+
+        public Builder setScoreLimit(int scoreLimit) {
+            this.scoreLimit = scoreLimit;
+            return this;
+        }
+
+        public Builder setSweptCollision(boolean sweptCollision) {
+            this.sweptCollision = sweptCollision;
+            return this;
+        }
+
+        /**
+         * @param seed Seed every match's own seed is derived from
+         */
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder setSize(int width, int height) {
+            this.width = width;
+            this.height = height;
+            return this;
+        }
+
+        /**
+         * @param workers Worker threads the matches are spread over; one per core is usually best
+         */
+        public Builder setWorkers(int workers) {
+            if (workers <= 0) {
+                throw new IllegalArgumentException("Need at least one worker: " + workers);
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * @param maxMatches Matches hosted at most; further players are told the server is full
+         */
+        public Builder setMaxMatches(int maxMatches) {
+            this.maxMatches = maxMatches;
+            return this;
+        }
+
+        /**
+         * @param botMatches Matches between two server-side bots to host from the start, which
+         *                   play on forever; for load testing without clients
+         */
+        public Builder setBotMatches(int botMatches) {
+            this.botMatches = botMatches;
+            return this;
+        }
+
+        /**
+         * @param spectatorPort TCP port to stream the featured match on, 0 for any free port,
+         *                      or -1 for no spectators (the default)
+         */
+        public Builder setSpectatorPort(int spectatorPort) {
+            this.spectatorPort = spectatorPort;
+            return this;
+        }
+
+        /**
+         * @throws IOException If the port cannot be bound
+         */
+        public GameServer build() throws IOException {
+            return new GameServer(this);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.pong.net;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LossyLink is a UDP relay on the loopback interface that makes a local connection behave
+ * like a long-distance one. A client talks to the link's address instead of the server's;
+ * every datagram in either direction is dropped with the configured probability, or held
+ * back for the configured delay plus a random jitter and then passed on. Jitter can reorder
+ * datagrams, as on a real network.
+ *
+ * One link serves one client. It is meant for trying out and testing {@link GameClient}
+ * against a {@link GameServer} on one machine.
+ */
+public class LossyLink implements Runnable {
+
+    private final DatagramChannel clientSide;
+    private final DatagramChannel serverSide;
+    private final Selector selector;
+    private final long delayNanos;
+    private final long jitterNanos;
+    private final double lossRate;
+    private final SplittableRandom random;
+    private final PriorityQueue<Datagram> pending = new PriorityQueue<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET);
+
+    private volatile boolean running = false;
+    private Thread thread;
+    // Where the client's datagrams come from; learnt from the first one
+    private SocketAddress clientAddress;
+    // Breaks ties between datagrams due at the same time, so they keep their order
+    private long sent = 0;
+
+    /**
+     * A datagram waiting for its delay to pass.
+     */
+    private static class Datagram implements Comparable<Datagram> {
+        final long due;
+        final long order;
+        final byte[] data;
+        final boolean toServer;
+
+        Datagram(long due, long order, byte[] data, boolean toServer) {
+            this.due = due;
+            this.order = order;
+            this.data = data;
+            this.toServer = toServer;
+        }
+
+        @Override
+        public int compareTo(Datagram other) {
+            int byDue = Long.compare(due, other.due);
+            return byDue != 0 ? byDue : Long.compare(order, other.order);
+        }
+    }
+
+    /**
+     * @param server        Address of the real server
+     * @param delayMillis   Delay added in each direction, so the round trip grows by twice this
+     * @param jitterMillis  Largest random extra delay, added on top of the delay
+     * @param lossRate      Probability that a datagram is dropped, in each direction
+     * @param seed          Seed for the loss and jitter random source
+     * @throws IOException If the sockets cannot be opened
+     */
+    public LossyLink(SocketAddress server, int delayMillis, int jitterMillis, double lossRate, long seed)
+            throws IOException {
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        this.jitterNanos = TimeUnit.MILLISECONDS.toNanos(jitterMillis);
+        this.lossRate = lossRate;
+        this.random = new SplittableRandom(seed);
+
+        selector = Selector.open();
+        clientSide = DatagramChannel.open();
+        clientSide.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        clientSide.configureBlocking(false);
+        clientSide.register(selector, SelectionKey.OP_READ);
+        serverSide = DatagramChannel.open();
+        serverSide.connect(server);
+        serverSide.configureBlocking(false);
+        serverSide.register(selector, SelectionKey.OP_READ);
+    }
+
+    /**
+     * @return Address for the client to connect to instead of the server
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) clientSide.getLocalAddress();
+        } catch (IOException e) {
+            throw new IllegalStateException("Link is closed", e);
+        }
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "lossy-link");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops relaying and closes both sockets. Datagrams still held back are dropped.
+     */
+    public synchronized void close() {
+        running = false;
+        selector.wakeup();
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            selector.close();
+            clientSide.close();
+            serverSide.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                // Sleep until a datagram arrives or the next held one is due
+                Datagram next = pending.peek();
+                if (next == null) {
+                    selector.select();
+                } else {
+                    long wait = next.due - System.nanoTime();
+                    if (wait > 0) {
+                        selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+                    }
+                }
+                selector.selectedKeys().clear();
+                receive(clientSide, true);
+                receive(serverSide, false);
+                deliverDue();
+            }
+        } catch (IOException e) {
+            if (running) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void receive(DatagramChannel channel, boolean toServer) throws IOException {
+        while (true) {
+            buffer.clear();
+            SocketAddress sender;
+            try {
+                sender = channel.receive(buffer);
+            } catch (PortUnreachableException e) {
+                // The server is not up yet; the client's retries will get through later
+                continue;
+            }
+            if (sender == null) {
+                return;
+            }
+            if (toServer) {
+                clientAddress = sender;
+            }
+            if (random.nextDouble() < lossRate) {
+                continue;
+            }
+            buffer.flip();
+            byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+            long jitter = jitterNanos > 0 ? random.nextLong(jitterNanos + 1) : 0;
+            pending.add(new Datagram(System.nanoTime() + delayNanos + jitter, sent++, data, toServer));
+        }
+    }
+
+    private void deliverDue() throws IOException {
+        long now = System.nanoTime();
+        while (!pending.isEmpty() && pending.peek().due <= now) {
+            Datagram datagram = pending.poll();
+            buffer.clear();
+            buffer.put(datagram.data);
+            buffer.flip();
+            try {
+                if (datagram.toServer) {
+                    serverSide.write(buffer);
+                } else if (clientAddress != null) {
+                    clientSide.send(buffer, clientAddress);
+                }
+            } catch (PortUnreachableException e) {
+                // Lost, as it would be on the way to a host that is not listening
+            }
+        }
+    }
+}
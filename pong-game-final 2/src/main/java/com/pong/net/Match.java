@@ -0,0 +1,300 @@
+package com.pong.net;
+import com.pong.model.GameModel;
+import com.pong.physics.PaddleInput;
+import com.pong.physics.PhysicsEngine;
+import com.pong.simulation.MatchSimulator;
+import com.pong.simulation.PaddleBot;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One match hosted by a {@link GameServer}: the model, its engine and the two sides. A match
+ * belongs to one {@link MatchWorker} and is only touched by that worker's thread, apart from
+ * the side counts the server's matchmaking keeps under its own lock.
+ *
+ * Each side is either a network player, whose inputs arrive in INPUT packets, or a bot that
+ * runs on the server (used to load-test a server without thousands of clients).
+ */
+class Match {
+
+    // Input sequence numbers kept per player; must be a power of two
+    private static final int INPUT_WINDOW = 64;
+    // Inputs allowed to queue up before the paddle catches up on the oldest
+    private static final int MAX_INPUT_BACKLOG = 4;
+
+    private final MatchWorker worker;
+    private final GameModel model;
+    private final PhysicsEngine engine;
+    private final int tickRate;
+    private final int timeoutTicks;
+    private final Player[] players = {new Player(), new Player()};
+
+    private int tick = 0;
+    private boolean gameOver = false;
+    // Set when the last player has left and nobody is on the way; the worker then drops the match
+    private boolean finished = false;
+
+    // Network sides reserved by the server's matchmaking; guarded by the server's lock
+    int reservedSides = 0;
+    // Players placed in the match whose hello has not reached it yet, with when they were
+    // placed; guarded by the server's lock
+    final Map<SocketAddress, Long> pendingJoins = new HashMap<>(4);
+    // Whether pendingJoins has entries, readable without the lock
+    volatile boolean isAwaitingJoin = false;
+
+    /**
+     * One side of the match and whoever plays it.
+     */
+    private static class Player {
+        SocketAddress address;
+        String name;
+        PaddleBot bot;
+        final byte[] inputs = new byte[INPUT_WINDOW];
+        // Sequence number each window slot holds, so stale slots are not mistaken for new ones
+        final int[] inputSequence = new int[INPUT_WINDOW];
+        int receivedSequence;
+        int appliedSequence;
+        int lastHeardTick;
+
+        void reset(SocketAddress address, String name, int tick) {
+            this.address = address;
+            this.name = name;
+            receivedSequence = 0;
+            appliedSequence = 0;
+            lastHeardTick = tick;
+            Arrays.fill(inputSequence, -1);
+        }
+
+        boolean isPresent() {
+            return address != null || bot != null;
+        }
+    }
+
+    /**
+     * @param seed       Seed of the match's serves and bots
+     * @param botFactory Creates a bot for each side, or null to wait for network players
+     */
+    Match(MatchWorker worker, GameServer.Builder settings, long seed, PaddleBot.Factory botFactory) {
+        this.worker = worker;
+        this.tickRate = settings.tickRate;
+        this.timeoutTicks = (int) (GameServer.TIMEOUT_NANOS * tickRate / 1_000_000_000L);
+        this.model = new GameModel(settings.width, settings.height, settings.paddleWidth, settings.paddleHeight,
+                settings.ballSize, settings.scoreLimit);
+        this.engine = new PhysicsEngine.Builder(model)
+                .setTickRate(tickRate)
+                .setSweptCollision(settings.sweptCollision)
+                .setSeed(seed)
+                .build();
+        if (botFactory != null) {
+            players[0].bot = botFactory.create(true, MatchSimulator.matchSeed(seed, 1));
+            players[1].bot = botFactory.create(false, MatchSimulator.matchSeed(seed, 2));
+        }
+    }
+
+    /**
+     * Advances the match by one tick and sends its state to the network players, and to the
+     * spectators if it is the featured match.
+     */
+    void tick() {
+        tick++;
+        dropSilentPlayers();
+        if (isAwaitingJoin && tick % tickRate == 0) {
+            finished = worker.getServer().expireReservations(this) || finished;
+        }
+
+        int input = nextInput(players[0], 0) | nextInput(players[1], 2);
+        boolean waiting = !players[0].isPresent() || !players[1].isPresent();
+        if (waiting) {
+            // Let the players who are here warm up; the ball is served once both are
+            engine.movePaddles(input);
+        } else if (!gameOver) {
+            engine.step(input);
+            gameOver = model.player1Score >= model.getMaxScore() || model.player2Score >= model.getMaxScore();
+            if (gameOver && players[0].bot != null) {
+                // Bot matches play on forever
+                engine.resetMatch();
+                gameOver = false;
+            }
+        }
+
+        int flags = (waiting ? NetProtocol.WAITING : 0) | (gameOver ? NetProtocol.GAME_OVER : 0);
+        for (Player player : players) {
+            if (player.address != null) {
+                sendState(player, flags);
+            }
+        }
+        worker.getServer().broadcast(this, model, tick, flags);
+    }
+
+    /**
+     * Handles a datagram from one of the match's players, or a hello from a player the
+     * server has just placed in it.
+     */
+    void handlePacket(SocketAddress sender, ByteBuffer in) {
+        byte type = in.get();
+        Player player = find(sender);
+        if (type == NetProtocol.HELLO) {
+            if (player == null) {
+                player = join(sender, in);
+            }
+            if (player != null) {
+                // Hellos are repeated until answered, so the welcome may be sent more than once
+                sendWelcome(player);
+            }
+        } else if (player != null) {
+            player.lastHeardTick = tick;
+            if (type == NetProtocol.INPUT) {
+                receiveInputs(player, in);
+            } else if (type == NetProtocol.BYE) {
+                leave(player);
+            }
+        }
+    }
+
+    private Player find(SocketAddress address) {
+        for (Player player : players) {
+            if (address.equals(player.address)) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Seats a player the server has placed in the match on a free side. The reservation is
+     * given back if no side is free or the hello cannot be read.
+     *
+     * @param hello The hello, after its type byte
+     * @return The player, or null if not seated
+     */
+    private Player join(SocketAddress address, ByteBuffer hello) {
+        GameServer server = worker.getServer();
+        if (!server.claimReservation(this, address)) {
+            // Expired before the hello got here; the player's next hello places it again
+            return null;
+        }
+        Player seated = null;
+        try {
+            if (hello.getShort() == NetProtocol.VERSION) {
+                byte[] name = new byte[Math.min(hello.get() & 0xFF, NetProtocol.MAX_NAME_BYTES)];
+                hello.get(name);
+                seated = seat(address, new String(name, StandardCharsets.UTF_8));
+            }
+        } finally {
+            if (seated == null) {
+                finished = server.release(this, address) || finished;
+            }
+        }
+        return seated;
+    }
+
+    private Player seat(SocketAddress address, String name) {
+        for (Player player : players) {
+            if (!player.isPresent()) {
+                player.reset(address, name, tick);
+                return player;
+            }
+        }
+        return null;
+    }
+
+    private void leave(Player player) {
+        // The server decides under its lock, so no new player can be placed in a match being dropped
+        finished = worker.getServer().release(this, player.address) || finished;
+        player.address = null;
+        // Start over, so the next opponent does not inherit a half-played match
+        engine.resetMatch();
+        gameOver = false;
+    }
+
+    private void dropSilentPlayers() {
+        for (Player player : players) {
+            if (player.address != null && tick - player.lastHeardTick > timeoutTicks) {
+                leave(player);
+            }
+        }
+    }
+
+    private void receiveInputs(Player player, ByteBuffer in) {
+        int newest = in.getInt();
+        int count = in.get() & 0xFF;
+        for (int i = 0; i < count; i++) {
+            int sequence = newest - count + 1 + i;
+            byte input = in.get();
+            // Already applied, or so old the window has moved on
+            if (sequence <= player.appliedSequence || newest - sequence >= INPUT_WINDOW) {
+                continue;
+            }
+            int slot = sequence & (INPUT_WINDOW - 1);
+            player.inputs[slot] = input;
+            player.inputSequence[slot] = sequence;
+        }
+        player.receivedSequence = Math.max(player.receivedSequence, newest);
+    }
+
+    /**
+     * Takes the input the player's paddle moves by this tick. The server's paddle goes through
+     * exactly the client's inputs in order, so it ends up where the client predicted: when no
+     * new input has arrived the paddle waits, and when inputs have piled up after a delay the
+     * paddle is moved through all but {@link #MAX_INPUT_BACKLOG} of them at once.
+     *
+     * @param shift 0 for the left paddle, 2 to move the bits to the right paddle's flags
+     * @return The input's paddle flags, or {@link PaddleInput#NONE} if there is none
+     */
+    private int nextInput(Player player, int shift) {
+        if (player.bot != null) {
+            return player.bot.nextInput(model);
+        }
+        if (player.address == null || player.appliedSequence >= player.receivedSequence) {
+            return PaddleInput.NONE;
+        }
+        while (player.receivedSequence - player.appliedSequence > MAX_INPUT_BACKLOG) {
+            engine.movePaddles(takeInput(player) << shift);
+        }
+        return takeInput(player) << shift;
+    }
+
+    private static int takeInput(Player player) {
+        player.appliedSequence++;
+        int slot = player.appliedSequence & (INPUT_WINDOW - 1);
+        if (player.inputSequence[slot] != player.appliedSequence) {
+            // Every copy of this input was lost; the client's reconciliation corrects the paddle
+            return PaddleInput.NONE;
+        }
+        return player.inputs[slot] & (PaddleInput.PADDLE1_UP | PaddleInput.PADDLE1_DOWN);
+    }
+
+    private void sendWelcome(Player player) {
+        ByteBuffer out = worker.startPacket(NetProtocol.WELCOME);
+        out.put((byte) (player == players[0] ? 1 : 2));
+        out.putShort((short) tickRate);
+        out.putShort((short) model.width);
+        out.putShort((short) model.height);
+        out.putShort((short) model.paddleWidth);
+        out.putShort((short) model.paddleHeight);
+        out.putShort((short) model.ballSize);
+        out.putShort((short) model.getMaxScore());
+        worker.send(player.address);
+    }
+
+    private void sendState(Player player, int flags) {
+        ByteBuffer out = worker.startPacket(NetProtocol.STATE);
+        out.put((byte) flags);
+        out.putInt(tick);
+        out.putInt(player.appliedSequence);
+        NetProtocol.putState(out, model);
+        worker.send(player.address);
+    }
+
+    MatchWorker getWorker() {
+        return worker;
+    }
+
+    boolean isFinished() {
+        return finished;
+    }
+}
@@ -0,0 +1,42 @@
+package com.pong.net;
+import com.pong.model.GameModel;
+
+/**
+ * One side of a match played over the network, ticked once per game loop tick with the
+ * local player's keys. Implemented by {@link GameClient}, which plays on a server, and
+ * {@link RollbackPeer}, which plays against another peer directly.
+ */
+public interface MatchConnection {
+
+    /**
+     * Plays one tick.
+     *
+     * @param input Up and down keys of the own paddle, as {@link com.pong.physics.PaddleInput#PADDLE1_UP}
+     *              and {@code PADDLE1_DOWN} whichever side it is on
+     */
+    void tick(int input);
+
+    /**
+     * @return Model holding the state to show
+     */
+    GameModel getModel();
+
+    /**
+     * @return 1 for the left paddle, 2 for the right
+     */
+    int getSide();
+
+    int getTickRate();
+
+    /**
+     * @return True while waiting for an opponent
+     */
+    boolean isWaiting();
+
+    boolean isGameOver();
+
+    /**
+     * Tells the other side the player is leaving and closes the connection.
+     */
+    void close();
+}
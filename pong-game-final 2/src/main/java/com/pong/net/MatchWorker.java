@@ -0,0 +1,186 @@
+package com.pong.net;
+import com.pong.controller.GameLoop;
+import com.pong.controller.ParkingScheduler;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * MatchWorker ticks a whole batch of matches on one {@link GameLoop} thread. Each tick it
+ * runs the tasks other threads posted to it (new matches, datagrams for its matches that
+ * arrived on another worker's socket), drains its socket, and then makes one pass over a
+ * dense array of its matches, stepping each and sending its state. Nothing in the pass
+ * takes a lock or allocates, and a match never moves between workers, so its state stays
+ * in the caches of the core that runs it.
+ */
+class MatchWorker {
+
+    private final GameServer server;
+    private final DatagramChannel channel;
+    private final GameLoop gameLoop;
+    private final WorkerStatistics statistics;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET);
+
+    // The worker's matches, owned by its thread
+    private Match[] matches = new Match[16];
+    private int matchCount = 0;
+
+    // Matches placed on this worker; guarded by the server's lock and used to balance the load
+    int assignedMatches = 0;
+
+    /**
+     * @param channel Socket the worker receives on and sends from; may be shared with other workers
+     */
+    MatchWorker(GameServer server, int index, DatagramChannel channel, int tickRate) {
+        this.server = server;
+        this.channel = channel;
+        this.statistics = new WorkerStatistics(index, tickRate);
+        // Parks between ticks so idle workers leave the cores to busy ones, and drops ticks
+        // rather than catching up, so an overloaded worker slows its matches down instead of
+        // falling further behind with every burst
+        this.gameLoop = new GameLoop(tickRate, this::tick, () -> { }, new ParkingScheduler(),
+                GameLoop.LatePolicy.DROP);
+    }
+
+    void start() {
+        gameLoop.start();
+    }
+
+    void stop() {
+        gameLoop.stop();
+    }
+
+    /**
+     * Runs a task on the worker's thread at the start of its next tick. Safe to call from any thread.
+     */
+    void post(Runnable task) {
+        tasks.offer(task);
+    }
+
+    /**
+     * Adds a match to the batch. Must run on the worker's thread.
+     */
+    void add(Match match) {
+        if (matchCount == matches.length) {
+            matches = Arrays.copyOf(matches, matchCount * 2);
+        }
+        matches[matchCount++] = match;
+    }
+
+    /**
+     * Ticks every match once. Runs on the game loop thread.
+     */
+    private void tick() {
+        long start = System.nanoTime();
+        for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+            task.run();
+        }
+        try {
+            receivePackets();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        for (int i = 0; i < matchCount; i++) {
+            matches[i].tick();
+        }
+        removeFinishedMatches();
+        statistics.record(gameLoop.getTickTime(), start, System.nanoTime(), matchCount);
+    }
+
+    private void receivePackets() throws IOException {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress sender = channel.receive(receiveBuffer);
+            if (sender == null) {
+                return;
+            }
+            receiveBuffer.flip();
+            if (!receiveBuffer.hasRemaining()) {
+                continue;
+            }
+            try {
+                route(sender, receiveBuffer);
+            } catch (RuntimeException e) {
+                // A malformed datagram is dropped like a lost one
+            }
+        }
+    }
+
+    /**
+     * Hands a datagram to the match its sender plays in, placing the sender in a match first
+     * if it is new.
+     */
+    private void route(SocketAddress sender, ByteBuffer in) {
+        Match match = server.findMatch(sender);
+        if (match == null) {
+            if (!NetProtocol.isValidHello(in)) {
+                // From a player who has left, one the match would not take, or cut short;
+                // checked in full before a side is reserved, so a bad hello cannot hold one
+                return;
+            }
+            match = server.place(sender);
+            if (match == null) {
+                startPacket(NetProtocol.FULL);
+                send(sender);
+                return;
+            }
+        }
+        if (match.getWorker() == this) {
+            match.handlePacket(sender, in);
+        } else {
+            // Another worker's match: the kernel spread the sockets' traffic by address, not by match
+            byte[] copy = new byte[in.remaining()];
+            in.get(copy);
+            Match owner = match;
+            match.getWorker().post(() -> owner.handlePacket(sender, ByteBuffer.wrap(copy)));
+        }
+    }
+
+    private void removeFinishedMatches() {
+        for (int i = matchCount - 1; i >= 0; i--) {
+            if (matches[i].isFinished()) {
+                // Order does not matter, so fill the gap with the last match
+                matches[i] = matches[--matchCount];
+                matches[matchCount] = null;
+            }
+        }
+    }
+
+    /**
+     * Starts a packet in the worker's send buffer.
+     */
+    ByteBuffer startPacket(byte type) {
+        sendBuffer.clear();
+        sendBuffer.put(type);
+        return sendBuffer;
+    }
+
+    /**
+     * Sends the packet started with {@link #startPacket}. Never blocks; if the socket buffer
+     * is full the datagram is dropped like a lost one.
+     */
+    void send(SocketAddress address) {
+        sendBuffer.flip();
+        try {
+            channel.send(sendBuffer, address);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    GameServer getServer() {
+        return server;
+    }
+
+    WorkerStatistics getStatistics() {
+        return statistics;
+    }
+}
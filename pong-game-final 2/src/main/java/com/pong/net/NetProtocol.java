@@ -0,0 +1,132 @@
+package com.pong.net;
+import com.pong.model.GameModel;
+import java.nio.ByteBuffer;
+
+/**
+ * Packet layouts shared by {@link GameServer} and {@link GameClient}. Every packet is one
+ * datagram in network byte order, starting with a type byte.
+ *
+ * <pre>
+ * HELLO    client to server   short version, byte name length, name (UTF-8)
+ * INPUT    client to server   int newest sequence, byte count, count input bytes, oldest first
+ * BYE      client to server   (nothing)
+ * WELCOME  server to client   byte side (1 or 2), short tick rate, short width, height,
+ *                             paddle width, paddle height, ball size, score limit
+ * STATE    server to client   byte flags, int server tick, int last input sequence applied
+ *                             for this client, then the game state (see {@link #putState})
+ * FULL     server to client   (nothing; both sides are taken)
+ * </pre>
+ *
+ * Inputs carry only the up and down bits of the sender's own paddle, as
+ * {@link com.pong.physics.PaddleInput#PADDLE1_UP} and {@code PADDLE1_DOWN}; the server moves
+ * them to the sender's side. Each INPUT packet repeats the most recent inputs, so a lost
+ * packet costs nothing as long as one of the next few arrives.
+ *
+ * Spectators connect over TCP instead (see {@link SpectatorBroadcaster}) and receive a stream
+ * of frames, each a short length of the rest of the frame followed by a type byte:
+ *
+ * <pre>
+ * SPECTATE  first frame       short tick rate, short width, height, paddle width, paddle height,
+ *                             ball size, score limit
+ * KEYFRAME  then once a tick  byte flags, int server tick, every field of the game state
+ * DELTA                       byte flags, int server tick, short field mask, the fields that
+ *                             differ from the last keyframe (see {@link SnapshotCodec})
+ * </pre>
+ *
+ * Two {@link RollbackPeer}s play without a server. Both simulate the match and exchange only
+ * their inputs, as datagrams:
+ *
+ * <pre>
+ * PEER_HELLO    guest to host  short version
+ * PEER_WELCOME  host to guest  the WELCOME fields with side 2, then long seed, byte rollback window,
+ *                              byte swept collision (0 or 1)
+ * PEER_INPUT    both ways      int sender's next tick, int first tick without a known input
+ *                              from the receiver, byte ticks the sender is ahead of the receiver,
+ *                              int first tick, byte count, count input bytes
+ * BYE           both ways      (nothing; the sender has left)
+ * </pre>
+ */
+final class NetProtocol {
+
+    static final int VERSION = 1;
+
+    static final byte HELLO = 1;
+    static final byte INPUT = 2;
+    static final byte BYE = 3;
+    static final byte WELCOME = 4;
+    static final byte STATE = 5;
+    static final byte FULL = 6;
+    static final byte SPECTATE = 7;
+    static final byte KEYFRAME = 8;
+    static final byte DELTA = 9;
+    static final byte PEER_HELLO = 10;
+    static final byte PEER_WELCOME = 11;
+    static final byte PEER_INPUT = 12;
+
+    // STATE flags
+    static final int WAITING = 1;
+    static final int GAME_OVER = 1 << 1;
+
+    // Large enough for any packet; datagrams stay well below the usual 1500 byte MTU
+    static final int MAX_PACKET = 256;
+    // Type, flags, tick and sequence, then what putState writes
+    static final int STATE_PACKET_LENGTH = 1 + 1 + 4 + 4 + 25;
+    // Inputs repeated in every INPUT packet
+    static final int REDUNDANT_INPUTS = 8;
+    static final int MAX_NAME_BYTES = 32;
+    // Inputs in a PEER_INPUT packet at most; the oldest the receiver lacks come first
+    static final int MAX_PEER_INPUTS = 128;
+
+    private NetProtocol() {
+    }
+
+    /**
+     * Checks that a datagram is a whole HELLO of this version, before the server reserves a
+     * side for its sender. Reads with absolute gets, so the position is left where it was.
+     *
+     * @return True if the type and version match and every byte of the name is there
+     */
+    static boolean isValidHello(ByteBuffer in) {
+        int start = in.position();
+        if (in.remaining() < 4 || in.get(start) != HELLO || in.getShort(start + 1) != VERSION) {
+            return false;
+        }
+        int nameLength = in.get(start + 3) & 0xFF;
+        return nameLength <= MAX_NAME_BYTES && in.remaining() >= 4 + nameLength;
+    }
+
+    /**
+     * Writes the state a client needs to draw the game. Ball positions and speeds are sent as
+     * floats, which hold the physics' 1/1024 pixel steps exactly at any playfield size.
+     */
+    static void putState(ByteBuffer out, GameModel model) {
+        out.putShort((short) model.paddle1Y);
+        out.put((byte) model.paddle1Speed);
+        out.putShort((short) model.paddle2Y);
+        out.put((byte) model.paddle2Speed);
+        out.put((byte) model.player1Score);
+        out.put((byte) model.player2Score);
+        out.putFloat((float) model.ballX);
+        out.putFloat((float) model.ballY);
+        out.putFloat((float) model.ballXSpeed);
+        out.putFloat((float) model.ballYSpeed);
+        out.put((byte) model.deformationFrames);
+    }
+
+    /**
+     * Reads what {@link #putState} wrote into the model.
+     */
+    static void getState(ByteBuffer in, GameModel model) {
+        model.paddle1Y = in.getShort();
+        model.paddle1Speed = in.get();
+        model.paddle2Y = in.getShort();
+        model.paddle2Speed = in.get();
+        model.player1Score = in.get() & 0xFF;
+        model.player2Score = in.get() & 0xFF;
+        model.ballX = in.getFloat();
+        model.ballY = in.getFloat();
+        model.ballXSpeed = in.getFloat();
+        model.ballYSpeed = in.getFloat();
+        model.deformationFrames = in.get() & 0xFF;
+    }
+}
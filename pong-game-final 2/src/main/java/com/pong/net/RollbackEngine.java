@@ -0,0 +1,231 @@
+package com.pong.net;
+import com.pong.model.GameModel;
+import com.pong.model.GameModelCodec;
+import com.pong.physics.PaddleInput;
+import com.pong.physics.PhysicsEngine;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * RollbackEngine runs a match between a local and a remote player without waiting for the
+ * remote player's inputs. Each tick is simulated at once with the local input and a
+ * prediction of the remote one: whatever the remote player last did, repeated. The state at
+ * the start of each tick is saved in a ring of preallocated slots (see {@link GameModelCodec}).
+ * When the remote input for a tick arrives and differs from what was predicted, the engine
+ * restores the state saved for that tick and simulates forward again to the present, all
+ * before the next frame is drawn. Most of the time the prediction is right and nothing is
+ * redone.
+ *
+ * Both peers run the same deterministic {@link PhysicsEngine} from the same seed and, once
+ * every input has arrived, have simulated the same ticks with the same inputs, so they agree
+ * bit for bit. The engine never runs more than the rollback window ahead of the last tick
+ * with a known remote input; when the remote inputs fall that far behind it stalls.
+ *
+ * Inputs are given as {@link PaddleInput#PADDLE1_UP} and {@code PADDLE1_DOWN} bits whichever
+ * side a player is on. Not thread-safe; nothing is allocated per tick.
+ */
+public class RollbackEngine {
+
+    private final GameModel model;
+    private final PhysicsEngine engine;
+    private final int localShift;
+    private final int remoteShift;
+    private final int window;
+    private final RollbackStatistics statistics = new RollbackStatistics();
+
+    // State at the start of each tick of the window, in slot tick % window
+    private final ByteBuffer states;
+    private final int slotSize;
+    // Inputs by tick % inputCapacity; local ones are kept until the peer has them
+    private final int inputCapacity;
+    private final byte[] localInputs;
+    private final byte[] remoteInputs;
+    // Remote input each simulated tick used, known or predicted
+    private final byte[] usedRemoteInputs;
+    // Scratch model for hashing saved states
+    private final GameModel scratch;
+
+    // Next tick to simulate
+    private int tick = 0;
+    // Ticks below this have a known remote input
+    private int remoteTick = 0;
+    // Earliest tick simulated with a wrong prediction, or Integer.MAX_VALUE
+    private int rollbackFrom = Integer.MAX_VALUE;
+    // First tick that starts with the match over, or Integer.MAX_VALUE
+    private int gameOverTick = Integer.MAX_VALUE;
+
+    /**
+     * @param model     Model of the match, in its starting state
+     * @param engine    Engine stepping the model, built from the same seed on both peers
+     * @param localSide 1 if the local player has the left paddle, 2 for the right
+     * @param window    Ticks the engine may run ahead of the remote inputs, and so the
+     *                  deepest rollback; the round trip in ticks plus a margin
+     */
+    public RollbackEngine(GameModel model, PhysicsEngine engine, int localSide, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Rollback window must be at least one tick: " + window);
+        }
+        this.model = model;
+        this.engine = engine;
+        this.localShift = localSide == 1 ? 0 : 2;
+        this.remoteShift = localSide == 1 ? 2 : 0;
+        this.window = window;
+        this.slotSize = GameModelCodec.maxEncodedSize(model);
+        this.states = ByteBuffer.allocateDirect((window + 1) * slotSize).order(ByteOrder.nativeOrder());
+        // Twice the window, so a local input stays until the peer can no longer ask for it
+        this.inputCapacity = Integer.highestOneBit(window * 2) << 1;
+        this.localInputs = new byte[inputCapacity];
+        this.remoteInputs = new byte[inputCapacity];
+        this.usedRemoteInputs = new byte[inputCapacity];
+        this.scratch = new GameModel(model.width, model.height, model.paddleWidth, model.paddleHeight,
+                model.ballSize, model.getMaxScore());
+    }
+
+    /**
+     * Simulates the next tick with the local player's input, after first correcting any
+     * earlier ticks that used a wrong prediction.
+     *
+     * @param localInput Up and down bits of the local paddle
+     * @return False if the engine stalled instead, because the remote inputs are a whole
+     * window behind; the input is then not used, and the caller should offer it again next tick
+     */
+    public boolean advance(int localInput) {
+        rollBack();
+        if (tick - remoteTick >= window) {
+            statistics.recordStall();
+            return false;
+        }
+        localInputs[tick & (inputCapacity - 1)] = (byte) (localInput & (PaddleInput.PADDLE1_UP | PaddleInput.PADDLE1_DOWN));
+        simulate(tick);
+        tick++;
+        statistics.recordTick();
+        return true;
+    }
+
+    /**
+     * Takes the remote player's input for a tick. Inputs must arrive in tick order; ticks
+     * already known are ignored.
+     */
+    public void addRemoteInput(int inputTick, int input) {
+        if (inputTick != remoteTick || inputTick >= tick + inputCapacity / 2) {
+            return;
+        }
+        input &= PaddleInput.PADDLE1_UP | PaddleInput.PADDLE1_DOWN;
+        int slot = inputTick & (inputCapacity - 1);
+        remoteInputs[slot] = (byte) input;
+        remoteTick++;
+        if (inputTick < tick && usedRemoteInputs[slot] != input) {
+            rollbackFrom = Math.min(rollbackFrom, inputTick);
+        }
+    }
+
+    /**
+     * Restores the state before the earliest mispredicted tick and simulates forward again.
+     */
+    private void rollBack() {
+        if (rollbackFrom >= tick) {
+            rollbackFrom = Integer.MAX_VALUE;
+            return;
+        }
+        long start = System.nanoTime();
+        int from = rollbackFrom;
+        rollbackFrom = Integer.MAX_VALUE;
+        if (gameOverTick > from) {
+            gameOverTick = Integer.MAX_VALUE;
+        }
+        restore(from);
+        for (int t = from; t < tick; t++) {
+            simulate(t);
+        }
+        statistics.recordRollback(tick - from, System.nanoTime() - start);
+    }
+
+    /**
+     * Saves the state at the start of a tick, then steps it with the local input and the
+     * known or predicted remote input.
+     */
+    private void simulate(int t) {
+        save(t);
+        int slot = t & (inputCapacity - 1);
+        // Predict that the remote player still does what they did last
+        int remote = t < remoteTick ? remoteInputs[slot]
+                : remoteTick > 0 ? remoteInputs[(remoteTick - 1) & (inputCapacity - 1)] : PaddleInput.NONE;
+        usedRemoteInputs[slot] = (byte) remote;
+        // A finished match stays as it ended
+        if (!model.isGameOver()) {
+            engine.step(localInputs[slot] << localShift | remote << remoteShift);
+            if (model.isGameOver()) {
+                gameOverTick = t + 1;
+            }
+        }
+    }
+
+    private void save(int t) {
+        states.clear().position((t % (window + 1)) * slotSize);
+        GameModelCodec.write(states, model);
+    }
+
+    private void restore(int t) {
+        states.clear().position((t % (window + 1)) * slotSize);
+        GameModelCodec.read(states, model);
+    }
+
+    /**
+     * @return The local input of a tick, for sending; only ticks within the last two windows are kept
+     */
+    public int getLocalInput(int inputTick) {
+        return localInputs[inputTick & (inputCapacity - 1)];
+    }
+
+    /**
+     * Hashes the state at the start of a tick, for comparing with the peer's. The tick must
+     * be in the rollback window; it is final once {@link #getRemoteTick()} has passed it.
+     */
+    public long getStateHash(int stateTick) {
+        if (stateTick > tick || stateTick < tick - window) {
+            throw new IllegalArgumentException("Tick " + stateTick + " is not in the window up to " + tick);
+        }
+        if (stateTick == tick) {
+            return GameModelCodec.hash(model);
+        }
+        states.clear().position((stateTick % (window + 1)) * slotSize);
+        GameModelCodec.read(states, scratch);
+        return GameModelCodec.hash(scratch);
+    }
+
+    /**
+     * @return True once the match is over in a state no late input can change any more
+     */
+    public boolean isGameOver() {
+        return gameOverTick <= remoteTick;
+    }
+
+    /**
+     * @return Model holding the predicted state at the start of {@link #getTick()}
+     */
+    public GameModel getModel() {
+        return model;
+    }
+
+    /**
+     * @return Next tick to be simulated
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * @return Number of ticks with a known remote input, which is the first tick without one
+     */
+    public int getRemoteTick() {
+        return remoteTick;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public RollbackStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -0,0 +1,425 @@
+package com.pong.net;
+import com.pong.model.GameModel;
+import com.pong.physics.PhysicsEngine;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RollbackPeer plays one side of a match directly against another peer, without a server.
+ * Both peers simulate the whole match with a {@link RollbackEngine} and send each other only
+ * their inputs, so a player's own keys take effect on the next frame and the opponent's show
+ * up after half a round trip, corrected in place by rolling back. Compared with a server
+ * that owns the ball, the ball never jumps back on the own screen when the round trip is
+ * long; it is the opponent's paddle that may.
+ *
+ * One peer hosts: it listens on a port, picks the seed and settings and takes the left
+ * paddle. The other joins and takes the right. Every INPUT packet repeats all inputs the
+ * other peer has not confirmed yet, so a lost packet only delays them until the next one.
+ *
+ * The peers keep their ticks in step: each tells the other how far ahead of it it is, and
+ * the one that is further ahead waits a tick now and then. Otherwise the peer that started
+ * later would see every remote input late and roll back more than it needs to.
+ *
+ * Not thread-safe: {@link #tick} and {@link #close} are meant to be called from one loop.
+ */
+public class RollbackPeer implements MatchConnection {
+
+    private static final long HELLO_INTERVAL_MILLIS = 200;
+    private static final int BYE_REPEATS = 3;
+    // Ticks between two waits to fall back into step with the other peer
+    private static final int SYNC_INTERVAL = 10;
+    // Weight of the newest measurement in the smoothed clock offset; jitter makes single ones noisy
+    private static final double OFFSET_SMOOTHING = 1.0 / 16;
+
+    private final DatagramChannel channel;
+    private final GameModel model;
+    private final RollbackEngine engine;
+    private final int side;
+    private final int tickRate;
+    private final long seed;
+    private final int timeoutTicks;
+    // The host's welcome, repeated for every hello
+    private final ByteBuffer welcome;
+
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(NetProtocol.MAX_PACKET);
+
+    private boolean waiting;
+    private boolean opponentLeft = false;
+    // The peer's next tick, and how far ahead of this peer it measured itself, as of its last packet
+    private int peerTick = 0;
+    private int peerAhead = 0;
+    // First tick of ours the peer does not have yet
+    private int peerAcknowledged = 0;
+    private int ticksSinceSync = 0;
+    // Smoothed ticks this peer's clock runs ahead of the other's
+    private double clockOffset = 0;
+    private int ticksSinceHeard = 0;
+
+    private RollbackPeer(DatagramChannel channel, int side, int tickRate, GameModel model, long seed, int window,
+                         boolean sweptCollision, ByteBuffer welcome) {
+        this.channel = channel;
+        this.side = side;
+        this.tickRate = tickRate;
+        this.model = model;
+        this.seed = seed;
+        this.timeoutTicks = (int) (GameServer.TIMEOUT_NANOS * tickRate / TimeUnit.SECONDS.toNanos(1));
+        this.welcome = welcome;
+        this.waiting = side == 1;
+        PhysicsEngine physics = new PhysicsEngine.Builder(model)
+                .setTickRate(tickRate)
+                .setSweptCollision(sweptCollision)
+                .setSeed(seed)
+                .build();
+        this.engine = new RollbackEngine(model, physics, side, window);
+    }
+
+    /**
+     * Joins a hosting peer, repeating the hello until it answers.
+     *
+     * @param host          Address of the host, or of a {@link LossyLink} in front of it
+     * @param timeoutMillis How long to keep trying
+     * @throws IOException If the host does not answer in time or cannot be reached
+     */
+    public static RollbackPeer join(SocketAddress host, long timeoutMillis) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.connect(host);
+            ByteBuffer hello = ByteBuffer.allocate(3);
+            hello.put(NetProtocol.PEER_HELLO);
+            hello.putShort((short) NetProtocol.VERSION);
+            hello.flip();
+
+            ByteBuffer in = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            try (Selector selector = Selector.open()) {
+                channel.register(selector, SelectionKey.OP_READ);
+                while (System.currentTimeMillis() < deadline) {
+                    channel.write(hello.rewind());
+                    selector.select(HELLO_INTERVAL_MILLIS);
+                    selector.selectedKeys().clear();
+                    in.clear();
+                    try {
+                        if (channel.read(in) <= 0) {
+                            continue;
+                        }
+                    } catch (PortUnreachableException e) {
+                        // Nobody hosting yet; keep trying until the deadline
+                        continue;
+                    }
+                    in.flip();
+                    if (in.get() != NetProtocol.PEER_WELCOME) {
+                        continue;
+                    }
+                    int side = in.get();
+                    int tickRate = in.getShort();
+                    GameModel model = new GameModel(in.getShort(), in.getShort(), in.getShort(), in.getShort(),
+                            in.getShort(), in.getShort());
+                    long seed = in.getLong();
+                    int window = in.get();
+                    boolean sweptCollision = in.get() != 0;
+                    return new RollbackPeer(channel, side, tickRate, model, seed, window, sweptCollision, null);
+                }
+            }
+            throw new IOException("No answer from " + host);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Plays one tick: takes in the peer's inputs, simulates the tick (rolling back first if
+     * a prediction was wrong) and sends the own inputs the peer still lacks.
+     */
+    @Override
+    public void tick(int input) {
+        receivePackets();
+        if (waiting) {
+            return;
+        }
+        if (++ticksSinceHeard > timeoutTicks) {
+            opponentLeft = true;
+        }
+        if (opponentLeft) {
+            return;
+        }
+
+        // Half the difference of the two measurements is how far this peer's clock is ahead
+        ticksSinceSync++;
+        int ahead = engine.getTick() - peerTick;
+        clockOffset += ((ahead - peerAhead) / 2.0 - clockOffset) * OFFSET_SMOOTHING;
+        if (clockOffset >= 1 && ticksSinceSync >= SYNC_INTERVAL) {
+            ticksSinceSync = 0;
+            // The wait takes a tick off the offset, long before the measurements show it
+            clockOffset -= 1;
+            engine.getStatistics().recordStall();
+        } else {
+            engine.advance(input);
+        }
+        sendInputs(ahead);
+    }
+
+    private void receivePackets() {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress sender;
+            try {
+                sender = channel.receive(receiveBuffer);
+            } catch (IOException e) {
+                // E.g. the peer's port is closed for a moment; inputs resume when it answers
+                return;
+            }
+            if (sender == null) {
+                return;
+            }
+            receiveBuffer.flip();
+            if (!receiveBuffer.hasRemaining()) {
+                continue;
+            }
+            try {
+                handlePacket(sender, receiveBuffer);
+            } catch (RuntimeException e) {
+                // A malformed datagram is dropped like a lost one
+            }
+        }
+    }
+
+    private void handlePacket(SocketAddress sender, ByteBuffer in) {
+        byte type = in.get();
+        if (type == NetProtocol.PEER_HELLO && welcome != null) {
+            if (in.getShort() != NetProtocol.VERSION) {
+                return;
+            }
+            if (waiting) {
+                try {
+                    // From now on only the guest's datagrams get through
+                    channel.connect(sender);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return;
+                }
+                waiting = false;
+            }
+            // Hellos are repeated until answered, so the welcome may be sent more than once
+            send(welcome.rewind());
+        } else if (type == NetProtocol.PEER_INPUT && !waiting) {
+            ticksSinceHeard = 0;
+            peerTick = Math.max(peerTick, in.getInt());
+            peerAcknowledged = Math.max(peerAcknowledged, in.getInt());
+            peerAhead = in.get();
+            int first = in.getInt();
+            int count = in.get() & 0xFF;
+            for (int i = 0; i < count; i++) {
+                // Ticks already known or beyond a gap are ignored by the engine
+                engine.addRemoteInput(first + i, in.get());
+            }
+        } else if (type == NetProtocol.BYE && !waiting) {
+            opponentLeft = true;
+        }
+    }
+
+    /**
+     * Sends every own input the peer has not confirmed, oldest first.
+     */
+    private void sendInputs(int ahead) {
+        // Neither peer runs more than a window ahead of the other's inputs, so the peer never lacks older ones
+        int first = Math.max(peerAcknowledged, engine.getTick() - 2 * engine.getWindow());
+        int count = Math.min(engine.getTick() - first, NetProtocol.MAX_PEER_INPUTS);
+        sendBuffer.clear();
+        sendBuffer.put(NetProtocol.PEER_INPUT);
+        sendBuffer.putInt(engine.getTick());
+        sendBuffer.putInt(engine.getRemoteTick());
+        sendBuffer.put((byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, ahead)));
+        sendBuffer.putInt(first);
+        sendBuffer.put((byte) count);
+        for (int t = first; t < first + count; t++) {
+            sendBuffer.put((byte) engine.getLocalInput(t));
+        }
+        sendBuffer.flip();
+        send(sendBuffer);
+    }
+
+    private void send(ByteBuffer packet) {
+        try {
+            channel.write(packet);
+        } catch (IOException e) {
+            // Treated like a lost packet; the next ones repeat these inputs
+        }
+    }
+
+    @Override
+    public void close() {
+        if (channel.isConnected()) {
+            sendBuffer.clear();
+            sendBuffer.put(NetProtocol.BYE);
+            sendBuffer.flip();
+            for (int i = 0; i < BYE_REPEATS; i++) {
+                send(sendBuffer.rewind());
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return Port a hosting peer listens on; useful when it was built with port 0
+     */
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException("Peer socket is closed", e);
+        }
+    }
+
+    /**
+     * @return Model holding the predicted state of the match
+     */
+    @Override
+    public GameModel getModel() {
+        return model;
+    }
+
+    /**
+     * @return The engine, for its statistics and state hashes
+     */
+    public RollbackEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return 1 for the host, who plays the left paddle; 2 for the guest
+     */
+    @Override
+    public int getSide() {
+        return side;
+    }
+
+    @Override
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return True while a host waits for a peer to join
+     */
+    @Override
+    public boolean isWaiting() {
+        return waiting;
+    }
+
+    /**
+     * @return True once the match is over with every input confirmed, or the peer has left
+     */
+    @Override
+    public boolean isGameOver() {
+        return opponentLeft || engine.isGameOver();
+    }
+
+    /**
+     * Builder for a hosting peer; defaults match a local game in the default window.
+     */
+    public static class Builder {
+        private int port = 7778;
+        private int tickRate = PhysicsEngine.BASE_TICK_RATE;
+        private int scoreLimit = 11;
+        private boolean sweptCollision = false;
+        private long seed = System.nanoTime();
+        private int window = 16;
+        private int width = 800;
+        private int height = 600;
+        private int paddleWidth = 10;
+        private int paddleHeight = 100;
+        private int ballSize = 20;
+
+        /**
+         * @param port UDP port, or 0 for any free port
+         */
+        public Builder setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder setTickRate(int tickRate) {
+            this.tickRate = tickRate;
+            return this;
+        }
+
+        public Builder setScoreLimit(int scoreLimit) {
+            this.scoreLimit = scoreLimit;
+            return this;
+        }
+
+        public Builder setSweptCollision(boolean sweptCollision) {
+            this.sweptCollision = sweptCollision;
+            return this;
+        }
+
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * @param window Deepest rollback in ticks; should cover the round trip with some to
+         *               spare, e.g. 16 ticks (267 ms) at 60 Hz
+         */
+        public Builder setWindow(int window) {
+            if (window < 1 || window > NetProtocol.MAX_PEER_INPUTS / 2) {
+                throw new IllegalArgumentException("Rollback window must be 1 to "
+                        + NetProtocol.MAX_PEER_INPUTS / 2 + " ticks: " + window);
+            }
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * Starts hosting. The match begins when a peer joins; until then {@link #tick} only
+         * listens.
+         *
+         * @throws IOException If the port cannot be bound
+         */
+        public RollbackPeer host() throws IOException {
+            DatagramChannel channel = DatagramChannel.open();
+            try {
+                channel.configureBlocking(false);
+                channel.bind(new InetSocketAddress(port));
+                ByteBuffer welcome = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+                welcome.put(NetProtocol.PEER_WELCOME);
+                welcome.put((byte) 2);
+                welcome.putShort((short) tickRate);
+                welcome.putShort((short) width);
+                welcome.putShort((short) height);
+                welcome.putShort((short) paddleWidth);
+                welcome.putShort((short) paddleHeight);
+                welcome.putShort((short) ballSize);
+                welcome.putShort((short) scoreLimit);
+                welcome.putLong(seed);
+                welcome.put((byte) window);
+                welcome.put((byte) (sweptCollision ? 1 : 0));
+                welcome.flip();
+                GameModel model = new GameModel(width, height, paddleWidth, paddleHeight, ballSize, scoreLimit);
+                return new RollbackPeer(channel, 1, tickRate, model, seed, window, sweptCollision, welcome);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+    }
+}
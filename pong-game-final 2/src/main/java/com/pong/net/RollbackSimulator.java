@@ -0,0 +1,110 @@
+package com.pong.net;
+import com.pong.controller.GameLoop;
+import com.pong.controller.ParkingScheduler;
+import com.pong.physics.PaddleInput;
+import com.pong.simulation.TrackingBot;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command-line harness for rollback netcode. Plays a bot match between two
+ * {@link RollbackPeer}s in this process, with a {@link LossyLink} between them that delays,
+ * jitters and drops the datagrams, then checks that both peers ended up with the same state
+ * and reports how often and how deeply each had to roll back.
+ *
+ * <pre>
+ * --delay MS        one-way delay of the link (default 50)
+ * --jitter MS       extra random delay of each datagram, up to this (default 20)
+ * --loss F          fraction of datagrams dropped (default 0)
+ * --seconds S       how long to play (default 20)
+ * --tick-rate HZ    tick rate of both peers (default 60)
+ * --window TICKS    rollback window (default 16)
+ * --seed S          match seed (default 1)
+ * --reaction PX     reaction distance of the bots; larger moves the paddles more (default 300)
+ * </pre>
+ */
+public class RollbackSimulator {
+
+    public static void main(String[] args) throws Exception {
+        int delay = 50;
+        int jitter = 20;
+        double loss = 0;
+        int seconds = 20;
+        int tickRate = 60;
+        int window = 16;
+        long seed = 1;
+        int reaction = 300;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--delay" -> delay = Integer.parseInt(value);
+                case "--jitter" -> jitter = Integer.parseInt(value);
+                case "--loss" -> loss = Double.parseDouble(value);
+                case "--seconds" -> seconds = Integer.parseInt(value);
+                case "--tick-rate" -> tickRate = Integer.parseInt(value);
+                case "--window" -> window = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--reaction" -> reaction = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        RollbackPeer host = new RollbackPeer.Builder()
+                .setPort(0)
+                .setTickRate(tickRate)
+                .setWindow(window)
+                .setSeed(seed)
+                // Long enough that the match does not end before the time is up
+                .setScoreLimit(Short.MAX_VALUE)
+                .host();
+        LossyLink link = new LossyLink(new InetSocketAddress("127.0.0.1", host.getPort()), delay, jitter, loss, seed);
+        link.start();
+
+        // The host only listens until the guest's hello arrives
+        GameLoop hostLoop = botLoop(host, new TrackingBot(true, reaction, seed + 1), tickRate);
+        RollbackPeer guest = RollbackPeer.join(link.getAddress(), 5000);
+        GameLoop guestLoop = botLoop(guest, new TrackingBot(false, reaction, seed + 2), tickRate);
+        System.out.printf("Playing %d s at %d Hz with a %d tick window over %d ms +- %d ms each way, %.0f%% loss%n",
+                seconds, tickRate, window, delay, jitter, loss * 100);
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        hostLoop.stop();
+        guestLoop.stop();
+        // Let the loop threads finish their last tick
+        Thread.sleep(200);
+
+        RollbackEngine hostEngine = host.getEngine();
+        RollbackEngine guestEngine = guest.getEngine();
+        // The last tick both peers have simulated with every input known
+        int tick = Math.min(Math.min(hostEngine.getRemoteTick(), guestEngine.getRemoteTick()),
+                Math.min(hostEngine.getTick(), guestEngine.getTick()));
+        long hostHash = hostEngine.getStateHash(tick);
+        long guestHash = guestEngine.getStateHash(tick);
+        System.out.printf("Tick %d: host %016x, guest %016x - %s%n", tick, hostHash, guestHash,
+                hostHash == guestHash ? "in sync" : "DESYNC");
+        System.out.println("Host:  " + hostEngine.getStatistics());
+        System.out.println("Guest: " + guestEngine.getStatistics());
+
+        host.close();
+        guest.close();
+        link.close();
+        if (hostHash != guestHash) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Starts a game loop that plays a peer with a bot, which sees the peer's predicted state.
+     */
+    private static GameLoop botLoop(RollbackPeer peer, TrackingBot bot, int tickRate) {
+        // The right paddle's bits become the PADDLE1 bits a peer expects
+        int shift = peer.getSide() == 1 ? 0 : 2;
+        GameLoop loop = new GameLoop(tickRate, () -> {
+            int input = peer.isWaiting() ? PaddleInput.NONE : bot.nextInput(peer.getModel()) >> shift;
+            peer.tick(input);
+        }, () -> { }, new ParkingScheduler(), GameLoop.LatePolicy.CATCH_UP);
+        loop.start();
+        return loop;
+    }
+}
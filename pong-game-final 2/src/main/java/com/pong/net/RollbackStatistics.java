@@ -0,0 +1,83 @@
+package com.pong.net;
+import com.pong.controller.LatencyHistogram;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How often a {@link RollbackEngine} had to go back and simulate ticks again, how far, and
+ * what it cost. A rollback's depth is the number of ticks simulated again; its time covers
+ * restoring the saved state and all of the re-simulation.
+ *
+ * Written by the thread running the engine only; readable from any thread.
+ */
+public class RollbackStatistics {
+
+    // 1 us buckets up to 2 ms; a rollback of a few ticks takes a few microseconds
+    private final LatencyHistogram rollbackTime = new LatencyHistogram(TimeUnit.MICROSECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(2));
+    private volatile long ticks;
+    private volatile long stalls;
+    private volatile long resimulatedTicks;
+    private volatile int maxDepth;
+
+    void recordTick() {
+        // Single writer, so plain read-modify-write of the volatile fields is safe
+        ticks = ticks + 1;
+    }
+
+    void recordStall() {
+        stalls = stalls + 1;
+    }
+
+    /**
+     * @param depth Ticks simulated again
+     * @param nanos Time to restore the state and simulate them
+     */
+    void recordRollback(int depth, long nanos) {
+        rollbackTime.record(nanos);
+        resimulatedTicks = resimulatedTicks + depth;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+
+    /**
+     * @return Ticks simulated for the first time
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return Ticks the engine waited instead of running ahead of the rollback window
+     */
+    public long getStalls() {
+        return stalls;
+    }
+
+    public long getRollbacks() {
+        return rollbackTime.getCount();
+    }
+
+    public double getMeanDepth() {
+        long rollbacks = rollbackTime.getCount();
+        return rollbacks == 0 ? 0 : (double) resimulatedTicks / rollbacks;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return Histogram of the time each rollback took
+     */
+    public LatencyHistogram getRollbackTime() {
+        return rollbackTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d ticks, %d stalls, %d rollbacks (%.1f%% of ticks), depth mean %.1f max %d, time %s",
+                ticks, stalls, getRollbacks(), ticks == 0 ? 0.0 : 100.0 * getRollbacks() / ticks, getMeanDepth(),
+                maxDepth, rollbackTime);
+    }
+}
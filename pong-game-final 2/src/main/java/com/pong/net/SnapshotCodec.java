@@ -0,0 +1,142 @@
+package com.pong.net;
+import com.pong.model.GameModel;
+import java.nio.ByteBuffer;
+
+/**
+ * SnapshotCodec writes and reads the frames of the spectator stream (see {@link NetProtocol}).
+ * A keyframe holds every field of the state; a delta holds a mask of the fields that differ
+ * from the last keyframe and only those. Because every delta refers to the keyframe rather
+ * than to the tick before, a spectator may miss any number of deltas and still show the next
+ * one correctly; only a missed keyframe means waiting for the one after.
+ *
+ * Fields use the same widths as {@link NetProtocol#putState}, so a delta never holds more
+ * than a keyframe. One codec is either an encoder or a decoder; it is not thread-safe.
+ */
+final class SnapshotCodec {
+
+    // Bytes of each field, in putState's order
+    private static final int[] WIDTHS = {2, 1, 2, 1, 1, 1, 4, 4, 4, 4, 1};
+    private static final int FIELDS = WIDTHS.length;
+    // Length, type, flags and tick
+    static final int HEADER_LENGTH = 2 + 1 + 1 + 4;
+    // Header, field mask and every field
+    static final int MAX_FRAME_LENGTH = HEADER_LENGTH + 2 + 25;
+
+    // Fields as sent, from the last keyframe
+    private final int[] keyframe = new int[FIELDS];
+    private final int[] current = new int[FIELDS];
+    private boolean hasKeyframe = false;
+
+    /**
+     * Writes one frame for the model's state.
+     *
+     * @param keyframe True for a keyframe, which later deltas refer to
+     */
+    void encode(ByteBuffer out, GameModel model, int tick, int flags, boolean keyframe) {
+        readFields(model, current);
+        int start = out.position();
+        out.putShort((short) 0);
+        out.put(keyframe ? NetProtocol.KEYFRAME : NetProtocol.DELTA);
+        out.put((byte) flags);
+        out.putInt(tick);
+        if (keyframe) {
+            for (int field = 0; field < FIELDS; field++) {
+                putField(out, field, current[field]);
+                this.keyframe[field] = current[field];
+            }
+            hasKeyframe = true;
+        } else {
+            if (!hasKeyframe) {
+                throw new IllegalStateException("A delta needs a keyframe first");
+            }
+            int mask = 0;
+            for (int field = 0; field < FIELDS; field++) {
+                if (current[field] != this.keyframe[field]) {
+                    mask |= 1 << field;
+                }
+            }
+            out.putShort((short) mask);
+            for (int field = 0; field < FIELDS; field++) {
+                if ((mask & 1 << field) != 0) {
+                    putField(out, field, current[field]);
+                }
+            }
+        }
+        // The length covers everything after itself
+        out.putShort(start, (short) (out.position() - start - 2));
+    }
+
+    /**
+     * Applies a keyframe or delta frame to the model. The frame's length and type have been
+     * read already; the buffer is positioned at its flags.
+     *
+     * @param type {@link NetProtocol#KEYFRAME} or {@link NetProtocol#DELTA}
+     * @return False for a delta that arrived before any keyframe, which is skipped
+     */
+    boolean decode(ByteBuffer in, byte type, GameModel model) {
+        if (type == NetProtocol.KEYFRAME) {
+            for (int field = 0; field < FIELDS; field++) {
+                keyframe[field] = getField(in, field);
+            }
+            hasKeyframe = true;
+            writeFields(keyframe, model);
+            return true;
+        }
+        if (!hasKeyframe) {
+            return false;
+        }
+        int mask = in.getShort() & 0xFFFF;
+        for (int field = 0; field < FIELDS; field++) {
+            current[field] = (mask & 1 << field) != 0 ? getField(in, field) : keyframe[field];
+        }
+        writeFields(current, model);
+        return true;
+    }
+
+    private static void putField(ByteBuffer out, int field, int value) {
+        switch (WIDTHS[field]) {
+            case 1 -> out.put((byte) value);
+            case 2 -> out.putShort((short) value);
+            default -> out.putInt(value);
+        }
+    }
+
+    private static int getField(ByteBuffer in, int field) {
+        return switch (WIDTHS[field]) {
+            case 1 -> in.get();
+            case 2 -> in.getShort();
+            default -> in.getInt();
+        };
+    }
+
+    /**
+     * Reads the model's state as it is sent: narrowed to each field's width, floats as their bits.
+     */
+    private static void readFields(GameModel model, int[] fields) {
+        fields[0] = (short) model.paddle1Y;
+        fields[1] = (byte) model.paddle1Speed;
+        fields[2] = (short) model.paddle2Y;
+        fields[3] = (byte) model.paddle2Speed;
+        fields[4] = (byte) model.player1Score;
+        fields[5] = (byte) model.player2Score;
+        fields[6] = Float.floatToRawIntBits((float) model.ballX);
+        fields[7] = Float.floatToRawIntBits((float) model.ballY);
+        fields[8] = Float.floatToRawIntBits((float) model.ballXSpeed);
+        fields[9] = Float.floatToRawIntBits((float) model.ballYSpeed);
+        fields[10] = (byte) model.deformationFrames;
+    }
+
+    private static void writeFields(int[] fields, GameModel model) {
+        model.paddle1Y = fields[0];
+        model.paddle1Speed = fields[1];
+        model.paddle2Y = fields[2];
+        model.paddle2Speed = fields[3];
+        model.player1Score = fields[4] & 0xFF;
+        model.player2Score = fields[5] & 0xFF;
+        model.ballX = Float.intBitsToFloat(fields[6]);
+        model.ballY = Float.intBitsToFloat(fields[7]);
+        model.ballXSpeed = Float.intBitsToFloat(fields[8]);
+        model.ballYSpeed = Float.intBitsToFloat(fields[9]);
+        model.deformationFrames = fields[10] & 0xFF;
+    }
+}
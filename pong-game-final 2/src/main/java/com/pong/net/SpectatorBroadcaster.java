@@ -0,0 +1,402 @@
+package com.pong.net;
+import com.pong.model.GameModel;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * SpectatorBroadcaster streams one match to any number of spectators over TCP. Each tick is
+ * encoded once, by the thread that runs the match, into a frame from a pool of direct
+ * buffers: a keyframe a few times a second and otherwise a delta against the last keyframe
+ * (see {@link SnapshotCodec}). The broadcaster's own thread then queues that same frame for
+ * every spectator and writes each spectator's queue with one gathering write; the bytes are
+ * never copied per spectator. A frame goes back to the pool when the last spectator has
+ * written it.
+ *
+ * The match never waits for a spectator. One whose socket does not keep up falls behind by
+ * a few frames at most: after that its queued frames are dropped and it skips ahead to the
+ * next keyframe, which its view can show without the deltas it missed.
+ */
+public class SpectatorBroadcaster implements Runnable {
+
+    // Frames in the pool; more than enough for the spectators' queues and the frames in transit
+    private static final int POOL_FRAMES = 256;
+    // Frames a spectator may have waiting before it is skipped to the next keyframe
+    private static final int MAX_QUEUED_FRAMES = 8;
+    private static final int KEYFRAMES_PER_SECOND = 4;
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final int keyframeInterval;
+    private final Frame header;
+
+    // Free frames go back from the broadcaster thread to the match's thread and are published the other way
+    private final Queue<Frame> freeFrames = new ConcurrentLinkedQueue<>();
+    private final Queue<Frame> publishedFrames = new ConcurrentLinkedQueue<>();
+
+    // Owned by the broadcaster thread
+    private final List<Spectator> spectators = new ArrayList<>();
+    private final ByteBuffer[] writeBatch = new ByteBuffer[MAX_QUEUED_FRAMES + 2];
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(64);
+
+    // Owned by whoever publishes, under the lock of publish()
+    private final SnapshotCodec encoder = new SnapshotCodec();
+    private int lastKeyframeTick = 0;
+    private boolean keyframeDue = true;
+
+    private volatile boolean running = false;
+    private volatile boolean keyframeRequested = false;
+    private volatile int spectatorCount = 0;
+    private volatile long framesPublished = 0;
+    private volatile long framesDropped = 0;
+    private volatile long skips = 0;
+    private Thread thread;
+
+    /**
+     * A frame and the spectators that still have to write it.
+     */
+    private static final class Frame {
+        final ByteBuffer buffer;
+        final boolean pooled;
+        boolean keyframe;
+        int references;
+
+        Frame(ByteBuffer buffer, boolean pooled) {
+            this.buffer = buffer;
+            this.pooled = pooled;
+        }
+    }
+
+    /**
+     * A connected spectator and the frames it has yet to receive, each with its own view of
+     * the shared buffer so every spectator can be at a different point in it.
+     */
+    private static final class Spectator {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ArrayDeque<Frame> frames = new ArrayDeque<>();
+        final ArrayDeque<ByteBuffer> views = new ArrayDeque<>();
+        boolean waitingForKeyframe = true;
+
+        Spectator(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    /**
+     * @param port     TCP port to listen on, or 0 for any free port
+     * @param model    Model of the match, whose playfield spectators are told when they connect
+     * @param tickRate Ticks per second of the match
+     * @throws IOException If the port cannot be bound
+     */
+    public SpectatorBroadcaster(int port, GameModel model, int tickRate) throws IOException {
+        this.keyframeInterval = Math.max(1, tickRate / KEYFRAMES_PER_SECOND);
+
+        ByteBuffer slab = ByteBuffer.allocateDirect(POOL_FRAMES * SnapshotCodec.MAX_FRAME_LENGTH);
+        for (int i = 0; i < POOL_FRAMES; i++) {
+            freeFrames.add(new Frame(slab.slice(i * SnapshotCodec.MAX_FRAME_LENGTH, SnapshotCodec.MAX_FRAME_LENGTH), true));
+        }
+
+        ByteBuffer spectate = ByteBuffer.allocateDirect(2 + 1 + 7 * 2);
+        spectate.putShort((short) (spectate.capacity() - 2));
+        spectate.put(NetProtocol.SPECTATE);
+        spectate.putShort((short) tickRate);
+        spectate.putShort((short) model.width);
+        spectate.putShort((short) model.height);
+        spectate.putShort((short) model.paddleWidth);
+        spectate.putShort((short) model.paddleHeight);
+        spectate.putShort((short) model.ballSize);
+        spectate.putShort((short) model.getMaxScore());
+        spectate.flip();
+        header = new Frame(spectate, false);
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "spectator-broadcaster");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Disconnects every spectator and stops listening.
+     */
+    public synchronized void close() {
+        running = false;
+        selector.wakeup();
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return Port spectators connect to
+     */
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException("Broadcaster is closed", e);
+        }
+    }
+
+    /**
+     * Sends the model's state after a tick to every spectator. Called by the thread running
+     * the match; returns at once and does nothing while nobody is watching.
+     *
+     * @param tick  Tick of the match; a tick lower than the last one starts a new match and a keyframe
+     * @param flags {@link NetProtocol#WAITING} and {@link NetProtocol#GAME_OVER}
+     */
+    public synchronized void publish(GameModel model, int tick, int flags) {
+        if (spectatorCount == 0) {
+            // Whoever connects next starts from a keyframe
+            keyframeDue = true;
+            return;
+        }
+        Frame frame = freeFrames.poll();
+        if (frame == null) {
+            // The broadcaster thread is far behind; the frame after this one restarts everyone
+            framesDropped = framesDropped + 1;
+            keyframeDue = true;
+            return;
+        }
+        if (keyframeRequested) {
+            keyframeRequested = false;
+            keyframeDue = true;
+        }
+        boolean keyframe = keyframeDue || tick - lastKeyframeTick >= keyframeInterval || tick < lastKeyframeTick;
+        frame.buffer.clear();
+        encoder.encode(frame.buffer, model, tick, flags, keyframe);
+        frame.buffer.flip();
+        frame.keyframe = keyframe;
+        if (keyframe) {
+            lastKeyframeTick = tick;
+            keyframeDue = false;
+        }
+        framesPublished = framesPublished + 1;
+        publishedFrames.offer(frame);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        checkClosed((Spectator) key.attachment());
+                    }
+                }
+                for (Frame frame = publishedFrames.poll(); frame != null; frame = publishedFrames.poll()) {
+                    distribute(frame);
+                }
+                // Backwards, so disconnecting a spectator does not skip the next one
+                for (int i = spectators.size() - 1; i >= 0; i--) {
+                    Spectator spectator = spectators.get(i);
+                    if (!spectator.views.isEmpty()) {
+                        flush(spectator);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            // Frames are small and sent once a tick; do not hold them back to fill a segment
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            Spectator spectator = new Spectator(channel, key);
+            key.attach(spectator);
+            spectators.add(spectator);
+            enqueue(spectator, header);
+            spectatorCount = spectators.size();
+            keyframeRequested = true;
+        }
+    }
+
+    /**
+     * Spectators send nothing, so a readable socket means the spectator has gone.
+     */
+    private void checkClosed(Spectator spectator) {
+        try {
+            readBuffer.clear();
+            if (spectator.channel.read(readBuffer) < 0) {
+                disconnect(spectator);
+            }
+        } catch (IOException e) {
+            disconnect(spectator);
+        }
+    }
+
+    /**
+     * Queues a published frame for every spectator that can use it.
+     */
+    private void distribute(Frame frame) {
+        // Held until every spectator has its reference, so it cannot go back to the pool early
+        frame.references = 1;
+        for (Spectator spectator : spectators) {
+            if (!spectator.waitingForKeyframe && spectator.frames.size() >= MAX_QUEUED_FRAMES) {
+                skipToKeyframe(spectator);
+            }
+            if (spectator.waitingForKeyframe) {
+                if (!frame.keyframe) {
+                    continue;
+                }
+                spectator.waitingForKeyframe = false;
+            }
+            enqueue(spectator, frame);
+        }
+        release(frame);
+    }
+
+    /**
+     * Drops the frames a slow spectator has not started writing; it resumes with the next keyframe.
+     */
+    private void skipToKeyframe(Spectator spectator) {
+        // A frame partly written must be finished, or the stream would lose its framing;
+        // and the stream header, always first, is never dropped
+        boolean keepHead = spectator.views.peekFirst().position() > 0 || !spectator.frames.peekFirst().pooled;
+        Frame head = keepHead ? spectator.frames.pollFirst() : null;
+        ByteBuffer headView = keepHead ? spectator.views.pollFirst() : null;
+        for (Frame frame : spectator.frames) {
+            release(frame);
+        }
+        spectator.frames.clear();
+        spectator.views.clear();
+        if (keepHead) {
+            spectator.frames.add(head);
+            spectator.views.add(headView);
+        }
+        spectator.waitingForKeyframe = true;
+        skips = skips + 1;
+    }
+
+    private static void enqueue(Spectator spectator, Frame frame) {
+        frame.references++;
+        spectator.frames.addLast(frame);
+        spectator.views.addLast(frame.buffer.duplicate());
+    }
+
+    /**
+     * Writes as much of the spectator's queue as its socket takes, in one gathering write.
+     */
+    private void flush(Spectator spectator) {
+        int count = 0;
+        for (ByteBuffer view : spectator.views) {
+            if (count == writeBatch.length) {
+                break;
+            }
+            writeBatch[count++] = view;
+        }
+        try {
+            spectator.channel.write(writeBatch, 0, count);
+        } catch (IOException e) {
+            disconnect(spectator);
+            return;
+        }
+        while (!spectator.views.isEmpty() && !spectator.views.peekFirst().hasRemaining()) {
+            spectator.views.pollFirst();
+            release(spectator.frames.pollFirst());
+        }
+        // Woken when the socket has room again, if frames are left
+        spectator.key.interestOps(SelectionKey.OP_READ | (spectator.views.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+    }
+
+    private void disconnect(Spectator spectator) {
+        for (Frame frame : spectator.frames) {
+            release(frame);
+        }
+        spectator.frames.clear();
+        spectator.views.clear();
+        spectators.remove(spectator);
+        spectatorCount = spectators.size();
+        try {
+            spectator.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void release(Frame frame) {
+        if (frame.pooled && --frame.references == 0) {
+            freeFrames.offer(frame);
+        }
+    }
+
+    public int getSpectatorCount() {
+        return spectatorCount;
+    }
+
+    public long getFramesPublished() {
+        return framesPublished;
+    }
+
+    /**
+     * @return Ticks not sent because every pooled frame was still in use
+     */
+    public long getFramesDropped() {
+        return framesDropped;
+    }
+
+    /**
+     * @return Times a slow spectator was skipped ahead to the next keyframe
+     */
+    public long getSkips() {
+        return skips;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d spectators, %d frames published, %d dropped, %d skips to a keyframe",
+                spectatorCount, framesPublished, framesDropped, skips);
+    }
+}
@@ -0,0 +1,187 @@
+package com.pong.net;
+import com.pong.model.GameModel;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * SpectatorClient watches the match a {@link SpectatorBroadcaster} streams. Each
+ * {@link #poll} reads whatever has arrived without blocking and applies the frames to the
+ * model, so the newest state is shown and nothing queues up on a slow display.
+ *
+ * Not thread-safe: {@link #poll} and {@link #close} are meant to be called from one loop.
+ */
+public class SpectatorClient {
+
+    private final SocketChannel channel;
+    private final GameModel model;
+    private final int tickRate;
+    private final SnapshotCodec decoder = new SnapshotCodec();
+    // Holds at most one partial frame between polls
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(16 * 1024);
+
+    private int serverTick = -1;
+    private int flags = NetProtocol.WAITING;
+    private boolean connected = true;
+    private long framesReceived = 0;
+    private long keyframesReceived = 0;
+
+    private SpectatorClient(SocketChannel channel, ByteBuffer spectate) {
+        this.channel = channel;
+        this.tickRate = spectate.getShort();
+        int width = spectate.getShort();
+        int height = spectate.getShort();
+        int paddleWidth = spectate.getShort();
+        int paddleHeight = spectate.getShort();
+        int ballSize = spectate.getShort();
+        int scoreLimit = spectate.getShort();
+        this.model = new GameModel(width, height, paddleWidth, paddleHeight, ballSize, scoreLimit);
+    }
+
+    /**
+     * Connects to a broadcaster and waits for the stream header.
+     *
+     * @param broadcaster   Address of the broadcaster's port
+     * @param timeoutMillis How long to wait for the connection and the header
+     * @throws IOException If the broadcaster cannot be reached or does not answer in time
+     */
+    public static SpectatorClient connect(SocketAddress broadcaster, long timeoutMillis) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().connect(broadcaster, (int) timeoutMillis);
+            channel.configureBlocking(false);
+            ByteBuffer in = ByteBuffer.allocate(64);
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            try (Selector selector = Selector.open()) {
+                channel.register(selector, SelectionKey.OP_READ);
+                while (in.position() < 2 || in.position() < 2 + in.getShort(0)) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new IOException("No answer from " + broadcaster);
+                    }
+                    selector.select(remaining);
+                    selector.selectedKeys().clear();
+                    if (channel.read(in) < 0) {
+                        throw new IOException("Connection closed by " + broadcaster);
+                    }
+                }
+            }
+            in.flip();
+            int length = in.getShort();
+            if (in.get() != NetProtocol.SPECTATE) {
+                throw new IOException("Not a spectator stream: " + broadcaster);
+            }
+            SpectatorClient client = new SpectatorClient(channel, in);
+            // Frames sent right after the header may have been read with it
+            in.position(2 + length);
+            client.buffer.put(in);
+            return client;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads and applies every frame that has arrived.
+     *
+     * @return True if the model now holds a newer state
+     */
+    public boolean poll() {
+        if (connected) {
+            try {
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer);
+                    if (read < 0) {
+                        connected = false;
+                    }
+                    if (read <= 0) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                connected = false;
+            }
+        }
+
+        boolean updated = false;
+        buffer.flip();
+        while (buffer.remaining() >= 2 && buffer.remaining() >= 2 + buffer.getShort(buffer.position())) {
+            int end = buffer.position() + 2 + buffer.getShort();
+            byte type = buffer.get();
+            if (type == NetProtocol.KEYFRAME || type == NetProtocol.DELTA) {
+                int frameFlags = buffer.get();
+                int tick = buffer.getInt();
+                if (decoder.decode(buffer, type, model)) {
+                    serverTick = tick;
+                    flags = frameFlags;
+                    updated = true;
+                    framesReceived++;
+                    if (type == NetProtocol.KEYFRAME) {
+                        keyframesReceived++;
+                    }
+                }
+            }
+            // Frames of unknown types are skipped whole
+            buffer.position(end);
+        }
+        buffer.compact();
+        return updated;
+    }
+
+    public void close() {
+        connected = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return Model holding the latest state received
+     */
+    public GameModel getModel() {
+        return model;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * @return Server tick of the state last applied, or -1 before the first one
+     */
+    public int getServerTick() {
+        return serverTick;
+    }
+
+    /**
+     * @return False once the broadcast has ended or the connection was lost
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public long getFramesReceived() {
+        return framesReceived;
+    }
+
+    public long getKeyframesReceived() {
+        return keyframesReceived;
+    }
+
+    /**
+     * @return True while the match waits for a player
+     */
+    public boolean isWaiting() {
+        return (flags & NetProtocol.WAITING) != 0;
+    }
+
+    public boolean isGameOver() {
+        return (flags & NetProtocol.GAME_OVER) != 0;
+    }
+}
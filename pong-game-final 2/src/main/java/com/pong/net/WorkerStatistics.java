@@ -0,0 +1,109 @@
+package com.pong.net;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load of one {@link MatchWorker}: how many matches it runs, what share of each tick period
+ * it spends ticking them, and how many ticks finished after the next tick was due (missed
+ * deadlines). Utilisation and tick times cover the last full second; counts are totals.
+ *
+ * Written by the worker thread only, at the end of each tick; readable from any thread.
+ */
+public class WorkerStatistics {
+
+    private final int worker;
+    private final long tickNanos;
+    private final int ticksPerWindow;
+
+    // Current window, owned by the worker thread
+    private long windowBusyNanos;
+    private long windowMaxNanos;
+    private int windowTicks;
+
+    private volatile int matches;
+    private volatile double utilisation;
+    private volatile double meanTickMicros;
+    private volatile double maxTickMicros;
+    private volatile long missedDeadlines;
+    private volatile long ticks;
+
+    /**
+     * @param worker   Index of the worker, for reports
+     * @param tickRate Ticks per second; also the length of a window in ticks
+     */
+    WorkerStatistics(int worker, int tickRate) {
+        this.worker = worker;
+        this.tickNanos = TimeUnit.SECONDS.toNanos(1) / tickRate;
+        this.ticksPerWindow = tickRate;
+    }
+
+    /**
+     * Records one tick of the worker.
+     *
+     * @param deadline When the tick was due
+     * @param start    When the tick's work started
+     * @param end      When it finished
+     * @param matches  Matches the worker runs after the tick
+     */
+    void record(long deadline, long start, long end, int matches) {
+        long busy = end - start;
+        windowBusyNanos += busy;
+        windowMaxNanos = Math.max(windowMaxNanos, busy);
+        windowTicks++;
+        // Single writer, so plain read-modify-write of the volatile fields is safe
+        ticks = ticks + 1;
+        if (end - deadline > tickNanos) {
+            missedDeadlines = missedDeadlines + 1;
+        }
+        this.matches = matches;
+
+        if (windowTicks == ticksPerWindow) {
+            utilisation = (double) windowBusyNanos / (windowTicks * tickNanos);
+            meanTickMicros = windowBusyNanos / 1e3 / windowTicks;
+            maxTickMicros = windowMaxNanos / 1e3;
+            windowBusyNanos = 0;
+            windowMaxNanos = 0;
+            windowTicks = 0;
+        }
+    }
+
+    public int getWorker() {
+        return worker;
+    }
+
+    public int getMatches() {
+        return matches;
+    }
+
+    /**
+     * @return Share of the tick period spent ticking matches over the last second, 0 to 1 or more
+     */
+    public double getUtilisation() {
+        return utilisation;
+    }
+
+    public double getMeanTickMicros() {
+        return meanTickMicros;
+    }
+
+    public double getMaxTickMicros() {
+        return maxTickMicros;
+    }
+
+    /**
+     * @return Ticks that finished more than a tick period after they were due
+     */
+    public long getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("worker %d: %d matches, %.0f%% busy, tick mean %.0f us, max %.0f us, "
+                        + "%d of %d ticks missed their deadline", worker, matches, 100 * utilisation, meanTickMicros,
+                maxTickMicros, missedDeadlines, ticks);
+    }
+}
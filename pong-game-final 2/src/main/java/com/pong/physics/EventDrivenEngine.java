@@ -0,0 +1,246 @@
+package com.pong.physics;
+import com.pong.model.GameModel;
+
+/**
+ * EventDrivenEngine advances a match by jumping straight from one event to the next instead of
+ * stepping every tick. Between events the ball moves in a straight line and the paddles move at
+ * a constant speed, so their state after n quiet ticks has a closed form. The engine computes in
+ * closed form how many ticks are guaranteed to be free of wall hits, paddle contacts, goals and
+ * input changes, jumps over them, then lets {@link PhysicsEngine#step} simulate the event tick
+ * itself. It therefore produces exactly the same states as stepping tick by tick.
+ *
+ * Only the classic mode is supported: a single ball with discrete collision detection.
+ */
+public class EventDrivenEngine {
+
+    private final GameModel model;
+    private final PhysicsEngine engine;
+    private long tick = 0;
+
+    /**
+     * @param model  Game state, shared with the engine
+     * @param engine Tick engine used for the event ticks
+     */
+    public EventDrivenEngine(GameModel model, PhysicsEngine engine) {
+        if (model.extraBalls != null) {
+            throw new IllegalArgumentException("The event-driven engine does not support multiball mode");
+        }
+        if (engine.isSweptCollisionEnabled()) {
+            throw new IllegalArgumentException("The event-driven engine reproduces discrete collisions only");
+        }
+        this.model = model;
+        this.engine = engine;
+    }
+
+    /**
+     * Advances the match until {@code maxTicks} ticks have been simulated or the game is over.
+     *
+     * @param maxTicks Upper bound on the ticks to advance
+     * @param schedule Paddle input for each tick
+     * @return Number of ticks actually advanced
+     */
+    public long advance(long maxTicks, InputSchedule schedule) {
+        long start = tick;
+        long end = maxTicks > Long.MAX_VALUE - tick ? Long.MAX_VALUE : tick + maxTicks;
+
+        while (tick < end && !model.isGameOver()) {
+            int input = schedule.inputAt(tick);
+            long horizon = Math.min(end - tick, schedule.holdTicks(tick));
+
+            // A single held tick is cheaper to step than to analyse
+            long quiet = horizon > 1 ? quietTicks(input, horizon) : 0;
+            if (quiet > 0) {
+                jump(quiet, input);
+                tick += quiet;
+            } else {
+                engine.step(input);
+                tick++;
+            }
+        }
+        return tick - start;
+    }
+
+    /**
+     * @return Number of ticks simulated so far
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Counts the ticks from now that are guaranteed to contain no event, i.e. during which a
+     * tick would only move the ball and paddles and count down the deformation frames.
+     *
+     * @param input   Input held during these ticks
+     * @param horizon Maximum number of ticks the input is held for
+     * @return Number of quiet ticks, at most {@code horizon}
+     */
+    private long quietTicks(int input, long horizon) {
+        // Jumps are only exact while speeds are on the quantization grid (see PhysicsEngine.quantize)
+        if (!isOnGrid(model.ballXSpeed) || !isOnGrid(model.ballYSpeed)
+                || !isOnGrid(model.ballX) || !isOnGrid(model.ballY)) {
+            return 0;
+        }
+
+        double x = model.ballX;
+        double y = model.ballY;
+        double xSpeed = model.ballXSpeed;
+        double ySpeed = model.ballYSpeed;
+        int size = model.ballSize;
+
+        // First tick in which the ball reaches a wall (handleWallCollision) or a goal line (scoring)
+        double limit = Math.min(
+                ySpeed < 0 ? firstTickReaching(y, ySpeed, 0) : firstTickReaching(y + size, ySpeed, model.height),
+                xSpeed < 0 ? firstTickReaching(x, xSpeed, 0) : firstTickReaching(x, xSpeed, model.width)
+        );
+
+        // Paddles only matter if the ball can overlap them before that
+        limit = Math.min(limit, firstPaddleContactTick(model.paddle1X, model.paddle1Y,
+                paddleDirection(input, PaddleInput.PADDLE1_UP, PaddleInput.PADDLE1_DOWN), limit));
+        limit = Math.min(limit, firstPaddleContactTick(model.paddle2X, model.paddle2Y,
+                paddleDirection(input, PaddleInput.PADDLE2_UP, PaddleInput.PADDLE2_DOWN), limit));
+
+        // Every tick before the first possible event is quiet
+        return (long) Math.min(limit - 1, horizon);
+    }
+
+    /**
+     * Finds the first tick in which the ball could overlap a paddle, or returns {@code limit}
+     * if it cannot do so before then. The overlap test is widened by a pixel on every side to
+     * cover the truncation to whole pixels in the tick engine's collision test.
+     */
+    private double firstPaddleContactTick(int paddleX, int paddleY, int direction, double limit) {
+        double x = model.ballX;
+        double xSpeed = model.ballXSpeed;
+        int size = model.ballSize;
+        double zoneLeft = paddleX - 1;
+        double zoneRight = paddleX + model.paddleWidth + 1;
+
+        // First tick in which the ball is inside the paddle's column
+        double entry;
+        if (x < zoneRight && x + size > zoneLeft) {
+            entry = 1;
+        } else if (xSpeed < 0 && x >= zoneRight) {
+            entry = firstTickReaching(x, xSpeed, zoneRight);
+        } else if (xSpeed > 0 && x + size <= zoneLeft) {
+            entry = firstTickReaching(x + size, xSpeed, zoneLeft);
+        } else {
+            return limit;
+        }
+        if (entry >= limit) {
+            return limit;
+        }
+
+        // Vertical range the ball sweeps over the whole window (it cannot hit a wall before the limit)
+        double sweep = model.ballYSpeed == 0 ? 0 : limit * model.ballYSpeed;
+        double ballTop = Math.min(model.ballY, model.ballY + sweep);
+        double ballBottom = Math.max(model.ballY, model.ballY + sweep) + size;
+
+        // Vertical range the paddle can reach over the same window
+        double travel = limit * engine.getPaddleSpeed();
+        double paddleTop = direction < 0 ? Math.max(0, paddleY - travel) : paddleY;
+        double paddleBottom = (direction > 0 ? Math.min(model.height - model.paddleHeight, paddleY + travel) : paddleY)
+                + model.paddleHeight;
+
+        boolean canOverlap = ballTop - 1 < paddleBottom && ballBottom + 1 > paddleTop;
+        return canOverlap ? entry : limit;
+    }
+
+    /**
+     * Applies {@code n} quiet ticks at once.
+     */
+    private void jump(long n, int input) {
+        int speed = engine.getPaddleSpeed();
+
+        model.paddle1Y = movePaddle(model.paddle1Y, input, PaddleInput.PADDLE1_UP, PaddleInput.PADDLE1_DOWN, n);
+        model.paddle1Speed = paddleSpeedAfter(input, PaddleInput.PADDLE1_UP, PaddleInput.PADDLE1_DOWN, speed);
+        model.paddle2Y = movePaddle(model.paddle2Y, input, PaddleInput.PADDLE2_UP, PaddleInput.PADDLE2_DOWN, n);
+        model.paddle2Speed = paddleSpeedAfter(input, PaddleInput.PADDLE2_UP, PaddleInput.PADDLE2_DOWN, speed);
+
+        // Exact: positions and speeds are on the 1/1024 px grid
+        model.ballX += n * model.ballXSpeed;
+        model.ballY += n * model.ballYSpeed;
+
+        model.deformationFrames = (int) Math.max(0, model.deformationFrames - n);
+    }
+
+    /**
+     * Closed form of n calls to {@link PhysicsEngine#movePaddles} for one paddle.
+     */
+    private int movePaddle(int paddleY, int input, int upFlag, int downFlag, long n) {
+        int speed = engine.getPaddleSpeed();
+        int bottom = model.height - model.paddleHeight;
+        boolean up = (input & upFlag) != 0;
+        boolean down = (input & downFlag) != 0;
+
+        if (up && down) {
+            // Moves up and straight back down each tick, so only a paddle clamped at the top moves
+            return Math.min(Math.max(paddleY, speed), bottom);
+        }
+        if (up) {
+            return (int) Math.max(0, paddleY - n * speed);
+        }
+        if (down) {
+            return (int) Math.min(bottom, paddleY + n * speed);
+        }
+        return paddleY;
+    }
+
+    private static int paddleSpeedAfter(int input, int upFlag, int downFlag, int speed) {
+        // movePaddles applies down after up, so down wins when both are held
+        if ((input & downFlag) != 0) {
+            return speed;
+        }
+        return (input & upFlag) != 0 ? -speed : 0;
+    }
+
+    /**
+     * @return -1 if the paddle moves up, 1 if it moves down or both keys are held, 0 otherwise
+     */
+    private static int paddleDirection(int input, int upFlag, int downFlag) {
+        if ((input & downFlag) != 0) {
+            return 1;
+        }
+        return (input & upFlag) != 0 ? -1 : 0;
+    }
+
+    /**
+     * Finds the first tick n >= 1 at which {@code position + n * speed} has reached {@code target}
+     * (at or below it when moving up/left, at or above it when moving down/right). The closed-form
+     * estimate is corrected with exact comparisons, which is possible because positions and
+     * speeds are on the quantization grid.
+     *
+     * @return The tick index, or positive infinity if the coordinate never reaches the target
+     */
+    private static double firstTickReaching(double position, double speed, double target) {
+        if (speed == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double estimate = Math.ceil((target - position) / speed);
+        if (estimate < 1) {
+            // Either already past the target (reached on the next tick) or moving away from it
+            return reaches(position + speed, speed, target) ? 1 : Double.POSITIVE_INFINITY;
+        }
+        if (estimate > 0x1.0p40) {
+            return estimate;
+        }
+
+        long n = (long) estimate;
+        while (n > 1 && reaches(position + (n - 1) * speed, speed, target)) {
+            n--;
+        }
+        while (!reaches(position + n * speed, speed, target)) {
+            n++;
+        }
+        return n;
+    }
+
+    private static boolean reaches(double position, double speed, double target) {
+        return speed < 0 ? position <= target : position >= target;
+    }
+
+    private static boolean isOnGrid(double value) {
+        double scaled = value * PhysicsEngine.SPEED_GRID;
+        return scaled == Math.rint(scaled) && Math.abs(scaled) < 0x1.0p40;
+    }
+}
@@ -0,0 +1,21 @@
+package com.pong.physics;
+
+/**
+ * InputSchedule supplies paddle input to the {@link EventDrivenEngine} as a sequence of
+ * constant stretches, so the engine knows how far ahead it may jump without new input.
+ */
+public interface InputSchedule {
+
+    /**
+     * @param tick Index of the tick about to be simulated
+     * @return Bit set of {@link PaddleInput} flags held during that tick
+     */
+    int inputAt(long tick);
+
+    /**
+     * @param tick Index of the tick about to be simulated
+     * @return Number of ticks, starting with {@code tick}, during which the input stays the same
+     * as {@code inputAt(tick)}, assuming no collision or score happens in between (at least 1)
+     */
+    long holdTicks(long tick);
+}
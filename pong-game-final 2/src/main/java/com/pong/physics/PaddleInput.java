@@ -0,0 +1,18 @@
+package com.pong.physics;
+
+/**
+ * Bit flags describing which paddle keys are held during a tick.
+ * A tick's input is the bitwise OR of the held flags.
+ */
+public final class PaddleInput {
+    public static final int NONE = 0;
+    public static final int PADDLE1_UP = 1;
+    public static final int PADDLE1_DOWN = 1 << 1;
+    public static final int PADDLE2_UP = 1 << 2;
+    public static final int PADDLE2_DOWN = 1 << 3;
+    // All paddle flags; higher bits are free for callers' own flags
+    public static final int ALL = PADDLE1_UP | PADDLE1_DOWN | PADDLE2_UP | PADDLE2_DOWN;
+
+    private PaddleInput() {
+    }
+}
@@ -1,13 +1,7 @@
 package com.pong.physics;
 import java.awt.Rectangle;
-import java.io.BufferedInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.UnsupportedAudioFileException;
+import com.pong.audio.AudioMixer;
+import com.pong.model.BallStore;
 import com.pong.model.GameModel;
 
 /**
@@ -17,28 +11,254 @@ import com.pong.model.GameModel;
  */
 public class PhysicsEngine {
 
-    private final int initialSpeed;
+    // Tick rate the default physics constants are tuned for
+    public static final int BASE_TICK_RATE = 60;
+
+    // Upper bound on contacts resolved within one swept tick (guards against degenerate corners)
+    private static final int MAX_CONTACTS_PER_TICK = 8;
+
+    // Ball speeds are kept on a grid of 1/SPEED_GRID px per tick (see quantize)
+    static final double SPEED_GRID = 1024;
+
+    private final double initialSpeed;
+    private final int paddleSpeed;
     private final int maxDeformationFrames;
     private final double paddleInfluence;
-    private final boolean isPaddleHitClipEnabled;
     private GameModel model;
-    private Clip paddleHitClip;
+    // Mixer that plays the hit sound, or null when sound is off
+    private final AudioMixer audioMixer;
+    private int paddleHitSound = -1;
+
+    // Whether ball movement uses swept (continuous) collision detection
+    private boolean isSweptCollisionEnabled = false;
+    // Set by sweptImpactTime: true if the last computed impact was on a paddle's vertical face
+    private boolean isFaceImpact;
 
     /**
      * Constructor initializes the physics engine with necessary parameters.
-     * @param model                Reference to the GameModel
-     * @param initialSpeed         Initial speed of the ball
-     * @param maxDeformationFrames Number of frames to show ball deformation after collision
+     * All speeds are expressed per tick; use {@link Builder} to derive them from a tick rate.
+     *
+     * @param model                  Reference to the GameModel
+     * @param initialSpeed           Initial speed of the ball, in pixels per tick
+     * @param paddleSpeed            Paddle movement, in pixels per tick
+     * @param maxDeformationFrames   Number of ticks to show ball deformation after collision
+     * @param paddleInfluence        Fraction of the paddle speed transferred to the ball on a hit
+     * @param audioMixer             Mixer for the paddle hit sound, or null for no sound
+     * @param seed                   Seed for the serve direction random source
      */
-    public PhysicsEngine(GameModel model, int initialSpeed, int maxDeformationFrames, boolean isPaddleHitClipEnabled) {
+    public PhysicsEngine(GameModel model, double initialSpeed, int paddleSpeed, int maxDeformationFrames,
+                         double paddleInfluence, AudioMixer audioMixer, long seed) {
         this.model = model;
-        this.initialSpeed = initialSpeed;
+        this.initialSpeed = quantize(initialSpeed);
+        this.paddleSpeed = paddleSpeed;
         this.maxDeformationFrames = maxDeformationFrames;
-        this.paddleInfluence = 0.35;
-        this.isPaddleHitClipEnabled = isPaddleHitClipEnabled;
+        this.paddleInfluence = paddleInfluence;
+        this.audioMixer = audioMixer;
+        model.randomState = seed;
         resetBall();
-        if (isPaddleHitClipEnabled) {
-            loadsfx("/sounds/Table-tennis-paddle-ball-hit-901.wav");
+        if (model.extraBalls != null) {
+            serveExtraBalls();
+        }
+        if (audioMixer != null) {
+            paddleHitSound = audioMixer.load("/sounds/Table-tennis-paddle-ball-hit-901.wav");
+        }
+    }
+
+    /**
+     * Advances the game by one tick: moves the paddles and the ball, resolves collisions
+     * and updates the score.
+     *
+     * @param input Bit set of {@link PaddleInput} flags held during this tick
+     * @return Integer indicating which player scored
+     * (0 if no score, 1 if Player 1 scored, 2 if Player 2 scored)
+     */
+    public int step(int input) {
+        // Update paddle positions based on the current input
+        movePaddles(input);
+
+        int scorer;
+        if (isSweptCollisionEnabled) {
+            // Move the ball contact by contact through the tick
+            scorer = advanceBallSwept();
+        } else {
+            // Update ball position using physics calculations
+            updateBallPosition();
+
+            // Handle collisions and check for scoring
+            scorer = handleCollisions();
+        }
+
+        // Update scores and reset the ball if a player scored
+        if (scorer == 1) {
+            model.player1Score++;
+            resetBall();
+        } else if (scorer == 2) {
+            model.player2Score++;
+            resetBall();
+        }
+
+        // Decrease deformation frames for the ball (visual effect)
+        decreaseDeformationFrames();
+
+        // Multiball mode: move and collide the extra balls (their points are scored directly)
+        if (model.extraBalls != null) {
+            stepExtraBalls();
+        }
+        return scorer;
+    }
+
+    /**
+     * Moves and collides every extra ball in multiball mode in a single pass over the
+     * {@link BallStore} arrays. Uses the same rules as the discrete single-ball path
+     * (wall reflection, paddle overlap, bounce angle, scoring) without allocating anything,
+     * so hundreds of balls fit comfortably in a tick. A ball that leaves the court scores
+     * for the opponent and is served again from the centre.
+     */
+    private void stepExtraBalls() {
+        BallStore balls = model.extraBalls;
+        double[] x = balls.x;
+        double[] y = balls.y;
+        double[] xSpeed = balls.xSpeed;
+        double[] ySpeed = balls.ySpeed;
+        int[] deformation = balls.deformationFrames;
+
+        // Hoist everything the loop needs into locals
+        int size = model.ballSize;
+        int bottom = model.height - size;
+        int paddleWidth = model.paddleWidth;
+        int paddleHeight = model.paddleHeight;
+        int paddle1X = model.paddle1X;
+        int paddle1Y = model.paddle1Y;
+        int paddle2X = model.paddle2X;
+        int paddle2Y = model.paddle2Y;
+        boolean isPaddleHit = false;
+
+        for (int i = 0; i < balls.count; i++) {
+            double bx = x[i] + xSpeed[i];
+            double by = y[i] + ySpeed[i];
+
+            // Top and bottom walls
+            if (by <= 0 && ySpeed[i] < 0) {
+                by = 0;
+                ySpeed[i] = -ySpeed[i];
+            } else if (by >= bottom && ySpeed[i] > 0) {
+                by = bottom;
+                ySpeed[i] = -ySpeed[i];
+            }
+            y[i] = by;
+
+            // Paddles: same overlap rule as Rectangle.intersects on the truncated ball position
+            int ix = (int) bx;
+            int iy = (int) by;
+            if (ix < paddle1X + paddleWidth && ix + size > paddle1X && iy < paddle1Y + paddleHeight && iy + size > paddle1Y) {
+                bx = paddle1X + paddleWidth;
+                bounceExtraBall(balls, i, paddle1Y, model.paddle1Speed, true);
+                deformation[i] = maxDeformationFrames;
+                isPaddleHit = true;
+            }
+            if (ix < paddle2X + paddleWidth && ix + size > paddle2X && iy < paddle2Y + paddleHeight && iy + size > paddle2Y) {
+                bx = paddle2X - size;
+                bounceExtraBall(balls, i, paddle2Y, model.paddle2Speed, false);
+                deformation[i] = maxDeformationFrames;
+                isPaddleHit = true;
+            }
+            x[i] = bx;
+
+            // Scoring
+            if (bx < 0) {
+                model.player2Score++;
+                serveExtraBall(i);
+            } else if (bx > model.width) {
+                model.player1Score++;
+                serveExtraBall(i);
+            } else if (deformation[i] > 0) {
+                deformation[i]--;
+            }
+        }
+
+        // One hit sound per tick is plenty, however many balls connected
+        if (isPaddleHit) {
+            playPaddleHitSound();
+        }
+    }
+
+    /**
+     * Array counterpart of {@link #calculateBounce} for ball {@code i} of the store.
+     */
+    private void bounceExtraBall(BallStore balls, int i, int paddleY, int paddleSpeed, boolean isLeftPaddle) {
+        double bounceAngle = bounceAngle(paddleY, balls.y[i]);
+        double speed = Math.sqrt(balls.xSpeed[i] * balls.xSpeed[i] + balls.ySpeed[i] * balls.ySpeed[i]);
+
+        // Move away from the paddle horizontally, with the paddle's movement added vertically
+        double xSpeed = Math.abs(speed * Math.cos(bounceAngle));
+        balls.xSpeed[i] = quantize(isLeftPaddle ? xSpeed : -xSpeed);
+        balls.ySpeed[i] = quantize(speed * -Math.sin(bounceAngle) + (paddleSpeed * paddleInfluence));
+    }
+
+    /**
+     * Fills the multiball store with freshly served balls.
+     */
+    public void serveExtraBalls() {
+        BallStore balls = model.extraBalls;
+        balls.count = balls.capacity();
+        for (int i = 0; i < balls.count; i++) {
+            serveExtraBall(i);
+        }
+    }
+
+    /**
+     * Serves extra ball {@code i} from the centre at a random angle of up to 45 degrees,
+     * so a crowd of balls fans out instead of travelling in a few identical streams.
+     */
+    private void serveExtraBall(int i) {
+        BallStore balls = model.extraBalls;
+        double angle = ((nextRandom() >>> 11) * 0x1.0p-53 - 0.5) * (Math.PI / 2);
+        double direction = nextRandom() < 0 ? 1 : -1;
+
+        balls.x[i] = model.width / 2 - model.ballSize / 2;
+        balls.y[i] = model.height / 2 - model.ballSize / 2;
+        balls.xSpeed[i] = quantize(direction * initialSpeed * Math.cos(angle));
+        balls.ySpeed[i] = quantize(initialSpeed * Math.sin(angle));
+        balls.deformationFrames[i] = 0;
+    }
+
+    /**
+     * Updates the positions of paddles based on the held keys.
+     * Uses the coordinate system where (0,0) is at the top-left corner.
+     * Increasing y moves down, decreasing y moves up.
+     *
+     * @param input Bit set of {@link PaddleInput} flags
+     */
+    public void movePaddles(int input) {
+        model.paddle1Speed = 0;
+        model.paddle2Speed = 0;
+
+        // Player 1 paddle movement
+        if ((input & PaddleInput.PADDLE1_UP) != 0) {
+            // Move paddle up by decreasing y-coordinate
+            model.paddle1Y -= paddleSpeed;
+            model.paddle1Speed = -paddleSpeed;
+            // Ensure paddle doesn't move off the top of the screen
+            if (model.paddle1Y < 0) model.paddle1Y = 0;
+        }
+        if ((input & PaddleInput.PADDLE1_DOWN) != 0) {
+            // Move paddle down by increasing y-coordinate
+            model.paddle1Y += paddleSpeed;
+            model.paddle1Speed = paddleSpeed;
+            // Ensure paddle doesn't move off the bottom of the screen
+            if (model.paddle1Y + model.paddleHeight > model.height) model.paddle1Y = model.height - model.paddleHeight;
+        }
+
+        // Player 2 paddle movement
+        if ((input & PaddleInput.PADDLE2_UP) != 0) {
+            model.paddle2Y -= paddleSpeed;
+            model.paddle2Speed = -paddleSpeed;
+            if (model.paddle2Y < 0) model.paddle2Y = 0;
+        }
+        if ((input & PaddleInput.PADDLE2_DOWN) != 0) {
+            model.paddle2Y += paddleSpeed;
+            model.paddle2Speed = paddleSpeed;
+            if (model.paddle2Y + model.paddleHeight > model.height) model.paddle2Y = model.height - model.paddleHeight;
         }
     }
 
@@ -46,8 +266,8 @@ public class PhysicsEngine {
      * Updates the ball's position based on its current speed.
      */
     public void updateBallPosition() {
-        model.ballX = model.ballX + (int) model.ballXSpeed;
-        model.ballY = model.ballY + (int) model.ballYSpeed;
+        model.ballX = model.ballX + model.ballXSpeed;
+        model.ballY = model.ballY + model.ballYSpeed;
     }
 
     /**
@@ -62,7 +282,7 @@ public class PhysicsEngine {
 
         // Create Rectangle objects for collision detection between ball and paddles
         // This simplifies collision detection using the 'intersects()' method
-        Rectangle ballRect = new Rectangle(model.ballX, model.ballY, model.ballSize, model.ballSize);
+        Rectangle ballRect = new Rectangle((int) model.ballX, (int) model.ballY, model.ballSize, model.ballSize);
         Rectangle paddle1Rect = new Rectangle(model.paddle1X, model.paddle1Y, model.paddleWidth, model.paddleHeight);
         Rectangle paddle2Rect = new Rectangle(model.paddle2X, model.paddle2Y, model.paddleWidth, model.paddleHeight);
 
@@ -70,6 +290,150 @@ public class PhysicsEngine {
         handlePaddleCollision(ballRect, paddle1Rect, model.paddle1Speed, true);
         handlePaddleCollision(ballRect, paddle2Rect, model.paddle2Speed, false);
 
+        return checkScore();
+    }
+
+    /**
+     * Moves the ball through one tick using swept AABB collision detection.
+     * Instead of jumping a whole step and testing for overlap, it finds the time of impact
+     * with the walls and paddles within the tick, moves the ball exactly to the contact point,
+     * responds, and continues with the remaining time. A fast ball therefore cannot tunnel
+     * through a paddle, and several bounces can happen in a single tick.
+     *
+     * @return Integer indicating which player scored
+     * (0 if no score, 1 if Player 1 scored, 2 if Player 2 scored)
+     */
+    public int advanceBallSwept() {
+        // Remaining fraction of the tick
+        double remaining = 1.0;
+
+        for (int contact = 0; contact < MAX_CONTACTS_PER_TICK && remaining > 0; contact++) {
+            double wallTime = wallImpactTime();
+            double paddle1Time = sweptImpactTime(model.paddle1X, model.paddle1Y);
+            boolean paddle1Face = isFaceImpact;
+            double paddle2Time = sweptImpactTime(model.paddle2X, model.paddle2Y);
+            boolean paddle2Face = isFaceImpact;
+
+            double impactTime = Math.min(wallTime, Math.min(paddle1Time, paddle2Time));
+            if (impactTime > remaining) {
+                break;
+            }
+
+            // Advance exactly to the contact point
+            model.ballX += model.ballXSpeed * impactTime;
+            model.ballY += model.ballYSpeed * impactTime;
+            remaining -= impactTime;
+
+            if (impactTime == paddle1Time) {
+                resolvePaddleImpact(model.paddle1X, model.paddle1Y, model.paddle1Speed, true, paddle1Face);
+            } else if (impactTime == paddle2Time) {
+                resolvePaddleImpact(model.paddle2X, model.paddle2Y, model.paddle2Speed, false, paddle2Face);
+            } else {
+                // Walls: snap to the edge and reflect
+                model.ballY = model.ballYSpeed < 0 ? 0 : model.height - model.ballSize;
+                model.ballYSpeed = reverse(model.ballYSpeed);
+            }
+        }
+
+        // Travel the rest of the tick without further contacts
+        model.ballX += model.ballXSpeed * remaining;
+        model.ballY += model.ballYSpeed * remaining;
+
+        return checkScore();
+    }
+
+    /**
+     * @return Fraction of a tick until the ball touches the top or bottom wall,
+     * or positive infinity if it is moving horizontally
+     */
+    private double wallImpactTime() {
+        if (model.ballYSpeed < 0) {
+            return Math.max(0, -model.ballY / model.ballYSpeed);
+        }
+        if (model.ballYSpeed > 0) {
+            return Math.max(0, (model.height - model.ballSize - model.ballY) / model.ballYSpeed);
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Computes the time of impact between the moving ball and a stationary paddle using the
+     * slab method: the ball overlaps the paddle while it is inside both the x and y slabs, so
+     * contact starts at the later of the two entry times. Also records in {@link #isFaceImpact}
+     * whether the contact is on the paddle's vertical face (x entry last) or an end cap.
+     *
+     * @return Fraction of a tick until contact, or positive infinity if the ball misses
+     */
+    private double sweptImpactTime(int paddleX, int paddleY) {
+        double xEntry, xExit, yEntry, yExit;
+
+        if (model.ballXSpeed > 0) {
+            xEntry = (paddleX - (model.ballX + model.ballSize)) / model.ballXSpeed;
+            xExit = (paddleX + model.paddleWidth - model.ballX) / model.ballXSpeed;
+        } else if (model.ballXSpeed < 0) {
+            xEntry = (paddleX + model.paddleWidth - model.ballX) / model.ballXSpeed;
+            xExit = (paddleX - (model.ballX + model.ballSize)) / model.ballXSpeed;
+        } else if (model.ballX + model.ballSize > paddleX && model.ballX < paddleX + model.paddleWidth) {
+            xEntry = Double.NEGATIVE_INFINITY;
+            xExit = Double.POSITIVE_INFINITY;
+        } else {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        if (model.ballYSpeed > 0) {
+            yEntry = (paddleY - (model.ballY + model.ballSize)) / model.ballYSpeed;
+            yExit = (paddleY + model.paddleHeight - model.ballY) / model.ballYSpeed;
+        } else if (model.ballYSpeed < 0) {
+            yEntry = (paddleY + model.paddleHeight - model.ballY) / model.ballYSpeed;
+            yExit = (paddleY - (model.ballY + model.ballSize)) / model.ballYSpeed;
+        } else if (model.ballY + model.ballSize > paddleY && model.ballY < paddleY + model.paddleHeight) {
+            yEntry = Double.NEGATIVE_INFINITY;
+            yExit = Double.POSITIVE_INFINITY;
+        } else {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double entry = Math.max(xEntry, yEntry);
+        double exit = Math.min(xExit, yExit);
+
+        // No contact if the slabs never overlap, or if the ball is already leaving the paddle
+        if (entry >= exit || exit <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        isFaceImpact = xEntry >= yEntry;
+        // A paddle that moved onto the ball this tick counts as an immediate contact
+        return Math.max(entry, 0);
+    }
+
+    /**
+     * Responds to a swept contact with a paddle. A hit on the face bounces the ball back into
+     * play exactly like {@link #handlePaddleCollision}; a hit on an end cap only reflects the
+     * vertical speed, since the ball has already passed the face.
+     */
+    private void resolvePaddleImpact(int paddleX, int paddleY, int paddleSpeed, boolean isLeftPaddle,
+                                     boolean isFace) {
+        playPaddleHitSound();
+
+        if (isFace) {
+            model.ballX = isLeftPaddle ? paddleX + model.paddleWidth : paddleX - model.ballSize;
+            calculateBounce(paddleY, paddleSpeed, isLeftPaddle);
+        } else {
+            model.ballY = model.ballYSpeed > 0 ? paddleY - model.ballSize : paddleY + model.paddleHeight;
+            model.ballYSpeed = reverse(model.ballYSpeed);
+        }
+
+        // Start ball deformation effect
+        model.deformationFrames = maxDeformationFrames;
+    }
+
+    /**
+     * Checks whether the ball has gone past a paddle.
+     *
+     * @return Integer indicating which player scored
+     * (0 if no score, 1 if Player 1 scored, 2 if Player 2 scored)
+     */
+    private int checkScore() {
         // Check if the ball has gone past a paddle (scoring)
         if (model.ballX < 0) {
             // Ball has gone past the left edge; Player 2 scores
@@ -132,26 +496,10 @@ public class PhysicsEngine {
         }
     }
 
-    private void loadsfx(String fileName) {
-        try {
-            InputStream audioSrc = getClass().getResourceAsStream(fileName);
-            if (audioSrc == null) {
-                throw new IOException("Audio file not found: " + fileName);
-            }
-            // Buffer the input stream for efficiency
-            InputStream bufferedIn = new BufferedInputStream(audioSrc);
-            AudioInputStream audioIn = AudioSystem.getAudioInputStream(bufferedIn);
-            paddleHitClip = AudioSystem.getClip();
-            paddleHitClip.open(audioIn);
-        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
-            e.printStackTrace();
-        }
-    }
-
     private void playPaddleHitSound() {
-        if (paddleHitClip != null) {
-            paddleHitClip.setFramePosition(0);
-            paddleHitClip.start();
+        // Only queues the sound; the mixer thread does the actual playback
+        if (audioMixer != null) {
+            audioMixer.trigger(paddleHitSound);
         }
     }
 
@@ -163,21 +511,9 @@ public class PhysicsEngine {
      * @param paddleSpeed  Vertical speed of the paddle
      * @param isLeftPaddle True if it's the left paddle (Player 1), false if it's the right paddle (Player 2)
      */
-    private void calculateBounce(int paddleY, int paddleSpeed, boolean isLeftPaddle) {
-        // Calculate the point of impact relative to the paddle's center
-        // This will determine the bounce angle
-        double paddleMidPoint = paddleY + (model.paddleHeight / 2.0);
-        double ballMidPoint = model.ballY + (model.ballSize / 2.0);
-        double relativeIntersectY = paddleMidPoint - ballMidPoint;
-
-        // Normalize the relative intersection to a value between -1 and 1
-        double normalizedRelativeIntersectionY = relativeIntersectY / (model.paddleHeight / 2.0);
-
-        // Maximum bounce angle (in radians) is 45 degrees (π/4)
-        double maxBounceAngle = Math.PI / 4; // 45 degrees
-
+    void calculateBounce(int paddleY, int paddleSpeed, boolean isLeftPaddle) {
         // Calculate the bounce angle based on where the ball hits the paddle
-        double bounceAngle = normalizedRelativeIntersectionY * maxBounceAngle;
+        double bounceAngle = bounceAngle(paddleY, model.ballY);
 
         // Calculate the speed (magnitude) of the ball
         double speed = Math.sqrt(model.ballXSpeed * model.ballXSpeed + model.ballYSpeed * model.ballYSpeed);
@@ -198,6 +534,57 @@ public class PhysicsEngine {
 
         // Add influence from the paddle's movement to the ball's vertical speed
         model.ballYSpeed = model.ballYSpeed + (paddleSpeed * paddleInfluence);
+
+        model.ballXSpeed = quantize(model.ballXSpeed);
+        model.ballYSpeed = quantize(model.ballYSpeed);
+    }
+
+    /**
+     * Rounds a speed to the nearest multiple of 1/1024 px per tick. Positions start on whole
+     * pixels, so with speeds on this grid every position the ball reaches is also a multiple of
+     * 1/1024 and adding speeds tick by tick is exact in double arithmetic. That makes
+     * {@code x + n * speed} identical to n single steps, which the event-driven engine relies on.
+     */
+    static double quantize(double speed) {
+        return Math.rint(speed * SPEED_GRID) / SPEED_GRID;
+    }
+
+    /**
+     * Calculates the bounce angle from the point of impact relative to the paddle's center.
+     *
+     * @param paddleY Y position of the paddle
+     * @param ballY   Y position of the ball at impact
+     * @return Bounce angle in radians, between -45 and 45 degrees
+     */
+    private double bounceAngle(int paddleY, double ballY) {
+        // Calculate the point of impact relative to the paddle's center
+        // This will determine the bounce angle
+        double paddleMidPoint = paddleY + (model.paddleHeight / 2.0);
+        double ballMidPoint = ballY + (model.ballSize / 2.0);
+        double relativeIntersectY = paddleMidPoint - ballMidPoint;
+
+        // Normalize the relative intersection to a value between -1 and 1
+        double normalizedRelativeIntersectionY = relativeIntersectY / (model.paddleHeight / 2.0);
+
+        // Maximum bounce angle (in radians) is 45 degrees (π/4)
+        double maxBounceAngle = Math.PI / 4; // 45 degrees
+
+        return normalizedRelativeIntersectionY * maxBounceAngle;
+    }
+
+    /**
+     * Starts the match over: paddles back to the centre, scores cleared and the balls served
+     * again. The random source carries on, so a restarted match still replays from its seed.
+     */
+    public void resetMatch() {
+        model.paddle1Y = model.height / 2 - model.paddleHeight / 2;
+        model.paddle2Y = model.height / 2 - model.paddleHeight / 2;
+        model.player1Score = 0;
+        model.player2Score = 0;
+        resetBall();
+        if (model.extraBalls != null) {
+            serveExtraBalls();
+        }
     }
 
     /**
@@ -209,12 +596,25 @@ public class PhysicsEngine {
         model.ballX = model.width / 2 - model.ballSize / 2;
         model.ballY = model.height / 2 - model.ballSize / 2;
 
-        model.ballXSpeed = initialSpeed * (Math.random() > 0.5 ? 1 : -1);
-        model.ballYSpeed = initialSpeed * (Math.random() > 0.5 ? 1 : -1);
+        model.ballXSpeed = initialSpeed * (nextRandom() < 0 ? 1 : -1);
+        model.ballYSpeed = initialSpeed * (nextRandom() < 0 ? 1 : -1);
 
         model.deformationFrames = 0;
     }
 
+    /**
+     * Advances the match random source (SplitMix64). The state lives in the model,
+     * so a match replays identically from the same seed.
+     *
+     * @return 64 random bits
+     */
+    private long nextRandom() {
+        long z = (model.randomState += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
     /**
      * Reverses the speed of the ball (used for bouncing).
      *
@@ -234,4 +634,99 @@ public class PhysicsEngine {
             model.deformationFrames--;
         }
     }
+
+    public int getPaddleSpeed() {
+        return paddleSpeed;
+    }
+
+    public boolean isSweptCollisionEnabled() {
+        return isSweptCollisionEnabled;
+    }
+
+    /**
+     * Switches between the discrete per-tick overlap test and swept collision detection.
+     * Swept detection stays accurate at ball speeds far above the paddle width per tick.
+     */
+    public void setSweptCollisionEnabled(boolean isSweptCollisionEnabled) {
+        this.isSweptCollisionEnabled = isSweptCollisionEnabled;
+    }
+
+    /**
+     * Builder that derives per-tick physics parameters from values tuned at {@link #BASE_TICK_RATE}.
+     */
+    public static class Builder {
+        private final GameModel model;
+        private int tickRate = BASE_TICK_RATE;
+        private double initialSpeed = 5;
+        private int paddleSpeed = 8;
+        private int maxDeformationFrames = 5;
+        private double paddleInfluence = 0.35;
+        private AudioMixer audioMixer = null;
+        private boolean sweptCollision = false;
+        private long seed = System.nanoTime();
+
+        public Builder(GameModel model) {
+            this.model = model;
+        }
+
+        public Builder setTickRate(int tickRate) {
+            this.tickRate = tickRate;
+            return this;
+        }
+
+        public Builder setInitialSpeed(double initialSpeed) {
+            this.initialSpeed = initialSpeed;
+            return this;
+        }
+
+        public Builder setPaddleSpeed(int paddleSpeed) {
+            this.paddleSpeed = paddleSpeed;
+            return this;
+        }
+
+        public Builder setMaxDeformationFrames(int maxDeformationFrames) {
+            this.maxDeformationFrames = maxDeformationFrames;
+            return this;
+        }
+
+        public Builder setPaddleInfluence(double paddleInfluence) {
+            this.paddleInfluence = paddleInfluence;
+            return this;
+        }
+
+        /**
+         * @param audioMixer Mixer to play sounds on, or null for silence. The engine loads its
+         *                   sounds while being built, so start the mixer after {@link #build()}.
+         */
+        public Builder setAudioMixer(AudioMixer audioMixer) {
+            this.audioMixer = audioMixer;
+            return this;
+        }
+
+        public Builder setSweptCollision(boolean sweptCollision) {
+            this.sweptCollision = sweptCollision;
+            return this;
+        }
+
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public PhysicsEngine build() {
+            // Speeds are given per tick at 60 Hz; scale them so on-screen speed is the same at any tick rate
+            double scale = (double) BASE_TICK_RATE / tickRate;
+            PhysicsEngine engine = new PhysicsEngine(
+                    model,
+                    initialSpeed * scale,
+                    (int) Math.round(paddleSpeed * scale),
+                    maxDeformationFrames * tickRate / BASE_TICK_RATE,
+                    paddleInfluence,
+                    audioMixer,
+                    seed
+            );
+            engine.setSweptCollisionEnabled(sweptCollision);
+            return engine;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.pong.physics;
+import java.util.Arrays;
+
+/**
+ * An {@link InputSchedule} given as a list of input changes: from each listed tick onwards
+ * the listed input is held until the next change. Input before the first change is none.
+ */
+public class ScheduledInput implements InputSchedule {
+    private long[] ticks = new long[16];
+    private int[] inputs = new int[16];
+    private int size = 0;
+
+    /**
+     * Schedules an input change. Changes must be added in increasing tick order.
+     *
+     * @param tick  First tick at which the input is held
+     * @param input Bit set of {@link PaddleInput} flags
+     * @return This schedule, for chaining
+     */
+    public ScheduledInput add(long tick, int input) {
+        if (size > 0 && tick <= ticks[size - 1]) {
+            throw new IllegalArgumentException("Input changes must be added in increasing tick order: " + tick);
+        }
+        if (size == ticks.length) {
+            ticks = Arrays.copyOf(ticks, size * 2);
+            inputs = Arrays.copyOf(inputs, size * 2);
+        }
+        ticks[size] = tick;
+        inputs[size] = input;
+        size++;
+        return this;
+    }
+
+    @Override
+    public int inputAt(long tick) {
+        int i = indexAt(tick);
+        return i < 0 ? PaddleInput.NONE : inputs[i];
+    }
+
+    @Override
+    public long holdTicks(long tick) {
+        int next = indexAt(tick) + 1;
+        return next < size ? ticks[next] - tick : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return Index of the last change at or before {@code tick}, or -1 if there is none
+     */
+    private int indexAt(long tick) {
+        int i = Arrays.binarySearch(ticks, 0, size, tick);
+        return i >= 0 ? i : -i - 2;
+    }
+}
@@ -0,0 +1,293 @@
+package com.pong.replay;
+import com.pong.model.BallStore;
+import com.pong.model.Difficulty;
+import com.pong.model.GameModel;
+import com.pong.model.Settings;
+import com.pong.physics.PaddleInput;
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Replay is a recorded match: the seed of the match random source, the settings and playfield
+ * geometry it was played with, and one input byte per tick. The physics are deterministic, so
+ * feeding the inputs back into a {@link com.pong.physics.PhysicsEngine} built from the same
+ * seed and settings reproduces the match exactly (see {@link ReplayPlayer}).
+ *
+ * Each tick's input byte holds the {@link PaddleInput} flags the tick was stepped with, plus
+ * {@link #PAUSED} for ticks that did not step and {@link #RESTART} for ticks that restarted the
+ * match first. On disk the inputs are run-length encoded, which is what keeps a whole match
+ * down to a few kilobytes.
+ *
+ * <pre>
+ * int    magic "PONG", short format version
+ * long   seed, long start time (epoch millis), UTF player names
+ * int    width, height, paddle width, paddle height, ball size
+ * int    tick rate, score limit, ball count, ball and paddle colours (RGB)
+ * byte   AI difficulty, short flags (sound, swept collision, computer, active rendering,
+ *        fullscreen, precise timing, drop late ticks)
+ * int    tick count, final scores; long final state hash
+ * int    length of the runs, then per run: input byte, varint (run length - 1)
+ * </pre>
+ *
+ * Version 2 files, written by earlier builds, carry the state of every tick after the runs;
+ * it is ignored. The states for seeking are kept in a seek file next to the replay instead
+ * (see {@link ReplayArchive}), so the replay stays the compact, canonical record of the match.
+ */
+public class Replay {
+
+    // Flags recorded in each tick's input byte besides the PaddleInput bits
+    public static final int PAUSED = 1 << 4;
+    public static final int RESTART = 1 << 5;
+
+    static final int MAGIC = 0x504F4E47;
+    static final int VERSION = 1;
+    // Newest version read: version 2 files have states after the inputs, which are skipped
+    private static final int LAST_VERSION = 2;
+
+    private final long seed;
+    private final long startedAt;
+    private final String player1;
+    private final String player2;
+    private final Settings settings;
+    private final int width;
+    private final int height;
+    private final int paddleWidth;
+    private final int paddleHeight;
+    private final int ballSize;
+    private final byte[] inputs;
+    private final int player1Score;
+    private final int player2Score;
+    private final long finalStateHash;
+
+    Replay(long seed, long startedAt, String player1, String player2, Settings settings, int width, int height,
+           int paddleWidth, int paddleHeight, int ballSize, byte[] inputs, int player1Score, int player2Score,
+           long finalStateHash) {
+        this.seed = seed;
+        this.startedAt = startedAt;
+        this.player1 = player1;
+        this.player2 = player2;
+        this.settings = settings;
+        this.width = width;
+        this.height = height;
+        this.paddleWidth = paddleWidth;
+        this.paddleHeight = paddleHeight;
+        this.ballSize = ballSize;
+        this.inputs = inputs;
+        this.player1Score = player1Score;
+        this.player2Score = player2Score;
+        this.finalStateHash = finalStateHash;
+    }
+
+    /**
+     * Reads a replay file written by {@link ReplayRecorder}.
+     *
+     * @throws IOException If the file cannot be read or is not a replay of a supported version
+     */
+    public static Replay read(Path file) throws IOException {
+        try (InputStream fileIn = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a replay file: " + file);
+            }
+            int version = in.readShort();
+            if (version < VERSION || version > LAST_VERSION) {
+                throw new IOException("Unsupported replay version " + version + ": " + file);
+            }
+            long seed = in.readLong();
+            long startedAt = in.readLong();
+            String player1 = in.readUTF();
+            String player2 = in.readUTF();
+            int width = in.readInt();
+            int height = in.readInt();
+            int paddleWidth = in.readInt();
+            int paddleHeight = in.readInt();
+            int ballSize = in.readInt();
+            Settings settings = readSettings(in);
+            int tickCount = in.readInt();
+            int player1Score = in.readInt();
+            int player2Score = in.readInt();
+            long finalStateHash = in.readLong();
+
+            byte[] runs = new byte[in.readInt()];
+            in.readFully(runs);
+            byte[] inputs = decodeRuns(runs, tickCount);
+            return new Replay(seed, startedAt, player1, player2, settings, width, height, paddleWidth,
+                    paddleHeight, ballSize, inputs, player1Score, player2Score, finalStateHash);
+        }
+    }
+
+    /**
+     * Expands the run-length encoded inputs into one byte per tick.
+     */
+    private static byte[] decodeRuns(byte[] runs, int tickCount) throws IOException {
+        byte[] inputs = new byte[tickCount];
+        int tick = 0;
+        int position = 0;
+        while (position < runs.length) {
+            byte input = runs[position++];
+            long length = 1;
+            int shift = 0;
+            byte b;
+            do {
+                if (position >= runs.length || shift > 63) {
+                    throw new IOException("Truncated input run");
+                }
+                b = runs[position++];
+                length += (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (length > tickCount - tick) {
+                throw new IOException("Input runs exceed the recorded tick count");
+            }
+            for (int i = 0; i < length; i++) {
+                inputs[tick++] = input;
+            }
+        }
+        if (tick != tickCount) {
+            throw new IOException("Input runs cover " + tick + " of " + tickCount + " ticks");
+        }
+        return inputs;
+    }
+
+    static void writeSettings(DataOutputStream out, Settings settings) throws IOException {
+        out.writeInt(settings.getTickRate());
+        out.writeInt(settings.getScoreLimit());
+        out.writeInt(settings.getBallCount());
+        out.writeInt(settings.getBallColor().getRGB());
+        out.writeInt(settings.getPaddle1Color().getRGB());
+        out.writeInt(settings.getPaddle2Color().getRGB());
+        out.writeByte(settings.getAiDifficulty().ordinal());
+        int flags = (settings.isEnableSound() ? 1 : 0)
+                | (settings.isSweptCollision() ? 1 << 1 : 0)
+                | (settings.isComputerOpponent() ? 1 << 2 : 0)
+                | (settings.isActiveRendering() ? 1 << 3 : 0)
+                | (settings.isFullscreen() ? 1 << 4 : 0)
+                | (settings.isPreciseTiming() ? 1 << 5 : 0)
+                | (settings.isDropLateTicks() ? 1 << 6 : 0);
+        out.writeShort(flags);
+    }
+
+    private static Settings readSettings(DataInputStream in) throws IOException {
+        Settings settings = new Settings();
+        settings.setTickRate(in.readInt());
+        settings.setScoreLimit(in.readInt());
+        settings.setBallCount(in.readInt());
+        settings.setBallColor(new Color(in.readInt()));
+        settings.setPaddle1Color(new Color(in.readInt()));
+        settings.setPaddle2Color(new Color(in.readInt()));
+        Difficulty[] difficulties = Difficulty.values();
+        settings.setAiDifficulty(difficulties[Math.min(in.readByte(), difficulties.length - 1)]);
+        int flags = in.readShort();
+        settings.setEnableSound((flags & 1) != 0);
+        settings.setSweptCollision((flags & 1 << 1) != 0);
+        settings.setComputerOpponent((flags & 1 << 2) != 0);
+        settings.setActiveRendering((flags & 1 << 3) != 0);
+        settings.setFullscreen((flags & 1 << 4) != 0);
+        settings.setPreciseTiming((flags & 1 << 5) != 0);
+        settings.setDropLateTicks((flags & 1 << 6) != 0);
+        return settings;
+    }
+
+    /**
+     * Hashes everything the physics depend on, to check that a replay ended in the recorded state.
+     */
+    public static long stateHash(GameModel model) {
+        long h = 0;
+        h = mix(h, model.paddle1Y);
+        h = mix(h, model.paddle1Speed);
+        h = mix(h, model.paddle2Y);
+        h = mix(h, model.paddle2Speed);
+        h = mix(h, model.player1Score);
+        h = mix(h, model.player2Score);
+        h = mix(h, Double.doubleToLongBits(model.ballX));
+        h = mix(h, Double.doubleToLongBits(model.ballY));
+        h = mix(h, Double.doubleToLongBits(model.ballXSpeed));
+        h = mix(h, Double.doubleToLongBits(model.ballYSpeed));
+        h = mix(h, model.deformationFrames);
+        h = mix(h, model.randomState);
+        BallStore balls = model.extraBalls;
+        if (balls != null) {
+            h = mix(h, balls.count);
+            for (int i = 0; i < balls.count; i++) {
+                h = mix(h, Double.doubleToLongBits(balls.x[i]));
+                h = mix(h, Double.doubleToLongBits(balls.y[i]));
+                h = mix(h, Double.doubleToLongBits(balls.xSpeed[i]));
+                h = mix(h, Double.doubleToLongBits(balls.ySpeed[i]));
+                h = mix(h, balls.deformationFrames[i]);
+            }
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        // SplitMix64 finaliser over the running hash
+        long z = (h ^ value) + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return A model in the state the recorded match started in, before its engine serves
+     */
+    public GameModel createModel() {
+        GameModel model = new GameModel(width, height, paddleWidth, paddleHeight, ballSize, settings.getScoreLimit());
+        if (settings.getBallCount() > 1) {
+            model.extraBalls = new BallStore(settings.getBallCount() - 1);
+        }
+        return model;
+    }
+
+    /**
+     * @param tick Index of a tick, from 0 to {@link #getTickCount()} - 1
+     * @return Input byte of that tick: {@link PaddleInput} flags plus {@link #PAUSED} and {@link #RESTART}
+     */
+    public int inputAt(int tick) {
+        return inputs[tick] & 0xFF;
+    }
+
+    public int getTickCount() {
+        return inputs.length;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return Wall-clock time the match started, in epoch milliseconds
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public String getPlayer1() {
+        return player1;
+    }
+
+    public String getPlayer2() {
+        return player2;
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    public int getPlayer1Score() {
+        return player1Score;
+    }
+
+    public int getPlayer2Score() {
+        return player2Score;
+    }
+
+    public long getFinalStateHash() {
+        return finalStateHash;
+    }
+}
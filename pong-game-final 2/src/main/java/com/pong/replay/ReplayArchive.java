@@ -0,0 +1,280 @@
+package com.pong.replay;
+import com.pong.model.BallStore;
+import com.pong.model.GameModel;
+import com.pong.model.Settings;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ReplayArchive gives random access to a recorded match by memory-mapping its seek file, a
+ * sidecar next to the replay named like it with {@link #EXTENSION} appended. The replay
+ * itself only holds the inputs and stays a few kilobytes; the seek file holds the state of
+ * every tick, derived from it, and can be deleted when archiving and built again by
+ * re-simulating the replay with a {@link ReplayPlayer}. The recorder writes both, so the
+ * seek file of a fresh recording holds the states as they were played.
+ *
+ * Opening an archive reads the replay and a few header fields of the seek file and nothing
+ * else: keyframes and deltas are decoded straight from the mapping into a caller's
+ * {@link GameModel} by a {@link ReplayCursor}, so the operating system pages in only the
+ * parts that are looked at, and thousands of archived matches can be opened side by side
+ * without loading or deserialising their states.
+ *
+ * <pre>
+ * int    magic "PSEK", short format version
+ * long   seed, long start time, int tick count, long final state hash   (of the replay)
+ * int    width, height, paddle width, paddle height, ball size, tick rate, score limit, ball count
+ * int    keyframe interval, keyframe count; long[] keyframe file offsets
+ *        keyframes and state deltas, see {@link StateEncoder}
+ * </pre>
+ */
+public class ReplayArchive {
+
+    // Appended to a replay's file name for its seek file
+    public static final String EXTENSION = ".seek";
+
+    private static final int MAGIC = 0x5053454B;
+    private static final int VERSION = 1;
+    // Everything before the keyframe offsets
+    private static final int HEADER_SIZE = 4 + 2 + 8 + 8 + 4 + 8 + 8 * 4 + 4 + 4;
+
+    private final Path file;
+    private final ByteBuffer data;
+    private final long seed;
+    private final long startedAt;
+    private final int tickCount;
+    private final long finalStateHash;
+    private final int width;
+    private final int height;
+    private final int paddleWidth;
+    private final int paddleHeight;
+    private final int ballSize;
+    private final int tickRate;
+    private final int scoreLimit;
+    private final int ballCount;
+    private final int keyframeInterval;
+    private final int keyframeCount;
+
+    private ReplayArchive(Path file, ByteBuffer data) throws IOException {
+        this.file = file;
+        this.data = data;
+
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a replay seek file: " + file);
+        }
+        int version = data.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported seek file version " + version + ": " + file);
+        }
+        int position = 6;
+        seed = data.getLong(position);
+        startedAt = data.getLong(position + 8);
+        tickCount = data.getInt(position + 16);
+        finalStateHash = data.getLong(position + 20);
+        position += 28;
+
+        width = data.getInt(position);
+        height = data.getInt(position + 4);
+        paddleWidth = data.getInt(position + 8);
+        paddleHeight = data.getInt(position + 12);
+        ballSize = data.getInt(position + 16);
+        tickRate = data.getInt(position + 20);
+        scoreLimit = data.getInt(position + 24);
+        ballCount = data.getInt(position + 28);
+        position += 32;
+
+        keyframeInterval = data.getInt(position);
+        keyframeCount = data.getInt(position + 4);
+        if (keyframeInterval <= 0 || keyframeCount != tickCount / keyframeInterval + 1
+                || data.limit() < HEADER_SIZE + 8L * keyframeCount) {
+            throw new IOException("Corrupt keyframe index: " + file);
+        }
+    }
+
+    /**
+     * Opens the seek file of a replay, building it first if it is missing or belongs to
+     * another recording. The mapping stays valid after the channel is closed.
+     *
+     * @param replayFile The replay, not its seek file
+     * @throws IOException If the replay cannot be read, or no longer plays back to its recorded
+     *                     result so its states cannot be derived
+     */
+    public static ReplayArchive open(Path replayFile) throws IOException {
+        Replay replay = Replay.read(replayFile);
+        Path seekFile = seekFile(replayFile);
+        if (Files.exists(seekFile)) {
+            ReplayArchive archive = map(seekFile);
+            if (archive.belongsTo(replay)) {
+                return archive;
+            }
+        }
+        build(replay, seekFile);
+        return map(seekFile);
+    }
+
+    private static ReplayArchive map(Path seekFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(seekFile, StandardOpenOption.READ)) {
+            return new ReplayArchive(seekFile, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads the seek file of a replay as it was recorded, without building one, e.g. for a
+     * batch job that goes through more files than it should keep mapped at once.
+     *
+     * @return The archive, or null if the replay has no seek file of its own
+     */
+    static ReplayArchive readRecorded(Path replayFile, Replay replay) throws IOException {
+        Path seekFile = seekFile(replayFile);
+        if (!Files.exists(seekFile)) {
+            return null;
+        }
+        ReplayArchive archive = new ReplayArchive(seekFile, ByteBuffer.wrap(Files.readAllBytes(seekFile)));
+        return archive.belongsTo(replay) ? archive : null;
+    }
+
+    /**
+     * Derives a replay's seek file by playing it back and recording the state of every tick.
+     *
+     * @throws IOException If the file cannot be written, or the replay no longer ends in its
+     *                     recorded state, so the states would not be the match's
+     */
+    public static void build(Replay replay, Path seekFile) throws IOException {
+        ReplayPlayer player = new ReplayPlayer(replay);
+        GameModel model = player.getModel();
+        StateEncoder states = new StateEncoder(model.extraBalls != null ? model.extraBalls.capacity() : 0);
+        states.keyframe(model);
+        while (player.step()) {
+            if (player.getTick() % ReplayRecorder.KEYFRAME_INTERVAL == 0) {
+                states.keyframe(model);
+            } else {
+                states.tick(model);
+            }
+        }
+        if (!player.matchesRecording()) {
+            throw new IOException("Replay no longer plays back as recorded, so it cannot be seeked: "
+                    + replay.getPlayer1() + " vs " + replay.getPlayer2());
+        }
+        write(seekFile, replay.getSeed(), replay.getStartedAt(), replay.getTickCount(), replay.getFinalStateHash(),
+                replay.getSettings(), model, states);
+    }
+
+    /**
+     * Writes a seek file from the states of every tick of a match. Written next to it first
+     * and moved into place, so a reader never maps half a file.
+     *
+     * @param model A model of the match, for its geometry
+     */
+    static void write(Path seekFile, long seed, long startedAt, int tickCount, long finalStateHash, Settings settings,
+                      GameModel model, StateEncoder states) throws IOException {
+        states.endSegment();
+        Path temporary = seekFile.resolveSibling(seekFile.getFileName() + ".tmp");
+        try (OutputStream fileOut = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(seed);
+            out.writeLong(startedAt);
+            out.writeInt(tickCount);
+            out.writeLong(finalStateHash);
+            out.writeInt(model.width);
+            out.writeInt(model.height);
+            out.writeInt(model.paddleWidth);
+            out.writeInt(model.paddleHeight);
+            out.writeInt(model.ballSize);
+            out.writeInt(settings.getTickRate());
+            out.writeInt(settings.getScoreLimit());
+            out.writeInt(settings.getBallCount());
+
+            // Keyframe index, as absolute file offsets, then the keyframes and deltas
+            int keyframeCount = states.getKeyframeCount();
+            out.writeInt(ReplayRecorder.KEYFRAME_INTERVAL);
+            out.writeInt(keyframeCount);
+            long statesOffset = HEADER_SIZE + 8L * keyframeCount;
+            int[] keyframeOffsets = states.getKeyframeOffsets();
+            for (int i = 0; i < keyframeCount; i++) {
+                out.writeLong(statesOffset + keyframeOffsets[i]);
+            }
+            out.write(states.getBuffer(), 0, states.getLength());
+        }
+        Files.move(temporary, seekFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return The seek file next to a replay
+     */
+    public static Path seekFile(Path replayFile) {
+        return replayFile.resolveSibling(replayFile.getFileName() + EXTENSION);
+    }
+
+    /**
+     * @return True if this seek file was made from the replay and not, say, from an earlier
+     * recording saved under the same name
+     */
+    private boolean belongsTo(Replay replay) {
+        return seed == replay.getSeed() && startedAt == replay.getStartedAt() && tickCount == replay.getTickCount()
+                && finalStateHash == replay.getFinalStateHash();
+    }
+
+    /**
+     * @return A model with the recorded geometry, for a {@link ReplayCursor} to decode into
+     */
+    public GameModel createModel() {
+        GameModel model = new GameModel(width, height, paddleWidth, paddleHeight, ballSize, scoreLimit);
+        if (ballCount > 1) {
+            model.extraBalls = new BallStore(ballCount - 1);
+        }
+        return model;
+    }
+
+    /**
+     * @return File offset of the keyframe holding the state after tick {@code k * getKeyframeInterval()}
+     */
+    int keyframeOffset(int k) {
+        return (int) data.getLong(HEADER_SIZE + 8 * k);
+    }
+
+    /**
+     * @return The mapped file; read with absolute gets only, since it is shared by all cursors
+     */
+    ByteBuffer getData() {
+        return data;
+    }
+
+    int getExtraBallCapacity() {
+        return Math.max(0, ballCount - 1);
+    }
+
+    /**
+     * @return The seek file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return Number of recorded ticks; states run from 0 (before the first tick) to this
+     */
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public int getKeyframeInterval() {
+        return keyframeInterval;
+    }
+
+    public int getKeyframeCount() {
+        return keyframeCount;
+    }
+}
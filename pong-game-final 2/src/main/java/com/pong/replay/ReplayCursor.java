@@ -0,0 +1,93 @@
+package com.pong.replay;
+import com.pong.model.GameModel;
+
+/**
+ * ReplayCursor positions a {@link GameModel} at any tick of a {@link ReplayArchive}, with no
+ * physics involved: a seek loads the nearest keyframe at or before the tick and decodes the
+ * deltas from there, at most one keyframe interval of them. Stepping forward decodes a single
+ * delta. Nothing is allocated after construction, so a viewer can scrub, fast-forward or
+ * rewind at any speed from its render or game loop.
+ */
+public class ReplayCursor {
+
+    private final ReplayArchive archive;
+    private final GameModel model;
+    private final StateDecoder decoder;
+    private int tick = -1;
+
+    /**
+     * Creates a cursor positioned at tick 0.
+     *
+     * @param archive Replay to read
+     * @param model   Model to decode into, e.g. from {@link ReplayArchive#createModel()}
+     */
+    public ReplayCursor(ReplayArchive archive, GameModel model) {
+        this.archive = archive;
+        this.model = model;
+        this.decoder = new StateDecoder(archive.getData(), archive.getExtraBallCapacity());
+        seek(0);
+    }
+
+    /**
+     * Puts the model in its state after the given tick.
+     *
+     * @param target Tick to go to; clamped to 0 and the tick count
+     */
+    public void seek(int target) {
+        target = Math.max(0, Math.min(archive.getTickCount(), target));
+        int interval = archive.getKeyframeInterval();
+        // Continue from the current position when that is closer than the keyframe
+        if (tick < 0 || target < tick || target - tick > target % interval) {
+            int k = target / interval;
+            decoder.loadKeyframe(archive.keyframeOffset(k), model);
+            tick = k * interval;
+        }
+        while (tick < target) {
+            step();
+        }
+    }
+
+    /**
+     * Moves the model by a number of ticks, e.g. 16 per frame to fast-forward at 16x, or -16 to
+     * rewind. Stops at either end of the replay.
+     *
+     * @param ticks Ticks to move, negative to go back
+     */
+    public void skip(int ticks) {
+        seek(tick + ticks);
+    }
+
+    /**
+     * Advances the model by one tick.
+     *
+     * @return False if the cursor is already at the last tick
+     */
+    public boolean step() {
+        if (tick >= archive.getTickCount()) {
+            return false;
+        }
+        tick++;
+        if (tick % archive.getKeyframeInterval() == 0) {
+            // The state after this tick is stored as a keyframe rather than as a delta
+            decoder.loadKeyframe(archive.keyframeOffset(tick / archive.getKeyframeInterval()), model);
+        } else {
+            decoder.advance(model);
+        }
+        return true;
+    }
+
+    /**
+     * @return Tick whose resulting state the model holds
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    public boolean isAtEnd() {
+        return tick == archive.getTickCount();
+    }
+
+    public GameModel getModel() {
+        return model;
+    }
+}
@@ -0,0 +1,112 @@
+package com.pong.replay;
+import com.pong.model.GameModel;
+import com.pong.physics.PaddleInput;
+import com.pong.physics.PhysicsEngine;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * ReplayPlayer re-drives a {@link PhysicsEngine} from a {@link Replay}: the same seed, settings
+ * and geometry, and the recorded input of every tick. Tick {@code n} of the player leaves the
+ * model exactly as tick {@code n} of the recorded match did.
+ */
+public class ReplayPlayer {
+
+    private final Replay replay;
+    private final GameModel model;
+    private final PhysicsEngine engine;
+    private int tick = 0;
+
+    public ReplayPlayer(Replay replay) {
+        this.replay = replay;
+        this.model = replay.createModel();
+        // Built like the game's engine, minus the sound
+        this.engine = new PhysicsEngine.Builder(model)
+                .setTickRate(replay.getSettings().getTickRate())
+                .setSweptCollision(replay.getSettings().isSweptCollision())
+                .setSeed(replay.getSeed())
+                .build();
+    }
+
+    /**
+     * Plays the next recorded tick.
+     *
+     * @return False if the replay has already ended
+     */
+    public boolean step() {
+        if (tick >= replay.getTickCount()) {
+            return false;
+        }
+        int input = replay.inputAt(tick++);
+        if ((input & Replay.RESTART) != 0) {
+            engine.resetMatch();
+        }
+        if ((input & Replay.PAUSED) == 0) {
+            engine.step(input & PaddleInput.ALL);
+        }
+        return true;
+    }
+
+    /**
+     * Plays every remaining tick.
+     */
+    public void playToEnd() {
+        while (step()) {
+            // Nothing else to do per tick
+        }
+    }
+
+    /**
+     * @return True if the replay has ended in exactly the state the match was recorded to end in
+     */
+    public boolean matchesRecording() {
+        return tick == replay.getTickCount() && Replay.stateHash(model) == replay.getFinalStateHash();
+    }
+
+    public GameModel getModel() {
+        return model;
+    }
+
+    /**
+     * @return Number of ticks played so far
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+
+    /**
+     * Plays replay files headlessly and reports whether each reproduces its recorded result.
+     * Exits with status 1 if any does not.
+     *
+     * @param args Paths of replay files
+     */
+    public static void main(String[] args) throws IOException {
+        boolean allMatch = true;
+        for (String arg : args) {
+            Replay replay = Replay.read(Path.of(arg));
+            ReplayPlayer player = new ReplayPlayer(replay);
+            long start = System.nanoTime();
+            player.playToEnd();
+            long elapsed = System.nanoTime() - start;
+
+            GameModel model = player.getModel();
+            boolean matches = player.matchesRecording();
+            allMatch &= matches;
+            System.out.printf("%s: %s vs %s, %s, %d ticks at %d Hz, recorded %d-%d, replayed %d-%d, %s (%.1f ms)%n",
+                    arg, replay.getPlayer1(), replay.getPlayer2(),
+                    new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(replay.getStartedAt())),
+                    replay.getTickCount(), replay.getSettings().getTickRate(), replay.getPlayer1Score(),
+                    replay.getPlayer2Score(), model.player1Score, model.player2Score,
+                    matches ? "identical" : "DIFFERENT", elapsed / 1e6);
+        }
+        if (!allMatch) {
+            System.exit(1);
+        }
+    }
+}
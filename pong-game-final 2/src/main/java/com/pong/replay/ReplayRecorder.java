@@ -0,0 +1,161 @@
+package com.pong.replay;
+import com.pong.model.GameModel;
+import com.pong.model.Settings;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * ReplayRecorder records a match as it is played, for writing to a {@link Replay} file.
+ * The game loop calls {@link #record} once per tick with that tick's input byte. Inputs are
+ * run-length encoded straight into a byte buffer, and the model's state after the tick is
+ * delta-encoded by a {@link StateEncoder}, with a keyframe every {@link #KEYFRAME_INTERVAL}
+ * ticks. Recording a tick allocates nothing (the buffers only grow, by doubling, now and then).
+ * When the match is over the inputs are written to the replay file and the states to its
+ * seek file (see {@link ReplayArchive}), which can be dropped and derived again from the replay.
+ */
+public class ReplayRecorder {
+
+    // File extension of saved replays
+    public static final String EXTENSION = ".pongreplay";
+    // Ticks between keyframes: a seek decodes at most this many deltas
+    public static final int KEYFRAME_INTERVAL = 256;
+
+    private final long seed;
+    private final long startedAt = System.currentTimeMillis();
+    private final Settings settings;
+    private final GameModel model;
+    private final String player1;
+    private final String player2;
+
+    // Encoded runs so far, and the run still being extended
+    private byte[] runs = new byte[4096];
+    private int runsLength = 0;
+    private int runInput = -1;
+    private long runLength = 0;
+    private int tickCount = 0;
+    // State after every tick, for the seek file
+    private final StateEncoder states;
+
+    /**
+     * @param seed     Seed the match's physics engine was built with
+     * @param settings Settings of the match
+     * @param model    Model of the match, already served; its state is recorded after every tick
+     * @param player1  Name of the left player
+     * @param player2  Name of the right player
+     */
+    public ReplayRecorder(long seed, Settings settings, GameModel model, String player1, String player2) {
+        this.seed = seed;
+        this.settings = settings;
+        this.model = model;
+        this.player1 = player1;
+        this.player2 = player2;
+        this.states = new StateEncoder(model.extraBalls != null ? model.extraBalls.capacity() : 0);
+        // Tick 0: the state before the first tick
+        states.keyframe(model);
+    }
+
+    /**
+     * Records one tick, after it has been applied to the model. Must be called from the game
+     * loop thread only.
+     *
+     * @param input {@link com.pong.physics.PaddleInput} flags the tick was stepped with, plus
+     *              {@link Replay#PAUSED} and {@link Replay#RESTART}
+     */
+    public void record(int input) {
+        if (input == runInput) {
+            runLength++;
+        } else {
+            endRun();
+            runInput = input;
+            runLength = 1;
+        }
+        tickCount++;
+
+        if (tickCount % KEYFRAME_INTERVAL == 0) {
+            states.keyframe(model);
+        } else {
+            states.tick(model);
+        }
+    }
+
+    private void endRun() {
+        if (runLength == 0) {
+            return;
+        }
+        // One input byte plus up to ten varint bytes
+        if (runsLength + 11 > runs.length) {
+            runs = Arrays.copyOf(runs, runs.length * 2);
+        }
+        runs[runsLength++] = (byte) runInput;
+        long value = runLength - 1;
+        while ((value & ~0x7FL) != 0) {
+            runs[runsLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        runs[runsLength++] = (byte) value;
+        runLength = 0;
+        runInput = -1;
+    }
+
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Writes the recording, with the model's current state as the final state, to a new file
+     * named after the start time and the players. Call once the game loop has stopped.
+     *
+     * @param directory Directory to write into; created if missing
+     * @return The file written
+     */
+    public Path save(Path directory) throws IOException {
+        String time = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(startedAt));
+        Path file = directory.resolve(time + "-" + fileNamePart(player1) + "-vs-" + fileNamePart(player2) + EXTENSION);
+        Files.createDirectories(directory);
+        write(file);
+        return file;
+    }
+
+    /**
+     * Writes the recording, with the model's current state as the final state, and its seek
+     * file next to it. Call once the game loop has stopped.
+     */
+    public void write(Path file) throws IOException {
+        endRun();
+        long finalStateHash = Replay.stateHash(model);
+        try (OutputStream fileOut = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.writeInt(Replay.MAGIC);
+            out.writeShort(Replay.VERSION);
+            out.writeLong(seed);
+            out.writeLong(startedAt);
+            out.writeUTF(player1);
+            out.writeUTF(player2);
+            out.writeInt(model.width);
+            out.writeInt(model.height);
+            out.writeInt(model.paddleWidth);
+            out.writeInt(model.paddleHeight);
+            out.writeInt(model.ballSize);
+            Replay.writeSettings(out, settings);
+            out.writeInt(tickCount);
+            out.writeInt(model.player1Score);
+            out.writeInt(model.player2Score);
+            out.writeLong(finalStateHash);
+            out.writeInt(runsLength);
+            out.write(runs, 0, runsLength);
+        }
+        ReplayArchive.write(ReplayArchive.seekFile(file), seed, startedAt, tickCount, finalStateHash, settings,
+                model, states);
+    }
+
+    private static String fileNamePart(String name) {
+        return name.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+}
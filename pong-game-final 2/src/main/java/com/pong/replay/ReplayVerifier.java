@@ -0,0 +1,278 @@
+package com.pong.replay;
+import com.pong.model.BallStore;
+import com.pong.model.GameModel;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * ReplayVerifier re-simulates recorded matches with the current physics and checks that they
+ * still play out as recorded, to gate changes to {@link com.pong.physics.PhysicsEngine}.
+ *
+ * Each replay is played by a {@link ReplayPlayer} and its state compared with the keyframes
+ * its recorder stored in the seek file next to it, then with the final state hash. Only when
+ * a keyframe differs is the replay played again, this time against the state of every tick
+ * through a {@link ReplayCursor}, so the first tick that differs is reported together with
+ * the fields that differ. Replays without a seek file of their own are only checked against
+ * their final state hash; one derived later would hold the states of the current physics,
+ * so none is built here. A corpus is split across a ForkJoinPool the
+ * same way {@link com.pong.simulation.BatchSimulator} splits matches.
+ *
+ * <pre>
+ * --threads T    verify on this many threads (default: one per core)
+ * </pre>
+ * followed by replay files and directories, which are searched recursively for replays.
+ */
+public class ReplayVerifier {
+
+    // Replays verified sequentially per leaf task; a replay takes milliseconds, so keep blocks small
+    private static final int REPLAYS_PER_TASK = 4;
+
+    /**
+     * Re-simulates one replay and compares it with its recording.
+     *
+     * @return The outcome; an unreadable file is reported as a failure rather than thrown
+     */
+    public static VerificationResult verify(Path file) {
+        try {
+            Replay replay = Replay.read(file);
+            ReplayPlayer player = new ReplayPlayer(replay);
+            // Read rather than mapped; mapping every file would pile up mappings until GC
+            ReplayArchive archive = ReplayArchive.readRecorded(file, replay);
+            if (archive == null) {
+                player.playToEnd();
+                if (player.matchesRecording()) {
+                    return new VerificationResult(file, replay.getTickCount(), true, VerificationResult.NO_TICK, null);
+                }
+                return new VerificationResult(file, replay.getTickCount(), false, VerificationResult.NO_TICK,
+                        "final state differs (no seek file with the recorded states to locate the divergence)");
+            }
+
+            int checkpoint = firstDifferentKeyframe(player, archive);
+            if (checkpoint < 0) {
+                // The header's hash still catches final states that were recorded wrongly
+                if (player.matchesRecording()) {
+                    return new VerificationResult(file, replay.getTickCount(), true, VerificationResult.NO_TICK, null);
+                }
+                return new VerificationResult(file, replay.getTickCount(), false, VerificationResult.NO_TICK,
+                        "states match but the final state hash does not");
+            }
+
+            // Rare: play again from the start, comparing every tick up to the failed checkpoint
+            player = new ReplayPlayer(replay);
+            ReplayCursor cursor = new ReplayCursor(archive, archive.createModel());
+            GameModel replayed = player.getModel();
+            GameModel recorded = cursor.getModel();
+            while (player.getTick() < checkpoint && sameState(recorded, replayed)) {
+                player.step();
+                cursor.step();
+            }
+            return new VerificationResult(file, replay.getTickCount(), false, player.getTick(),
+                    describeDifference(recorded, replayed));
+        } catch (IOException | RuntimeException e) {
+            return new VerificationResult(file, 0, false, VerificationResult.NO_TICK, "could not be verified: " + e);
+        }
+    }
+
+    /**
+     * Plays the whole replay, comparing the state only at keyframes and at the last tick. The
+     * cursor loads those states directly without decoding any deltas, so this costs little
+     * more than the physics alone.
+     *
+     * @return The first tick whose state differs, or -1 if none of the checked ones do
+     */
+    private static int firstDifferentKeyframe(ReplayPlayer player, ReplayArchive archive) {
+        ReplayCursor cursor = new ReplayCursor(archive, archive.createModel());
+        int interval = archive.getKeyframeInterval();
+        do {
+            int tick = player.getTick();
+            if (tick % interval == 0 || tick == archive.getTickCount()) {
+                cursor.seek(tick);
+                if (!sameState(cursor.getModel(), player.getModel())) {
+                    return tick;
+                }
+            }
+        } while (player.step());
+        return -1;
+    }
+
+    /**
+     * Verifies every replay on the given pool.
+     *
+     * @return Aggregated results; the same regardless of parallelism
+     */
+    public static VerificationSummary verifyAll(List<Path> files, ForkJoinPool pool) {
+        return pool.invoke(new VerificationTask(files, 0, files.size()));
+    }
+
+    private static class VerificationTask extends RecursiveTask<VerificationSummary> {
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+
+        VerificationTask(List<Path> files, int from, int to) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected VerificationSummary compute() {
+            if (to - from <= REPLAYS_PER_TASK) {
+                VerificationSummary summary = new VerificationSummary();
+                for (int i = from; i < to; i++) {
+                    summary.add(verify(files.get(i)));
+                }
+                return summary;
+            }
+
+            int mid = (from + to) >>> 1;
+            VerificationTask left = new VerificationTask(files, from, mid);
+            left.fork();
+            VerificationSummary right = new VerificationTask(files, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * @return True if every field the physics depend on holds the same bits in both models
+     */
+    static boolean sameState(GameModel a, GameModel b) {
+        if (a.paddle1Y != b.paddle1Y || a.paddle1Speed != b.paddle1Speed
+                || a.paddle2Y != b.paddle2Y || a.paddle2Speed != b.paddle2Speed
+                || a.player1Score != b.player1Score || a.player2Score != b.player2Score
+                || a.deformationFrames != b.deformationFrames || a.randomState != b.randomState
+                || !StateEncoder.sameBits(a.ballX, b.ballX) || !StateEncoder.sameBits(a.ballY, b.ballY)
+                || !StateEncoder.sameBits(a.ballXSpeed, b.ballXSpeed)
+                || !StateEncoder.sameBits(a.ballYSpeed, b.ballYSpeed)) {
+            return false;
+        }
+        int count = ballCount(a);
+        if (count != ballCount(b)) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (!sameBall(a.extraBalls, b.extraBalls, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameBall(BallStore a, BallStore b, int i) {
+        return StateEncoder.sameBits(a.x[i], b.x[i]) && StateEncoder.sameBits(a.y[i], b.y[i])
+                && StateEncoder.sameBits(a.xSpeed[i], b.xSpeed[i]) && StateEncoder.sameBits(a.ySpeed[i], b.ySpeed[i])
+                && a.deformationFrames[i] == b.deformationFrames[i];
+    }
+
+    private static int ballCount(GameModel model) {
+        return model.extraBalls != null ? model.extraBalls.count : 0;
+    }
+
+    /**
+     * Lists the fields that differ, as "field recorded -> replayed".
+     */
+    static String describeDifference(GameModel recorded, GameModel replayed) {
+        List<String> differences = new ArrayList<>();
+        compare(differences, "paddle1Y", recorded.paddle1Y, replayed.paddle1Y);
+        compare(differences, "paddle1Speed", recorded.paddle1Speed, replayed.paddle1Speed);
+        compare(differences, "paddle2Y", recorded.paddle2Y, replayed.paddle2Y);
+        compare(differences, "paddle2Speed", recorded.paddle2Speed, replayed.paddle2Speed);
+        compare(differences, "player1Score", recorded.player1Score, replayed.player1Score);
+        compare(differences, "player2Score", recorded.player2Score, replayed.player2Score);
+        compare(differences, "ballX", recorded.ballX, replayed.ballX);
+        compare(differences, "ballY", recorded.ballY, replayed.ballY);
+        compare(differences, "ballXSpeed", recorded.ballXSpeed, replayed.ballXSpeed);
+        compare(differences, "ballYSpeed", recorded.ballYSpeed, replayed.ballYSpeed);
+        compare(differences, "deformationFrames", recorded.deformationFrames, replayed.deformationFrames);
+        if (recorded.randomState != replayed.randomState) {
+            differences.add("randomState");
+        }
+
+        int recordedBalls = ballCount(recorded);
+        int replayedBalls = ballCount(replayed);
+        if (recordedBalls != replayedBalls) {
+            differences.add("extra balls " + recordedBalls + " -> " + replayedBalls);
+        }
+        int differentBalls = 0;
+        int firstDifferent = -1;
+        for (int i = 0; i < Math.min(recordedBalls, replayedBalls); i++) {
+            if (!sameBall(recorded.extraBalls, replayed.extraBalls, i)) {
+                differentBalls++;
+                firstDifferent = firstDifferent < 0 ? i : firstDifferent;
+            }
+        }
+        if (differentBalls > 0) {
+            BallStore a = recorded.extraBalls;
+            BallStore b = replayed.extraBalls;
+            differences.add(differentBalls + " extra balls, first #" + firstDifferent + " at ("
+                    + a.x[firstDifferent] + ", " + a.y[firstDifferent] + ") -> ("
+                    + b.x[firstDifferent] + ", " + b.y[firstDifferent] + ")");
+        }
+        return String.join(", ", differences);
+    }
+
+    private static void compare(List<String> differences, String field, long recorded, long replayed) {
+        if (recorded != replayed) {
+            differences.add(field + " " + recorded + " -> " + replayed);
+        }
+    }
+
+    private static void compare(List<String> differences, String field, double recorded, double replayed) {
+        if (!StateEncoder.sameBits(recorded, replayed)) {
+            differences.add(field + " " + recorded + " -> " + replayed);
+        }
+    }
+
+    /**
+     * Verifies replay files and directories of them, printing every replay that diverged.
+     * Exits with status 1 if any did, or could not be read.
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                collect(Path.of(args[i]), files);
+            }
+        }
+        // A stable order, so the work is split the same way on every run
+        files.sort(null);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        VerificationSummary summary = verifyAll(files, pool);
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        for (VerificationResult failure : summary.getFailures()) {
+            System.out.println(failure);
+        }
+        double seconds = elapsed / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("threads=%d: %.1f s, %.0f replays/s, %.1f M ticks/s%n  %s%n", threads, seconds,
+                summary.getReplays() / seconds, summary.getTotalTicks() / seconds / 1e6, summary);
+        if (!summary.isAllIdentical()) {
+            System.exit(1);
+        }
+    }
+
+    private static void collect(Path path, List<Path> files) throws IOException {
+        if (!Files.isDirectory(path)) {
+            files.add(path);
+            return;
+        }
+        try (Stream<Path> tree = Files.walk(path)) {
+            tree.filter(file -> file.getFileName().toString().endsWith(ReplayRecorder.EXTENSION))
+                    .filter(Files::isRegularFile)
+                    .forEach(files::add);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.pong.replay;
+import com.pong.model.BallStore;
+import com.pong.model.GameModel;
+import java.nio.ByteBuffer;
+
+import static com.pong.replay.StateEncoder.*;
+
+/**
+ * StateDecoder reads what {@link StateEncoder} wrote, straight into the public fields of a
+ * {@link GameModel}. It reads the buffer with absolute gets only, so one mapped file can be
+ * shared by any number of decoders, and it allocates nothing after construction.
+ */
+class StateDecoder {
+
+    private final ByteBuffer data;
+    private int position;
+    // Quiet ticks left before the next record applies; -1 if the next tick starts a record
+    private long quietTicks = -1;
+
+    // Same prediction state as the encoder's
+    private final long[] ints = new long[INT_FIELDS];
+    private final long[] intDeltas = new long[INT_FIELDS];
+    private final double[] doubles = new double[DOUBLE_FIELDS];
+    private final double[] doubleDeltas = new double[DOUBLE_FIELDS];
+    private final double[] balls;
+    private final double[] ballDeltas;
+    private final long[] ballDeformations;
+    private final long[] ballDeformationDeltas;
+
+    /**
+     * @param data              Encoded state; positions are absolute within this buffer
+     * @param extraBallCapacity Capacity of the model's extra ball store; 0 in a classic game
+     */
+    StateDecoder(ByteBuffer data, int extraBallCapacity) {
+        this.data = data;
+        balls = new double[extraBallCapacity * 4];
+        ballDeltas = new double[extraBallCapacity * 4];
+        ballDeformations = new long[extraBallCapacity];
+        ballDeformationDeltas = new long[extraBallCapacity];
+    }
+
+    /**
+     * Loads the keyframe at the given position into the model and restarts prediction from it.
+     */
+    void loadKeyframe(int offset, GameModel model) {
+        position = offset;
+        quietTicks = -1;
+        for (int field = 0; field < INT_FIELDS; field++) {
+            if (field == RANDOM_STATE) {
+                ints[field] = data.getLong(position);
+                position += 8;
+            } else {
+                ints[field] = data.getInt(position);
+                position += 4;
+            }
+            intDeltas[field] = 0;
+        }
+        for (int field = 0; field < DOUBLE_FIELDS; field++) {
+            doubles[field] = data.getDouble(position);
+            position += 8;
+            doubleDeltas[field] = 0;
+        }
+        for (int slot = 0; slot < ballDeformations.length; slot++) {
+            for (int field = 0; field < 4; field++) {
+                balls[slot * 4 + field] = data.getDouble(position);
+                ballDeltas[slot * 4 + field] = 0;
+                position += 8;
+            }
+            ballDeformations[slot] = data.getInt(position);
+            ballDeformationDeltas[slot] = 0;
+            position += 4;
+        }
+        writeState(model);
+    }
+
+    /**
+     * Advances the model by one tick of the current segment.
+     */
+    void advance(GameModel model) {
+        if (quietTicks < 0) {
+            quietTicks = getVarLong();
+        }
+        if (quietTicks > 0) {
+            quietTicks--;
+            predict();
+        } else {
+            quietTicks = -1;
+            applyRecord();
+        }
+        writeState(model);
+    }
+
+    private void predict() {
+        for (int field = 0; field < INT_FIELDS; field++) {
+            ints[field] += intDeltas[field];
+        }
+        for (int field = 0; field < DOUBLE_FIELDS; field++) {
+            doubles[field] += doubleDeltas[field];
+        }
+        predictBalls();
+    }
+
+    private void predictBalls() {
+        for (int i = 0; i < balls.length; i++) {
+            balls[i] += ballDeltas[i];
+        }
+        for (int slot = 0; slot < ballDeformations.length; slot++) {
+            ballDeformations[slot] += ballDeformationDeltas[slot];
+        }
+    }
+
+    private void applyRecord() {
+        int mask = (int) getVarLong();
+        for (int field = 0; field < INT_FIELDS; field++) {
+            long predicted = ints[field] + intDeltas[field];
+            if ((mask & 1 << field) != 0) {
+                long value = predicted + unzigzag(getVarLong());
+                intDeltas[field] = value - ints[field];
+                ints[field] = value;
+            } else {
+                ints[field] = predicted;
+            }
+        }
+        for (int field = 0; field < DOUBLE_FIELDS; field++) {
+            if ((mask & 1 << (INT_FIELDS + field)) != 0) {
+                double value = getResidual(doubles[field] + doubleDeltas[field]);
+                doubleDeltas[field] = value - doubles[field];
+                doubles[field] = value;
+            } else {
+                doubles[field] += doubleDeltas[field];
+            }
+        }
+        if ((mask & EXTRA_BALLS) != 0) {
+            applyChangedBalls();
+        } else {
+            predictBalls();
+        }
+    }
+
+    private void applyChangedBalls() {
+        long changedBalls = getVarLong();
+        // Each changed ball starts with its gap from the previous one
+        int nextChanged = (int) getVarLong();
+        for (int slot = 0; slot < ballDeformations.length; slot++) {
+            int mask = 0;
+            if (slot == nextChanged) {
+                mask = data.get(position++);
+            }
+            for (int field = 0; field < 4; field++) {
+                int i = slot * 4 + field;
+                if ((mask & 1 << field) != 0) {
+                    double value = getResidual(balls[i] + ballDeltas[i]);
+                    ballDeltas[i] = value - balls[i];
+                    balls[i] = value;
+                } else {
+                    balls[i] += ballDeltas[i];
+                }
+            }
+            long predicted = ballDeformations[slot] + ballDeformationDeltas[slot];
+            if ((mask & 1 << BALL_DEFORMATION) != 0) {
+                long value = predicted + unzigzag(getVarLong());
+                ballDeformationDeltas[slot] = value - ballDeformations[slot];
+                ballDeformations[slot] = value;
+            } else {
+                ballDeformations[slot] = predicted;
+            }
+            if (slot == nextChanged && --changedBalls > 0) {
+                nextChanged = slot + 1 + (int) getVarLong();
+            }
+        }
+    }
+
+    private void writeState(GameModel model) {
+        model.paddle1Y = (int) ints[PADDLE1_Y];
+        model.paddle1Speed = (int) ints[PADDLE1_SPEED];
+        model.paddle2Y = (int) ints[PADDLE2_Y];
+        model.paddle2Speed = (int) ints[PADDLE2_SPEED];
+        model.player1Score = (int) ints[PLAYER1_SCORE];
+        model.player2Score = (int) ints[PLAYER2_SCORE];
+        model.deformationFrames = (int) ints[DEFORMATION_FRAMES];
+        model.randomState = ints[RANDOM_STATE];
+        model.ballX = doubles[BALL_X];
+        model.ballY = doubles[BALL_Y];
+        model.ballXSpeed = doubles[BALL_X_SPEED];
+        model.ballYSpeed = doubles[BALL_Y_SPEED];
+        BallStore store = model.extraBalls;
+        if (store != null) {
+            store.count = (int) ints[EXTRA_BALL_COUNT];
+            for (int slot = 0; slot < ballDeformations.length; slot++) {
+                store.x[slot] = balls[slot * 4];
+                store.y[slot] = balls[slot * 4 + 1];
+                store.xSpeed[slot] = balls[slot * 4 + 2];
+                store.ySpeed[slot] = balls[slot * 4 + 3];
+                store.deformationFrames[slot] = (int) ballDeformations[slot];
+            }
+        }
+    }
+
+    /**
+     * Reads a double written by {@link StateEncoder}'s putResidual.
+     */
+    private double getResidual(double predicted) {
+        long tagged = getVarLong();
+        if ((tagged & 1) != 0) {
+            double value = data.getDouble(position);
+            position += 8;
+            return value;
+        }
+        return predicted + unzigzag(tagged >>> 1) / RESIDUAL_SCALE;
+    }
+
+    private long getVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
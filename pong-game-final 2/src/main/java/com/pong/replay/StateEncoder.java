@@ -0,0 +1,373 @@
+package com.pong.replay;
+import com.pong.model.BallStore;
+import com.pong.model.GameModel;
+import java.util.Arrays;
+
+/**
+ * StateEncoder turns the model's state after every tick into the states of a replay's seek
+ * file (see {@link ReplayArchive}): a full keyframe every few hundred ticks and, in between, one delta record per tick.
+ *
+ * Deltas are predicted rather than stored: every field is expected to change by the same
+ * amount as on the tick before (a ball in flight, a paddle held down, a score that stays
+ * put), and only fields that miss their prediction are written. Ticks where every field
+ * matches are not written at all, only counted. Both sides run the same arithmetic, so the
+ * decoder reproduces every value bit for bit.
+ *
+ * <pre>
+ * keyframe: int paddle 1 y, paddle 1 speed, paddle 2 y, paddle 2 speed, scores, deformation
+ *           frames; long random state; int extra ball count; double ball x, y, x speed,
+ *           y speed; then per extra ball slot: double x, y, x speed, y speed; int deformation
+ * record:   varint quiet ticks before this one; varint field mask; the fields that missed
+ *           their prediction as residuals (see {@link #putResidual(double, double)} for doubles);
+ *           with {@link #EXTRA_BALLS}: varint ball count, per ball varint index gap,
+ *           byte ball mask, its fields
+ * </pre>
+ *
+ * Used from the game loop thread only. The output buffer doubles when full; nothing else is
+ * allocated per tick.
+ */
+class StateEncoder {
+
+    // Integer fields, as indexes into the integer state and bits of the field mask
+    static final int PADDLE1_Y = 0;
+    static final int PADDLE1_SPEED = 1;
+    static final int PADDLE2_Y = 2;
+    static final int PADDLE2_SPEED = 3;
+    static final int PLAYER1_SCORE = 4;
+    static final int PLAYER2_SCORE = 5;
+    static final int DEFORMATION_FRAMES = 6;
+    static final int RANDOM_STATE = 7;
+    static final int EXTRA_BALL_COUNT = 8;
+    static final int INT_FIELDS = 9;
+    // Double fields follow in the mask
+    static final int BALL_X = 0;
+    static final int BALL_Y = 1;
+    static final int BALL_X_SPEED = 2;
+    static final int BALL_Y_SPEED = 3;
+    static final int DOUBLE_FIELDS = 4;
+    // Mask bit for the extra ball section of a record
+    static final int EXTRA_BALLS = 1 << (INT_FIELDS + DOUBLE_FIELDS);
+    // Resolution of fixed-point double residuals; speeds are quantized to it (see PhysicsEngine)
+    static final double RESIDUAL_SCALE = 1024;
+    // Largest fixed-point residual; beyond it doubles are written raw
+    private static final double MAX_FIXED_RESIDUAL = 0x1p40;
+
+    // Fields of an extra ball, as bits of the ball mask
+    static final int BALL_FIELDS = 5;
+    static final int BALL_DEFORMATION = 4;
+
+    private byte[] buffer = new byte[16384];
+    private int length = 0;
+    private int[] keyframeOffsets = new int[64];
+    private int keyframeCount = 0;
+    // Ticks since the last record whose fields all matched their prediction
+    private int quietTicks = 0;
+
+    // Predicted state: last value and last change of every field
+    private final long[] ints = new long[INT_FIELDS];
+    private final long[] intDeltas = new long[INT_FIELDS];
+    private final long[] currentInts = new long[INT_FIELDS];
+    private final double[] doubles = new double[DOUBLE_FIELDS];
+    private final double[] doubleDeltas = new double[DOUBLE_FIELDS];
+    private final double[] currentDoubles = new double[DOUBLE_FIELDS];
+    // Extra balls: [slot * 4 + field] for the doubles, [slot] for the deformation frames
+    private final double[] balls;
+    private final double[] ballDeltas;
+    private final long[] ballDeformations;
+    private final long[] ballDeformationDeltas;
+    private final int[] ballMasks;
+
+    /**
+     * @param extraBallCapacity Capacity of the model's extra ball store; 0 in a classic game
+     */
+    StateEncoder(int extraBallCapacity) {
+        balls = new double[extraBallCapacity * 4];
+        ballDeltas = new double[extraBallCapacity * 4];
+        ballDeformations = new long[extraBallCapacity];
+        ballDeformationDeltas = new long[extraBallCapacity];
+        ballMasks = new int[extraBallCapacity];
+    }
+
+    /**
+     * Writes a keyframe of the model's full state and restarts prediction from it.
+     */
+    void keyframe(GameModel model) {
+        endSegment();
+        if (keyframeCount == keyframeOffsets.length) {
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+        }
+        keyframeOffsets[keyframeCount++] = length;
+
+        readState(model, currentInts, currentDoubles);
+        ensureCapacity(INT_FIELDS * 8 + DOUBLE_FIELDS * 8 + balls.length * 8 + ballDeformations.length * 4);
+        for (int field = 0; field < INT_FIELDS; field++) {
+            if (field == RANDOM_STATE) {
+                putLong(currentInts[field]);
+            } else {
+                putInt((int) currentInts[field]);
+            }
+            ints[field] = currentInts[field];
+            intDeltas[field] = 0;
+        }
+        for (int field = 0; field < DOUBLE_FIELDS; field++) {
+            putLong(Double.doubleToRawLongBits(currentDoubles[field]));
+            doubles[field] = currentDoubles[field];
+            doubleDeltas[field] = 0;
+        }
+        BallStore store = model.extraBalls;
+        for (int slot = 0; slot < ballDeformations.length; slot++) {
+            for (int field = 0; field < 4; field++) {
+                double value = ballField(store, slot, field);
+                putLong(Double.doubleToRawLongBits(value));
+                balls[slot * 4 + field] = value;
+                ballDeltas[slot * 4 + field] = 0;
+            }
+            putInt(store.deformationFrames[slot]);
+            ballDeformations[slot] = store.deformationFrames[slot];
+            ballDeformationDeltas[slot] = 0;
+        }
+    }
+
+    /**
+     * Records the model's state after one more tick.
+     */
+    void tick(GameModel model) {
+        readState(model, currentInts, currentDoubles);
+        int mask = 0;
+        for (int field = 0; field < INT_FIELDS; field++) {
+            if (currentInts[field] != ints[field] + intDeltas[field]) {
+                mask |= 1 << field;
+            }
+        }
+        for (int field = 0; field < DOUBLE_FIELDS; field++) {
+            if (!sameBits(currentDoubles[field], doubles[field] + doubleDeltas[field])) {
+                mask |= 1 << (INT_FIELDS + field);
+            }
+        }
+        int changedBalls = findChangedBalls(model.extraBalls);
+        if (changedBalls > 0) {
+            mask |= EXTRA_BALLS;
+        }
+
+        if (mask == 0) {
+            quietTicks++;
+            advancePrediction(model.extraBalls);
+            return;
+        }
+
+        ensureCapacity(10 + 5 + INT_FIELDS * 10 + DOUBLE_FIELDS * 9 + 5);
+        putVarLong(quietTicks);
+        quietTicks = 0;
+        putVarLong(mask);
+        for (int field = 0; field < INT_FIELDS; field++) {
+            long value = currentInts[field];
+            if ((mask & 1 << field) != 0) {
+                putVarLong(zigzag(value - (ints[field] + intDeltas[field])));
+                intDeltas[field] = value - ints[field];
+            }
+            ints[field] = value;
+        }
+        for (int field = 0; field < DOUBLE_FIELDS; field++) {
+            double value = currentDoubles[field];
+            if ((mask & 1 << (INT_FIELDS + field)) != 0) {
+                putResidual(value, doubles[field] + doubleDeltas[field]);
+                doubleDeltas[field] = value - doubles[field];
+            } else {
+                value = doubles[field] + doubleDeltas[field];
+            }
+            doubles[field] = value;
+        }
+        if (changedBalls > 0) {
+            writeChangedBalls(model.extraBalls, changedBalls);
+        } else {
+            advanceBallPrediction(model.extraBalls);
+        }
+    }
+
+    /**
+     * Closes the current segment, so the next keyframe or the end of the data follows.
+     */
+    void endSegment() {
+        if (quietTicks > 0) {
+            // A record with an empty mask is one more quiet tick
+            ensureCapacity(20);
+            putVarLong(quietTicks - 1);
+            putVarLong(0);
+            quietTicks = 0;
+        }
+    }
+
+    /**
+     * Computes the mask of every extra ball that missed its prediction.
+     *
+     * @return Number of such balls
+     */
+    private int findChangedBalls(BallStore store) {
+        int changed = 0;
+        for (int slot = 0; slot < ballMasks.length; slot++) {
+            int mask = 0;
+            for (int field = 0; field < 4; field++) {
+                int i = slot * 4 + field;
+                if (!sameBits(ballField(store, slot, field), balls[i] + ballDeltas[i])) {
+                    mask |= 1 << field;
+                }
+            }
+            if (store.deformationFrames[slot] != ballDeformations[slot] + ballDeformationDeltas[slot]) {
+                mask |= 1 << BALL_DEFORMATION;
+            }
+            ballMasks[slot] = mask;
+            if (mask != 0) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private void writeChangedBalls(BallStore store, int changedBalls) {
+        putVarLong(changedBalls);
+        int previousSlot = -1;
+        for (int slot = 0; slot < ballMasks.length; slot++) {
+            int mask = ballMasks[slot];
+            if (mask != 0) {
+                ensureCapacity(5 + 1 + 4 * 9 + 10);
+                putVarLong(slot - previousSlot - 1);
+                previousSlot = slot;
+                buffer[length++] = (byte) mask;
+            }
+            for (int field = 0; field < 4; field++) {
+                int i = slot * 4 + field;
+                double value = ballField(store, slot, field);
+                if ((mask & 1 << field) != 0) {
+                    putResidual(value, balls[i] + ballDeltas[i]);
+                    ballDeltas[i] = value - balls[i];
+                } else {
+                    value = balls[i] + ballDeltas[i];
+                }
+                balls[i] = value;
+            }
+            long deformation = store.deformationFrames[slot];
+            if ((mask & 1 << BALL_DEFORMATION) != 0) {
+                putVarLong(zigzag(deformation - (ballDeformations[slot] + ballDeformationDeltas[slot])));
+                ballDeformationDeltas[slot] = deformation - ballDeformations[slot];
+            }
+            ballDeformations[slot] = deformation;
+        }
+    }
+
+    /**
+     * Writes a double that missed its prediction. Positions and speeds are almost always whole
+     * multiples of 1 / {@link #RESIDUAL_SCALE} apart from their prediction, so the residual is
+     * written as a fixed-point zigzag varint shifted left by one. Anything else is written as
+     * the byte 1 followed by the raw value.
+     */
+    private void putResidual(double value, double predicted) {
+        double fixed = (value - predicted) * RESIDUAL_SCALE;
+        if (Math.abs(fixed) < MAX_FIXED_RESIDUAL && fixed == Math.rint(fixed)
+                && sameBits(predicted + (long) fixed / RESIDUAL_SCALE, value)) {
+            putVarLong(zigzag((long) fixed) << 1);
+        } else {
+            buffer[length++] = 1;
+            putLong(Double.doubleToRawLongBits(value));
+        }
+    }
+
+    private void advancePrediction(BallStore store) {
+        for (int field = 0; field < INT_FIELDS; field++) {
+            ints[field] += intDeltas[field];
+        }
+        for (int field = 0; field < DOUBLE_FIELDS; field++) {
+            doubles[field] += doubleDeltas[field];
+        }
+        advanceBallPrediction(store);
+    }
+
+    private void advanceBallPrediction(BallStore store) {
+        for (int i = 0; i < balls.length; i++) {
+            balls[i] += ballDeltas[i];
+        }
+        for (int slot = 0; slot < ballDeformations.length; slot++) {
+            ballDeformations[slot] += ballDeformationDeltas[slot];
+        }
+    }
+
+    /**
+     * Copies the model's scalar state into the encoder's field order.
+     */
+    static void readState(GameModel model, long[] ints, double[] doubles) {
+        ints[PADDLE1_Y] = model.paddle1Y;
+        ints[PADDLE1_SPEED] = model.paddle1Speed;
+        ints[PADDLE2_Y] = model.paddle2Y;
+        ints[PADDLE2_SPEED] = model.paddle2Speed;
+        ints[PLAYER1_SCORE] = model.player1Score;
+        ints[PLAYER2_SCORE] = model.player2Score;
+        ints[DEFORMATION_FRAMES] = model.deformationFrames;
+        ints[RANDOM_STATE] = model.randomState;
+        ints[EXTRA_BALL_COUNT] = model.extraBalls != null ? model.extraBalls.count : 0;
+        doubles[BALL_X] = model.ballX;
+        doubles[BALL_Y] = model.ballY;
+        doubles[BALL_X_SPEED] = model.ballXSpeed;
+        doubles[BALL_Y_SPEED] = model.ballYSpeed;
+    }
+
+    private static double ballField(BallStore store, int slot, int field) {
+        return switch (field) {
+            case 0 -> store.x[slot];
+            case 1 -> store.y[slot];
+            case 2 -> store.xSpeed[slot];
+            default -> store.ySpeed[slot];
+        };
+    }
+
+    static boolean sameBits(double a, double b) {
+        return Double.doubleToRawLongBits(a) == Double.doubleToRawLongBits(b);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (length + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + bytes));
+        }
+    }
+
+    private void putInt(int value) {
+        buffer[length++] = (byte) (value >>> 24);
+        buffer[length++] = (byte) (value >>> 16);
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) value;
+    }
+
+    private void putLong(long value) {
+        putInt((int) (value >>> 32));
+        putInt((int) value);
+    }
+
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * @return Offsets of the keyframes within the buffer, in tick order
+     */
+    int[] getKeyframeOffsets() {
+        return keyframeOffsets;
+    }
+
+    int getKeyframeCount() {
+        return keyframeCount;
+    }
+}
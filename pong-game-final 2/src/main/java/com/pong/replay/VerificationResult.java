@@ -0,0 +1,66 @@
+package com.pong.replay;
+import java.nio.file.Path;
+
+/**
+ * Outcome of re-simulating one replay file with {@link ReplayVerifier}.
+ */
+public class VerificationResult {
+
+    /**
+     * Returned as the divergent tick when the replay played back identically, or when the
+     * file only records its final state and the point of divergence cannot be told.
+     */
+    public static final int NO_TICK = -1;
+
+    private final Path file;
+    private final int tickCount;
+    private final boolean identical;
+    private final int divergentTick;
+    private final String detail;
+
+    /**
+     * @param file          Replay that was verified
+     * @param tickCount     Ticks the replay holds, or 0 if it could not be read
+     * @param identical     True if every checked state matched the recording
+     * @param divergentTick First tick whose state differed, or {@link #NO_TICK}
+     * @param detail        What differed, or why the file could not be verified; null if identical
+     */
+    public VerificationResult(Path file, int tickCount, boolean identical, int divergentTick, String detail) {
+        this.file = file;
+        this.tickCount = tickCount;
+        this.identical = identical;
+        this.divergentTick = divergentTick;
+        this.detail = detail;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    public boolean isIdentical() {
+        return identical;
+    }
+
+    public int getDivergentTick() {
+        return divergentTick;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String toString() {
+        if (identical) {
+            return file + ": identical (" + tickCount + " ticks)";
+        }
+        if (divergentTick == NO_TICK) {
+            return file + ": " + detail;
+        }
+        return file + ": diverged at tick " + divergentTick + " of " + tickCount + ": " + detail;
+    }
+}
@@ -0,0 +1,70 @@
+package com.pong.replay;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Aggregated outcome of verifying a corpus of replays. Summaries are merged pairwise like
+ * {@link com.pong.simulation.BatchSummary}; only the failures are kept in full.
+ */
+public class VerificationSummary {
+    private long replays;
+    private long identical;
+    private long totalTicks;
+    private final List<VerificationResult> failures = new ArrayList<>();
+
+    /**
+     * Adds the result of a single replay to this summary.
+     */
+    public void add(VerificationResult result) {
+        replays++;
+        totalTicks += result.getTickCount();
+        if (result.isIdentical()) {
+            identical++;
+        } else {
+            failures.add(result);
+        }
+    }
+
+    /**
+     * Merges another summary into this one.
+     */
+    public VerificationSummary merge(VerificationSummary other) {
+        replays += other.replays;
+        identical += other.identical;
+        totalTicks += other.totalTicks;
+        failures.addAll(other.failures);
+        return this;
+    }
+
+    public long getReplays() {
+        return replays;
+    }
+
+    public long getIdentical() {
+        return identical;
+    }
+
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+
+    /**
+     * @return Replays that diverged or could not be read, in file order
+     */
+    public List<VerificationResult> getFailures() {
+        List<VerificationResult> sorted = new ArrayList<>(failures);
+        sorted.sort(Comparator.comparing(VerificationResult::getFile));
+        return sorted;
+    }
+
+    public boolean isAllIdentical() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("replays=%d, identical=%d, failed=%d, ticks=%d",
+                replays, identical, failures.size(), totalTicks);
+    }
+}
@@ -0,0 +1,58 @@
+package com.pong.simulation;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * BatchSimulator runs large numbers of independent matches across a ForkJoinPool.
+ * The match range is split recursively until each task holds a small block of
+ * matches, which is then simulated sequentially on one worker.
+ */
+public class BatchSimulator {
+
+    // Matches simulated sequentially per leaf task; big enough to amortise task overhead
+    private static final int MATCHES_PER_TASK = 64;
+
+    private final MatchSimulator simulator;
+
+    public BatchSimulator(MatchSimulator simulator) {
+        this.simulator = simulator;
+    }
+
+    /**
+     * Simulates {@code matches} matches, seeded from {@code batchSeed}, on the given pool.
+     *
+     * @return Aggregated results; identical for the same seed regardless of parallelism
+     */
+    public BatchSummary run(long batchSeed, long matches, ForkJoinPool pool) {
+        return pool.invoke(new SimulationTask(batchSeed, 0, matches));
+    }
+
+    private class SimulationTask extends RecursiveTask<BatchSummary> {
+        private final long batchSeed;
+        private final long from;
+        private final long to;
+
+        SimulationTask(long batchSeed, long from, long to) {
+            this.batchSeed = batchSeed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BatchSummary compute() {
+            if (to - from <= MATCHES_PER_TASK) {
+                BatchSummary summary = new BatchSummary();
+                for (long i = from; i < to; i++) {
+                    summary.add(simulator.simulate(MatchSimulator.matchSeed(batchSeed, i)));
+                }
+                return summary;
+            }
+
+            long mid = (from + to) >>> 1;
+            SimulationTask left = new SimulationTask(batchSeed, from, mid);
+            left.fork();
+            BatchSummary right = new SimulationTask(batchSeed, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.pong.simulation;
+
+/**
+ * Aggregated outcome of a batch of simulated matches.
+ * Summaries are merged pairwise, and the digest is order-independent, so a batch
+ * produces the same summary no matter how its matches were split across threads.
+ */
+public class BatchSummary {
+    private long matches;
+    private long player1Wins;
+    private long player2Wins;
+    private long timeouts;
+    private long totalTicks;
+    private long digest;
+
+    /**
+     * Adds a single match result to this summary.
+     */
+    public void add(MatchResult result) {
+        matches++;
+        totalTicks += result.getTicks();
+        switch (result.getWinner()) {
+            case 1 -> player1Wins++;
+            case 2 -> player2Wins++;
+            default -> timeouts++;
+        }
+
+        // Mix the full result so any change in any match changes the digest
+        long h = result.getSeed();
+        h = h * 31 + result.getPlayer1Score();
+        h = h * 31 + result.getPlayer2Score();
+        h = h * 31 + result.getTicks();
+        digest += MatchSimulator.matchSeed(h, 0);
+    }
+
+    /**
+     * Merges another summary into this one.
+     */
+    public BatchSummary merge(BatchSummary other) {
+        matches += other.matches;
+        player1Wins += other.player1Wins;
+        player2Wins += other.player2Wins;
+        timeouts += other.timeouts;
+        totalTicks += other.totalTicks;
+        digest += other.digest;
+        return this;
+    }
+
+    public long getMatches() {
+        return matches;
+    }
+
+    public long getPlayer1Wins() {
+        return player1Wins;
+    }
+
+    public long getPlayer2Wins() {
+        return player2Wins;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+
+    public long getDigest() {
+        return digest;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "matches=%d, player1Wins=%d, player2Wins=%d, timeouts=%d, avgTicks=%.1f, digest=%016x",
+                matches, player1Wins, player2Wins, timeouts,
+                matches == 0 ? 0.0 : (double) totalTicks / matches, digest
+        );
+    }
+}
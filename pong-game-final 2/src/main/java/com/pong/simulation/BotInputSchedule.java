@@ -0,0 +1,76 @@
+package com.pong.simulation;
+import com.pong.model.GameModel;
+import com.pong.physics.InputSchedule;
+
+/**
+ * BotInputSchedule lets two bots drive the event-driven engine. The bots are asked for their
+ * input at most once per tick, and only on the ticks the engine actually visits: a bot is asked
+ * again when its own hold runs out, or when a collision or goal changes the ball's course.
+ */
+public class BotInputSchedule implements InputSchedule {
+
+    private final GameModel model;
+    private final PaddleBot leftBot;
+    private final PaddleBot rightBot;
+    private long cachedTick = -1;
+    private int leftInput;
+    private int rightInput;
+    // First tick at which each bot has to be asked again, unless the ball changes course first
+    private long leftUntil = -1;
+    private long rightUntil = -1;
+    // Ball velocity and points when the bots were last asked, to detect collisions and goals
+    private double xSpeed = Double.NaN;
+    private double ySpeed = Double.NaN;
+    private int points = -1;
+
+    /**
+     * @param model    Game state the bots observe
+     * @param leftBot  Bot for the left paddle (Player 1)
+     * @param rightBot Bot for the right paddle (Player 2)
+     */
+    public BotInputSchedule(GameModel model, PaddleBot leftBot, PaddleBot rightBot) {
+        this.model = model;
+        this.leftBot = leftBot;
+        this.rightBot = rightBot;
+    }
+
+    @Override
+    public int inputAt(long tick) {
+        update(tick);
+        return leftInput | rightInput;
+    }
+
+    @Override
+    public long holdTicks(long tick) {
+        update(tick);
+        return Math.min(leftUntil, rightUntil) - tick;
+    }
+
+    /**
+     * Asks a bot again once its hold has run out. Both are asked after a collision or goal,
+     * which ends every hold.
+     */
+    private void update(long tick) {
+        if (tick == cachedTick) {
+            return;
+        }
+        cachedTick = tick;
+        int currentPoints = model.player1Score + model.player2Score;
+        boolean isNewCourse = model.ballXSpeed != xSpeed || model.ballYSpeed != ySpeed || currentPoints != points;
+        xSpeed = model.ballXSpeed;
+        ySpeed = model.ballYSpeed;
+        points = currentPoints;
+        if (isNewCourse || tick >= leftUntil) {
+            leftInput = leftBot.nextInput(model);
+            leftUntil = until(tick, leftBot.holdTicks(model));
+        }
+        if (isNewCourse || tick >= rightUntil) {
+            rightInput = rightBot.nextInput(model);
+            rightUntil = until(tick, rightBot.holdTicks(model));
+        }
+    }
+
+    private static long until(long tick, long hold) {
+        return hold > Long.MAX_VALUE - tick ? Long.MAX_VALUE : tick + hold;
+    }
+}
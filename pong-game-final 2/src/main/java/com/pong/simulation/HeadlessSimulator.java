@@ -0,0 +1,104 @@
+package com.pong.simulation;
+import com.pong.model.Difficulty;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command-line entry point for bulk headless simulation.
+ * Runs the same batch at increasing parallelism and reports throughput and per-core scaling.
+ *
+ * <pre>
+ * --matches N            number of matches per run (default 100000)
+ * --seed S               batch seed (default 1)
+ * --tick-rate HZ         simulation tick rate (default 60)
+ * --initial-speed V      serve speed in pixels per 60 Hz tick (default 5)
+ * --paddle-influence F   paddle speed transferred to the ball (default 0.35)
+ * --score-limit K        points needed to win (default 11)
+ * --swept true|false     use swept (continuous) collision detection (default false)
+ * --event-driven true|false  jump between collisions instead of stepping every tick (default false)
+ * --left-bot B          bot for the left paddle: tracking, easy, medium or hard (default tracking)
+ * --right-bot B          bot for the right paddle (default tracking)
+ * --threads T            run only at this parallelism instead of a scaling sweep
+ * </pre>
+ */
+public class HeadlessSimulator {
+
+    public static void main(String[] args) {
+        MatchSimulator.Builder builder = new MatchSimulator.Builder();
+        long matches = 100_000;
+        long seed = 1;
+        int threads = 0;
+        String leftBot = "tracking";
+        String rightBot = "tracking";
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--matches" -> matches = Long.parseLong(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--tick-rate" -> builder.setTickRate(Integer.parseInt(value));
+                case "--initial-speed" -> builder.setInitialSpeed(Double.parseDouble(value));
+                case "--paddle-influence" -> builder.setPaddleInfluence(Double.parseDouble(value));
+                case "--score-limit" -> builder.setScoreLimit(Integer.parseInt(value));
+                case "--swept" -> builder.setSweptCollision(Boolean.parseBoolean(value));
+                case "--event-driven" -> builder.setEventDriven(Boolean.parseBoolean(value));
+                case "--left-bot" -> leftBot = value;
+                case "--right-bot" -> rightBot = value;
+                case "--threads" -> threads = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        PaddleBot.Factory leftFactory = botFactory(leftBot);
+        PaddleBot.Factory rightFactory = botFactory(rightBot);
+        builder.setBotFactory((isLeftPaddle, botSeed) -> isLeftPaddle
+                ? leftFactory.create(true, botSeed)
+                : rightFactory.create(false, botSeed));
+
+        BatchSimulator batch = new BatchSimulator(builder.build());
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // Warm up the JIT so the first measured run is not penalised
+        ForkJoinPool warmupPool = new ForkJoinPool(cores);
+        batch.run(seed, Math.min(matches, 10_000), warmupPool);
+        warmupPool.shutdown();
+
+        double singleThreadRate = 0;
+        for (int parallelism = threads > 0 ? threads : 1; parallelism <= (threads > 0 ? threads : cores); ) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            long start = System.nanoTime();
+            BatchSummary summary = batch.run(seed, matches, pool);
+            long elapsed = System.nanoTime() - start;
+            pool.shutdown();
+
+            double rate = matches / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+            if (parallelism == 1) {
+                singleThreadRate = rate;
+            }
+            String scaling = singleThreadRate > 0
+                    ? String.format(", speedup %.2fx, per-core efficiency %.0f%%",
+                            rate / singleThreadRate, 100 * rate / singleThreadRate / parallelism)
+                    : "";
+            System.out.printf("threads=%d: %.0f matches/s%s%n  %s%n", parallelism, rate, scaling, summary);
+
+            if (parallelism == cores || threads > 0) {
+                break;
+            }
+            parallelism = Math.min(parallelism * 2, cores);
+        }
+    }
+
+    /**
+     * @param name "tracking" or a {@link Difficulty} label
+     */
+    private static PaddleBot.Factory botFactory(String name) {
+        if (name.equalsIgnoreCase("tracking")) {
+            return (isLeftPaddle, seed) -> new TrackingBot(isLeftPaddle, 300, seed);
+        }
+        Difficulty difficulty = Difficulty.fromLabel(name);
+        if (!difficulty.getLabel().equalsIgnoreCase(name)) {
+            throw new IllegalArgumentException("Unknown bot: " + name);
+        }
+        return (isLeftPaddle, seed) -> new PredictiveBot(isLeftPaddle, difficulty, seed);
+    }
+}
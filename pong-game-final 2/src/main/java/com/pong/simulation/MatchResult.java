@@ -0,0 +1,61 @@
+package com.pong.simulation;
+
+/**
+ * Outcome of one simulated match.
+ */
+public class MatchResult {
+    private final long seed;
+    private final int player1Score;
+    private final int player2Score;
+    private final long ticks;
+    private final boolean timedOut;
+
+    public MatchResult(long seed, int player1Score, int player2Score, long ticks, boolean timedOut) {
+        this.seed = seed;
+        this.player1Score = player1Score;
+        this.player2Score = player2Score;
+        this.ticks = ticks;
+        this.timedOut = timedOut;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getPlayer1Score() {
+        return player1Score;
+    }
+
+    public int getPlayer2Score() {
+        return player2Score;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return 1 or 2 for the winning player, or 0 if the match hit the tick limit
+     */
+    public int getWinner() {
+        if (timedOut) {
+            return 0;
+        }
+        return player1Score > player2Score ? 1 : 2;
+    }
+
+    @Override
+    public String toString() {
+        return "MatchResult{" +
+                "seed=" + seed +
+                ", player1Score=" + player1Score +
+                ", player2Score=" + player2Score +
+                ", ticks=" + ticks +
+                ", timedOut=" + timedOut +
+                '}';
+    }
+}
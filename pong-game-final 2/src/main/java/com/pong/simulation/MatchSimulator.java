@@ -0,0 +1,146 @@
+package com.pong.simulation;
+import com.pong.model.GameModel;
+import com.pong.physics.EventDrivenEngine;
+import com.pong.physics.PhysicsEngine;
+
+/**
+ * MatchSimulator plays complete matches headlessly: a GameModel and a PhysicsEngine
+ * driven by two bots, with no window, view or audio. Results depend only on the seed
+ * and the configured parameters, so the same seed always produces the same match.
+ */
+public class MatchSimulator {
+
+    // Same playfield as the interactive game
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+    private static final int PADDLE_WIDTH = 10;
+    private static final int PADDLE_HEIGHT = 100;
+    private static final int BALL_SIZE = 20;
+
+    private final int tickRate;
+    private final double initialSpeed;
+    private final double paddleInfluence;
+    private final int scoreLimit;
+    private final boolean sweptCollision;
+    private final boolean eventDriven;
+    private final long maxTicks;
+    private final PaddleBot.Factory botFactory;
+
+    public MatchSimulator(int tickRate, double initialSpeed, double paddleInfluence, int scoreLimit,
+                          boolean sweptCollision, boolean eventDriven, long maxTicks, PaddleBot.Factory botFactory) {
+        if (sweptCollision && eventDriven) {
+            throw new IllegalArgumentException("The event-driven engine does not support swept collision");
+        }
+        this.tickRate = tickRate;
+        this.initialSpeed = initialSpeed;
+        this.paddleInfluence = paddleInfluence;
+        this.scoreLimit = scoreLimit;
+        this.sweptCollision = sweptCollision;
+        this.eventDriven = eventDriven;
+        this.maxTicks = maxTicks;
+        this.botFactory = botFactory;
+    }
+
+    /**
+     * Plays one match to the score limit, or until the tick limit is reached.
+     *
+     * @param seed Seed for the match random source
+     * @return The final score and length of the match
+     */
+    public MatchResult simulate(long seed) {
+        GameModel model = new GameModel(WIDTH, HEIGHT, PADDLE_WIDTH, PADDLE_HEIGHT, BALL_SIZE, scoreLimit);
+        PhysicsEngine engine = new PhysicsEngine.Builder(model)
+                .setTickRate(tickRate)
+                .setInitialSpeed(initialSpeed)
+                .setPaddleInfluence(paddleInfluence)
+                .setSweptCollision(sweptCollision)
+                .setSeed(seed)
+                .build();
+        PaddleBot leftBot = botFactory.create(true, matchSeed(seed, 1));
+        PaddleBot rightBot = botFactory.create(false, matchSeed(seed, 2));
+
+        long ticks = 0;
+        if (eventDriven) {
+            // Jump over quiet stretches; produces the same match as stepping every tick
+            ticks = new EventDrivenEngine(model, engine).advance(maxTicks, new BotInputSchedule(model, leftBot, rightBot));
+        }
+        while (!model.isGameOver() && ticks < maxTicks) {
+            engine.step(leftBot.nextInput(model) | rightBot.nextInput(model));
+            ticks++;
+        }
+        return new MatchResult(seed, model.player1Score, model.player2Score, ticks, !model.isGameOver());
+    }
+
+    /**
+     * Derives a well-mixed seed for the match at {@code index} of a batch, so every
+     * match in a batch is independent yet reproducible from the batch seed alone.
+     */
+    public static long matchSeed(long batchSeed, long index) {
+        long z = batchSeed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public static class Builder {
+        private int tickRate = PhysicsEngine.BASE_TICK_RATE;
+        private double initialSpeed = 5;
+        private double paddleInfluence = 0.35;
+        private int scoreLimit = 11;
+        private boolean sweptCollision = false;
+        private boolean eventDriven = false;
+        // Unset until setMaxTicks; defaults to 30 minutes of game time at the chosen tick rate
+        private long maxTicks = -1;
+        private PaddleBot.Factory botFactory = (isLeftPaddle, seed) -> new TrackingBot(isLeftPaddle, 300, seed);
+
+        public Builder setTickRate(int tickRate) {
+            this.tickRate = tickRate;
+            return this;
+        }
+
+        public Builder setInitialSpeed(double initialSpeed) {
+            this.initialSpeed = initialSpeed;
+            return this;
+        }
+
+        public Builder setPaddleInfluence(double paddleInfluence) {
+            this.paddleInfluence = paddleInfluence;
+            return this;
+        }
+
+        public Builder setScoreLimit(int scoreLimit) {
+            this.scoreLimit = scoreLimit;
+            return this;
+        }
+
+        public Builder setSweptCollision(boolean sweptCollision) {
+            this.sweptCollision = sweptCollision;
+            return this;
+        }
+
+        public Builder setEventDriven(boolean eventDriven) {
+            this.eventDriven = eventDriven;
+            return this;
+        }
+
+        public Builder setMaxTicks(long maxTicks) {
+            this.maxTicks = maxTicks;
+            return this;
+        }
+
+        public Builder setBotFactory(PaddleBot.Factory botFactory) {
+            this.botFactory = botFactory;
+            return this;
+        }
+
+        public MatchSimulator build() {
+            long ticks = maxTicks >= 0 ? maxTicks : 30L * 60 * tickRate;
+            return new MatchSimulator(tickRate, initialSpeed, paddleInfluence, scoreLimit, sweptCollision, eventDriven, ticks,
+                    botFactory);
+        }
+    }
+}
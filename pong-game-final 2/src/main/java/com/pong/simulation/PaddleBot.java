@@ -0,0 +1,99 @@
+package com.pong.simulation;
+import com.pong.model.GameModel;
+import java.util.function.LongPredicate;
+
+/**
+ * PaddleBot drives one paddle without a human at the keyboard.
+ * Bots are called once per tick from a single thread and may keep state between calls.
+ */
+public interface PaddleBot {
+
+    /**
+     * Decides which keys the bot holds during the coming tick.
+     *
+     * @param model Current game state
+     * @return Bit set of {@link com.pong.physics.PaddleInput} flags for the bot's own paddle
+     */
+    int nextInput(GameModel model);
+
+    /**
+     * Tells the event-driven engine how long it may skip calling {@link #nextInput}. Called right
+     * after {@code nextInput} for the same tick. The returned ticks, starting with the current
+     * one, must produce the same input and leave the bot's state unchanged as long as the ball
+     * moves in a straight line; a collision or goal always ends the hold early.
+     *
+     * @param model Current game state
+     * @return Number of ticks (at least 1) the current input is held for
+     */
+    default long holdTicks(GameModel model) {
+        return 1;
+    }
+
+    /**
+     * Helper for {@link #holdTicks}: finds the first tick k > {@code from} at which a condition
+     * on the state k ticks ahead stops holding, given that it holds at {@code from} and, once
+     * false, stays false. The search starts at an estimate, usually where a linear approximation
+     * crosses its bound, and corrects it with exact checks of the condition, so rounding cannot
+     * make the hold a tick too long or too short.
+     *
+     * @param from     Tick known to satisfy the condition
+     * @param estimate Approximate first failing tick, or positive infinity if it never fails
+     * @param isHeld   The bot's own test, evaluated on the state k ticks ahead
+     * @return The first failing tick, or {@link Long#MAX_VALUE} if the estimate is unbounded
+     */
+    static long firstTickFailing(long from, double estimate, LongPredicate isHeld) {
+        // Far beyond any match length, so as good as never
+        if (!(estimate < 0x1.0p40)) {
+            return Long.MAX_VALUE;
+        }
+        long n = Math.max(from + 1, (long) Math.ceil(estimate));
+        while (n > from + 1 && !isHeld.test(n - 1)) {
+            n--;
+        }
+        while (isHeld.test(n)) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Helper for the estimates passed to {@link #firstTickFailing}: the ticks a linearly
+     * changing {@code value + k * rate} takes to reach {@code bound}.
+     *
+     * @return The ticks, or positive infinity if the value never reaches the bound
+     */
+    static double ticksToReach(double value, double rate, double bound) {
+        double ticks = (bound - value) / rate;
+        return ticks >= 0 ? ticks : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Helper for {@link #holdTicks}: where a paddle moving at a constant velocity is after a
+     * number of ticks, stopping at the walls like {@link com.pong.physics.PhysicsEngine#movePaddles}.
+     */
+    static long paddleAfter(GameModel model, int paddleY, int velocity, long ticks) {
+        return Math.max(0, Math.min(model.height - model.paddleHeight, paddleY + ticks * velocity));
+    }
+
+    /**
+     * Helper for {@link #holdTicks}: the ticks until a paddle moving at a constant, non-zero
+     * velocity stops at a wall, 0 if it already rests against it.
+     */
+    static long ticksToWall(GameModel model, int paddleY, int velocity) {
+        int distance = velocity < 0 ? paddleY : model.height - model.paddleHeight - paddleY;
+        int speed = Math.abs(velocity);
+        return (Math.max(0, distance) + speed - 1) / speed;
+    }
+
+    /**
+     * Creates a fresh bot for one side of a match.
+     */
+    @FunctionalInterface
+    interface Factory {
+        /**
+         * @param isLeftPaddle True to control the left paddle (Player 1)
+         * @param seed         Seed for any randomness in the bot, derived from the match seed
+         */
+        PaddleBot create(boolean isLeftPaddle, long seed);
+    }
+}
@@ -0,0 +1,216 @@
+package com.pong.simulation;
+import com.pong.model.Difficulty;
+import com.pong.model.GameModel;
+import com.pong.physics.PaddleInput;
+import java.util.function.LongPredicate;
+
+/**
+ * PredictiveBot works out where the ball will cross its paddle's column, following the wall
+ * bounces the physics engine will apply on the way, and moves there ahead of time.
+ * The prediction only depends on the ball's position at the moment its velocity last changed,
+ * so it is computed once per serve, bounce or paddle hit and cached in between; every other
+ * tick costs a couple of comparisons. A prediction walks at most {@link #MAX_BOUNCES} wall
+ * bounces, which bounds the work of the ticks that do recompute it.
+ *
+ * The difficulty decides how early the bot reacts, how far off its aim may be, and whether it
+ * returns to the centre between shots. Like the other bots it keeps no shared state, so any
+ * number of instances can run in parallel.
+ */
+public class PredictiveBot implements PaddleBot {
+
+    // Upper bound on the wall bounces followed by one prediction
+    private static final int MAX_BOUNCES = 32;
+
+    private final boolean isLeftPaddle;
+    private final Difficulty difficulty;
+    private final int upFlag;
+    private final int downFlag;
+    private long randomState;
+
+    // Cached prediction, valid while the ball keeps this velocity and no point is scored
+    private double cachedXSpeed = Double.NaN;
+    private double cachedYSpeed = Double.NaN;
+    private int cachedPoints = -1;
+    private boolean wasApproaching = false;
+    private double aimError = 0;
+    private double targetY;
+    // Paddle movement in pixels per tick, learned from the paddle's first move; 0 until then
+    private int paddleSpeed = 0;
+
+    /**
+     * @param isLeftPaddle True to control the left paddle (Player 1)
+     * @param difficulty   Difficulty level
+     * @param seed         Seed for the aim errors
+     */
+    public PredictiveBot(boolean isLeftPaddle, Difficulty difficulty, long seed) {
+        this.isLeftPaddle = isLeftPaddle;
+        this.difficulty = difficulty;
+        this.randomState = seed;
+        this.upFlag = isLeftPaddle ? PaddleInput.PADDLE1_UP : PaddleInput.PADDLE2_UP;
+        this.downFlag = isLeftPaddle ? PaddleInput.PADDLE1_DOWN : PaddleInput.PADDLE2_DOWN;
+    }
+
+    @Override
+    public int nextInput(GameModel model) {
+        updatePrediction(model);
+
+        if (isWaiting(model)) {
+            return PaddleInput.NONE;
+        }
+        return steer(model, isLeftPaddle ? model.paddle1Y : model.paddle2Y);
+    }
+
+    @Override
+    public long holdTicks(GameModel model) {
+        int paddleVelocity = isLeftPaddle ? model.paddle1Speed : model.paddle2Speed;
+        if (paddleVelocity != 0) {
+            paddleSpeed = Math.abs(paddleVelocity);
+        }
+        if (isApproaching(model)) {
+            double reactionDistance = difficulty.getReactionFraction() * model.width;
+            double distance = distanceToBall(model, 0);
+            if (distance > reactionDistance) {
+                // Idle until the ball enters the reaction zone
+                return PaddleBot.firstTickFailing(0,
+                        PaddleBot.ticksToReach(distance, -Math.abs(model.ballXSpeed), reactionDistance),
+                        k -> distanceToBall(model, k) > reactionDistance);
+            }
+        } else if (!difficulty.isRecentring()) {
+            // Idle until the ball turns, which takes a paddle hit or a new serve
+            return Long.MAX_VALUE;
+        }
+
+        // The target is fixed until the velocity changes, so the paddle moves until it reaches it
+        int paddleY = isLeftPaddle ? model.paddle1Y : model.paddle2Y;
+        int input = steer(model, paddleY);
+        if (input == PaddleInput.NONE) {
+            return Long.MAX_VALUE;
+        }
+        if (paddleSpeed == 0) {
+            // The paddle has not moved yet, so its speed is unknown until the next tick
+            return 1;
+        }
+        int velocity = input == upFlag ? -paddleSpeed : paddleSpeed;
+        LongPredicate isHeld = k -> steer(model, PaddleBot.paddleAfter(model, paddleY, velocity, k)) == input;
+
+        // Once the paddle stops at a wall short of the target, the input never changes
+        if (isHeld.test(PaddleBot.ticksToWall(model, paddleY, velocity))) {
+            return Long.MAX_VALUE;
+        }
+        double deadZone = model.paddleHeight / 10.0;
+        double offset = targetY - paddleCentre(model);
+        return PaddleBot.firstTickFailing(0,
+                PaddleBot.ticksToReach(offset, -velocity, velocity < 0 ? -deadZone : deadZone), isHeld);
+    }
+
+    /**
+     * @return The keys that move the paddle's centre towards the target, with the paddle at
+     * {@code paddleY} and a small dead zone to avoid jitter
+     */
+    private int steer(GameModel model, long paddleY) {
+        double offset = targetY - (paddleY + model.paddleHeight / 2.0);
+        double deadZone = model.paddleHeight / 10.0;
+        if (offset < -deadZone) {
+            return upFlag;
+        }
+        if (offset > deadZone) {
+            return downFlag;
+        }
+        return PaddleInput.NONE;
+    }
+
+    /**
+     * Recomputes the target when the ball's velocity has changed since the last call, or when
+     * a point was scored (a new serve may happen to repeat the previous velocity).
+     */
+    private void updatePrediction(GameModel model) {
+        int points = model.player1Score + model.player2Score;
+        if (model.ballXSpeed == cachedXSpeed && model.ballYSpeed == cachedYSpeed && points == cachedPoints) {
+            return;
+        }
+        cachedXSpeed = model.ballXSpeed;
+        cachedYSpeed = model.ballYSpeed;
+        cachedPoints = points;
+
+        boolean approaching = isApproaching(model);
+        if (approaching && !wasApproaching) {
+            // A new shot towards this paddle: misjudge it by a fresh random amount
+            aimError = (nextUnit() * 2 - 1) * difficulty.getMaxAimError();
+        }
+        wasApproaching = approaching;
+
+        if (approaching) {
+            targetY = predictCrossingY(model) + model.ballSize / 2.0 + aimError;
+        } else if (difficulty.isRecentring()) {
+            targetY = model.height / 2.0;
+        } else {
+            targetY = paddleCentre(model);
+        }
+    }
+
+    /**
+     * Follows the ball in a straight line to the paddle's face, reflecting it off the top and
+     * bottom walls the same way the physics engine does (clamped to the wall, speed reversed).
+     *
+     * @return The ball's top edge when it reaches the paddle's face
+     */
+    private double predictCrossingY(GameModel model) {
+        double ticksLeft = Math.max(0, Math.ceil(distanceToBall(model, 0) / Math.abs(model.ballXSpeed)));
+        double y = model.ballY;
+        double ySpeed = model.ballYSpeed;
+        int bottom = model.height - model.ballSize;
+
+        for (int bounce = 0; bounce < MAX_BOUNCES && ySpeed != 0; bounce++) {
+            // Tick in which the ball reaches the wall it is heading for
+            double wallTicks = Math.max(1, Math.ceil(ySpeed < 0 ? y / -ySpeed : (bottom - y) / ySpeed));
+            if (wallTicks >= ticksLeft) {
+                y += ticksLeft * ySpeed;
+                break;
+            }
+            ticksLeft -= wallTicks;
+            y = ySpeed < 0 ? 0 : bottom;
+            ySpeed = -ySpeed;
+        }
+        return Math.max(0, Math.min(bottom, y));
+    }
+
+    /**
+     * @return True while the bot holds still: the ball is still too far away, or moving away
+     * and the bot does not return to the centre
+     */
+    private boolean isWaiting(GameModel model) {
+        if (isApproaching(model)) {
+            return distanceToBall(model, 0) > difficulty.getReactionFraction() * model.width;
+        }
+        return !difficulty.isRecentring();
+    }
+
+    private boolean isApproaching(GameModel model) {
+        return isLeftPaddle ? model.ballXSpeed < 0 : model.ballXSpeed > 0;
+    }
+
+    /**
+     * @param ticks Ticks ahead, assuming the ball keeps its velocity
+     * @return Horizontal gap between the ball and this paddle's face
+     */
+    private double distanceToBall(GameModel model, long ticks) {
+        double ballX = model.ballX + ticks * model.ballXSpeed;
+        return isLeftPaddle
+                ? ballX - (model.paddle1X + model.paddleWidth)
+                : model.paddle2X - (ballX + model.ballSize);
+    }
+
+    private double paddleCentre(GameModel model) {
+        return (isLeftPaddle ? model.paddle1Y : model.paddle2Y) + model.paddleHeight / 2.0;
+    }
+
+    /**
+     * @return A uniformly distributed value in [0, 1) from the bot's SplitMix64 source
+     */
+    private double nextUnit() {
+        long z = (randomState += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return ((z ^ (z >>> 31)) >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,145 @@
+package com.pong.simulation;
+import com.pong.model.GameModel;
+import com.pong.physics.PaddleInput;
+import java.util.function.LongPredicate;
+
+/**
+ * TrackingBot follows the ball's current height once the ball is heading towards it
+ * and has crossed into its reaction zone. It does not anticipate bounces, so rallies
+ * end naturally when the ball's vertical speed outruns the paddle. Each time the ball
+ * turns towards it, the bot picks a new seeded aim offset along the paddle so that
+ * rallies vary between matches while staying reproducible.
+ */
+public class TrackingBot implements PaddleBot {
+
+    private final boolean isLeftPaddle;
+    private final int reactionDistance;
+    private final int upFlag;
+    private final int downFlag;
+    private long randomState;
+    private boolean wasApproaching = false;
+    private double aimOffset = 0;
+    // Paddle movement in pixels per tick, learned from the paddle's first move; 0 until then
+    private int paddleSpeed = 0;
+
+    /**
+     * @param isLeftPaddle     True to control the left paddle (Player 1)
+     * @param reactionDistance Horizontal distance from the paddle at which the bot starts moving
+     * @param seed             Seed for the aim offsets
+     */
+    public TrackingBot(boolean isLeftPaddle, int reactionDistance, long seed) {
+        this.isLeftPaddle = isLeftPaddle;
+        this.reactionDistance = reactionDistance;
+        this.randomState = seed;
+        this.upFlag = isLeftPaddle ? PaddleInput.PADDLE1_UP : PaddleInput.PADDLE2_UP;
+        this.downFlag = isLeftPaddle ? PaddleInput.PADDLE1_DOWN : PaddleInput.PADDLE2_DOWN;
+    }
+
+    @Override
+    public int nextInput(GameModel model) {
+        int paddleX = isLeftPaddle ? model.paddle1X : model.paddle2X;
+        int paddleY = isLeftPaddle ? model.paddle1Y : model.paddle2Y;
+
+        boolean approaching = isLeftPaddle ? model.ballXSpeed < 0 : model.ballXSpeed > 0;
+        if (approaching && !wasApproaching) {
+            // Aim somewhere within the middle 80% of the paddle for this return
+            aimOffset = (nextUnit() - 0.5) * 0.8 * model.paddleHeight;
+        }
+        wasApproaching = approaching;
+        if (!approaching || Math.abs(model.ballX - paddleX) > reactionDistance) {
+            return PaddleInput.NONE;
+        }
+        return steer(model, 0, paddleY);
+    }
+
+    @Override
+    public long holdTicks(GameModel model) {
+        int paddleX = isLeftPaddle ? model.paddle1X : model.paddle2X;
+        int paddleY = isLeftPaddle ? model.paddle1Y : model.paddle2Y;
+        int paddleVelocity = isLeftPaddle ? model.paddle1Speed : model.paddle2Speed;
+        if (paddleVelocity != 0) {
+            paddleSpeed = Math.abs(paddleVelocity);
+        }
+        boolean approaching = isLeftPaddle ? model.ballXSpeed < 0 : model.ballXSpeed > 0;
+        if (!approaching) {
+            // Idle until the ball turns, which takes a paddle hit or a new serve
+            return Long.MAX_VALUE;
+        }
+
+        double distance = isLeftPaddle ? model.ballX - paddleX : paddleX - model.ballX;
+        if (distance > reactionDistance) {
+            // Idle until the ball enters the reaction zone
+            return PaddleBot.firstTickFailing(0,
+                    PaddleBot.ticksToReach(distance, -Math.abs(model.ballXSpeed), reactionDistance),
+                    k -> Math.abs(model.ballX + k * model.ballXSpeed - paddleX) > reactionDistance);
+        }
+        if (distance < 0) {
+            return 1;
+        }
+
+        // Inside the zone the offset changes linearly until it leaves its band
+        double deadZone = model.paddleHeight / 10.0;
+        double offset = offset(model, 0, paddleY);
+        int input = steer(model, 0, paddleY);
+        if (input == PaddleInput.NONE) {
+            // The paddle stays put while the ball moves
+            double bound = model.ballYSpeed < 0 ? -deadZone : deadZone;
+            return PaddleBot.firstTickFailing(0, PaddleBot.ticksToReach(offset, model.ballYSpeed, bound),
+                    k -> steer(model, k, paddleY) == PaddleInput.NONE);
+        }
+        if (paddleSpeed == 0) {
+            // The paddle has not moved yet, so its speed is unknown until the next tick
+            return 1;
+        }
+        int velocity = input == upFlag ? -paddleSpeed : paddleSpeed;
+        double bound = velocity < 0 ? -deadZone : deadZone;
+        LongPredicate isHeld = k -> steer(model, k, PaddleBot.paddleAfter(model, paddleY, velocity, k)) == input;
+        // The offset is linear while the paddle moves at full speed, i.e. until the tick before it
+        // stops at the wall, and again from then on, when only the ball moves
+        long wallTicks = PaddleBot.ticksToWall(model, paddleY, velocity);
+        if (wallTicks > 0 && !isHeld.test(wallTicks - 1)) {
+            return PaddleBot.firstTickFailing(0,
+                    Math.min(PaddleBot.ticksToReach(offset, model.ballYSpeed - velocity, bound), wallTicks - 1), isHeld);
+        }
+        if (!isHeld.test(wallTicks)) {
+            return wallTicks;
+        }
+        double offsetAtWall = offset(model, wallTicks, PaddleBot.paddleAfter(model, paddleY, velocity, wallTicks));
+        return PaddleBot.firstTickFailing(wallTicks,
+                wallTicks + PaddleBot.ticksToReach(offsetAtWall, model.ballYSpeed, bound), isHeld);
+    }
+
+    /**
+     * @return The keys that move the aim point towards the ball centre, with the ball
+     * {@code ticks} ahead and the paddle at {@code paddleY}, and a small dead zone to avoid jitter
+     */
+    private int steer(GameModel model, long ticks, long paddleY) {
+        double offset = offset(model, ticks, paddleY);
+        if (offset < -model.paddleHeight / 10.0) {
+            return upFlag;
+        }
+        if (offset > model.paddleHeight / 10.0) {
+            return downFlag;
+        }
+        return PaddleInput.NONE;
+    }
+
+    /**
+     * @return Vertical distance from the aim point to the ball centre, with the ball {@code ticks}
+     * ahead, assuming it keeps its velocity, and the paddle at {@code paddleY}
+     */
+    private double offset(GameModel model, long ticks, long paddleY) {
+        double ballY = model.ballY + ticks * model.ballYSpeed;
+        return (ballY + model.ballSize / 2.0) - (paddleY + model.paddleHeight / 2.0 + aimOffset);
+    }
+
+    /**
+     * @return A uniformly distributed value in [0, 1) from the bot's SplitMix64 source
+     */
+    private double nextUnit() {
+        long z = (randomState += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return ((z ^ (z >>> 31)) >>> 11) * 0x1.0p-53;
+    }
+}
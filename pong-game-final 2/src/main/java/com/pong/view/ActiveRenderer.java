@@ -0,0 +1,209 @@
+package com.pong.view;
+import com.pong.controller.InputLatencyStatistics;
+import com.pong.model.GameSnapshot;
+import com.pong.model.SnapshotBuffer;
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ActiveRenderer draws the game on its own thread into a {@link Canvas} through a
+ * {@link BufferStrategy}, instead of waiting for the Swing repaint manager. Frames are paced
+ * to the display's refresh rate from a fixed schedule, so presentation does not depend on
+ * how busy the event dispatch thread is. In fullscreen-exclusive mode the buffer strategy
+ * uses page flipping where the platform supports it.
+ *
+ * Once the latest snapshot has been shown at its final, uninterpolated position, nothing
+ * would change on screen, so the thread parks until {@link #wake} reports a new snapshot or
+ * {@link #repaint} reports that the canvas was exposed. A paused game draws no frames.
+ */
+public class ActiveRenderer implements Runnable {
+
+    // Used when the display does not report its refresh rate
+    private static final int DEFAULT_REFRESH_RATE = 60;
+
+    private final Canvas canvas;
+    private final GameRenderer renderer;
+    private final SnapshotBuffer snapshots;
+    private final long tickNanos;
+    private final InputLatencyStatistics inputLatency;
+
+    private volatile boolean running = false;
+    // Set while the thread is parked, or about to park, because the screen is up to date
+    private volatile boolean idle = false;
+    private volatile boolean repaintRequested = false;
+    private Thread thread;
+    private long frameNanos;
+
+    // Last frame drawn, owned by the render thread
+    private long drawnTick = 0;
+    private boolean drawnComplete = false;
+
+    /**
+     * @param canvas       Heavyweight component to draw into
+     * @param renderer     Draws the game elements
+     * @param snapshots    Snapshots published by the simulation; this thread is their only reader
+     * @param tickNanos    Length of one simulation tick, for interpolation
+     * @param inputLatency Told when each frame has been presented
+     */
+    public ActiveRenderer(Canvas canvas, GameRenderer renderer, SnapshotBuffer snapshots, long tickNanos,
+                          InputLatencyStatistics inputLatency) {
+        this.canvas = canvas;
+        this.renderer = renderer;
+        this.snapshots = snapshots;
+        this.tickNanos = tickNanos;
+        this.inputLatency = inputLatency;
+    }
+
+    /**
+     * Starts the render thread, pacing frames to the refresh rate of the given device.
+     * Has no effect if the thread is already running.
+     *
+     * @param device Screen the canvas is shown on
+     */
+    public synchronized void start(GraphicsDevice device) {
+        if (running) {
+            return;
+        }
+        int refreshRate = device.getDisplayMode().getRefreshRate();
+        if (refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        frameNanos = TimeUnit.SECONDS.toNanos(1) / refreshRate;
+
+        running = true;
+        thread = new Thread(this, "render");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the render thread and waits briefly for the frame in progress to finish.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Wakes an idle render thread, e.g. because a new snapshot was published. Cheap enough to
+     * call after every batch of ticks: it does nothing while the thread is drawing.
+     */
+    public void wake() {
+        if (idle) {
+            // The thread was started before it could go idle, so the field is visible here
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Asks for the current snapshot to be drawn again even if it has been shown already,
+     * e.g. because the canvas was exposed.
+     */
+    public void repaint() {
+        repaintRequested = true;
+        wake();
+    }
+
+    @Override
+    public void run() {
+        BufferStrategy strategy = null;
+        long nextFrame = System.nanoTime();
+
+        while (running) {
+            if (strategy == null) {
+                strategy = createStrategy();
+            }
+            if (strategy != null && !drawFrame(strategy)) {
+                // The screen is up to date; recheck after announcing idleness so no wake-up is lost
+                idle = true;
+                if (isUpToDate(snapshots.acquire())) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                nextFrame = System.nanoTime();
+                continue;
+            }
+
+            // Sleep until the next refresh; after a long stall, restart the schedule instead of bursting
+            nextFrame += frameNanos;
+            long now = System.nanoTime();
+            if (now - nextFrame > frameNanos) {
+                nextFrame = now;
+            }
+            LockSupport.parkNanos(nextFrame - now);
+        }
+    }
+
+    /**
+     * Creates the buffer strategy once the canvas is on screen.
+     *
+     * @return The strategy, or null if the canvas is not displayable yet
+     */
+    private BufferStrategy createStrategy() {
+        if (!canvas.isDisplayable() || canvas.getWidth() <= 0) {
+            return null;
+        }
+        // Double buffering; Java2D picks page flipping when the window is fullscreen-exclusive
+        canvas.createBufferStrategy(2);
+        return canvas.getBufferStrategy();
+    }
+
+    /**
+     * Draws the latest snapshot unless the screen already shows it.
+     *
+     * @return False if there was nothing new to draw
+     */
+    private boolean drawFrame(BufferStrategy strategy) {
+        GameSnapshot snapshot = snapshots.acquire();
+        if (isUpToDate(snapshot)) {
+            return false;
+        }
+        repaintRequested = false;
+        double alpha = snapshot.interpolationFactor(System.nanoTime(), tickNanos);
+
+        // Standard BufferStrategy loop: redraw if the video memory behind the buffer was lost
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    renderer.renderFrame(g2d, snapshot, alpha, canvas.getWidth(), canvas.getHeight());
+                } finally {
+                    g2d.dispose();
+                }
+            } while (strategy.contentsRestored() && running);
+            strategy.show();
+        } while (strategy.contentsLost() && running);
+
+        // Flush the pipeline so the frame reaches the screen now rather than at the next batch
+        Toolkit.getDefaultToolkit().sync();
+        inputLatency.framePresented(snapshot.inputTime, System.nanoTime());
+
+        drawnTick = snapshot.tick;
+        drawnComplete = alpha >= 1;
+        return true;
+    }
+
+    /**
+     * @return True if drawing the snapshot again would not change the screen
+     */
+    private boolean isUpToDate(GameSnapshot snapshot) {
+        if (snapshot.tick == 0) {
+            // Nothing published yet
+            return true;
+        }
+        return snapshot.tick == drawnTick && drawnComplete && !repaintRequested;
+    }
+}
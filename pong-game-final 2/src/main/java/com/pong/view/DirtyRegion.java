@@ -0,0 +1,139 @@
+package com.pong.view;
+import com.pong.model.GameModel;
+import java.awt.Rectangle;
+
+/**
+ * DirtyRegion works out which part of the game panel has to be repainted after a batch of
+ * ticks: for the ball and each paddle that moved, the area it was last painted in and the one
+ * it is painted in now, plus the score band when a score changed. The last painted area of
+ * every object is kept whether or not it moved, so one that jumps after standing still, as
+ * the paddles do when the match is restarted, is erased where it stood.
+ * Each area is padded by two ticks of motion, because the panel is painted at an
+ * interpolated position that may already be a tick ahead of the request.
+ *
+ * Used from the game loop thread only.
+ */
+public class DirtyRegion {
+
+    // Height of the band at the top of the panel that holds the scores
+    private static final int SCORE_BAND_HEIGHT = 100;
+    // Ticks of motion each area is padded by
+    private static final int MOTION_MARGIN_TICKS = 2;
+
+    // Where each object was last painted, moved or not
+    private final Rectangle ball = new Rectangle();
+    private final Rectangle paddle1 = new Rectangle();
+    private final Rectangle paddle2 = new Rectangle();
+    // New areas of what changed in the previous request, and in the current one
+    private final Rectangle previous = new Rectangle();
+    private final Rectangle current = new Rectangle();
+    private final Rectangle area = new Rectangle();
+
+    // State at the previous request, to detect what changed
+    private boolean hasPreviousState = false;
+    private double ballX, ballY;
+    private int paddle1Y, paddle2Y;
+    private int player1Score, player2Score;
+    private int deformationFrames;
+
+    /**
+     * Computes the region to repaint for the model's current state.
+     *
+     * @param model  Game state after the latest tick
+     * @param region Receives the region to repaint
+     * @return False if nothing needs repainting
+     */
+    public boolean update(GameModel model, Rectangle region) {
+        if (!hasPreviousState || model.extraBalls != null) {
+            // First frame, or a field full of balls: repaint everything
+            region.setBounds(0, 0, model.width, model.height);
+            current.setBounds(region);
+            ballArea(model, ball);
+            paddleArea(model.paddle1X, model.paddle1Y, model.paddle1Speed, model, paddle1);
+            paddleArea(model.paddle2X, model.paddle2Y, model.paddle2Speed, model, paddle2);
+            remember(model);
+            return true;
+        }
+
+        boolean ballChanged = model.ballX != ballX || model.ballY != ballY
+                || model.deformationFrames != deformationFrames;
+        boolean paddle1Changed = model.paddle1Y != paddle1Y;
+        boolean paddle2Changed = model.paddle2Y != paddle2Y;
+        boolean scoreChanged = model.player1Score != player1Score || model.player2Score != player2Score;
+
+        if (!ballChanged && !paddle1Changed && !paddle2Changed && !scoreChanged) {
+            if (previous.isEmpty()) {
+                // Still, and the final position has already been painted
+                return false;
+            }
+            // Repaint the last region once more so the final, uninterpolated position is shown
+            region.setBounds(previous);
+            previous.setSize(0, 0);
+            return true;
+        }
+
+        // What changed last time is repainted too, in case it was drawn ahead of where it stopped
+        region.setBounds(previous);
+        current.setSize(0, 0);
+        ballArea(model, area);
+        move(ball, area, ballChanged, region);
+        paddleArea(model.paddle1X, model.paddle1Y, model.paddle1Speed, model, area);
+        move(paddle1, area, paddle1Changed, region);
+        paddleArea(model.paddle2X, model.paddle2Y, model.paddle2Speed, model, area);
+        move(paddle2, area, paddle2Changed, region);
+        if (scoreChanged) {
+            area.setBounds(0, 0, model.width, SCORE_BAND_HEIGHT);
+            add(current, area);
+            add(region, area);
+        }
+        remember(model);
+        return true;
+    }
+
+    /**
+     * Records an object's new area. If it changed, both its old area, to erase what was drawn
+     * there, and its new one are repainted.
+     */
+    private void move(Rectangle painted, Rectangle newArea, boolean changed, Rectangle region) {
+        if (changed) {
+            add(region, painted);
+            add(region, newArea);
+            add(current, newArea);
+        }
+        painted.setBounds(newArea);
+    }
+
+    private static void ballArea(GameModel model, Rectangle area) {
+        // Stretched balls are drawn centred on the ball, up to a few sizes wide (see GameRenderer)
+        double speed = Math.abs(model.ballXSpeed) + Math.abs(model.ballYSpeed);
+        int stretch = (int) (model.ballSize * speed / 10.0 * 0.3) + 1;
+        int margin = (int) Math.ceil(speed * MOTION_MARGIN_TICKS) + stretch;
+        area.setBounds((int) model.ballX - margin, (int) model.ballY - margin,
+                model.ballSize + 2 * margin, model.ballSize + 2 * margin);
+    }
+
+    private static void paddleArea(int paddleX, int paddleY, int paddleSpeed, GameModel model, Rectangle area) {
+        int margin = Math.abs(paddleSpeed) * MOTION_MARGIN_TICKS;
+        area.setBounds(paddleX, paddleY - margin, model.paddleWidth, model.paddleHeight + 2 * margin);
+    }
+
+    private static void add(Rectangle region, Rectangle area) {
+        if (region.isEmpty()) {
+            region.setBounds(area);
+        } else {
+            region.add(area);
+        }
+    }
+
+    private void remember(GameModel model) {
+        previous.setBounds(current);
+        hasPreviousState = true;
+        ballX = model.ballX;
+        ballY = model.ballY;
+        deformationFrames = model.deformationFrames;
+        paddle1Y = model.paddle1Y;
+        paddle2Y = model.paddle2Y;
+        player1Score = model.player1Score;
+        player2Score = model.player2Score;
+    }
+}
@@ -0,0 +1,134 @@
+package com.pong.view;
+import com.pong.model.GameSnapshot;
+import com.pong.model.Settings;
+import java.awt.*;
+
+/**
+ * GameRenderer draws one frame of the game (paddles, balls, score and centre line) in model
+ * coordinates from a {@link GameSnapshot}, never from the live model. It is shared by the
+ * Swing painting path and the active rendering thread, so both produce identical frames.
+ */
+public class GameRenderer {
+
+    private final Settings settings;
+    private final Color backgroundColor;
+    // Pre-rendered paddles, balls, digits and background
+    private final SpriteCache sprites;
+
+    /**
+     * @param settings        Colours chosen on the settings screen
+     * @param backgroundColor Colour of the playing field and of any letterbox bars
+     */
+    public GameRenderer(Settings settings, Color backgroundColor) {
+        this.settings = settings;
+        this.backgroundColor = backgroundColor;
+        this.sprites = new SpriteCache(settings, backgroundColor);
+    }
+
+    /**
+     * Draws the game scaled to fit a target of any size, centred with letterboxing
+     * if the aspect ratio differs (e.g. a fullscreen display).
+     *
+     * @param g2d      Graphics of the target surface
+     * @param snapshot Game state to draw
+     * @param alpha    Interpolation factor between the snapshot's previous (0) and latest (1) tick
+     * @param width    Width of the target in pixels
+     * @param height   Height of the target in pixels
+     */
+    public void renderFrame(Graphics2D g2d, GameSnapshot snapshot, double alpha, int width, int height) {
+        if (width != snapshot.width || height != snapshot.height) {
+            g2d.setColor(backgroundColor);
+            g2d.fillRect(0, 0, width, height);
+
+            double scale = Math.min((double) width / snapshot.width, (double) height / snapshot.height);
+            g2d.translate((width - snapshot.width * scale) / 2, (height - snapshot.height * scale) / 2);
+            g2d.scale(scale, scale);
+            g2d.clipRect(0, 0, snapshot.width, snapshot.height);
+        }
+        render(g2d, snapshot, alpha);
+    }
+
+    /**
+     * Draws a whole frame in model coordinates, with positions interpolated between the
+     * snapshot's two ticks. Everything is copied from sprites.
+     *
+     * @param g2d      Graphics to draw with
+     * @param snapshot Game state to draw
+     * @param alpha    Interpolation factor between the snapshot's previous (0) and latest (1) tick
+     */
+    public void render(Graphics2D g2d, GameSnapshot snapshot, double alpha) {
+        sprites.validate(g2d.getDeviceConfiguration(), snapshot);
+
+        sprites.drawBackground(g2d);
+
+        g2d.drawImage(sprites.getPaddle1(), snapshot.paddle1X,
+                (int) snapshot.interpolate(snapshot.previousPaddle1Y, snapshot.paddle1Y, alpha), null);
+        g2d.drawImage(sprites.getPaddle2(), snapshot.paddle2X,
+                (int) snapshot.interpolate(snapshot.previousPaddle2Y, snapshot.paddle2Y, alpha), null);
+
+        drawBall(g2d, snapshot.ballSize,
+                snapshot.interpolate(snapshot.previousBallX, snapshot.ballX, alpha),
+                snapshot.interpolate(snapshot.previousBallY, snapshot.ballY, alpha),
+                snapshot.ballXSpeed, snapshot.ballYSpeed, snapshot.deformationFrames);
+
+        // Multiball mode: draw every extra ball
+        for (int i = 0; i < snapshot.extraBallCount; i++) {
+            drawBall(g2d, snapshot.ballSize,
+                    snapshot.interpolate(snapshot.previousExtraX[i], snapshot.extraX[i], alpha),
+                    snapshot.interpolate(snapshot.previousExtraY[i], snapshot.extraY[i], alpha),
+                    snapshot.extraXSpeed[i], snapshot.extraYSpeed[i], snapshot.extraDeformationFrames[i]);
+        }
+
+        // Scores laid out as "<p1>       <p2>", centred like the original string
+        int player1Digits = SpriteCache.digitCount(snapshot.player1Score);
+        int characters = player1Digits + 7 + SpriteCache.digitCount(snapshot.player2Score);
+        int x = (snapshot.width - sprites.textWidth(characters)) / 2;
+        int y = sprites.getDigitAscent() + 30;
+        sprites.drawNumber(g2d, snapshot.player1Score, x, y);
+        sprites.drawNumber(g2d, snapshot.player2Score, x + sprites.textWidth(player1Digits + 7), y);
+    }
+
+    /**
+     * Draws one ball, stretched along its direction of travel while it is deforming after a hit.
+     */
+    private void drawBall(Graphics2D g2d, int ballSize, double ballX, double ballY, double ballXSpeed,
+                          double ballYSpeed, int deformationFrames) {
+        int ballWidth = ballSize;
+        int ballHeight = ballSize;
+
+        if (deformationFrames > 0) {
+
+            double deformationFactor = 0.3;
+            double speedMagnitude = Math.sqrt(ballXSpeed * ballXSpeed + ballYSpeed * ballYSpeed);
+            double speedRatio = speedMagnitude / 10.0;
+
+            if (Math.abs(ballXSpeed) > Math.abs(ballYSpeed)) {
+
+                ballWidth = (int) (ballSize * (1 + speedRatio * deformationFactor));
+                ballHeight = (int) (ballSize * (1 - speedRatio * deformationFactor));
+            } else {
+
+                ballWidth = (int) (ballSize * (1 - speedRatio * deformationFactor));
+                ballHeight = (int) (ballSize * (1 + speedRatio * deformationFactor));
+            }
+
+
+            ballWidth = Math.max(ballWidth, ballSize);
+            ballHeight = Math.max(ballHeight, ballSize);
+        }
+
+
+        int drawBallX = (int) ballX - (ballWidth - ballSize) / 2;
+        int drawBallY = (int) ballY - (ballHeight - ballSize) / 2;
+
+        Image sprite = sprites.getBall(ballWidth, ballHeight);
+        if (sprite != null) {
+            g2d.drawImage(sprite, drawBallX, drawBallY, null);
+        } else {
+            // Extreme stretches are rare enough to draw directly
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setColor(settings.getBallColor());
+            g2d.fillOval(drawBallX, drawBallY, ballWidth, ballHeight);
+        }
+    }
+}
\ No newline at end of file
@@ -1,13 +1,19 @@
 package com.pong.view;
+import com.pong.controller.InputLatencyStatistics;
 import com.pong.model.GameModel;
+import com.pong.model.GameSnapshot;
+import com.pong.model.SnapshotBuffer;
 import com.pong.model.Settings;
 import com.pong.model.User;
 import javax.swing.*;
 import java.awt.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * GameView is responsible for rendering the game elements: paddles, ball, and scores.
  * It uses a coordinate system where (0,0) is at the top-left corner.
+ * By default it is painted by Swing; with active rendering enabled in the settings it hosts
+ * a canvas that an {@link ActiveRenderer} thread draws into, optionally fullscreen.
  */
 public class GameView extends JPanel {
 
@@ -17,14 +23,116 @@ public class GameView extends JPanel {
 
     private GameModel model;
     private Settings settings;
+    private final GameRenderer renderer;
+    // Handoff of tick snapshots from the game loop to whichever path draws them
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private final long tickNanos;
+    // Time from a key press to the first presented frame showing it
+    private final InputLatencyStatistics inputLatency = new InputLatencyStatistics();
+
+    // Swing painting mode: the part of the panel to repaint after each batch of ticks (game loop thread only)
+    private final DirtyRegion dirtyRegion = new DirtyRegion();
+    private final Rectangle repaintBounds = new Rectangle();
+
+    // Render thread and its fullscreen screen; null in the Swing painting mode
+    private ActiveRenderer activeRenderer;
+    private GraphicsDevice fullscreenDevice;
 
     public GameView(User playerOne, User playerTwo, Settings settings) {
         this.playerOne = playerOne;
         this.playerTwo = playerTwo;
         this.settings = settings;
+        this.renderer = new GameRenderer(settings, backgroundColor);
+        this.tickNanos = TimeUnit.SECONDS.toNanos(1) / settings.getTickRate();
 
         setPreferredSize(new Dimension(800, 600));
         setBackground(backgroundColor);
+
+        if (settings.isActiveRendering()) {
+            Canvas canvas = new Canvas() {
+                // The render thread does all drawing; an expose only has to wake it when idle
+                @Override
+                public void update(Graphics g) {
+                    activeRenderer.repaint();
+                }
+
+                @Override
+                public void paint(Graphics g) {
+                    activeRenderer.repaint();
+                }
+            };
+            canvas.setBackground(backgroundColor);
+            // The frame keeps keyboard focus
+            canvas.setFocusable(false);
+            setLayout(new BorderLayout());
+            add(canvas, BorderLayout.CENTER);
+            activeRenderer = new ActiveRenderer(canvas, renderer, snapshots, tickNanos, inputLatency);
+        }
+    }
+
+    /**
+     * @return Buffer the game loop publishes a snapshot into after every tick
+     */
+    public SnapshotBuffer getSnapshots() {
+        return snapshots;
+    }
+
+    /**
+     * @return Input latency statistics; the view records when frames showing an input are presented
+     */
+    public InputLatencyStatistics getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * Asks for the current state to be shown. Called by the game loop after each batch of ticks.
+     * Swing painting repaints only the region around what moved, and nothing at all while the
+     * game is still; the render thread draws on its own schedule and only needs waking if idle.
+     */
+    public void requestFrame() {
+        if (activeRenderer != null) {
+            activeRenderer.wake();
+        } else if (dirtyRegion.update(model, repaintBounds)) {
+            repaint(repaintBounds);
+        }
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (activeRenderer == null) {
+            return;
+        }
+
+        GraphicsDevice device = getGraphicsConfiguration().getDevice();
+        if (settings.isFullscreen() && device.isFullScreenSupported()) {
+            // Switch once the frame has finished adding this view
+            SwingUtilities.invokeLater(() -> {
+                Window window = SwingUtilities.getWindowAncestor(this);
+                if (window != null && activeRenderer.isRunning()) {
+                    fullscreenDevice = device;
+                    device.setFullScreenWindow(window);
+                }
+            });
+        }
+        activeRenderer.start(device);
+    }
+
+    @Override
+    public void removeNotify() {
+        // The canvas loses its buffers with its peer, so stop drawing first
+        stopActiveRendering();
+        super.removeNotify();
+    }
+
+    private void stopActiveRendering() {
+        if (activeRenderer != null) {
+            activeRenderer.stop();
+        }
+        if (fullscreenDevice != null) {
+            fullscreenDevice.setFullScreenWindow(null);
+            fullscreenDevice = null;
+        }
     }
 
     /**
@@ -91,6 +199,7 @@ public class GameView extends JPanel {
      * @param opponentScore  The opponent's score
      */
     private void showScoreStatistics(int playerScore, int opponentScore, User playerOne, User playerTwo) {
+        stopActiveRendering();
         removeAll();
         ScoreStatistics statsPanel = new ScoreStatistics(playerScore, opponentScore, playerOne, playerTwo);
         add(statsPanel, BorderLayout.CENTER);
@@ -100,80 +209,15 @@ public class GameView extends JPanel {
 
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-
-        if (model == null) return;
-
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-        g2d.setComposite(AlphaComposite.SrcOver);
-
-
-        g2d.setColor(Color.WHITE);
-
-        g2d.setColor(settings.getPaddle1Color());
-        g2d.fillRoundRect(
-                model.paddle1X, model.paddle1Y,
-                model.paddleWidth, model.paddleHeight,
-                10, 10
-        );
-
-        g2d.setColor(settings.getPaddle2Color());
-        g2d.fillRoundRect(
-                model.paddle2X, model.paddle2Y,
-                model.paddleWidth, model.paddleHeight,
-                10, 10
-        );
-        g2d.setColor(settings.getBallColor());
-
-        int ballWidth = model.ballSize;
-        int ballHeight = model.ballSize;
-
-        if (model.deformationFrames > 0) {
-
-            double deformationFactor = 0.3;
-            double speedMagnitude = Math.sqrt(model.ballXSpeed * model.ballXSpeed + model.ballYSpeed * model.ballYSpeed);
-            double speedRatio = speedMagnitude / 10.0;
-
-            if (Math.abs(model.ballXSpeed) > Math.abs(model.ballYSpeed)) {
-
-                ballWidth = (int) (model.ballSize * (1 + speedRatio * deformationFactor));
-                ballHeight = (int) (model.ballSize * (1 - speedRatio * deformationFactor));
-            } else {
-
-                ballWidth = (int) (model.ballSize * (1 - speedRatio * deformationFactor));
-                ballHeight = (int) (model.ballSize * (1 + speedRatio * deformationFactor));
-            }
-
-
-            ballWidth = Math.max(ballWidth, model.ballSize);
-            ballHeight = Math.max(ballHeight, model.ballSize);
+        // In active mode the render thread draws into the canvas instead
+        GameSnapshot snapshot = activeRenderer == null ? snapshots.acquire() : null;
+        if (snapshot == null || snapshot.tick == 0) {
+            super.paintComponent(g);
+            return;
         }
 
-
-        int drawBallX = model.ballX - (ballWidth - model.ballSize) / 2;
-        int drawBallY = model.ballY - (ballHeight - model.ballSize) / 2;
-
-
-        g2d.fillOval(drawBallX, drawBallY, ballWidth, ballHeight);
-        g2d.setColor(Color.WHITE);
-        Font scoreFont = new Font("Monospaced", Font.BOLD, 48);
-        g2d.setFont(scoreFont);
-
-
-        String scoreText = model.player1Score + "       " + model.player2Score;
-        FontMetrics fm = g2d.getFontMetrics();
-        int textWidth = fm.stringWidth(scoreText);
-        int x = (model.width - textWidth) / 2;
-        int y = fm.getAscent() + 30;
-        g2d.drawString(scoreText, x, y);
-
-
-        g2d.setColor(new Color(255, 255, 255, 100));
-
-        float[] dashPattern = {10, 10};
-        g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10, dashPattern, 0));
-        g2d.drawLine(model.width / 2, 0, model.width / 2, model.height);
+        // The renderer fills the whole panel, so the default background fill is skipped
+        renderer.render((Graphics2D) g, snapshot, snapshot.interpolationFactor(System.nanoTime(), tickNanos));
+        inputLatency.framePresented(snapshot.inputTime, System.nanoTime());
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package com.pong.view;
+import com.pong.database.DatabaseUtils;
 import com.pong.database.ScoreManager;
+import com.pong.database.ScoreWriter;
 import com.pong.model.Score;
 import com.pong.model.User;
 import javax.swing.*;
@@ -47,8 +49,10 @@ public class ScoreStatistics extends JPanel {
 
         add(historyPanel, BorderLayout.CENTER);
 
-        scoreManager.addScore(createScore(player1Score, player2Score, playerOne.getId()));
-        scoreManager.addScore(createScore(player2Score, player1Score, playerTwo.getId()));
+        // Stored in the background, so the screen shows without waiting for the database
+        ScoreWriter scoreWriter = DatabaseUtils.getScoreWriter();
+        scoreWriter.submit(createScore(player1Score, player2Score, playerOne.getId()));
+        scoreWriter.submit(createScore(player2Score, player1Score, playerTwo.getId()));
 
 
         JPanel buttonPanel = new JPanel(new FlowLayout());
@@ -61,7 +65,11 @@ public class ScoreStatistics extends JPanel {
 
         JButton exitButton = new JButton("Exit Game");
         exitButton.setFont(new Font("Verdana", Font.PLAIN, 18));
-        exitButton.addActionListener(e -> System.exit(0));
+        exitButton.addActionListener(e -> {
+            // Give the scores of this match a moment to reach the database; the journal keeps them otherwise
+            DatabaseUtils.getScoreWriter().close(2000);
+            System.exit(0);
+        });
         buttonPanel.add(exitButton);
 
         add(buttonPanel, BorderLayout.SOUTH);
@@ -1,5 +1,6 @@
 package com.pong.view;
 import com.pong.controller.GameController;
+import com.pong.model.Difficulty;
 import com.pong.model.Settings;
 import com.pong.model.User;
 import javax.swing.*;
@@ -85,16 +86,94 @@ public class SettingsView extends JPanel {
         add(scoreLimitDropdown, gbc);
 
 
+        JLabel tickRateLabel = new JLabel("Tick Rate (Hz):");
+        tickRateLabel.setForeground(Color.WHITE);
+        gbc.gridx = 0;
+        gbc.gridy = 5;
+        add(tickRateLabel, gbc);
+
+        JComboBox<String> tickRateDropdown = new JComboBox<>(new String[]{"60", "120", "240"});
+        tickRateDropdown.setSelectedItem("60");
+        gbc.gridx = 1;
+        gbc.gridy = 5;
+        add(tickRateDropdown, gbc);
+
+
+        JLabel ballCountLabel = new JLabel("Balls:");
+        ballCountLabel.setForeground(Color.WHITE);
+        gbc.gridx = 0;
+        gbc.gridy = 6;
+        add(ballCountLabel, gbc);
+
+        JComboBox<String> ballCountDropdown = new JComboBox<>(new String[]{"1", "50", "200", "500"});
+        ballCountDropdown.setSelectedItem("1");
+        gbc.gridx = 1;
+        gbc.gridy = 6;
+        add(ballCountDropdown, gbc);
+
+
+        JLabel opponentLabel = new JLabel("Player 2:");
+        opponentLabel.setForeground(Color.WHITE);
+        gbc.gridx = 0;
+        gbc.gridy = 7;
+        add(opponentLabel, gbc);
+
+        JComboBox<String> opponentDropdown = new JComboBox<>(new String[]{"Human", "Computer (Easy)",
+                "Computer (Medium)", "Computer (Hard)"});
+        opponentDropdown.setSelectedItem("Human");
+        gbc.gridx = 1;
+        gbc.gridy = 7;
+        add(opponentDropdown, gbc);
+
+
+        JLabel timingLabel = new JLabel("Timing:");
+        timingLabel.setForeground(Color.WHITE);
+        gbc.gridx = 0;
+        gbc.gridy = 8;
+        add(timingLabel, gbc);
+
+        JComboBox<String> timingDropdown = new JComboBox<>(new String[]{"Precise", "Precise, drop late ticks",
+                "Low power"});
+        timingDropdown.setSelectedItem("Precise");
+        gbc.gridx = 1;
+        gbc.gridy = 8;
+        add(timingDropdown, gbc);
+
+
         JCheckBox enableSoundCheckbox = new JCheckBox("Enable Sound");
         enableSoundCheckbox.setSelected(true);
         enableSoundCheckbox.setForeground(Color.WHITE);
         enableSoundCheckbox.setBackground(new Color(30, 30, 30));
         gbc.gridwidth = 2;
         gbc.gridx = 0;
-        gbc.gridy = 5;
+        gbc.gridy = 9;
         add(enableSoundCheckbox, gbc);
 
 
+        JCheckBox sweptCollisionCheckbox = new JCheckBox("Continuous Collision (fast ball modes)");
+        sweptCollisionCheckbox.setSelected(false);
+        sweptCollisionCheckbox.setForeground(Color.WHITE);
+        sweptCollisionCheckbox.setBackground(new Color(30, 30, 30));
+        gbc.gridy = 10;
+        add(sweptCollisionCheckbox, gbc);
+
+
+        JCheckBox activeRenderingCheckbox = new JCheckBox("Active Rendering (dedicated render thread)");
+        activeRenderingCheckbox.setSelected(false);
+        activeRenderingCheckbox.setForeground(Color.WHITE);
+        activeRenderingCheckbox.setBackground(new Color(30, 30, 30));
+        gbc.gridy = 11;
+        add(activeRenderingCheckbox, gbc);
+
+
+        JCheckBox fullscreenCheckbox = new JCheckBox("Fullscreen (active rendering only)");
+        fullscreenCheckbox.setSelected(false);
+        fullscreenCheckbox.setForeground(Color.WHITE);
+        fullscreenCheckbox.setBackground(new Color(30, 30, 30));
+        gbc.gridy = 12;
+        add(fullscreenCheckbox, gbc);
+
+
         JButton startGameButton = new JButton("Start Game");
         startGameButton.addActionListener((ActionEvent e) -> startGame(
                 createSettings(
@@ -102,10 +181,17 @@ public class SettingsView extends JPanel {
                         paddle1ColorDropdown.getSelectedItem().toString(),
                         paddle2ColorDropdown.getSelectedItem().toString(),
                         Integer.parseInt(scoreLimitDropdown.getSelectedItem().toString()),
-                        enableSoundCheckbox.isSelected()
+                        Integer.parseInt(tickRateDropdown.getSelectedItem().toString()),
+                        Integer.parseInt(ballCountDropdown.getSelectedItem().toString()),
+                        opponentDropdown.getSelectedItem().toString(),
+                        timingDropdown.getSelectedItem().toString(),
+                        enableSoundCheckbox.isSelected(),
+                        sweptCollisionCheckbox.isSelected(),
+                        activeRenderingCheckbox.isSelected(),
+                        fullscreenCheckbox.isSelected()
                 )
         ));
-        gbc.gridy = 6;
+        gbc.gridy = 13;
         add(startGameButton, gbc);
     }
 
@@ -124,16 +210,35 @@ public class SettingsView extends JPanel {
         }
     }
 
-    private Settings createSettings(String ballColor, String paddle1Color, String paddle2Color, int scoreLimit, boolean enableSound) {
+    private Settings createSettings(String ballColor, String paddle1Color, String paddle2Color, int scoreLimit,
+                                    int tickRate, int ballCount, String opponent, String timing, boolean enableSound,
+                                    boolean sweptCollision, boolean activeRendering, boolean fullscreen) {
         Settings settings = new Settings();
         settings.setBallColor(convertColor(ballColor));
         settings.setPaddle1Color(convertColor(paddle1Color));
         settings.setPaddle2Color(convertColor(paddle2Color));
         settings.setScoreLimit(scoreLimit);
+        settings.setTickRate(tickRate);
+        settings.setBallCount(ballCount);
+        settings.setComputerOpponent(!opponent.equals("Human"));
+        settings.setAiDifficulty(convertDifficulty(opponent));
+        settings.setPreciseTiming(!timing.equals("Low power"));
+        settings.setDropLateTicks(timing.equals("Precise, drop late ticks"));
         settings.setEnableSound(enableSound);
+        settings.setSweptCollision(sweptCollision);
+        settings.setActiveRendering(activeRendering);
+        settings.setFullscreen(fullscreen);
         return settings;
     }
 
+    private Difficulty convertDifficulty(String opponent) {
+        return switch (opponent) {
+            case "Computer (Easy)" -> Difficulty.EASY;
+            case "Computer (Hard)" -> Difficulty.HARD;
+            default -> Difficulty.MEDIUM;
+        };
+    }
+
     private Color convertColor(String color) {
         return switch (color) {
             case "Yellow" -> Color.YELLOW;
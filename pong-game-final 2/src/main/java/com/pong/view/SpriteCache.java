@@ -0,0 +1,222 @@
+package com.pong.view;
+import com.pong.model.GameSnapshot;
+import com.pong.model.Settings;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * SpriteCache pre-renders everything the game draws into images compatible with the target
+ * screen: the dashed centre line, both paddles in their colours, the ball in every stretched
+ * shape it takes after a hit, and the score digits. A frame is then one solid fill and a
+ * handful of small image copies, which Java2D keeps in video memory where it can (managed
+ * images), instead of antialiased shape and text rendering.
+ *
+ * The cache rebuilds itself when the settings, the game geometry or the screen change.
+ */
+public class SpriteCache {
+
+    // Width of the centre line sprite; the 2 px line is centred in it
+    private static final int CENTRE_LINE_WIDTH = 4;
+    // Longest ball stretch, in pixels beyond the ball size, that is kept as a sprite
+    private static final int MAX_STRETCH = 64;
+
+    private final Settings settings;
+    private final Color backgroundColor;
+    private final Font scoreFont = new Font("Monospaced", Font.BOLD, 48);
+
+    // What the current sprites were built for
+    private GraphicsConfiguration configuration;
+    private int settingsVersion = -1;
+    private int width;
+    private int height;
+    private int paddleWidth;
+    private int paddleHeight;
+    private int ballSize;
+
+    private Image centreLine;
+    private Image paddle1;
+    private Image paddle2;
+    // Ball sprites by stretch in pixels: [0] is the round ball, built eagerly; the rest on first use
+    private final Image[] wideBalls = new Image[MAX_STRETCH + 1];
+    private final Image[] tallBalls = new Image[MAX_STRETCH + 1];
+    private final Image[] digits = new Image[10];
+    private int digitAdvance;
+    private int digitAscent;
+    private int digitOffset;
+
+    /**
+     * @param settings        Colours chosen on the settings screen
+     * @param backgroundColor Colour of the playing field
+     */
+    public SpriteCache(Settings settings, Color backgroundColor) {
+        this.settings = settings;
+        this.backgroundColor = backgroundColor;
+    }
+
+    /**
+     * Rebuilds the sprites if anything they depend on has changed since they were built.
+     *
+     * @param configuration Screen configuration of the surface being drawn to
+     * @param snapshot      Game state, for the playfield and element sizes
+     */
+    public void validate(GraphicsConfiguration configuration, GameSnapshot snapshot) {
+        if (configuration == this.configuration && settings.getVersion() == settingsVersion
+                && snapshot.width == width && snapshot.height == height
+                && snapshot.paddleWidth == paddleWidth && snapshot.paddleHeight == paddleHeight
+                && snapshot.ballSize == ballSize) {
+            return;
+        }
+        this.configuration = configuration;
+        settingsVersion = settings.getVersion();
+        width = snapshot.width;
+        height = snapshot.height;
+        paddleWidth = snapshot.paddleWidth;
+        paddleHeight = snapshot.paddleHeight;
+        ballSize = snapshot.ballSize;
+        build();
+    }
+
+    private void build() {
+        // Only the centre line strip: a solid fill is cheaper than copying a full-screen image
+        centreLine = createImage(CENTRE_LINE_WIDTH, height, Transparency.TRANSLUCENT);
+        Graphics2D g2d = (Graphics2D) centreLine.getGraphics();
+        g2d.setColor(new Color(255, 255, 255, 100));
+        g2d.setStroke(new BasicStroke(2, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10, new float[]{10, 10}, 0));
+        g2d.drawLine(CENTRE_LINE_WIDTH / 2, 0, CENTRE_LINE_WIDTH / 2, height);
+        g2d.dispose();
+
+        paddle1 = createPaddle(settings.getPaddle1Color());
+        paddle2 = createPaddle(settings.getPaddle2Color());
+
+        Arrays.fill(wideBalls, null);
+        Arrays.fill(tallBalls, null);
+        wideBalls[0] = createBall(ballSize, ballSize);
+        tallBalls[0] = wideBalls[0];
+
+        // Monospaced digits all share one advance, so the score can be laid out without measuring strings
+        g2d = (Graphics2D) centreLine.getGraphics();
+        FontMetrics fm = g2d.getFontMetrics(scoreFont);
+        g2d.dispose();
+        digitAdvance = fm.charWidth('0');
+        digitAscent = fm.getAscent();
+        // Room for glyph parts that extend left of the origin
+        digitOffset = digitAdvance / 4;
+        for (int digit = 0; digit < 10; digit++) {
+            Image glyph = createImage(digitAdvance + 2 * digitOffset, fm.getHeight(), Transparency.TRANSLUCENT);
+            Graphics2D glyphGraphics = antialiased(glyph);
+            glyphGraphics.setColor(Color.WHITE);
+            glyphGraphics.setFont(scoreFont);
+            glyphGraphics.drawString(String.valueOf(digit), digitOffset, digitAscent);
+            glyphGraphics.dispose();
+            digits[digit] = glyph;
+        }
+    }
+
+    /**
+     * Draws the background: a solid fill plus the dashed centre line sprite.
+     */
+    public void drawBackground(Graphics2D g2d) {
+        g2d.setColor(backgroundColor);
+        g2d.fillRect(0, 0, width, height);
+        g2d.drawImage(centreLine, width / 2 - CENTRE_LINE_WIDTH / 2, 0, null);
+    }
+
+    public Image getPaddle1() {
+        return paddle1;
+    }
+
+    public Image getPaddle2() {
+        return paddle2;
+    }
+
+    /**
+     * @param stretchWidth  Width of the (possibly stretched) ball
+     * @param stretchHeight Height of the (possibly stretched) ball
+     * @return The sprite, or null if the stretch is too large to cache
+     */
+    public Image getBall(int stretchWidth, int stretchHeight) {
+        int wide = stretchWidth - ballSize;
+        int tall = stretchHeight - ballSize;
+        if (tall == 0 && wide >= 0 && wide <= MAX_STRETCH) {
+            if (wideBalls[wide] == null) {
+                wideBalls[wide] = createBall(stretchWidth, stretchHeight);
+            }
+            return wideBalls[wide];
+        }
+        if (wide == 0 && tall >= 0 && tall <= MAX_STRETCH) {
+            if (tallBalls[tall] == null) {
+                tallBalls[tall] = createBall(stretchWidth, stretchHeight);
+            }
+            return tallBalls[tall];
+        }
+        return null;
+    }
+
+    /**
+     * Draws a non-negative number from digit sprites.
+     *
+     * @param x Left edge of the text
+     * @param y Baseline of the text
+     */
+    public void drawNumber(Graphics2D g2d, int number, int x, int y) {
+        int digitCount = digitCount(number);
+        for (int i = digitCount - 1; i >= 0; i--) {
+            g2d.drawImage(digits[number % 10], x + i * digitAdvance - digitOffset, y - digitAscent, null);
+            number /= 10;
+        }
+    }
+
+    /**
+     * @return Width of text of the given number of characters in the score font
+     */
+    public int textWidth(int characters) {
+        return characters * digitAdvance;
+    }
+
+    public int getDigitAscent() {
+        return digitAscent;
+    }
+
+    public static int digitCount(int number) {
+        int count = 1;
+        while (number >= 10) {
+            number /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    private Image createPaddle(Color color) {
+        Image paddle = createImage(paddleWidth, paddleHeight, Transparency.TRANSLUCENT);
+        Graphics2D g2d = antialiased(paddle);
+        g2d.setColor(color);
+        g2d.fillRoundRect(0, 0, paddleWidth, paddleHeight, 10, 10);
+        g2d.dispose();
+        return paddle;
+    }
+
+    private Image createBall(int ballWidth, int ballHeight) {
+        Image ball = createImage(ballWidth, ballHeight, Transparency.TRANSLUCENT);
+        Graphics2D g2d = antialiased(ball);
+        g2d.setColor(settings.getBallColor());
+        g2d.fillOval(0, 0, ballWidth, ballHeight);
+        g2d.dispose();
+        return ball;
+    }
+
+    private Image createImage(int imageWidth, int imageHeight, int transparency) {
+        if (configuration != null) {
+            return configuration.createCompatibleImage(imageWidth, imageHeight, transparency);
+        }
+        int type = transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        return new BufferedImage(imageWidth, imageHeight, type);
+    }
+
+    private static Graphics2D antialiased(Image image) {
+        Graphics2D g2d = (Graphics2D) image.getGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        return g2d;
+    }
+}
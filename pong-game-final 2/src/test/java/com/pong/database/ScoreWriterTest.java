@@ -0,0 +1,194 @@
+package com.pong.database;
+import com.pong.database.ScoreManager.ScoresRefusedException;
+import com.pong.model.Score;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a {@link ScoreWriter} against a {@link ScoreManager} that stands in for the database
+ * and fails the way a driver does.
+ */
+class ScoreWriterTest {
+
+    // A score the stand-in database refuses, like a row breaking a constraint
+    private static final int REFUSED_USER = 13;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Keeps the scores it is given, refusing every batch that holds a score of
+     * {@link #REFUSED_USER}, and fails the first few batches before running them, as when no
+     * connection can be had.
+     */
+    private static class FakeScoreManager extends ScoreManager {
+        private final List<Score> stored = new ArrayList<>();
+        private final String failureState;
+        private int failures;
+        private int calls = 0;
+
+        FakeScoreManager() {
+            this(0, null);
+        }
+
+        /**
+         * @param failureState SQL state of the error the first failures give
+         */
+        FakeScoreManager(int failures, String failureState) {
+            this.failures = failures;
+            this.failureState = failureState;
+        }
+
+        @Override
+        public synchronized void addScores(List<Score> scores) {
+            calls++;
+            if (failures > 0) {
+                failures--;
+                throw new RuntimeException("Database error occurred during score insertion",
+                        new SQLException("Error connecting to the database.", new SQLException("Failed", failureState)));
+            }
+            for (Score score : scores) {
+                if (score.getUserId() == REFUSED_USER) {
+                    throw new ScoresRefusedException("Database error occurred during score insertion",
+                            new BatchUpdateException("Duplicate entry", "23000", new int[0]));
+                }
+            }
+            stored.addAll(scores);
+        }
+
+        synchronized List<Score> getStored() {
+            return new ArrayList<>(stored);
+        }
+
+        synchronized int getCalls() {
+            return calls;
+        }
+    }
+
+    @Test
+    void refusedScoreIsDeadLetteredAndTheRestWritten() throws Exception {
+        Path journal = directory.resolve("scores.journal");
+        FakeScoreManager database = new FakeScoreManager();
+        ScoreWriter writer = new ScoreWriter.Builder().setScoreManager(database).setJournal(journal)
+                .setLingerMillis(200).build();
+        for (int user = 10; user < 20; user++) {
+            writer.submit(score(user));
+        }
+        writer.start();
+        awaitWritten(writer);
+        writer.close(1000);
+
+        List<Integer> users = new ArrayList<>();
+        for (Score score : database.getStored()) {
+            users.add(score.getUserId());
+        }
+        assertEquals(List.of(10, 11, 12, 14, 15, 16, 17, 18, 19), users);
+        assertEquals(1, writer.getDeadLettered());
+        assertEquals(9, writer.getWrittenScores());
+
+        List<String> deadLetters = Files.readAllLines(journal.resolveSibling("scores.journal.dead"));
+        assertEquals(1, deadLetters.size());
+        assertTrue(deadLetters.get(0).startsWith(REFUSED_USER + "\t"), deadLetters.get(0));
+        assertTrue(deadLetters.get(0).contains("Duplicate entry"), deadLetters.get(0));
+
+        // The checkpoint moved past the refused score, so a restart does not try it again
+        FakeScoreManager restarted = new FakeScoreManager();
+        ScoreWriter next = new ScoreWriter.Builder().setScoreManager(restarted).setJournal(journal).build();
+        assertEquals(0, next.getPendingScores());
+        next.start();
+        next.close(1000);
+        assertEquals(0, restarted.getCalls());
+    }
+
+    @Test
+    void connectionErrorIsRetriedWithoutSplitting() throws Exception {
+        FakeScoreManager database = new FakeScoreManager(2, "08S01");
+        ScoreWriter writer = new ScoreWriter.Builder().setScoreManager(database)
+                .setJournal(directory.resolve("scores.journal")).setLingerMillis(200).build();
+        for (int user = 20; user < 24; user++) {
+            writer.submit(score(user));
+        }
+        writer.start();
+        awaitWritten(writer);
+        writer.close(1000);
+
+        assertEquals(4, database.getStored().size());
+        assertEquals(3, database.getCalls(), "The batch was split instead of tried again");
+        assertEquals(2, writer.getFailedBatches());
+        assertEquals(1, writer.getBatches());
+        assertEquals(0, writer.getDeadLettered());
+        assertFalse(Files.exists(directory.resolve("scores.journal.dead")));
+    }
+
+    @Test
+    void failureBeforeTheBatchRunsIsRetriedNotDeadLettered() throws Exception {
+        // Access denied: nothing the scores can help, and it may be fixed while the writer waits
+        FakeScoreManager database = new FakeScoreManager(2, "28000");
+        ScoreWriter writer = new ScoreWriter.Builder().setScoreManager(database)
+                .setJournal(directory.resolve("scores.journal")).setLingerMillis(200).build();
+        for (int user = 30; user < 34; user++) {
+            writer.submit(score(user));
+        }
+        writer.start();
+        awaitWritten(writer);
+        writer.close(1000);
+
+        assertEquals(4, database.getStored().size());
+        assertEquals(3, database.getCalls(), "The batch was split instead of tried again");
+        assertEquals(0, writer.getDeadLettered());
+        assertFalse(Files.exists(directory.resolve("scores.journal.dead")));
+    }
+
+    @Test
+    void closingWhileTheDatabaseIsDownKeepsTheScores() throws Exception {
+        Path journal = directory.resolve("scores.journal");
+        FakeScoreManager down = new FakeScoreManager(Integer.MAX_VALUE, "28000");
+        ScoreWriter writer = new ScoreWriter.Builder().setScoreManager(down).setJournal(journal)
+                .setLingerMillis(0).build();
+        for (int user = 40; user < 44; user++) {
+            writer.submit(score(user));
+        }
+        writer.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (down.getCalls() == 0) {
+            assertTrue(System.nanoTime() < deadline, writer.toString());
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        // Interrupts the writer in its pause between tries
+        writer.close(0);
+        assertEquals(0, writer.getDeadLettered());
+        assertFalse(Files.exists(journal.resolveSibling("scores.journal.dead")));
+
+        FakeScoreManager restarted = new FakeScoreManager();
+        ScoreWriter next = new ScoreWriter.Builder().setScoreManager(restarted).setJournal(journal).build();
+        assertEquals(4, next.getPendingScores());
+        next.start();
+        awaitWritten(next);
+        next.close(1000);
+        assertEquals(4, restarted.getStored().size());
+    }
+
+    private static Score score(int user) {
+        return new Score.Builder().setUserId(user).setScore(11).setScorePoints(3).setOpponentScore(7).build();
+    }
+
+    private static void awaitWritten(ScoreWriter writer) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (writer.getPendingScores() > 0) {
+            assertTrue(System.nanoTime() < deadline, writer.toString());
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+}
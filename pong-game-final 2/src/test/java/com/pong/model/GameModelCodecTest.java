@@ -0,0 +1,140 @@
+package com.pong.model;
+import com.pong.physics.PaddleInput;
+import com.pong.physics.PhysicsEngine;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips the state of a played multiball match through {@link GameModelCodec} in both
+ * byte orders, and checks the errors for states it cannot read.
+ */
+class GameModelCodecTest {
+
+    private static final ByteOrder[] ORDERS = {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN};
+
+    @Test
+    void roundTripsInBothByteOrders() {
+        GameModel model = playedModel(3, 1500);
+        assertTrue(model.extraBalls.count > 0, "No extra ball in play");
+        for (ByteOrder order : ORDERS) {
+            for (boolean direct : new boolean[]{false, true}) {
+                ByteBuffer buffer = allocate(GameModelCodec.maxEncodedSize(model), direct, order);
+                GameModelCodec.write(buffer, model);
+                assertEquals(GameModelCodec.encodedSize(model), buffer.position());
+                buffer.flip();
+
+                GameModel restored = GameModelCodec.read(buffer);
+                assertEquals(buffer.limit(), buffer.position(), "Read stopped early in " + order);
+                assertSameState(model, restored, order);
+
+                // Into an existing model, which keeps its ball store
+                buffer.rewind();
+                GameModel target = new GameModel(model.width, model.height, model.paddleWidth,
+                        model.paddleHeight, model.ballSize, model.getMaxScore());
+                target.extraBalls = new BallStore(model.extraBalls.capacity());
+                BallStore store = target.extraBalls;
+                GameModelCodec.read(buffer, target);
+                assertSame(store, target.extraBalls);
+                assertSameState(model, target, order);
+            }
+        }
+    }
+
+    @Test
+    void roundTripsWithoutExtraBalls() {
+        GameModel model = playedModel(1, 300);
+        for (ByteOrder order : ORDERS) {
+            ByteBuffer buffer = allocate(GameModelCodec.maxEncodedSize(model), false, order);
+            GameModelCodec.write(buffer, model);
+            buffer.flip();
+            GameModel restored = GameModelCodec.read(buffer);
+            assertNull(restored.extraBalls);
+            assertSameState(model, restored, order);
+        }
+    }
+
+    @Test
+    void rejectsStateWrittenInOtherByteOrder() {
+        GameModel model = playedModel(3, 200);
+        for (ByteOrder order : ORDERS) {
+            ByteBuffer buffer = allocate(GameModelCodec.maxEncodedSize(model), false, order);
+            GameModelCodec.write(buffer, model);
+            buffer.flip();
+            ByteOrder other = order == ByteOrder.BIG_ENDIAN ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+            buffer.order(other);
+
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                    () -> GameModelCodec.read(buffer));
+            assertTrue(error.getMessage().contains("other byte order"), error.getMessage());
+            assertEquals(0, buffer.position(), "The new-model read moved the buffer");
+            error = assertThrows(IllegalArgumentException.class, () -> GameModelCodec.read(buffer, model));
+            assertTrue(error.getMessage().contains("other byte order"), error.getMessage());
+        }
+    }
+
+    @Test
+    void rejectsOtherVersionsAndDimensions() {
+        GameModel model = playedModel(1, 10);
+        ByteBuffer buffer = ByteBuffer.allocate(GameModelCodec.maxEncodedSize(model));
+        GameModelCodec.write(buffer, model);
+        buffer.flip();
+
+        GameModel smaller = new GameModel(640, 480, model.paddleWidth, model.paddleHeight,
+                model.ballSize, model.getMaxScore());
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> GameModelCodec.read(buffer, smaller));
+        assertTrue(error.getMessage().startsWith("State is for a 800x600 game"), error.getMessage());
+
+        buffer.putShort(0, (short) (GameModelCodec.VERSION + 1));
+        buffer.rewind();
+        error = assertThrows(IllegalArgumentException.class, () -> GameModelCodec.read(buffer));
+        assertTrue(error.getMessage().startsWith("Unsupported state version"), error.getMessage());
+    }
+
+    /**
+     * @return A model part way through a seeded match with random paddle input
+     */
+    private static GameModel playedModel(int ballCount, int ticks) {
+        GameModel model = new GameModel(800, 600, 10, 100, 20, 99);
+        if (ballCount > 1) {
+            model.extraBalls = new BallStore(ballCount - 1);
+        }
+        PhysicsEngine engine = new PhysicsEngine.Builder(model).setSeed(ticks).build();
+        Random random = new Random(ticks);
+        int input = PaddleInput.NONE;
+        for (int tick = 0; tick < ticks; tick++) {
+            if (random.nextInt(8) == 0) {
+                input = random.nextInt(PaddleInput.ALL + 1);
+            }
+            engine.step(input);
+        }
+        return model;
+    }
+
+    private static ByteBuffer allocate(int capacity, boolean direct, ByteOrder order) {
+        return (direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity)).order(order);
+    }
+
+    /**
+     * Compares the two states by their encodings, which cover every field bit for bit, and by hash.
+     */
+    private static void assertSameState(GameModel expected, GameModel actual, ByteOrder order) {
+        assertEquals(GameModelCodec.hash(expected), GameModelCodec.hash(actual), "Hash in " + order);
+        assertArrayEquals(encode(expected), encode(actual), "Encoding in " + order);
+    }
+
+    private static byte[] encode(GameModel model) {
+        ByteBuffer buffer = ByteBuffer.allocate(GameModelCodec.encodedSize(model));
+        GameModelCodec.write(buffer, model);
+        return buffer.array();
+    }
+}
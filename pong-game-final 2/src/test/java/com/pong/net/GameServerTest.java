@@ -0,0 +1,204 @@
+package com.pong.net;
+import com.pong.physics.PaddleInput;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plays matches against a {@link GameServer} on the loopback interface, with a {@link LossyLink}
+ * in front of it where the network matters.
+ */
+class GameServerTest {
+
+    private static final int TICK_RATE = 60;
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1) / TICK_RATE;
+
+    private GameServer server;
+    private LossyLink[] links = new LossyLink[0];
+
+    @AfterEach
+    void stop() {
+        for (LossyLink link : links) {
+            link.close();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void clientsAgreeThroughDelayAndLoss() throws IOException {
+        server = new GameServer.Builder().setPort(0).setTickRate(TICK_RATE).setWorkers(1).setSeed(1).build();
+        server.start();
+        links = new LossyLink[]{
+                new LossyLink(serverAddress(), 30, 10, 0.05, 1),
+                new LossyLink(serverAddress(), 30, 10, 0.05, 2)
+        };
+        for (LossyLink link : links) {
+            link.start();
+        }
+        GameClient left = GameClient.connect(links[0].getAddress(), "left", 3000);
+        GameClient right = GameClient.connect(links[1].getAddress(), "right", 3000);
+        assertEquals(1, left.getSide());
+        assertEquals(2, right.getSide());
+
+        // Random keys for a few seconds, changing every few ticks
+        SplittableRandom random = new SplittableRandom(7);
+        int[] keys = {PaddleInput.NONE, PaddleInput.PADDLE1_UP, PaddleInput.PADDLE1_DOWN};
+        int leftInput = PaddleInput.NONE;
+        int rightInput = PaddleInput.NONE;
+        // A round trip is 60 to 80 ms, about 5 ticks; allow for the server's tick phase and the odd loss
+        int maxUnacknowledged = 0;
+        long next = System.nanoTime();
+        for (int tick = 0; tick < 4 * TICK_RATE; tick++) {
+            if (tick % 8 == 0) {
+                leftInput = keys[random.nextInt(keys.length)];
+                rightInput = keys[random.nextInt(keys.length)];
+            }
+            left.tick(leftInput);
+            right.tick(rightInput);
+            if (tick >= TICK_RATE) {
+                maxUnacknowledged = Math.max(maxUnacknowledged,
+                        Math.max(left.getUnacknowledgedInputs(), right.getUnacknowledgedInputs()));
+            }
+            next = waitFor(next);
+        }
+        assertTrue(maxUnacknowledged <= 20, "Unacknowledged inputs grew to " + maxUnacknowledged);
+
+        // Once the keys are released, every input reaches the server and both views settle
+        for (int tick = 0; tick < TICK_RATE; tick++) {
+            left.tick(PaddleInput.NONE);
+            right.tick(PaddleInput.NONE);
+            next = waitFor(next);
+        }
+        assertFalse(left.isWaiting());
+        assertTrue(left.getUnacknowledgedInputs() <= 20);
+        assertTrue(right.getUnacknowledgedInputs() <= 20);
+        assertEquals(left.getModel().paddle1Y, right.getModel().paddle1Y, "Left paddle");
+        assertEquals(left.getModel().paddle2Y, right.getModel().paddle2Y, "Right paddle");
+        left.close();
+        right.close();
+    }
+
+    @Test
+    void fullServerTurnsPlayersAway() throws IOException {
+        server = new GameServer.Builder().setPort(0).setTickRate(TICK_RATE).setWorkers(1).setMaxMatches(1).build();
+        server.start();
+        GameClient first = GameClient.connect(serverAddress(), "first", 3000);
+        GameClient second = GameClient.connect(serverAddress(), "second", 3000);
+        IOException refused = assertThrows(IOException.class,
+                () -> GameClient.connect(serverAddress(), "third", 3000));
+        assertTrue(refused.getMessage().contains("full"), refused.getMessage());
+        assertEquals(1, server.getMatchCount());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void connectGivesUpWhenNobodyAnswers() throws IOException {
+        try (DatagramChannel silent = DatagramChannel.open()) {
+            silent.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            long start = System.nanoTime();
+            IOException timedOut = assertThrows(IOException.class,
+                    () -> GameClient.connect(silent.getLocalAddress(), "nobody", 500));
+            assertTrue(timedOut.getMessage().startsWith("No answer"), timedOut.getMessage());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(500));
+        }
+    }
+
+    @Test
+    void silentPlayerIsDropped() throws IOException {
+        server = new GameServer.Builder().setPort(0).setTickRate(TICK_RATE).setWorkers(1).build();
+        server.start();
+        GameClient left = GameClient.connect(serverAddress(), "left", 3000);
+        GameClient right = GameClient.connect(serverAddress(), "right", 3000);
+
+        long next = System.nanoTime();
+        for (int tick = 0; tick < TICK_RATE && left.isWaiting(); tick++) {
+            left.tick(PaddleInput.NONE);
+            right.tick(PaddleInput.NONE);
+            next = waitFor(next);
+        }
+        assertFalse(left.isWaiting(), "Match did not start");
+
+        // The right player stops sending without saying goodbye
+        long silentSince = System.nanoTime();
+        long ticks = TimeUnit.NANOSECONDS.toSeconds(GameServer.TIMEOUT_NANOS) * TICK_RATE + TICK_RATE;
+        for (long tick = 0; tick < ticks && !left.isWaiting(); tick++) {
+            left.tick(PaddleInput.NONE);
+            next = waitFor(next);
+        }
+        assertTrue(left.isWaiting(), "Match still running with a silent opponent");
+        assertTrue(System.nanoTime() - silentSince >= GameServer.TIMEOUT_NANOS, "Dropped before the timeout");
+        assertEquals(1, server.getMatchCount());
+        left.close();
+        right.close();
+    }
+
+    @Test
+    void malformedHellosHoldNoSide() throws IOException {
+        server = new GameServer.Builder().setPort(0).setTickRate(TICK_RATE).setWorkers(1).setMaxMatches(1).build();
+        server.start();
+        try (DatagramChannel spoofer = DatagramChannel.open()) {
+            spoofer.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            spoofer.connect(serverAddress());
+            // Cut short before the name length, and a name length past the bytes sent
+            spoofer.write(ByteBuffer.wrap(new byte[]{NetProtocol.HELLO, 0, NetProtocol.VERSION}));
+            spoofer.write(ByteBuffer.wrap(new byte[]{NetProtocol.HELLO, 0, NetProtocol.VERSION, 20, 'x'}));
+            spoofer.write(ByteBuffer.wrap(new byte[]{NetProtocol.HELLO, 0, NetProtocol.VERSION, (byte) 200}));
+        }
+        // Datagrams on the loopback arrive in order, so these hellos come after the bad ones
+        GameClient first = GameClient.connect(serverAddress(), "first", 3000);
+        GameClient second = GameClient.connect(serverAddress(), "second", 3000);
+        assertEquals(1, first.getSide());
+        assertEquals(2, second.getSide());
+        assertEquals(1, server.getMatchCount());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void unclaimedReservationExpires() throws IOException {
+        server = new GameServer.Builder().setPort(0).setTickRate(TICK_RATE).setWorkers(1).setMaxMatches(1).build();
+        server.start();
+        // Placed as if its hello had been routed, but the hello never reaches the match
+        server.place(new InetSocketAddress(InetAddress.getLoopbackAddress(), 9));
+        assertEquals(1, server.getMatchCount());
+
+        long deadline = System.nanoTime() + GameServer.JOIN_TIMEOUT_NANOS + TimeUnit.SECONDS.toNanos(2);
+        while (server.getMatchCount() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TICK_NANOS);
+        }
+        assertEquals(0, server.getMatchCount(), "Reservation held past the join timeout");
+        GameClient player = GameClient.connect(serverAddress(), "player", 3000);
+        assertEquals(1, player.getSide());
+        player.close();
+    }
+
+    private InetSocketAddress serverAddress() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+
+    /**
+     * Parks until the next tick is due, like a client's game loop.
+     *
+     * @return When the tick after it is due
+     */
+    private static long waitFor(long due) {
+        long next = due + TICK_NANOS;
+        LockSupport.parkNanos(next - System.nanoTime());
+        return next;
+    }
+}
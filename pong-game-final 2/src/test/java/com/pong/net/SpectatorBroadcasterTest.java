@@ -0,0 +1,148 @@
+package com.pong.net;
+import com.pong.model.GameModel;
+import com.pong.physics.PaddleInput;
+import com.pong.physics.PhysicsEngine;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Streams a simulated match through a {@link SpectatorBroadcaster} on the loopback interface
+ * to several {@link SpectatorClient}s, one of which never reads.
+ */
+class SpectatorBroadcasterTest {
+
+    private static final int TICK_RATE = 60;
+    private static final int READERS = 4;
+    // Far more frames than the stalled viewer's socket buffers hold
+    private static final int MAX_TICKS = 400_000;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private SpectatorBroadcaster broadcaster;
+    private final List<SpectatorClient> clients = new ArrayList<>();
+
+    @AfterEach
+    void stop() {
+        for (SpectatorClient client : clients) {
+            client.close();
+        }
+        if (broadcaster != null) {
+            broadcaster.close();
+        }
+    }
+
+    @Test
+    void readersEndOnFinalStateWhileStalledViewerSkips() throws IOException {
+        GameModel model = new GameModel(800, 600, 10, 100, 20, 99);
+        PhysicsEngine engine = new PhysicsEngine.Builder(model).setTickRate(TICK_RATE).setSeed(5).build();
+        broadcaster = new SpectatorBroadcaster(0, model, TICK_RATE);
+        broadcaster.start();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), broadcaster.getPort());
+
+        List<SpectatorClient> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            readers.add(connect(address));
+        }
+        // Connected like the others, but never polled, so its socket fills up
+        SpectatorClient stalled = connect(address);
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (broadcaster.getSpectatorCount() < READERS + 1 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertEquals(READERS + 1, broadcaster.getSpectatorCount());
+
+        // Each tick is read by every reader before the next is published, so only the
+        // stalled viewer can fall behind
+        SplittableRandom random = new SplittableRandom(11);
+        int input = PaddleInput.NONE;
+        int tick = 0;
+        while (tick < MAX_TICKS && (broadcaster.getSkips() == 0 || tick < 10 * TICK_RATE)) {
+            if (tick % 16 == 0) {
+                input = random.nextInt(PaddleInput.ALL + 1);
+            }
+            engine.step(input);
+            tick++;
+            broadcaster.publish(model, tick, 0);
+            awaitTick(readers, tick);
+        }
+        assertTrue(broadcaster.getSkips() > 0, "Stalled viewer never skipped in " + tick + " ticks");
+
+        tick++;
+        broadcaster.publish(model, tick, NetProtocol.GAME_OVER);
+        awaitTick(readers, tick);
+        assertEquals(0, broadcaster.getFramesDropped());
+        GameModel expected = asSent(model);
+        for (SpectatorClient reader : readers) {
+            assertEquals(tick, reader.getServerTick());
+            assertTrue(reader.isGameOver());
+            assertSameState(expected, reader.getModel());
+            // None of them missed a frame, however far behind the stalled viewer fell
+            assertEquals(broadcaster.getFramesPublished(), reader.getFramesReceived());
+        }
+
+        // The stalled viewer still gets whole frames once it reads again, from a keyframe on
+        stalled.poll();
+        assertTrue(stalled.isConnected());
+        assertTrue(stalled.getFramesReceived() < broadcaster.getFramesPublished());
+        assertFalse(stalled.isGameOver());
+    }
+
+    private SpectatorClient connect(InetSocketAddress address) throws IOException {
+        SpectatorClient client = SpectatorClient.connect(address, 3000);
+        clients.add(client);
+        return client;
+    }
+
+    /**
+     * Polls the readers until each has applied the given tick.
+     */
+    private static void awaitTick(List<SpectatorClient> readers, int tick) {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        for (SpectatorClient reader : readers) {
+            while (reader.getServerTick() != tick) {
+                assertTrue(System.nanoTime() < deadline, "Tick " + tick + " did not arrive");
+                if (!reader.poll()) {
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The model's state at the precision spectators receive it
+     */
+    private static GameModel asSent(GameModel model) {
+        ByteBuffer state = ByteBuffer.allocate(NetProtocol.MAX_PACKET);
+        NetProtocol.putState(state, model);
+        state.flip();
+        GameModel sent = new GameModel(model.width, model.height, model.paddleWidth, model.paddleHeight,
+                model.ballSize, model.getMaxScore());
+        NetProtocol.getState(state, sent);
+        return sent;
+    }
+
+    private static void assertSameState(GameModel expected, GameModel actual) {
+        assertEquals(expected.paddle1Y, actual.paddle1Y, "Left paddle");
+        assertEquals(expected.paddle1Speed, actual.paddle1Speed, "Left paddle speed");
+        assertEquals(expected.paddle2Y, actual.paddle2Y, "Right paddle");
+        assertEquals(expected.paddle2Speed, actual.paddle2Speed, "Right paddle speed");
+        assertEquals(expected.player1Score, actual.player1Score, "Left score");
+        assertEquals(expected.player2Score, actual.player2Score, "Right score");
+        assertEquals(expected.ballX, actual.ballX, "Ball x");
+        assertEquals(expected.ballY, actual.ballY, "Ball y");
+        assertEquals(expected.ballXSpeed, actual.ballXSpeed, "Ball x speed");
+        assertEquals(expected.ballYSpeed, actual.ballYSpeed, "Ball y speed");
+        assertEquals(expected.deformationFrames, actual.deformationFrames, "Deformation");
+    }
+}
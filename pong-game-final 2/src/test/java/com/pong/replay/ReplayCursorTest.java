@@ -0,0 +1,169 @@
+package com.pong.replay;
+import com.pong.model.BallStore;
+import com.pong.model.GameModel;
+import com.pong.model.Settings;
+import com.pong.physics.PaddleInput;
+import com.pong.physics.PhysicsEngine;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a {@link ReplayCursor} over the encoded states of a recorded multiball match
+ * reproduces, at every tick it is moved to, the state the {@link ReplayPlayer} reaches by
+ * re-simulating the recorded inputs.
+ */
+class ReplayCursorTest {
+
+    private static final long SEED = 20240611L;
+    // Enough for a dozen keyframes
+    private static final int TICKS = 12 * ReplayRecorder.KEYFRAME_INTERVAL + 37;
+
+    @TempDir
+    static Path directory;
+    private static Path file;
+
+    /**
+     * Records a seeded three-ball match the way the game loop does, with a pause and a restart,
+     * and random paddle input that changes every few ticks.
+     */
+    @BeforeAll
+    static void recordMatch() throws IOException {
+        Settings settings = new Settings();
+        settings.setBallCount(3);
+        settings.setScoreLimit(99);
+        GameModel model = new GameModel(800, 600, 10, 100, 20, settings.getScoreLimit());
+        model.extraBalls = new BallStore(settings.getBallCount() - 1);
+        PhysicsEngine engine = new PhysicsEngine.Builder(model)
+                .setTickRate(settings.getTickRate())
+                .setSweptCollision(settings.isSweptCollision())
+                .setSeed(SEED)
+                .build();
+        ReplayRecorder recorder = new ReplayRecorder(SEED, settings, model, "left", "right");
+
+        Random random = new Random(SEED);
+        int input = PaddleInput.NONE;
+        for (int tick = 0; tick < TICKS; tick++) {
+            if (random.nextInt(8) == 0) {
+                input = random.nextInt(PaddleInput.ALL + 1);
+            }
+            int recordedInput = PaddleInput.NONE;
+            if (tick == 2000) {
+                engine.resetMatch();
+                recordedInput |= Replay.RESTART;
+            }
+            if (tick >= 700 && tick < 760) {
+                recordedInput |= Replay.PAUSED;
+            } else {
+                engine.step(input);
+                recordedInput |= input;
+            }
+            recorder.record(recordedInput);
+        }
+        file = directory.resolve("match" + ReplayRecorder.EXTENSION);
+        recorder.write(file);
+    }
+
+    @Test
+    void stepMatchesPlayerAtEveryTick() throws IOException {
+        ReplayPlayer player = new ReplayPlayer(Replay.read(file));
+        ReplayArchive archive = ReplayArchive.open(file);
+        ReplayCursor cursor = new ReplayCursor(archive, archive.createModel());
+        assertEquals(TICKS, archive.getTickCount());
+        assertSameState(player, cursor);
+
+        while (player.step()) {
+            assertTrue(cursor.step());
+            assertSameState(player, cursor);
+        }
+        assertTrue(cursor.isAtEnd());
+        assertFalse(cursor.step());
+        assertTrue(player.matchesRecording());
+    }
+
+    @Test
+    void seekMatchesPlayerForwardAndBackward() throws IOException {
+        Replay replay = Replay.read(file);
+        ReplayArchive archive = ReplayArchive.open(file);
+        ReplayCursor cursor = new ReplayCursor(archive, archive.createModel());
+        int interval = archive.getKeyframeInterval();
+
+        // Keyframes and their neighbours, long and short jumps both ways, and both ends
+        int[] targets = {
+                interval - 1, interval, interval + 1, 5 * interval + 3, 5 * interval + 4, 3 * interval,
+                3 * interval - 1, 0, TICKS, TICKS - 1, 9 * interval + 200, 9 * interval + 100, 1, 2000, 1999,
+                700, 760, 730, 11 * interval, 4 * interval + 17
+        };
+        for (int target : targets) {
+            cursor.seek(target);
+            assertEquals(target, cursor.getTick());
+            assertSameState(playerAt(replay, target), cursor);
+        }
+
+        // Out of range targets are clamped
+        cursor.seek(TICKS + 500);
+        assertEquals(TICKS, cursor.getTick());
+        cursor.seek(-3);
+        assertEquals(0, cursor.getTick());
+    }
+
+    @Test
+    void stepAfterBackwardSeekMatchesPlayer() throws IOException {
+        Replay replay = Replay.read(file);
+        ReplayArchive archive = ReplayArchive.open(file);
+        ReplayCursor cursor = new ReplayCursor(archive, archive.createModel());
+        int interval = archive.getKeyframeInterval();
+
+        cursor.seek(7 * interval + 50);
+        cursor.skip(-3 * interval);
+        int start = 4 * interval + 50;
+        assertEquals(start, cursor.getTick());
+        ReplayPlayer player = playerAt(replay, start);
+        // Across the next keyframe, which the cursor loads rather than decodes
+        for (int i = 0; i < interval + 10; i++) {
+            assertTrue(cursor.step());
+            player.step();
+            assertSameState(player, cursor);
+        }
+    }
+
+    @Test
+    void seekFileIsDerivedFromTheInputs() throws IOException {
+        byte[] recorded = Files.readAllBytes(ReplayArchive.seekFile(file));
+        // The replay itself holds only the run-length encoded inputs
+        assertTrue(Files.size(file) < 2048, "Replay is " + Files.size(file) + " bytes");
+
+        // Without a seek file, opening derives the same one by playing the inputs back
+        Path copy = directory.resolve("copy" + ReplayRecorder.EXTENSION);
+        Files.copy(file, copy);
+        ReplayArchive archive = ReplayArchive.open(copy);
+        assertArrayEquals(recorded, Files.readAllBytes(ReplayArchive.seekFile(copy)));
+        ReplayCursor cursor = new ReplayCursor(archive, archive.createModel());
+        cursor.seek(TICKS - 1);
+        assertSameState(playerAt(Replay.read(file), TICKS - 1), cursor);
+    }
+
+    private static ReplayPlayer playerAt(Replay replay, int tick) {
+        ReplayPlayer player = new ReplayPlayer(replay);
+        while (player.getTick() < tick) {
+            player.step();
+        }
+        return player;
+    }
+
+    private static void assertSameState(ReplayPlayer player, ReplayCursor cursor) {
+        assertEquals(player.getTick(), cursor.getTick());
+        assertTrue(ReplayVerifier.sameState(player.getModel(), cursor.getModel()),
+                () -> "Tick " + cursor.getTick() + ": "
+                        + ReplayVerifier.describeDifference(player.getModel(), cursor.getModel()));
+    }
+}
@@ -0,0 +1,61 @@
+package com.pong.view;
+import com.pong.model.GameModel;
+import com.pong.physics.PaddleInput;
+import com.pong.physics.PhysicsEngine;
+import java.awt.Rectangle;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the regions a {@link DirtyRegion} asks for erase everything that moved.
+ */
+class DirtyRegionTest {
+
+    @Test
+    void restartErasesPaddleThatStoodStill() {
+        GameModel model = new GameModel(800, 600, 10, 100, 20, 11);
+        PhysicsEngine engine = new PhysicsEngine.Builder(model).setSeed(1).build();
+        DirtyRegion dirtyRegion = new DirtyRegion();
+        Rectangle region = new Rectangle();
+
+        // The left paddle moves to the top and then stands still while the ball plays on
+        for (int tick = 0; tick < 30; tick++) {
+            engine.step(PaddleInput.PADDLE1_UP);
+            dirtyRegion.update(model, region);
+        }
+        for (int tick = 0; tick < 30; tick++) {
+            engine.step(PaddleInput.NONE);
+            dirtyRegion.update(model, region);
+        }
+        Rectangle standing = new Rectangle(model.paddle1X, model.paddle1Y, model.paddleWidth, model.paddleHeight);
+
+        // A restart puts it back in the middle, below the score band
+        engine.resetMatch();
+        assertTrue(dirtyRegion.update(model, region));
+        assertTrue(standing.y + standing.height > 100, "Paddle stood inside the score band");
+        assertTrue(region.contains(standing), "Region " + region + " leaves the paddle at " + standing);
+        assertTrue(region.contains(model.paddle1X, model.paddle1Y, model.paddleWidth, model.paddleHeight));
+    }
+
+    @Test
+    void stillGameRepaintsOnceThenNothing() {
+        GameModel model = new GameModel(800, 600, 10, 100, 20, 11);
+        PhysicsEngine engine = new PhysicsEngine.Builder(model).setSeed(1).build();
+        DirtyRegion dirtyRegion = new DirtyRegion();
+        Rectangle region = new Rectangle();
+
+        assertTrue(dirtyRegion.update(model, region));
+        assertEquals(new Rectangle(0, 0, model.width, model.height), region);
+        engine.step(PaddleInput.PADDLE2_DOWN);
+        assertTrue(dirtyRegion.update(model, region));
+        Rectangle moved = new Rectangle(region);
+
+        // Frozen, as while paused: the last region once more, then nothing
+        assertTrue(dirtyRegion.update(model, region));
+        assertTrue(moved.contains(region));
+        assertFalse(dirtyRegion.update(model, region));
+    }
+}